@@ -0,0 +1,100 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.common.model.VerseTokenPairGroup;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.util.AsyncMorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.VERSE_COUNTS;
+
+/**
+ * Compares throughput of {@link #CONCURRENT_REQUESTS} concurrent requests, each fetching tokens and dependency graphs
+ * of a random verse. <code>BLOCKING</code> serves requests with the blocking API on a fixed pool of platform threads
+ * (as a servlet container would), <code>ASYNC</code> with {@link AsyncMorphologicalAnalysisRepositoryUtil}, which
+ * fetches tokens and graphs in parallel.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AsyncThroughputBenchmark {
+
+    private static final int CONCURRENT_REQUESTS = 1000;
+
+    @Param({"BLOCKING", "ASYNC"})
+    public String mode;
+
+    @Param({"200"})
+    public int blockingThreads;
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private AsyncMorphologicalAnalysisRepositoryUtil asyncRepositoryUtil;
+    private ExecutorService requestExecutor;
+    private VerseTokenPairGroup[] groups;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        asyncRepositoryUtil = environment.getBean(AsyncMorphologicalAnalysisRepositoryUtil.class);
+        requestExecutor = Executors.newFixedThreadPool(blockingThreads);
+        final Random random = new Random(CONCURRENT_REQUESTS);
+        groups = new VerseTokenPairGroup[CONCURRENT_REQUESTS];
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            final int chapterNumber = 1 + random.nextInt(VERSE_COUNTS.length);
+            final int verseNumber = 1 + random.nextInt(VERSE_COUNTS[chapterNumber - 1]);
+            final DependencyGraph graph = repositoryUtil.getDependencyGraph(String.format("%s:%s", chapterNumber,
+                    verseNumber));
+            final VerseTokenPairGroup group = new VerseTokenPairGroup();
+            group.setChapterNumber(chapterNumber);
+            group.getPairs().addAll(graph.getTokens());
+            groups[i] = group;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_REQUESTS)
+    public int serveRequests() {
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[CONCURRENT_REQUESTS];
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            final VerseTokenPairGroup group = groups[i];
+            if ("ASYNC".equals(mode)) {
+                futures[i] = asyncRepositoryUtil.getTokensAndDependencyGraphs(group,
+                        (tokens, graphs) -> tokens.size() + graphs.size());
+            } else {
+                futures[i] = CompletableFuture.supplyAsync(() -> repositoryUtil.getTokens(group).size()
+                        + repositoryUtil.getDependencyGraphs(group).size(), requestExecutor);
+            }
+        }
+        CompletableFuture.allOf(futures).join();
+        return futures.length;
+    }
+
+    @TearDown
+    public void tearDown() {
+        requestExecutor.shutdown();
+    }
+}
@@ -0,0 +1,93 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.BatchedDocumentReader;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_CHAPTER;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Compares reading all tokens of a chapter and all morphological entries, with references resolved one by one by
+ * {@link MongoTemplate} (<code>TEMPLATE</code>), prefetched by {@link BatchedDocumentReader} (<code>BATCHED</code>) and
+ * left unresolved until accessed (<code>LAZY</code>, only the first token's locations are touched).
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchedReadBenchmark {
+
+    @Param({"TEMPLATE", "BATCHED", "LAZY"})
+    public String mode;
+
+    private MongoTemplate mongoTemplate;
+    private BatchedDocumentReader batchedDocumentReader;
+    private Query tokensQuery;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        batchedDocumentReader = environment.getBean(BatchedDocumentReader.class);
+        batchedDocumentReader.setLazyLocations("LAZY".equals(mode));
+        tokensQuery = new Query(where("chapterNumber").is(LONG_VERSE_CHAPTER));
+    }
+
+    @TearDown
+    public void tearDown() {
+        batchedDocumentReader.setLazyLocations(false);
+    }
+
+    @Benchmark
+    public int readChapterTokens() {
+        final List<Token> tokens = "TEMPLATE".equals(mode) ? mongoTemplate.find(tokensQuery, Token.class)
+                : batchedDocumentReader.find(tokensQuery, Token.class);
+        if ("LAZY".equals(mode)) {
+            return tokens.isEmpty() ? 0 : tokens.get(0).getLocations().size();
+        }
+        int count = 0;
+        for (Token token : tokens) {
+            count += token.getLocations().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int readMorphologicalEntries() {
+        final Query query = new Query();
+        final List<MorphologicalEntry> entries = "TEMPLATE".equals(mode)
+                ? mongoTemplate.find(query, MorphologicalEntry.class)
+                : batchedDocumentReader.find(query, MorphologicalEntry.class);
+        if ("LAZY".equals(mode)) {
+            return entries.size();
+        }
+        // resolves the locations read with each entry, i.e. its summary (see "MorphologicalEntryLocations")
+        int count = 0;
+        for (MorphologicalEntry entry : entries) {
+            count += entry.getLocations().size();
+        }
+        return count;
+    }
+}
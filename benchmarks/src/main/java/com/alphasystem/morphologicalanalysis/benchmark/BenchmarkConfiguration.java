@@ -0,0 +1,62 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.metrics.MongoCommandMetricsListener;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+
+/**
+ * Spring configuration of the repository against the embedded MongoDB started by {@link BenchmarkEnvironment}.
+ *
+ * @author sali
+ */
+@Configuration
+@EnableMongoRepositories(basePackages = {"com.alphasystem.morphologicalanalysis.wordbyword.repository",
+        "com.alphasystem.morphologicalanalysis.graph.repository",
+        "com.alphasystem.morphologicalanalysis.morphology.repository"})
+@ComponentScan(basePackages = {"com.alphasystem.morphologicalanalysis.util",
+        "com.alphasystem.morphologicalanalysis.wordbyword.listener",
+        "com.alphasystem.morphologicalanalysis.graph.listener",
+        "com.alphasystem.morphologicalanalysis.morphology.listener",
+        "com.alphasystem.morphologicalanalysis.morphology.repository"})
+public class BenchmarkConfiguration {
+
+    static final String DATABASE_NAME = "morphological-analysis-benchmark";
+
+    @Bean
+    public MongoClient mongoClient(MongoCommandMetricsListener commandMetricsListener) {
+        final MongoClientOptions options = MongoClientOptions.builder().addCommandListener(commandMetricsListener)
+                // allow thousands of concurrent requests to wait for a connection
+                .threadsAllowedToBlockForConnectionMultiplier(50).build();
+        return new MongoClient(new ServerAddress("localhost", Integer.getInteger(BenchmarkEnvironment.PORT_PROPERTY)),
+                options);
+    }
+
+    @Bean
+    public MongoDbFactory mongoDbFactory(MongoClient mongoClient) {
+        return new SimpleMongoDbFactory(mongoClient, DATABASE_NAME);
+    }
+
+    @Bean
+    public MongoTemplate mongoTemplate(MongoDbFactory mongoDbFactory) {
+        return new MongoTemplate(mongoDbFactory);
+    }
+
+    @Bean
+    public CorpusSeeder corpusSeeder() {
+        return new CorpusSeeder();
+    }
+
+    @Bean
+    public GridFsTemplate gridFsTemplate(MongoDbFactory mongoDbFactory, MongoTemplate mongoTemplate) {
+        return new GridFsTemplate(mongoDbFactory, mongoTemplate.getConverter());
+    }
+}
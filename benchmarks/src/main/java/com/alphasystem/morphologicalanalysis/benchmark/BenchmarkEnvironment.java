@@ -0,0 +1,74 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Per JVM environment shared by all benchmarks: an embedded MongoDB process, the Spring context of the repository
+ * and a synthetic corpus seeded by {@link CorpusSeeder}.
+ * <p>
+ * Environment is started on first access and stopped by a shutdown hook. Since JMH runs each benchmark in its own
+ * fork, every benchmark works on a freshly seeded corpus.
+ * </p>
+ *
+ * @author sali
+ */
+public final class BenchmarkEnvironment {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkEnvironment.class);
+    static final String PORT_PROPERTY = "benchmark.mongo.port";
+    private static volatile BenchmarkEnvironment instance;
+
+    private final MongodExecutable mongodExecutable;
+    private final MongodProcess mongodProcess;
+    private final Net net;
+    private final AnnotationConfigApplicationContext context;
+
+    private BenchmarkEnvironment() throws Exception {
+        net = new Net();
+        LOGGER.info("Starting embedded MongoDB on port {}", net.getPort());
+        mongodExecutable = MongodStarter.getDefaultInstance().prepare(new MongodConfigBuilder()
+                .version(Version.Main.V3_4).net(net).build());
+        mongodProcess = mongodExecutable.start();
+        System.setProperty(PORT_PROPERTY, String.valueOf(net.getPort()));
+        context = new AnnotationConfigApplicationContext(BenchmarkConfiguration.class);
+        context.getBean(CorpusSeeder.class).seed();
+    }
+
+    public static BenchmarkEnvironment getInstance() {
+        if (instance == null) {
+            synchronized (BenchmarkEnvironment.class) {
+                if (instance == null) {
+                    try {
+                        instance = new BenchmarkEnvironment();
+                    } catch (Exception e) {
+                        throw new RuntimeException("Unable to start benchmark environment", e);
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(instance::stop));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void stop() {
+        LOGGER.info("Stopping benchmark environment");
+        try {
+            context.close();
+        } finally {
+            mongodProcess.stop();
+            mongodExecutable.stop();
+        }
+    }
+}
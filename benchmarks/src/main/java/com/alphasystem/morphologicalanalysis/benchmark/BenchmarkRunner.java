@@ -0,0 +1,36 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar, runs all benchmarks (or the ones matching given regular expression) and writes
+ * the results in JSON format.
+ * <p>
+ * Usage: <code>java -jar target/benchmarks.jar [include-regex] [result-file]</code>, result file defaults to
+ * <code>target/jmh-result.json</code>.
+ * </p>
+ *
+ * @author sali
+ */
+public final class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final String include = (args.length > 0) ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*";
+        final String resultFile = (args.length > 1) ? args[1] : DEFAULT_RESULT_FILE;
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.util.concordance.ConcordanceEngine;
+import com.alphasystem.morphologicalanalysis.util.concordance.ConcordanceLine;
+import com.alphasystem.morphologicalanalysis.util.concordance.ConcordanceOrder;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.VERSE_COUNTS;
+import static com.alphasystem.morphologicalanalysis.util.concordance.ConcordanceEngine.DEFAULT_CONTEXT_SIZE;
+
+/**
+ * Benchmarks concordance of a high frequency word (more than 2,000 hits): first page in reading order, first page
+ * ranked by right context (which needs the context of every hit) and, as baseline, the same first page built with
+ * <code>getPreviousToken</code>/<code>getNextToken</code>.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcordanceBenchmark {
+
+    private static final String WORD = "\u0642\u0627\u0644";
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"2500", "6000"})
+    public int hitCount;
+
+    private ConcordanceEngine concordanceEngine;
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        concordanceEngine = environment.getBean(ConcordanceEngine.class);
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        // third token of the first "hitCount" verses becomes the high frequency word
+        long upperBound = Long.MAX_VALUE;
+        int verses = 0;
+        for (int chapterNumber = 1; chapterNumber <= VERSE_COUNTS.length && upperBound == Long.MAX_VALUE; chapterNumber++) {
+            if (verses + VERSE_COUNTS[chapterNumber - 1] >= hitCount) {
+                upperBound = LocationKey.encode(chapterNumber, hitCount - verses + 1, 0, 0);
+            }
+            verses += VERSE_COUNTS[chapterNumber - 1];
+        }
+        environment.getBean(MongoTemplate.class).updateMulti(new Query(Criteria.where("tokenNumber").is(3)
+                .and(LocationKey.FIELD_NAME).lt(upperBound)), Update.update("token", WORD), Token.class);
+    }
+
+    @Benchmark
+    public Page<ConcordanceLine> firstPage() {
+        return concordanceEngine.findByWord(WORD, DEFAULT_CONTEXT_SIZE, ConcordanceOrder.READING_ORDER,
+                new PageRequest(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<ConcordanceLine> firstPageByRightContext() {
+        return concordanceEngine.findByWord(WORD, DEFAULT_CONTEXT_SIZE, ConcordanceOrder.RIGHT_CONTEXT,
+                new PageRequest(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<List<Token>> firstPageByNavigation() {
+        final Page<ConcordanceLine> hits = concordanceEngine.findByWord(WORD, 0, ConcordanceOrder.READING_ORDER,
+                new PageRequest(0, PAGE_SIZE));
+        final List<List<Token>> lines = new ArrayList<>(PAGE_SIZE);
+        hits.forEach(line -> {
+            final List<Token> tokens = new ArrayList<>();
+            final Token token = new Token(line.getChapterNumber(), line.getVerseNumber(), line.getTokenNumber(), line.getKeyword());
+            Token previous = token;
+            Token next = token;
+            for (int i = 0; i < DEFAULT_CONTEXT_SIZE; i++) {
+                previous = (previous == null) ? null : repositoryUtil.getPreviousToken(previous);
+                next = (next == null) ? null : repositoryUtil.getNextToken(next);
+                tokens.add(previous);
+                tokens.add(next);
+            }
+            lines.add(tokens);
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,275 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.arabic.model.ArabicLetterType;
+import com.alphasystem.arabic.model.NamedTemplate;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ImpliedNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
+import com.alphasystem.morphologicalanalysis.graph.model.TerminalNode;
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.graph.model.support.RelationshipType;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryCache;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.support.WordType;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a synthetic corpus with realistic shape: 114 chapters with the verse counts of the Quran (6236 verses),
+ * 3 to 22 tokens per verse (about 78 thousand tokens), 1 to 3 locations per token, one dependency graph per verse and
+ * a few hundred morphological entries.
+ * <p>
+ * Data is generated from fixed seed, so that every run works on identical corpus.
+ * </p>
+ *
+ * @author sali
+ */
+public class CorpusSeeder {
+
+    public static final int[] VERSE_COUNTS = {7, 286, 200, 176, 120, 165, 206, 75, 129, 109, 123, 111, 43, 52, 99, 128,
+            111, 110, 98, 135, 112, 78, 118, 64, 77, 227, 93, 88, 69, 60, 34, 30, 73, 54, 45, 83, 182, 88, 75, 85, 54,
+            53, 89, 59, 37, 35, 38, 29, 18, 45, 60, 49, 62, 55, 78, 96, 29, 22, 24, 13, 14, 11, 11, 18, 12, 12, 30, 52,
+            52, 44, 28, 28, 20, 56, 40, 31, 50, 40, 46, 42, 29, 19, 36, 25, 22, 17, 19, 26, 30, 20, 15, 21, 11, 8, 8,
+            19, 5, 8, 8, 11, 11, 8, 3, 9, 5, 4, 7, 3, 6, 3, 5, 4, 5, 6};
+
+    /**
+     * Verse reserved for write benchmarks, seeded with {@link #LONG_VERSE_TOKEN_COUNT} tokens.
+     */
+    public static final int LONG_VERSE_CHAPTER = 2;
+    public static final int LONG_VERSE_NUMBER = 282;
+    public static final int LONG_VERSE_TOKEN_COUNT = 100;
+
+    public static final int MORPHOLOGICAL_ENTRY_COUNT = 300;
+
+    public static final int TERMINALS_PER_GRAPH = 4;
+    public static final int RELATIONSHIPS_PER_GRAPH = 3;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CorpusSeeder.class);
+    private static final long SEED = 114L;
+    private static final char[] LETTERS = ("\u0627\u0628\u062a\u062b\u062c\u062d\u062e\u062f\u0630\u0631\u0632\u0633\u0634\u0635"
+            + "\u0636\u0637\u0638\u0639\u063a\u0641\u0642\u0643\u0644\u0645\u0646\u0647\u0648\u064a").toCharArray();
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private CorpusNavigationIndex navigationIndex;
+    @Autowired private MorphologicalEntryCache morphologicalEntryCache;
+    private final List<MorphologicalEntry> morphologicalEntries = new ArrayList<>();
+
+    public void seed() {
+        final long start = System.currentTimeMillis();
+        final Random random = new Random(SEED);
+        seedMorphologicalEntries(random);
+        int tokenCount = 0;
+        for (int chapterNumber = 1; chapterNumber <= VERSE_COUNTS.length; chapterNumber++) {
+            tokenCount += seedChapter(chapterNumber, random);
+        }
+        navigationIndex.invalidate();
+        morphologicalEntryCache.invalidateAll();
+        LOGGER.info("Seeded {} chapters with {} tokens in {} ms", VERSE_COUNTS.length, tokenCount,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return seeded morphological entries
+     */
+    public List<MorphologicalEntry> getMorphologicalEntries() {
+        return morphologicalEntries;
+    }
+
+    /**
+     * Replaces all tokens and locations of the given verse with <code>tokenCount</code> new tokens, each location is
+     * attached to one of the seeded morphological entries.
+     *
+     * @param chapterNumber chapter number
+     * @param verseNumber   verse number
+     * @param tokenCount    number of tokens
+     * @param random        random source
+     */
+    public void reseedVerse(int chapterNumber, int verseNumber, int tokenCount, Random random) {
+        final Query query = new Query(Criteria.where("chapterNumber").is(chapterNumber).and("verseNumber").is(verseNumber));
+        mongoTemplate.remove(query, Location.class);
+        mongoTemplate.remove(query, Token.class);
+        mongoTemplate.remove(query, Verse.class);
+        seedVerse(chapterNumber, verseNumber, tokenCount, random, true);
+    }
+
+    /**
+     * Attaches a small syntax tree to each of the first <code>graphCount</code> dependency graphs (in reading order):
+     * {@link #TERMINALS_PER_GRAPH} terminal nodes and one implied node, each with one part of speech node, and
+     * {@link #RELATIONSHIPS_PER_GRAPH} relationships between random part of speech nodes. Nodes are inserted raw,
+     * without firing any listeners.
+     *
+     * @param graphCount number of graphs
+     * @param random     random source
+     * @return display names of the graphs
+     */
+    public List<String> seedGraphNodes(int graphCount, Random random) {
+        final DBCollection graphCollection = mongoTemplate.getCollection(
+                mongoTemplate.getCollectionName(DependencyGraph.class));
+        final List<String> displayNames = new ArrayList<>(graphCount);
+        try (DBCursor cursor = graphCollection.find().limit(graphCount)) {
+            for (DBObject graph : cursor) {
+                final String displayName = (String) graph.get("displayName");
+                final String[] parts = displayName.split(":");
+                final int chapterNumber = Integer.parseInt(parts[0]);
+                final int verseNumber = Integer.parseInt(parts[1]);
+                final List<DBRef> nodes = new ArrayList<>();
+                final List<DBRef> partOfSpeechNodes = new ArrayList<>();
+                for (int tokenNumber = 1; tokenNumber <= TERMINALS_PER_GRAPH + 1; tokenNumber++) {
+                    // last terminal of every graph is an implied node
+                    final boolean implied = tokenNumber > TERMINALS_PER_GRAPH;
+                    final DBRef partOfSpeechNode = insertNode(PartOfSpeechNode.class, GraphNodeType.PART_OF_SPEECH,
+                            chapterNumber, verseNumber, tokenNumber, new BasicDBObject("locationNumber", 1));
+                    nodes.add(insertNode(implied ? ImpliedNode.class : TerminalNode.class,
+                            implied ? GraphNodeType.IMPLIED : GraphNodeType.TERMINAL, chapterNumber, verseNumber,
+                            tokenNumber, new BasicDBObject("partOfSpeechNodes", Arrays.asList(partOfSpeechNode))));
+                    nodes.add(partOfSpeechNode);
+                    partOfSpeechNodes.add(partOfSpeechNode);
+                }
+                final RelationshipType[] relationshipTypes = RelationshipType.values();
+                for (int i = 0; i < RELATIONSHIPS_PER_GRAPH; i++) {
+                    final DBRef dependent = partOfSpeechNodes.get(random.nextInt(partOfSpeechNodes.size()));
+                    final DBRef owner = partOfSpeechNodes.get(random.nextInt(partOfSpeechNodes.size()));
+                    nodes.add(insertNode(RelationshipNode.class, GraphNodeType.RELATIONSHIP, chapterNumber,
+                            verseNumber, 0, new BasicDBObject("dependent", dependent).append("owner", owner)
+                                    .append("relationship",
+                                            relationshipTypes[random.nextInt(relationshipTypes.length)].name())));
+                }
+                graphCollection.update(new BasicDBObject("_id", graph.get("_id")),
+                        new BasicDBObject("$set", new BasicDBObject("nodes", nodes)));
+                displayNames.add(displayName);
+            }
+        }
+        return displayNames;
+    }
+
+    private DBRef insertNode(Class<? extends GraphNode> nodeClass, GraphNodeType nodeType, int chapterNumber,
+                             int verseNumber, int tokenNumber, DBObject dbObject) {
+        final ObjectId id = new ObjectId();
+        final String collectionName = mongoTemplate.getCollectionName(nodeClass);
+        dbObject.put("_id", id);
+        dbObject.put("graphNodeType", nodeType.name());
+        dbObject.put("chapterNumber", chapterNumber);
+        dbObject.put("verseNumber", verseNumber);
+        dbObject.put("tokenNumber", tokenNumber);
+        dbObject.put(LocationKey.FIELD_NAME, LocationKey.encode(chapterNumber, verseNumber, tokenNumber, 0));
+        mongoTemplate.getCollection(collectionName).insert(dbObject);
+        return new DBRef(collectionName, id);
+    }
+
+    private void seedMorphologicalEntries(Random random) {
+        final ArabicLetterType[] letters = ArabicLetterType.values();
+        final NamedTemplate[] forms = NamedTemplate.values();
+        for (int i = 0; i < MORPHOLOGICAL_ENTRY_COUNT; i++) {
+            final RootLetters rootLetters = new RootLetters(letters[random.nextInt(letters.length)],
+                    letters[random.nextInt(letters.length)], letters[random.nextInt(letters.length)]);
+            final MorphologicalEntry entry = new MorphologicalEntry(rootLetters, forms[random.nextInt(forms.length)]);
+            entry.initDisplayName();
+            if (morphologicalEntries.stream().noneMatch(e -> e.getDisplayName().equals(entry.getDisplayName()))) {
+                morphologicalEntries.add(entry);
+            }
+        }
+        mongoTemplate.insert(morphologicalEntries, MorphologicalEntry.class);
+    }
+
+    private int seedChapter(int chapterNumber, Random random) {
+        final int verseCount = VERSE_COUNTS[chapterNumber - 1];
+        int tokenCount = 0;
+        final List<DBObject> graphs = new ArrayList<>();
+        for (int verseNumber = 1; verseNumber <= verseCount; verseNumber++) {
+            final int verseTokenCount = (chapterNumber == LONG_VERSE_CHAPTER && verseNumber == LONG_VERSE_NUMBER)
+                    ? LONG_VERSE_TOKEN_COUNT : 3 + random.nextInt(20);
+            seedVerse(chapterNumber, verseNumber, verseTokenCount, random, false);
+            tokenCount += verseTokenCount;
+            graphs.add(new BasicDBObject("chapterNumber", chapterNumber)
+                    .append("displayName", String.format("%s:%s", chapterNumber, verseNumber))
+                    .append("tokens", new BasicDBObject[]{new BasicDBObject("verseNumber", verseNumber)
+                            .append("firstTokenIndex", 1).append("lastTokenIndex", verseTokenCount)}));
+        }
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(DependencyGraph.class)).insert(graphs);
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Chapter.class)).insert(
+                new BasicDBObject("chapterNumber", chapterNumber).append("verseCount", verseCount)
+                        .append("chapterName", String.format("Chapter %s", chapterNumber)));
+        return tokenCount;
+    }
+
+    private void seedVerse(int chapterNumber, int verseNumber, int tokenCount, Random random,
+                           boolean attachEntries) {
+        final List<Token> tokens = new ArrayList<>();
+        final List<Location> locations = new ArrayList<>();
+        for (int tokenNumber = 1; tokenNumber <= tokenCount; tokenNumber++) {
+            final Token token = new Token(chapterNumber, verseNumber, tokenNumber, randomWord(random));
+            final int r = random.nextInt(100);
+            final int locationCount = (r < 50) ? 1 : ((r < 85) ? 2 : 3);
+            for (int locationNumber = 1; locationNumber <= locationCount; locationNumber++) {
+                final Location location = new Location(chapterNumber, verseNumber, tokenNumber, locationNumber,
+                        WordType.values()[random.nextInt(WordType.values().length)]);
+                if (attachEntries) {
+                    location.setMorphologicalEntry(morphologicalEntries.get(random.nextInt(morphologicalEntries.size())));
+                }
+                token.addLocation(location);
+                locations.add(location);
+            }
+            tokens.add(token);
+        }
+        mongoTemplate.insert(locations, Location.class);
+        mongoTemplate.insert(tokens, Token.class);
+
+        final String tokenCollection = mongoTemplate.getCollectionName(Token.class);
+        final List<DBRef> tokenRefs = new ArrayList<>();
+        tokens.forEach(token -> tokenRefs.add(new DBRef(tokenCollection, new ObjectId(token.getId()))));
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Verse.class)).insert(
+                new BasicDBObject("chapterNumber", chapterNumber).append("verseNumber", verseNumber)
+                        .append("tokenCount", tokenCount).append("tokens", tokenRefs));
+
+        if (attachEntries) {
+            // maintain back references, same as the editor does
+            final String locationCollection = mongoTemplate.getCollectionName(Location.class);
+            morphologicalEntries.forEach(entry -> {
+                final List<DBRef> refs = new ArrayList<>();
+                locations.forEach(location -> {
+                    if (location.getMorphologicalEntry() == entry) {
+                        refs.add(new DBRef(locationCollection, new ObjectId(location.getId())));
+                    }
+                });
+                if (!refs.isEmpty()) {
+                    mongoTemplate.updateFirst(new Query(Criteria.where("id").is(entry.getId())),
+                            new Update().push("locations").each(refs.toArray()), MorphologicalEntry.class);
+                }
+            });
+        }
+    }
+
+    private static String randomWord(Random random) {
+        final int length = 2 + random.nextInt(5);
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(LETTERS[random.nextInt(LETTERS.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ImpliedNode;
+import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
+import com.alphasystem.morphologicalanalysis.graph.model.support.RelationshipType;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.util.graph.CorpusGraph;
+import com.alphasystem.morphologicalanalysis.util.graph.DependencyGraphEngine;
+import com.alphasystem.morphologicalanalysis.util.graph.GraphPattern;
+import com.alphasystem.morphologicalanalysis.util.graph.NodeFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.IMPLIED;
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.PART_OF_SPEECH;
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.RELATIONSHIP;
+
+/**
+ * Compares finding all subject relationships whose dependent is an implied node with {@link DependencyGraphEngine}
+ * against loading every graph with <code>getDependencyGraph</code> and walking its nodes, over the first
+ * <code>graphCount</code> graphs with nodes seeded by {@link CorpusSeeder#seedGraphNodes(int, Random)}.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyGraphEngineBenchmark {
+
+    @Param({"500"})
+    public int graphCount;
+
+    private DependencyGraphEngine dependencyGraphEngine;
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private GraphPattern pattern;
+    private List<String> displayNames;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        dependencyGraphEngine = environment.getBean(DependencyGraphEngine.class);
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        displayNames = environment.getBean(CorpusSeeder.class).seedGraphNodes(graphCount, new Random(graphCount));
+        pattern = GraphPattern.start(NodeFilter.type(RELATIONSHIP).label(RelationshipType.SUBJ))
+                .out("dependent", NodeFilter.type(PART_OF_SPEECH))
+                .in("partOfSpeechNodes", NodeFilter.type(IMPLIED));
+        // load graph outside of the measurement
+        dependencyGraphEngine.invalidate();
+        dependencyGraphEngine.getGraph();
+    }
+
+    @Benchmark
+    public int matchWithEngine() {
+        return dependencyGraphEngine.getGraph().match(pattern).size();
+    }
+
+    @Benchmark
+    public CorpusGraph loadGraph() {
+        dependencyGraphEngine.invalidate();
+        return dependencyGraphEngine.getGraph();
+    }
+
+    @Benchmark
+    public int matchPerGraph() {
+        int count = 0;
+        for (String displayName : displayNames) {
+            final List<GraphNode> nodes = repositoryUtil.getDependencyGraph(displayName).getNodes();
+            for (GraphNode node : nodes) {
+                if (!(node instanceof RelationshipNode)
+                        || ((RelationshipNode) node).getRelationship() != RelationshipType.SUBJ) {
+                    continue;
+                }
+                final GraphNode dependent = ((RelationshipNode) node).getDependent();
+                for (GraphNode candidate : nodes) {
+                    if (candidate instanceof ImpliedNode && ((ImpliedNode) candidate).getPartOfSpeechNodes().stream()
+                            .anyMatch(partOfSpeechNode -> partOfSpeechNode.getId().equals(dependent.getId()))) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
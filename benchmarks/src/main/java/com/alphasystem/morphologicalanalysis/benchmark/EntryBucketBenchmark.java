@@ -0,0 +1,116 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the morphological entry with the most locations, with all references embedded in <code>locations</code>
+ * (<code>EMBEDDED</code>, the layout before bucketing) or migrated into summary and buckets (<code>BUCKETED</code>),
+ * then measures loading the copy and adding (and removing) a location to it.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryBucketBenchmark {
+
+    @Param({"EMBEDDED", "BUCKETED"})
+    public String layout;
+
+    private MongoTemplate mongoTemplate;
+    private MorphologicalEntryLocations morphologicalEntryLocations;
+    private int summarySize;
+    private ObjectId entryId;
+    private Location location;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        morphologicalEntryLocations = environment.getBean(MorphologicalEntryLocations.class);
+        summarySize = morphologicalEntryLocations.getSummarySize();
+
+        final DBCollection entries = mongoTemplate.getCollection(
+                mongoTemplate.getCollectionName(MorphologicalEntry.class));
+        final DBObject entry = entries.find().sort(new BasicDBObject(MorphologicalEntryLocations.LOCATION_COUNT, -1))
+                .limit(1).one();
+        if (entry == null) {
+            throw new IllegalStateException("No morphological entry found");
+        }
+        final String sourceId = entry.get("_id").toString();
+        final BasicDBList references = new BasicDBList();
+        List<DBRef> page;
+        do {
+            page = morphologicalEntryLocations.getReferences(sourceId, references.size(),
+                    MorphologicalEntryLocations.DEFAULT_PAGE_SIZE);
+            references.addAll(page);
+        } while (page.size() == MorphologicalEntryLocations.DEFAULT_PAGE_SIZE);
+
+        entryId = new ObjectId();
+        entry.put("_id", entryId);
+        entry.put("displayName", entry.get("displayName") + "#" + entryId);
+        entry.put(MorphologicalEntryLocations.LOCATIONS, references);
+        entry.put(MorphologicalEntryLocations.LOCATION_COUNT, references.size());
+        entry.put(MorphologicalEntryLocations.OVERFLOW_COUNT, 0);
+        entries.insert(entry);
+        if ("BUCKETED".equals(layout)) {
+            morphologicalEntryLocations.migrate(entryId.toString());
+        } else {
+            // keep appending to "locations", as before bucketing
+            morphologicalEntryLocations.setSummarySize(Integer.MAX_VALUE);
+        }
+
+        location = mongoTemplate.findOne(new Query(Criteria.where("morphologicalEntry").exists(false)), Location.class);
+        if (location == null) {
+            throw new IllegalStateException("No location without morphological entry found");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        morphologicalEntryLocations.setSummarySize(summarySize);
+        final DBObject query = new BasicDBObject("_id", entryId);
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(MorphologicalEntry.class)).remove(query);
+        morphologicalEntryLocations.entriesDeleted(query);
+    }
+
+    @Benchmark
+    public MorphologicalEntry loadEntry() {
+        return mongoTemplate.findById(entryId, MorphologicalEntry.class);
+    }
+
+    @Benchmark
+    public boolean addLocation() {
+        return morphologicalEntryLocations.addLocation(entryId.toString(), location.getId())
+                && morphologicalEntryLocations.removeLocation(entryId.toString(), location.getId());
+    }
+}
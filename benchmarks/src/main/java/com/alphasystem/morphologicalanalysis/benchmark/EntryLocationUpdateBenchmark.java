@@ -0,0 +1,87 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds a location to the morphological entry with the most locations and removes it again, either by loading the
+ * entry and writing back its whole <code>locations</code> (<code>SAVE</code>) or with atomic updates of
+ * {@link MorphologicalEntryLocations} (<code>ATOMIC</code>). <code>SAVE</code> does not save the whole entry, as
+ * loaded <code>locations</code> only holds the summary and a replace would drop the counts of the entry.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryLocationUpdateBenchmark {
+
+    @Param({"SAVE", "ATOMIC"})
+    public String mode;
+
+    private MongoTemplate mongoTemplate;
+    private MorphologicalEntryLocations morphologicalEntryLocations;
+    private String entryId;
+    private Location location;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        morphologicalEntryLocations = environment.getBean(MorphologicalEntryLocations.class);
+        final Query entryQuery = new Query().with(new Sort(Sort.Direction.DESC, MorphologicalEntryLocations.LOCATION_COUNT))
+                .limit(1);
+        entryQuery.fields().include("id");
+        final MorphologicalEntry entry = mongoTemplate.findOne(entryQuery, MorphologicalEntry.class);
+        if (entry == null) {
+            throw new IllegalStateException("No morphological entry found");
+        }
+        entryId = entry.getId();
+        location = mongoTemplate.findOne(new Query(Criteria.where("morphologicalEntry").exists(false)), Location.class);
+        if (location == null) {
+            throw new IllegalStateException("No location without morphological entry found");
+        }
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        if ("ATOMIC".equals(mode)) {
+            return morphologicalEntryLocations.addLocation(entryId, location.getId())
+                    && morphologicalEntryLocations.removeLocation(entryId, location.getId());
+        }
+        MorphologicalEntry entry = mongoTemplate.findById(entryId, MorphologicalEntry.class);
+        entry.getLocations().add(location);
+        saveLocations(entry);
+        entry = mongoTemplate.findById(entryId, MorphologicalEntry.class);
+        final boolean removed = entry.getLocations().remove(location);
+        saveLocations(entry);
+        return removed;
+    }
+
+    private void saveLocations(MorphologicalEntry entry) {
+        final Update update = new Update().set(MorphologicalEntryLocations.LOCATIONS, entry.getLocations());
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(entryId)), update, MorphologicalEntry.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.graph.repository.PartOfSpeechNodeRepository;
+import com.alphasystem.morphologicalanalysis.graph.repository.TerminalNodeRepository;
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.alphasystem.morphologicalanalysis.util.graph.GraphNodeCoverageIndex;
+import com.alphasystem.morphologicalanalysis.util.index.RoaringBitmap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.VERSE_COUNTS;
+
+/**
+ * Compares annotation coverage of one chapter view (terminal and part of speech nodes of every token of chapter 2)
+ * computed with one count query per token against {@link GraphNodeCoverageIndex}, both cold (aggregated) and warm.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphNodeCoverageBenchmark {
+
+    private static final int CHAPTER_NUMBER = 2;
+    private static final int LOCATION_NUMBER = 1;
+
+    private GraphNodeCoverageIndex graphNodeCoverageIndex;
+    private CorpusNavigationIndex navigationIndex;
+    private TerminalNodeRepository terminalNodeRepository;
+    private PartOfSpeechNodeRepository partOfSpeechNodeRepository;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        graphNodeCoverageIndex = environment.getBean(GraphNodeCoverageIndex.class);
+        navigationIndex = environment.getBean(CorpusNavigationIndex.class);
+        terminalNodeRepository = environment.getBean(TerminalNodeRepository.class);
+        partOfSpeechNodeRepository = environment.getBean(PartOfSpeechNodeRepository.class);
+        // nodes for chapters 1 and 2
+        final int graphCount = VERSE_COUNTS[0] + VERSE_COUNTS[1];
+        environment.getBean(CorpusSeeder.class).seedGraphNodes(graphCount, new Random(graphCount));
+        graphNodeCoverageIndex.invalidate();
+    }
+
+    @Benchmark
+    public int countPerToken() {
+        int covered = 0;
+        for (int verseNumber = 1; verseNumber <= VERSE_COUNTS[CHAPTER_NUMBER - 1]; verseNumber++) {
+            final int tokenCount = navigationIndex.getTokenCount(CHAPTER_NUMBER, verseNumber);
+            for (int tokenNumber = 1; tokenNumber <= tokenCount; tokenNumber++) {
+                if (terminalNodeRepository.countByChapterNumberAndVerseNumberAndTokenNumber(CHAPTER_NUMBER,
+                        verseNumber, tokenNumber) > 0) {
+                    covered++;
+                }
+                if (partOfSpeechNodeRepository.countByChapterNumberAndVerseNumberAndTokenNumberAndLocationNumber(
+                        CHAPTER_NUMBER, verseNumber, tokenNumber, LOCATION_NUMBER) > 0) {
+                    covered++;
+                }
+            }
+        }
+        return covered;
+    }
+
+    @Benchmark
+    public Map<GraphNodeType, RoaringBitmap> coverageCold() {
+        graphNodeCoverageIndex.invalidate();
+        return graphNodeCoverageIndex.getCoverage(CHAPTER_NUMBER);
+    }
+
+    @Benchmark
+    public Map<GraphNodeType, RoaringBitmap> coverageWarm() {
+        return graphNodeCoverageIndex.getCoverage(CHAPTER_NUMBER);
+    }
+}
@@ -0,0 +1,77 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.integrity.IntegrityChecker;
+import com.alphasystem.morphologicalanalysis.util.integrity.IntegrityReport;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding dangling <code>MorphologicalEntry.locations</code> references with one lookup per reference (the
+ * way ad-hoc scripts do it) against a full {@link IntegrityChecker#check()} run.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntegrityCheckerBenchmark {
+
+    private MongoTemplate mongoTemplate;
+    private IntegrityChecker integrityChecker;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        integrityChecker = environment.getBean(IntegrityChecker.class);
+    }
+
+    @Benchmark
+    public long lookupPerReference() {
+        final DBCollection locations = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Location.class));
+        long dangling = 0;
+        try (DBCursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(MorphologicalEntry.class))
+                .find(new BasicDBObject(), new BasicDBObject("locations", 1))) {
+            while (cursor.hasNext()) {
+                final DBObject entry = cursor.next();
+                final Object refs = entry.get("locations");
+                if (!(refs instanceof List)) {
+                    continue;
+                }
+                for (Object ref : (List<?>) refs) {
+                    if (ref instanceof DBRef && locations.count(new BasicDBObject("_id", ((DBRef) ref).getId())) == 0) {
+                        dangling++;
+                    }
+                }
+            }
+        }
+        return dangling;
+    }
+
+    @Benchmark
+    public IntegrityReport check() {
+        return integrityChecker.check();
+    }
+}
@@ -0,0 +1,80 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.util.index.IndexTerm;
+import com.alphasystem.morphologicalanalysis.util.index.LocationInvertedIndex;
+import com.alphasystem.morphologicalanalysis.util.index.RoaringBitmap;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.support.WordType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares counting occurrences of root letters in a form through {@link LocationInvertedIndex} with reading the
+ * locations of the matching {@link MorphologicalEntry}.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvertedIndexBenchmark {
+
+    private static final int SAMPLE_SIZE = 256;
+
+    private LocationInvertedIndex locationInvertedIndex;
+    private MorphologicalEntryLocations morphologicalEntryLocations;
+    private MorphologicalEntry[] entries;
+    private IndexTerm[][] terms;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        locationInvertedIndex = environment.getBean(LocationInvertedIndex.class);
+        morphologicalEntryLocations = environment.getBean(MorphologicalEntryLocations.class);
+        final List<MorphologicalEntry> seededEntries = environment.getBean(CorpusSeeder.class).getMorphologicalEntries();
+        final Random random = new Random(SAMPLE_SIZE);
+        entries = new MorphologicalEntry[SAMPLE_SIZE];
+        terms = new IndexTerm[SAMPLE_SIZE][];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            final MorphologicalEntry entry = seededEntries.get(random.nextInt(seededEntries.size()));
+            entries[i] = entry;
+            terms[i] = new IndexTerm[]{IndexTerm.rootLetters(entry.getRootLetters()), IndexTerm.form(entry.getForm())};
+        }
+        // build index outside of the measurement
+        locationInvertedIndex.count(terms[0]);
+    }
+
+    @Benchmark
+    public int countFromEntry(SampleCursor cursor) {
+        // "locations" of the entry only holds the summary, bucketed locations are read as well
+        return (int) morphologicalEntryLocations.streamLocations(entries[cursor.next(SAMPLE_SIZE)].getId()).count();
+    }
+
+    @Benchmark
+    public int countFromIndex(SampleCursor cursor) {
+        return locationInvertedIndex.count(terms[cursor.next(SAMPLE_SIZE)]);
+    }
+
+    @Benchmark
+    public RoaringBitmap rootAndFormOrNoun(SampleCursor cursor) {
+        final IndexTerm[] sample = terms[cursor.next(SAMPLE_SIZE)];
+        return RoaringBitmap.and(locationInvertedIndex.get(sample[0]),
+                locationInvertedIndex.or(sample[1], IndexTerm.wordType(WordType.NOUN)));
+    }
+}
@@ -0,0 +1,61 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.maintenance.LocationTextJob;
+import com.alphasystem.morphologicalanalysis.util.maintenance.MaintenanceJobRunner;
+import com.alphasystem.morphologicalanalysis.util.maintenance.MaintenanceJobRunner.JobStatistics;
+import com.alphasystem.morphologicalanalysis.util.maintenance.MorphologicalEntryLocationsJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs corpus wide maintenance jobs with {@link MaintenanceJobRunner}, single threaded whole chapters
+ * (<code>parallelism=1, versesPerTask=0</code>, the equivalent of a loop over chapters) against the fork-join split.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MaintenanceJobBenchmark {
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private MaintenanceJobRunner runner;
+    private LocationTextJob locationTextJob;
+    private MorphologicalEntryLocationsJob morphologicalEntryLocationsJob;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        runner = environment.getBean(MaintenanceJobRunner.class);
+        locationTextJob = environment.getBean(LocationTextJob.class);
+        morphologicalEntryLocationsJob = environment.getBean(MorphologicalEntryLocationsJob.class);
+        runner.setParallelism(parallelism);
+        runner.setVersesPerTask((parallelism == 1) ? 0 : MaintenanceJobRunner.DEFAULT_VERSES_PER_TASK);
+    }
+
+    @Benchmark
+    public JobStatistics locationText() {
+        return runner.run(locationTextJob);
+    }
+
+    @Benchmark
+    public JobStatistics morphologicalEntryLocations() {
+        return runner.run(morphologicalEntryLocationsJob);
+    }
+}
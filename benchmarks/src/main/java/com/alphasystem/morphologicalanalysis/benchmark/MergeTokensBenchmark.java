@@ -0,0 +1,65 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_CHAPTER;
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_NUMBER;
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_TOKEN_COUNT;
+
+/**
+ * Compares <code>mergeTokens</code> with <code>bulkMergeTokens</code> on a 100 token verse whose locations are
+ * attached to morphological entries. Verse is re-seeded before every invocation.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class MergeTokensBenchmark {
+
+    @Param({"LEGACY", "BULK"})
+    public String mode;
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private CorpusSeeder corpusSeeder;
+    private final Random random = new Random(LONG_VERSE_TOKEN_COUNT);
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        corpusSeeder = environment.getBean(CorpusSeeder.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void reseed() {
+        corpusSeeder.reseedVerse(LONG_VERSE_CHAPTER, LONG_VERSE_NUMBER, LONG_VERSE_TOKEN_COUNT, random);
+    }
+
+    @Benchmark
+    public void mergeTokens() {
+        if ("BULK".equals(mode)) {
+            repositoryUtil.bulkMergeTokens(LONG_VERSE_CHAPTER, LONG_VERSE_NUMBER, 50, 51);
+        } else {
+            repositoryUtil.mergeTokens(LONG_VERSE_CHAPTER, LONG_VERSE_NUMBER, 50, 51);
+        }
+    }
+}
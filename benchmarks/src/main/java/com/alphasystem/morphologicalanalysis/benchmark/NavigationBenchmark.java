@@ -0,0 +1,67 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks token navigation: <code>getNextToken</code>, <code>getPreviousToken</code> and
+ * <code>findAllChapters</code>.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NavigationBenchmark {
+
+    private static final int SAMPLE_SIZE = 1024;
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private Token[] tokens;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        final int totalTokenCount = environment.getBean(CorpusNavigationIndex.class).getTotalTokenCount();
+        final Random random = new Random(SAMPLE_SIZE);
+        tokens = new Token[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            tokens[i] = repositoryUtil.getToken(random.nextInt(totalTokenCount));
+        }
+    }
+
+    @Benchmark
+    public Token getNextToken(SampleCursor cursor) {
+        return repositoryUtil.getNextToken(tokens[cursor.next(SAMPLE_SIZE)]);
+    }
+
+    @Benchmark
+    public Token getPreviousToken(SampleCursor cursor) {
+        return repositoryUtil.getPreviousToken(tokens[cursor.next(SAMPLE_SIZE)]);
+    }
+
+    @Benchmark
+    public List<Chapter> findAllChapters() {
+        return repositoryUtil.findAllChapters();
+    }
+}
@@ -0,0 +1,100 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.common.model.VerseTokenPairGroup;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.VERSE_COUNTS;
+
+/**
+ * Benchmarks read paths: <code>getTokens(VerseTokenPairGroup)</code>, <code>getDependencyGraphs</code>,
+ * <code>findMorphologicalEntry</code> and conversion of locations through <code>LocationEventListener</code>.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+    private static final int SAMPLE_SIZE = 256;
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private MongoTemplate mongoTemplate;
+    private VerseTokenPairGroup[] groups;
+    private MorphologicalEntry[] entries;
+    private Query[] verseQueries;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        final List<MorphologicalEntry> seededEntries = environment.getBean(CorpusSeeder.class).getMorphologicalEntries();
+        final Random random = new Random(SAMPLE_SIZE);
+        groups = new VerseTokenPairGroup[SAMPLE_SIZE];
+        entries = new MorphologicalEntry[SAMPLE_SIZE];
+        verseQueries = new Query[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            final int chapterNumber = 1 + random.nextInt(VERSE_COUNTS.length);
+            final int verseNumber = 1 + random.nextInt(VERSE_COUNTS[chapterNumber - 1]);
+            final DependencyGraph graph = repositoryUtil.getDependencyGraph(String.format("%s:%s", chapterNumber,
+                    verseNumber));
+            final VerseTokenPairGroup group = new VerseTokenPairGroup();
+            group.setChapterNumber(chapterNumber);
+            group.getPairs().addAll(graph.getTokens());
+            groups[i] = group;
+            final MorphologicalEntry entry = seededEntries.get(random.nextInt(seededEntries.size()));
+            entries[i] = new MorphologicalEntry(entry.getRootLetters(), entry.getForm());
+            verseQueries[i] = new Query(Criteria.where("chapterNumber").is(chapterNumber).and("verseNumber")
+                    .is(verseNumber));
+        }
+    }
+
+    @Benchmark
+    public List<Token> getTokens(SampleCursor cursor) {
+        return repositoryUtil.getTokens(groups[cursor.next(SAMPLE_SIZE)]);
+    }
+
+    @Benchmark
+    public List<DependencyGraph> getDependencyGraphs(SampleCursor cursor) {
+        return repositoryUtil.getDependencyGraphs(groups[cursor.next(SAMPLE_SIZE)]);
+    }
+
+    @Benchmark
+    public MorphologicalEntry findMorphologicalEntry(SampleCursor cursor) {
+        final MorphologicalEntry entry = entries[cursor.next(SAMPLE_SIZE)];
+        return repositoryUtil.findMorphologicalEntry(entry.getRootLetters(), entry.getForm());
+    }
+
+    /**
+     * Loads all locations of a verse, each converted location goes through <code>LocationEventListener</code>.
+     */
+    @Benchmark
+    public List<Location> convertLocations(SampleCursor cursor) {
+        return mongoTemplate.find(verseQueries[cursor.next(SAMPLE_SIZE)], Location.class);
+    }
+}
@@ -0,0 +1,20 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per thread round robin position over a pre-computed sample.
+ *
+ * @author sali
+ */
+@State(Scope.Thread)
+public class SampleCursor {
+
+    private int position;
+
+    public int next(int size) {
+        position = (position + 1) % size;
+        return position;
+    }
+}
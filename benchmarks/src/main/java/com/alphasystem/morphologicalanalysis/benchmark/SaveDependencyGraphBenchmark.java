@@ -0,0 +1,126 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.common.model.VerseTokenPairGroup;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.HiddenNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ImpliedNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PhraseNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ReferenceNode;
+import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
+import com.alphasystem.morphologicalanalysis.graph.model.TerminalNode;
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_CHAPTER;
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_NUMBER;
+
+/**
+ * Benchmarks <code>saveDependencyGraph</code> of a graph over the long verse, re-saving its tokens and removing
+ * {@link #nodesPerType} nodes of every node type, sequentially or with a graph persistence executor.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class SaveDependencyGraphBenchmark {
+
+    private static final Map<GraphNodeType, Class<? extends GraphNode>> NODE_CLASSES = new EnumMap<>(GraphNodeType.class);
+
+    static {
+        NODE_CLASSES.put(GraphNodeType.TERMINAL, TerminalNode.class);
+        NODE_CLASSES.put(GraphNodeType.PART_OF_SPEECH, PartOfSpeechNode.class);
+        NODE_CLASSES.put(GraphNodeType.PHRASE, PhraseNode.class);
+        NODE_CLASSES.put(GraphNodeType.RELATIONSHIP, RelationshipNode.class);
+        NODE_CLASSES.put(GraphNodeType.REFERENCE, ReferenceNode.class);
+        NODE_CLASSES.put(GraphNodeType.HIDDEN, HiddenNode.class);
+        NODE_CLASSES.put(GraphNodeType.IMPLIED, ImpliedNode.class);
+    }
+
+    @Param({"50"})
+    public int nodesPerType;
+
+    @Param({"false", "true"})
+    public boolean concurrent;
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private MongoTemplate mongoTemplate;
+    private ExecutorService executor;
+    private DependencyGraph dependencyGraph;
+    private List<Token> tokens;
+    private Map<GraphNodeType, List<String>> removalIds;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        executor = Executors.newFixedThreadPool(NODE_CLASSES.size() + 1);
+        repositoryUtil.setGraphPersistenceExecutor(concurrent ? executor : null);
+        dependencyGraph = repositoryUtil.getDependencyGraph(String.format("%s:%s", LONG_VERSE_CHAPTER,
+                LONG_VERSE_NUMBER));
+        final VerseTokenPairGroup group = new VerseTokenPairGroup();
+        group.setChapterNumber(LONG_VERSE_CHAPTER);
+        group.getPairs().addAll(dependencyGraph.getTokens());
+        tokens = repositoryUtil.getTokens(group);
+    }
+
+    @Setup(Level.Iteration)
+    public void seedNodes() {
+        removalIds = new EnumMap<>(GraphNodeType.class);
+        for (Map.Entry<GraphNodeType, Class<? extends GraphNode>> entry : NODE_CLASSES.entrySet()) {
+            final String collectionName = mongoTemplate.getCollectionName(entry.getValue());
+            final List<DBObject> nodes = new ArrayList<>();
+            final List<String> ids = new ArrayList<>();
+            for (int i = 0; i < nodesPerType; i++) {
+                final BasicDBObject node = new BasicDBObject("chapterNumber", LONG_VERSE_CHAPTER)
+                        .append("verseNumber", LONG_VERSE_NUMBER).append("tokenNumber", i + 1);
+                nodes.add(node);
+            }
+            mongoTemplate.getCollection(collectionName).insert(nodes);
+            nodes.forEach(node -> ids.add(node.get("_id").toString()));
+            removalIds.put(entry.getKey(), ids);
+        }
+    }
+
+    @Benchmark
+    public void saveDependencyGraph() {
+        repositoryUtil.saveDependencyGraph(dependencyGraph, tokens, removalIds);
+    }
+
+    @TearDown
+    public void tearDown() {
+        repositoryUtil.setGraphPersistenceExecutor(null);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,90 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.snapshot.CorpusSnapshot;
+import com.alphasystem.morphologicalanalysis.snapshot.SnapshotExporter;
+import com.alphasystem.morphologicalanalysis.snapshot.SnapshotRepositoryFactory;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.repository.TokenRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.VERSE_COUNTS;
+
+/**
+ * Compares reading tokens of a verse from MongoDB with reading them from a memory-mapped snapshot, and measures the
+ * time to open a snapshot.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final int SAMPLE_SIZE = 256;
+
+    @Param({"MONGO", "SNAPSHOT"})
+    public String backend;
+
+    private Path snapshotFile;
+    private CorpusSnapshot snapshot;
+    private TokenRepository tokenRepository;
+    private int[][] verses;
+
+    @Setup
+    public void setup() throws IOException {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        snapshotFile = Files.createTempFile("corpus", ".snapshot");
+        new SnapshotExporter(environment.getBean(MongoTemplate.class)).export(snapshotFile);
+        snapshot = CorpusSnapshot.open(snapshotFile);
+        tokenRepository = "SNAPSHOT".equals(backend)
+                ? new SnapshotRepositoryFactory(snapshot).getRepository(TokenRepository.class)
+                : environment.getBean(TokenRepository.class);
+        final Random random = new Random(SAMPLE_SIZE);
+        verses = new int[SAMPLE_SIZE][];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            final int chapterNumber = 1 + random.nextInt(VERSE_COUNTS.length);
+            verses[i] = new int[]{chapterNumber, 1 + random.nextInt(VERSE_COUNTS[chapterNumber - 1])};
+        }
+    }
+
+    @Benchmark
+    public List<Token> findVerseTokens(SampleCursor cursor) {
+        final int[] verse = verses[cursor.next(SAMPLE_SIZE)];
+        return tokenRepository.findByChapterNumberAndVerseNumber(verse[0], verse[1]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CorpusSnapshot openSnapshot() throws IOException {
+        return CorpusSnapshot.open(snapshotFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        snapshot.close();
+        Files.deleteIfExists(snapshotFile);
+    }
+}
@@ -0,0 +1,112 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.common.model.VerseTokenPairGroup;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.util.CloseableIterator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.LONG_VERSE_CHAPTER;
+
+/**
+ * Compares reading all tokens of a chapter as a list with streaming them through a cursor, in addition to the time
+ * the peak heap usage of each iteration is reported as <code>peakHeapBytes</code>.
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx512m"})
+public class StreamingMemoryBenchmark {
+
+    @Param({"LIST", "STREAM"})
+    public String mode;
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private VerseTokenPairGroup group;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        repositoryUtil = environment.getBean(MorphologicalAnalysisRepositoryUtil.class);
+        group = new VerseTokenPairGroup();
+        group.setChapterNumber(LONG_VERSE_CHAPTER);
+        try (CloseableIterator<DependencyGraph> graphs = repositoryUtil.streamDependencyGraphs(LONG_VERSE_CHAPTER)) {
+            graphs.forEachRemaining(graph -> group.getPairs().addAll(graph.getTokens()));
+        }
+    }
+
+    @Benchmark
+    public long readChapterTokens(HeapUsage heapUsage) {
+        long count = 0;
+        if ("STREAM".equals(mode)) {
+            try (CloseableIterator<Token> tokens = repositoryUtil.streamTokens(group)) {
+                while (tokens.hasNext()) {
+                    count += tokens.next().getLocations().size();
+                }
+            }
+        } else {
+            final List<Token> tokens = repositoryUtil.getTokens(group);
+            for (Token token : tokens) {
+                count += token.getLocations().size();
+            }
+        }
+        heapUsage.record();
+        return count;
+    }
+
+    /**
+     * Tracks peak usage of heap memory pools during one iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapUsage {
+
+        public long peakHeapBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+            peakHeapBytes = 0;
+        }
+
+        void record() {
+            peakHeapBytes = heapPools().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            if (peakHeapBytes == 0) {
+                record();
+            }
+        }
+
+        private static java.util.stream.Stream<MemoryPoolMXBean> heapPools() {
+            return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP);
+        }
+    }
+}
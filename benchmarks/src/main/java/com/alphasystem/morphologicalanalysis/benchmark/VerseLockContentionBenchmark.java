@@ -0,0 +1,68 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.VerseLockManager;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.alphasystem.morphologicalanalysis.benchmark.CorpusSeeder.VERSE_COUNTS;
+
+/**
+ * Measures throughput of concurrent read-modify-write sequences on random verses, guarded either by the striped
+ * {@link VerseLockManager} or by a single global lock (a manager with one stripe).
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class VerseLockContentionBenchmark {
+
+    @Param({"STRIPED", "GLOBAL"})
+    public String mode;
+
+    private VerseLockManager lockManager;
+    private DBCollection verseCollection;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        lockManager = "GLOBAL".equals(mode) ? new VerseLockManager(1) : environment.getBean(VerseLockManager.class);
+        final MongoTemplate mongoTemplate = environment.getBean(MongoTemplate.class);
+        verseCollection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Verse.class));
+    }
+
+    @Benchmark
+    public Object editVerse() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int chapterNumber = 1 + random.nextInt(VERSE_COUNTS.length);
+        final int verseNumber = 1 + random.nextInt(VERSE_COUNTS[chapterNumber - 1]);
+        return lockManager.withLock(chapterNumber, verseNumber, () -> {
+            final DBObject query = new BasicDBObject("chapterNumber", chapterNumber).append("verseNumber", verseNumber);
+            final DBObject verse = verseCollection.findOne(query, new BasicDBObject("tokenCount", 1));
+            verseCollection.update(query, new BasicDBObject("$inc", new BasicDBObject("tokenCount", 0)));
+            return verse;
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.alphasystem.morphologicalanalysis.benchmark;
+
+import com.alphasystem.morphologicalanalysis.util.WriteBehindBuffer;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates an editing session, each of the first <code>locationCount</code> locations is saved
+ * <code>savesPerLocation</code> times, either directly (<code>DIRECT</code>) or through {@link WriteBehindBuffer}
+ * followed by one flush (<code>BUFFERED</code>).
+ *
+ * @author sali
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    @Param({"DIRECT", "BUFFERED"})
+    public String mode;
+
+    @Param({"20"})
+    public int locationCount;
+
+    @Param({"10"})
+    public int savesPerLocation;
+
+    private MongoTemplate mongoTemplate;
+    private WriteBehindBuffer writeBehindBuffer;
+    private List<Location> locations;
+
+    @Setup
+    public void setup() {
+        final BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        mongoTemplate = environment.getBean(MongoTemplate.class);
+        writeBehindBuffer = environment.getBean(WriteBehindBuffer.class);
+        writeBehindBuffer.setEnabled("BUFFERED".equals(mode));
+        locations = mongoTemplate.find(new Query().limit(locationCount), Location.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        writeBehindBuffer.setEnabled(false);
+    }
+
+    @Benchmark
+    public int editSession() {
+        for (int i = 0; i < savesPerLocation; i++) {
+            for (Location location : locations) {
+                if (writeBehindBuffer.isEnabled()) {
+                    writeBehindBuffer.save(location);
+                } else {
+                    mongoTemplate.save(location);
+                }
+            }
+        }
+        writeBehindBuffer.flush();
+        return locations.size();
+    }
+}
@@ -1,12 +1,34 @@
 package com.alphasystem.morphologicalanalysis.graph.listener;
 
 import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.stereotype.Component;
 
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.GRAPH_COVERAGE;
+
 /**
  * @author sali
  */
 @Component
 public class DependencyGraphEventListener extends DocumentEventListener<DependencyGraph> {
+
+    @Autowired
+    private CorpusStatisticsService corpusStatisticsService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<DependencyGraph> event) {
+        super.onAfterSave(event);
+        corpusStatisticsService.markDirty(GRAPH_COVERAGE, event.getSource().getChapterNumber());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<DependencyGraph> event) {
+        super.onAfterDelete(event);
+        // source of delete event is the query, chapter is not known
+        corpusStatisticsService.markAllDirty(GRAPH_COVERAGE);
+    }
 }
@@ -1,12 +1,40 @@
 package com.alphasystem.morphologicalanalysis.graph.listener;
 
 import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.util.graph.GraphNodeCoverageIndex;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.stereotype.Component;
 
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.PART_OF_SPEECH_NODE_COUNTS;
+
 /**
  * @author sali
  */
 @Component
 public class PartOfSpeechNodeEventListener extends DocumentEventListener<PartOfSpeechNode> {
+
+    @Autowired
+    private CorpusStatisticsService corpusStatisticsService;
+
+    @Autowired
+    private GraphNodeCoverageIndex graphNodeCoverageIndex;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<PartOfSpeechNode> event) {
+        super.onAfterSave(event);
+        corpusStatisticsService.markDirty(PART_OF_SPEECH_NODE_COUNTS, event.getSource().getChapterNumber());
+        graphNodeCoverageIndex.nodeSaved(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<PartOfSpeechNode> event) {
+        super.onAfterDelete(event);
+        // source of delete event is the query, chapter is not known
+        corpusStatisticsService.markAllDirty(PART_OF_SPEECH_NODE_COUNTS);
+        graphNodeCoverageIndex.nodesDeleted(event.getType(), event.getSource());
+    }
 }
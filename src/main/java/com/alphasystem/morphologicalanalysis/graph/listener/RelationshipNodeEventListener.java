@@ -1,7 +1,11 @@
 package com.alphasystem.morphologicalanalysis.graph.listener;
 
 import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
+import com.alphasystem.morphologicalanalysis.util.graph.GraphNodeCoverageIndex;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.stereotype.Component;
 
 /**
@@ -9,4 +13,19 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class RelationshipNodeEventListener extends DocumentEventListener<RelationshipNode> {
+
+    @Autowired
+    private GraphNodeCoverageIndex graphNodeCoverageIndex;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<RelationshipNode> event) {
+        super.onAfterSave(event);
+        graphNodeCoverageIndex.nodeSaved(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<RelationshipNode> event) {
+        super.onAfterDelete(event);
+        graphNodeCoverageIndex.nodesDeleted(event.getType(), event.getSource());
+    }
 }
@@ -1,12 +1,33 @@
 package com.alphasystem.morphologicalanalysis.graph.listener;
 
 import com.alphasystem.morphologicalanalysis.graph.model.TerminalNode;
+import com.alphasystem.morphologicalanalysis.util.graph.GraphNodeCoverageIndex;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.stereotype.Component;
 
 /**
+ * Also receives events of reference, hidden and implied nodes, which are terminal nodes as well.
+ *
  * @author sali
  */
 @Component
 public class TerminalNodeListener extends DocumentEventListener<TerminalNode> {
+
+    @Autowired
+    private GraphNodeCoverageIndex graphNodeCoverageIndex;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<TerminalNode> event) {
+        super.onAfterSave(event);
+        graphNodeCoverageIndex.nodeSaved(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<TerminalNode> event) {
+        super.onAfterDelete(event);
+        graphNodeCoverageIndex.nodesDeleted(event.getType(), event.getSource());
+    }
 }
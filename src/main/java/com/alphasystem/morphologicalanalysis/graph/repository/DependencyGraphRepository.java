@@ -4,6 +4,7 @@ import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
 import com.alphasystem.persistence.mongo.repository.BaseRepository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author sali
@@ -15,4 +16,14 @@ public interface DependencyGraphRepository extends BaseRepository<DependencyGrap
      * @return
      */
     List<DependencyGraph> findByChapterNumber(Integer chapterNumber);
+
+    /**
+     * Streaming variant of {@link #findByChapterNumber(Integer)}, returned stream must be closed after use. See
+     * {@link com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil#streamDependencyGraphs(Integer)}
+     * for variant with configurable cursor batch size.
+     *
+     * @param chapterNumber
+     * @return
+     */
+    Stream<DependencyGraph> streamByChapterNumber(Integer chapterNumber);
 }
@@ -1,16 +1,43 @@
 package com.alphasystem.morphologicalanalysis.morphology.listener;
 
 import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryCache;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.util.index.LocationInvertedIndex;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import com.mongodb.DBObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.LOCATION_COUNTS;
+
 /**
  * @author sali
  */
 @Component
 public class MorphologicalEntryEventListener extends DocumentEventListener<MorphologicalEntry> {
 
+    @Autowired
+    private MorphologicalEntryCache morphologicalEntryCache;
+
+    @Autowired
+    private LocationInvertedIndex locationInvertedIndex;
+
+    @Autowired
+    private CorpusStatisticsService corpusStatisticsService;
+
+    @Autowired
+    private MorphologicalEntryLocations morphologicalEntryLocations;
+
     @Override
     public void onBeforeConvert(BeforeConvertEvent<MorphologicalEntry> event) {
         super.onBeforeConvert(event);
@@ -20,4 +47,50 @@ public class MorphologicalEntryEventListener extends DocumentEventListener<Morph
             throw new RuntimeException("RootLetters and/or form cannot be null.");
         }
     }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<MorphologicalEntry> event) {
+        super.onAfterSave(event);
+        MorphologicalEntry source = event.getSource();
+        morphologicalEntryCache.invalidate(source.getId(), source.getDisplayName());
+        locationInvertedIndex.entrySaved(source);
+        corpusStatisticsService.markDirty(LOCATION_COUNTS, source.getId());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<MorphologicalEntry> event) {
+        super.onAfterDelete(event);
+        // source of delete event is the query, we can only invalidate by id, either one id or "$in" of ids
+        final DBObject query = event.getSource();
+        final List<String> ids = getIds(query);
+        if (ids == null) {
+            morphologicalEntryCache.invalidateAll();
+            corpusStatisticsService.markAllDirty(LOCATION_COUNTS);
+        } else {
+            ids.forEach(id -> {
+                morphologicalEntryCache.invalidate(id, null);
+                corpusStatisticsService.markDirty(LOCATION_COUNTS, id);
+            });
+        }
+        locationInvertedIndex.entriesDeleted(query);
+        morphologicalEntryLocations.entriesDeleted(query);
+    }
+
+    private static List<String> getIds(DBObject query) {
+        final Object id = (query == null) ? null : query.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (!(id instanceof DBObject)) {
+            return Collections.singletonList(id.toString());
+        }
+        final DBObject criteria = (DBObject) id;
+        final Object in = criteria.get("$in");
+        if (criteria.keySet().size() != 1 || !(in instanceof Collection)) {
+            return null;
+        }
+        final List<String> ids = new ArrayList<>();
+        ((Collection<?>) in).forEach(value -> ids.add(value.toString()));
+        return ids;
+    }
 }
@@ -7,63 +7,176 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.mongodb.gridfs.GridFSDBFile;
 import com.mongodb.gridfs.GridFSFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 /**
+ * Stores dictionary notes in GridFS, gzip compressed, with the SHA-256 hash of the content in the metadata.
+ * <p>
+ * Notes are read through {@link DictionaryNotesCache}, so that opening the notes of a root does not fetch the file
+ * again unless it has been replaced. Storing content which is already stored does not upload anything.
+ * </p>
+ *
  * @author sali
  */
 @Service
 public class DefaultDictionaryNotesRepository implements DictionaryNotesRepository {
 
+    public static final String CONTENT_HASH = "contentHash";
+    public static final String CONTENT_ENCODING = "contentEncoding";
+    public static final String GZIP = "gzip";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultDictionaryNotesRepository.class);
+
     @Autowired
     private GridFsTemplate gridFsTemplate;
 
+    @Autowired
+    private DictionaryNotesCache dictionaryNotesCache;
+
     private static Query getQuery(DictionaryNotes dictionaryNotes) {
-        return new Query(Criteria.where("metadata.rootLetters").is(dictionaryNotes.getRootLetters().getDisplayName()));
+        return getQuery(dictionaryNotes.getRootLetters());
+    }
+
+    private static Query getQuery(RootLetters rootLetters) {
+        return new Query(Criteria.where("metadata.rootLetters").is(rootLetters.getDisplayName()));
+    }
+
+    private static byte[] readFully(InputStream inputStream) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream in = inputStream) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] compress(byte[] content) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String getMetadata(GridFSFile file, String key) {
+        final DBObject metaData = file.getMetaData();
+        final Object value = (metaData == null) ? null : metaData.get(key);
+        return (value == null) ? null : value.toString();
     }
 
     @Override
     public DictionaryNotes store(DictionaryNotes dictionaryNotes) {
-        GridFSDBFile gridFSFile = gridFsTemplate.findOne(getQuery(dictionaryNotes));
-        if (gridFSFile != null) {
-            // file already exists, delete first
-            delete(dictionaryNotes);
+        final RootLetters rootLetters = dictionaryNotes.getRootLetters();
+        final String key = rootLetters.getDisplayName();
+        final byte[] content = readFully(dictionaryNotes.getInputStream());
+        final String contentHash = DictionaryNotesCache.hash(content);
+        dictionaryNotes.setInputStream(new ByteArrayInputStream(content));
+
+        final DictionaryNotesCache.Entry entry = dictionaryNotesCache.get(key);
+        if (entry != null && dictionaryNotesCache.isFresh(entry) && contentHash.equals(entry.getContentHash())) {
+            LOGGER.debug("Dictionary notes of {} are unchanged", key);
+            dictionaryNotes.setId(entry.getFileId());
+            return dictionaryNotes;
         }
+        GridFSDBFile existingFile = gridFsTemplate.findOne(getQuery(dictionaryNotes));
+        if (existingFile != null && contentHash.equals(getMetadata(existingFile, CONTENT_HASH))) {
+            LOGGER.debug("Dictionary notes of {} are unchanged", key);
+            final String fileId = existingFile.getId().toString();
+            dictionaryNotesCache.write(content);
+            dictionaryNotesCache.put(key, fileId, contentHash, existingFile.getFilename());
+            dictionaryNotes.setId(fileId);
+            return dictionaryNotes;
+        }
+
         DBObject metaData = new BasicDBObject();
-        final RootLetters rootLetters = dictionaryNotes.getRootLetters();
-        metaData.put("rootLetters", rootLetters.getDisplayName());
+        metaData.put("rootLetters", key);
         metaData.put("firstRadical", rootLetters.getFirstRadical().name());
         metaData.put("secondRadical", rootLetters.getSecondRadical().name());
         metaData.put("thirdRadical", rootLetters.getThirdRadical().name());
         final ArabicLetterType fourthRadical = rootLetters.getFourthRadical();
         metaData.put("fourthRadical", (fourthRadical == null) ? null : fourthRadical.name());
-        final GridFSFile file = gridFsTemplate.store(dictionaryNotes.getInputStream(), dictionaryNotes.getFileName(),
-                "plain/text", metaData);
-        dictionaryNotes.setId(file.getId().toString());
+        metaData.put(CONTENT_HASH, contentHash);
+        metaData.put(CONTENT_ENCODING, GZIP);
+        final GridFSFile file = gridFsTemplate.store(new ByteArrayInputStream(compress(content)),
+                dictionaryNotes.getFileName(), "plain/text", metaData);
+        if (existingFile != null) {
+            // replace only after new file is stored, so that notes are never missing
+            gridFsTemplate.delete(new Query(Criteria.where("_id").is(existingFile.getId())));
+        }
+        final String fileId = file.getId().toString();
+        dictionaryNotesCache.write(content);
+        dictionaryNotesCache.put(key, fileId, contentHash, dictionaryNotes.getFileName());
+        dictionaryNotes.setId(fileId);
         return dictionaryNotes;
     }
 
     @Override
     public DictionaryNotes retrieve(RootLetters rootLetters) {
+        final String key = rootLetters.getDisplayName();
         DictionaryNotes dictionaryNotes = new DictionaryNotes(rootLetters);
-        final GridFSDBFile file = gridFsTemplate.findOne(getQuery(dictionaryNotes));
-        if (file == null) {
-            // no dictionary notes for these root letters
-            return dictionaryNotes;
+        DictionaryNotesCache.Entry entry = dictionaryNotesCache.get(key);
+        if (entry == null || !dictionaryNotesCache.isFresh(entry)) {
+            final GridFSDBFile file = gridFsTemplate.findOne(getQuery(rootLetters));
+            if (file == null) {
+                // no dictionary notes for these root letters
+                dictionaryNotesCache.remove(key);
+                return dictionaryNotes;
+            }
+            entry = validate(key, entry, file);
         }
 
-        dictionaryNotes.setId(file.getId().toString());
-        dictionaryNotes.setFileName(file.getFilename());
-        dictionaryNotes.setInputStream(file.getInputStream());
+        dictionaryNotes.setId(entry.getFileId());
+        dictionaryNotes.setFileName(entry.getFileName());
+        dictionaryNotes.setInputStream(dictionaryNotesCache.open(entry.getContentHash()));
         return dictionaryNotes;
     }
 
     @Override
     public void delete(DictionaryNotes dictionaryNotes) {
         gridFsTemplate.delete(getQuery(dictionaryNotes));
+        dictionaryNotesCache.remove(dictionaryNotes.getRootLetters().getDisplayName());
+    }
+
+    /**
+     * Validates cached entry against given GridFS file, content is only downloaded if it is not available locally.
+     */
+    private DictionaryNotesCache.Entry validate(String key, DictionaryNotesCache.Entry entry, GridFSDBFile file) {
+        final String fileId = file.getId().toString();
+        String contentHash = getMetadata(file, CONTENT_HASH);
+        if (contentHash == null && entry != null && fileId.equals(entry.getFileId())) {
+            // files stored before content hash was introduced, same file id means same content
+            contentHash = entry.getContentHash();
+        }
+        if (!dictionaryNotesCache.contains(contentHash)) {
+            LOGGER.debug("Downloading dictionary notes of {}", key);
+            try (InputStream inputStream = GZIP.equals(getMetadata(file, CONTENT_ENCODING))
+                    ? new GZIPInputStream(file.getInputStream()) : file.getInputStream()) {
+                contentHash = dictionaryNotesCache.write(inputStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return dictionaryNotesCache.put(key, fileId, contentHash, file.getFilename());
     }
 }
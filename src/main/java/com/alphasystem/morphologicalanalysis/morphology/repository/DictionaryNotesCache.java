@@ -0,0 +1,338 @@
+package com.alphasystem.morphologicalanalysis.morphology.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Local disk cache of dictionary notes.
+ * <p>
+ * Content of the notes is stored uncompressed in files named by the SHA-256 hash of the content, so that same content
+ * is stored only once. An index (<code>index.properties</code>) maps root letters to the GridFS file id, content hash
+ * and file name of their notes. Cached content is read through memory-mapped files.
+ * </p>
+ * <p>
+ * An entry validated against GridFS within the {@link #setValidationInterval(long, TimeUnit) validation interval} is
+ * used without any network I/O. Cache directory can be configured with system property {@link #CACHE_DIR_PROPERTY}.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class DictionaryNotesCache {
+
+    public static final String CACHE_DIR_PROPERTY = "morphologicalanalysis.notes.cacheDir";
+    public static final long DEFAULT_VALIDATION_INTERVAL_MINUTES = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryNotesCache.class);
+    private static final String INDEX_FILE_NAME = "index.properties";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path cacheDir;
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long validationIntervalNanos = TimeUnit.MINUTES.toNanos(DEFAULT_VALIDATION_INTERVAL_MINUTES);
+
+    public DictionaryNotesCache() {
+        this(Paths.get(System.getProperty(CACHE_DIR_PROPERTY, Paths.get(System.getProperty("user.home"),
+                ".morphological-analysis", "notes-cache").toString())));
+    }
+
+    public DictionaryNotesCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+        this.indexFile = cacheDir.resolve(INDEX_FILE_NAME);
+        loadIndex();
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param content given content
+     * @return SHA-256 hash of the given content in hex
+     */
+    public static String hash(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setValidationInterval(long validationInterval, TimeUnit unit) {
+        this.validationIntervalNanos = unit.toNanos(validationInterval);
+    }
+
+    /**
+     * @param key key (display name of root letters)
+     * @return cache entry for the given key, <code>null</code> if there is no entry or its content is missing
+     */
+    public Entry get(String key) {
+        final Entry entry = entries.get(key);
+        return (entry == null || !Files.isRegularFile(getContentFile(entry.contentHash))) ? null : entry;
+    }
+
+    /**
+     * @param entry given entry
+     * @return <code>true</code> if given entry has been validated against GridFS within the validation interval
+     */
+    public boolean isFresh(Entry entry) {
+        return entry.validatedAt != 0 && System.nanoTime() - entry.validatedAt < validationIntervalNanos;
+    }
+
+    /**
+     * @param contentHash given content hash
+     * @return <code>true</code> if content with the given hash is available locally
+     */
+    public boolean contains(String contentHash) {
+        return contentHash != null && Files.isRegularFile(getContentFile(contentHash));
+    }
+
+    /**
+     * Records that the notes of the given key are stored in GridFS file with the given id and content hash, content
+     * must already be available locally.
+     */
+    public Entry put(String key, String fileId, String contentHash, String fileName) {
+        final Entry entry = new Entry(fileId, contentHash, fileName, System.nanoTime());
+        final Entry previous = entries.put(key, entry);
+        saveIndex();
+        if (previous != null && !previous.contentHash.equals(contentHash)) {
+            deleteIfUnreferenced(previous.contentHash);
+        }
+        return entry;
+    }
+
+    /**
+     * Stores given content locally.
+     *
+     * @param content given content
+     * @return hash of the content
+     */
+    public String write(byte[] content) {
+        final String contentHash = hash(content);
+        if (!contains(contentHash)) {
+            try {
+                final Path tempFile = createTempFile();
+                Files.write(tempFile, content);
+                moveToContentFile(tempFile, contentHash);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return contentHash;
+    }
+
+    /**
+     * Copies given stream locally.
+     *
+     * @param inputStream stream of the content, stream is not closed
+     * @return hash of the content
+     */
+    public String write(InputStream inputStream) {
+        try {
+            final Path tempFile = createTempFile();
+            final DigestInputStream digestInputStream = new DigestInputStream(inputStream, newDigest());
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = digestInputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                }
+            }
+            final String contentHash = toHex(digestInputStream.getMessageDigest().digest());
+            if (contains(contentHash)) {
+                Files.delete(tempFile);
+            } else {
+                moveToContentFile(tempFile, contentHash);
+            }
+            return contentHash;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param contentHash hash of the content
+     * @return stream reading locally stored content through a memory-mapped file
+     */
+    public InputStream open(String contentHash) {
+        try (FileChannel channel = FileChannel.open(getContentFile(contentHash), READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ByteBufferInputStream(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void remove(String key) {
+        final Entry previous = entries.remove(key);
+        if (previous != null) {
+            saveIndex();
+            deleteIfUnreferenced(previous.contentHash);
+        }
+    }
+
+    private Path getContentFile(String contentHash) {
+        return cacheDir.resolve(contentHash);
+    }
+
+    private Path createTempFile() throws IOException {
+        Files.createDirectories(cacheDir);
+        return Files.createTempFile(cacheDir, "notes", ".tmp");
+    }
+
+    private void moveToContentFile(Path tempFile, String contentHash) throws IOException {
+        Files.move(tempFile, getContentFile(contentHash), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    private void deleteIfUnreferenced(String contentHash) {
+        if (entries.values().stream().anyMatch(entry -> entry.contentHash.equals(contentHash))) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(getContentFile(contentHash));
+        } catch (IOException e) {
+            // file might be still mapped, it will be overwritten if same content is ever cached again
+            LOGGER.warn("Unable to delete cached notes {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    private void loadIndex() {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(indexFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to load dictionary notes cache index {}: {}", indexFile, e.getMessage());
+            return;
+        }
+        properties.stringPropertyNames().forEach(key -> {
+            final String[] values = properties.getProperty(key).split(",", 3);
+            if (values.length == 3) {
+                // entries loaded from disk need to be validated before first use
+                entries.put(key, new Entry(values[0], values[1], values[2], 0));
+            }
+        });
+    }
+
+    private synchronized void saveIndex() {
+        final Properties properties = new Properties();
+        entries.forEach((key, entry) -> properties.setProperty(key, String.format("%s,%s,%s", entry.fileId,
+                entry.contentHash, (entry.fileName == null) ? "" : entry.fileName)));
+        try {
+            final Path tempFile = createTempFile();
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                properties.store(outputStream, "Dictionary notes cache index");
+            }
+            Files.move(tempFile, indexFile, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save dictionary notes cache index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Cached notes of one root.
+     */
+    public static final class Entry {
+        private final String fileId;
+        private final String contentHash;
+        private final String fileName;
+        private final long validatedAt;
+
+        private Entry(String fileId, String contentHash, String fileName, long validatedAt) {
+            this.fileId = fileId;
+            this.contentHash = contentHash;
+            this.fileName = fileName;
+            this.validatedAt = validatedAt;
+        }
+
+        public String getFileId() {
+            return fileId;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
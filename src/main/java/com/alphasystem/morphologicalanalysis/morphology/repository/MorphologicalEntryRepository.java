@@ -6,9 +6,15 @@ import com.alphasystem.persistence.mongo.repository.BaseRepository;
 import java.util.List;
 
 /**
+ * <code>locations</code> of loaded entries is a summary of at most
+ * {@link com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations#getSummarySize() summary size}
+ * locations, all of them are read through
+ * {@link com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations}.
+ *
  * @author sali
  */
-public interface MorphologicalEntryRepository extends BaseRepository<MorphologicalEntry> {
+public interface MorphologicalEntryRepository extends BaseRepository<MorphologicalEntry>,
+        MorphologicalEntryRepositoryCustom {
 
     List<MorphologicalEntry> findByGroupTag(String groupTag);
 }
@@ -0,0 +1,29 @@
+package com.alphasystem.morphologicalanalysis.morphology.repository;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+
+import java.util.List;
+
+/**
+ * @author sali
+ */
+public interface MorphologicalEntryRepositoryCustom {
+
+    /**
+     * Saves given entry without touching location references of an existing entry, <code>locations</code> of the
+     * given entry are only stored if it is a new entry.
+     *
+     * @param morphologicalEntry entry to save
+     * @param <S>                type of the entry
+     * @return saved entry
+     */
+    <S extends MorphologicalEntry> S save(S morphologicalEntry);
+
+    /**
+     * @param morphologicalEntries entries to save
+     * @param <S>                  type of the entries
+     * @return saved entries
+     * @see #save(MorphologicalEntry)
+     */
+    <S extends MorphologicalEntry> List<S> save(Iterable<S> morphologicalEntries);
+}
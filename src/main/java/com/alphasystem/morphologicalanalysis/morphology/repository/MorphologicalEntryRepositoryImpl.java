@@ -0,0 +1,112 @@
+package com.alphasystem.morphologicalanalysis.morphology.repository;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mapping.AssociationHandler;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations.LOCATIONS;
+import static com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations.LOCATION_COUNT;
+import static com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations.OVERFLOW_COUNT;
+
+/**
+ * Saves entries with one upsert, which replaces the fields of the entry with <code>$set</code> and
+ * <code>$unset</code> but writes <code>locations</code> and the counts only with <code>$setOnInsert</code>.
+ * <p>
+ * Location references are maintained by {@link MorphologicalEntryLocations} with in place updates, a save of an
+ * entry loaded before such an update therefore neither overwrites nor needs to read the stored references. Save
+ * events are published as {@link MongoTemplate#save(Object)} does. Entries must be saved through
+ * {@link MorphologicalEntryRepository}, a save through {@link MongoTemplate} replaces the whole document.
+ * </p>
+ *
+ * @author sali
+ */
+public class MorphologicalEntryRepositoryImpl implements MorphologicalEntryRepositoryCustom {
+
+    private static final String ID = "_id";
+    private static final Set<String> LOCATION_FIELDS = new HashSet<>(Arrays.asList(LOCATIONS, LOCATION_COUNT,
+            OVERFLOW_COUNT));
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public <S extends MorphologicalEntry> S save(S morphologicalEntry) {
+        if (morphologicalEntry.isTransient()) {
+            morphologicalEntry.setId(new ObjectId().toString());
+        }
+        final String collectionName = mongoTemplate.getCollectionName(MorphologicalEntry.class);
+        eventPublisher.publishEvent(new BeforeConvertEvent<>(morphologicalEntry, collectionName));
+        final DBObject dbObject = new BasicDBObject();
+        mongoTemplate.getConverter().write(morphologicalEntry, dbObject);
+        eventPublisher.publishEvent(new BeforeSaveEvent<>(morphologicalEntry, dbObject, collectionName));
+        upsert(collectionName, new BasicDBObject(ID, dbObject.get(ID)), toUpdate(dbObject));
+        eventPublisher.publishEvent(new AfterSaveEvent<>(morphologicalEntry, dbObject, collectionName));
+        return morphologicalEntry;
+    }
+
+    @Override
+    public <S extends MorphologicalEntry> List<S> save(Iterable<S> morphologicalEntries) {
+        final List<S> result = new ArrayList<>();
+        morphologicalEntries.forEach(morphologicalEntry -> result.add(save(morphologicalEntry)));
+        return result;
+    }
+
+    void upsert(String collectionName, DBObject query, DBObject update) {
+        mongoTemplate.getCollection(collectionName).update(query, update, true, false);
+    }
+
+    private DBObject toUpdate(DBObject dbObject) {
+        final DBObject set = new BasicDBObject();
+        dbObject.keySet().stream().filter(key -> !ID.equals(key) && !LOCATION_FIELDS.contains(key))
+                .forEach(key -> set.put(key, dbObject.get(key)));
+
+        // fields which are null in the entry are not converted, they are removed as a replace would do
+        final DBObject unset = new BasicDBObject();
+        final PropertyHandler<MongoPersistentProperty> handler = property -> {
+            final String fieldName = property.getFieldName();
+            if (!property.isIdProperty() && !LOCATION_FIELDS.contains(fieldName) && !set.containsField(fieldName)) {
+                unset.put(fieldName, "");
+            }
+        };
+        final MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getPersistentEntity(MorphologicalEntry.class);
+        entity.doWithProperties(handler);
+        final AssociationHandler<MongoPersistentProperty> associationHandler =
+                association -> handler.doWithPersistentProperty(association.getInverse());
+        entity.doWithAssociations(associationHandler);
+
+        final Object locations = dbObject.get(LOCATIONS);
+        final DBObject setOnInsert = new BasicDBObject(LOCATIONS, (locations instanceof List) ? locations
+                : new BasicDBList());
+        setOnInsert.put(LOCATION_COUNT, (locations instanceof List) ? ((List<?>) locations).size() : 0);
+        setOnInsert.put(OVERFLOW_COUNT, 0);
+
+        final DBObject update = new BasicDBObject("$setOnInsert", setOnInsert);
+        if (!set.keySet().isEmpty()) {
+            update.put("$set", set);
+        }
+        if (!unset.keySet().isEmpty()) {
+            update.put("$unset", unset);
+        }
+        return update;
+    }
+}
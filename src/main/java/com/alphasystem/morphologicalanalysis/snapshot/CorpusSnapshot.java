@@ -0,0 +1,148 @@
+package com.alphasystem.morphologicalanalysis.snapshot;
+
+import com.mongodb.DBObject;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.FOOTER_SIZE;
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.MAGIC;
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.VERSION;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Read-only corpus snapshot written by {@link SnapshotExporter}, served from a memory-mapped file.
+ * <p>
+ * Opening a snapshot only reads its directory, documents are decoded and converted on demand, references between
+ * documents are resolved from the snapshot as well. Use {@link SnapshotRepositoryFactory} to get repositories backed by
+ * a snapshot.
+ * </p>
+ *
+ * @author sali
+ */
+public class CorpusSnapshot implements Closeable {
+
+    private final Path file;
+    private final Map<String, SnapshotCollection> collections;
+    private final MongoMappingContext mappingContext;
+    private final MappingMongoConverter converter;
+
+    private CorpusSnapshot(Path file, Map<String, SnapshotCollection> collections) {
+        this.file = file;
+        this.collections = collections;
+        this.mappingContext = new MongoMappingContext();
+        this.converter = new MappingMongoConverter(new SnapshotDbRefResolver(this), mappingContext);
+        this.converter.afterPropertiesSet();
+    }
+
+    /**
+     * Maps given snapshot file.
+     *
+     * @param file snapshot file
+     * @return opened snapshot
+     * @throws IOException if file can not be read or is not a snapshot
+     */
+    public static CorpusSnapshot open(Path file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Snapshot \"%s\" exceeds maximum size of 2 GB", file));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final int limit = buffer.limit();
+        if (limit < FOOTER_SIZE + Long.BYTES + Integer.BYTES || buffer.getLong(0) != MAGIC
+                || buffer.getLong(limit - Long.BYTES) != MAGIC) {
+            throw new IOException(String.format("\"%s\" is not a snapshot", file));
+        }
+        final int version = buffer.getInt(Long.BYTES);
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported snapshot version {%s} of \"%s\"", version, file));
+        }
+        final ByteBuffer directory = buffer.duplicate();
+        directory.position(buffer.getInt(limit - FOOTER_SIZE));
+        final int collectionCount = directory.getInt();
+        final Map<String, SnapshotCollection> collections = new HashMap<>();
+        for (int i = 0; i < collectionCount; i++) {
+            final String name = readUTF(directory);
+            collections.put(name, new SnapshotCollection(buffer, name, directory.getInt(), directory.getInt(),
+                    directory.getInt(), directory.getInt(), directory.getInt(), directory.getInt(),
+                    directory.getInt(), directory.getInt()));
+        }
+        return new CorpusSnapshot(file, Collections.unmodifiableMap(collections));
+    }
+
+    private static String readUTF(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        // names are plain ASCII, modified UTF-8 is same as UTF-8 for them
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Map<String, SnapshotCollection> getCollections() {
+        return collections;
+    }
+
+    /**
+     * @param type document type
+     * @return collection of the given document type, <code>null</code> if collection is not in the snapshot
+     */
+    public SnapshotCollection getCollection(Class<?> type) {
+        return collections.get(getPersistentEntity(type).getCollection());
+    }
+
+    public SnapshotCollection getCollection(String name) {
+        return collections.get(name);
+    }
+
+    MongoPersistentEntity<?> getPersistentEntity(Class<?> type) {
+        return mappingContext.getPersistentEntity(type);
+    }
+
+    /**
+     * @param type       document type
+     * @param collection collection of the document
+     * @param index      record index
+     * @param <T>        document type
+     * @return converted document
+     */
+    public <T> T read(Class<T> type, SnapshotCollection collection, int index) {
+        return converter.read(type, collection.getDocument(index));
+    }
+
+    DBObject findDocument(String collectionName, Object id) {
+        final SnapshotCollection collection = collections.get(collectionName);
+        if (collection == null || id == null) {
+            return null;
+        }
+        final int index = collection.indexOfId(id.toString());
+        return (index < 0) ? null : collection.getDocument(index);
+    }
+
+    /**
+     * Snapshot is unmapped when it becomes unreachable, this method exists for use in try-with-resources blocks.
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CorpusSnapshot{file=%s, collections=%s}", file, collections.values());
+    }
+}
@@ -0,0 +1,187 @@
+package com.alphasystem.morphologicalanalysis.snapshot;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.RECORD_SIZE;
+
+/**
+ * One collection of a {@link CorpusSnapshot}. Records are in the order of their keys, record index of a token is its
+ * ordinal in the corpus.
+ *
+ * @author sali
+ */
+public class SnapshotCollection {
+
+    private final String name;
+    private final int size;
+    private final int keyFields;
+    private final int nameCount;
+    private final ByteBuffer documents;
+    private final ByteBuffer records;
+    private final ByteBuffer strings;
+    private final int stringsDataOffset;
+    private final ByteBuffer idIndex;
+    private final ByteBuffer nameIndex;
+
+    SnapshotCollection(ByteBuffer buffer, String name, int size, int keyFields, int documentsOffset,
+                       int recordsOffset, int stringsOffset, int idIndexOffset, int nameIndexOffset, int nameCount) {
+        this.name = name;
+        this.size = size;
+        this.keyFields = keyFields;
+        this.nameCount = nameCount;
+        this.documents = slice(buffer, documentsOffset, recordsOffset);
+        this.records = slice(buffer, recordsOffset, stringsOffset);
+        this.strings = slice(buffer, stringsOffset, idIndexOffset);
+        this.stringsDataOffset = (2 * size + 1) * Integer.BYTES;
+        this.idIndex = slice(buffer, idIndexOffset, nameIndexOffset);
+        this.nameIndex = slice(buffer, nameIndexOffset, nameIndexOffset + nameCount * Integer.BYTES);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(to).position(from);
+        return duplicate.slice();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param keyField one of the key field flags of {@link SnapshotFormat}
+     * @return <code>true</code> if all documents of this collection have the given key field
+     */
+    boolean hasKeyField(int keyField) {
+        return (keyFields & keyField) == keyField;
+    }
+
+    public long getKey(int index) {
+        return records.getLong(index * RECORD_SIZE);
+    }
+
+    public String getId(int index) {
+        return getString(2 * index);
+    }
+
+    public String getDisplayName(int index) {
+        return getString(2 * index + 1);
+    }
+
+    /**
+     * @param index record index
+     * @return document of the given record
+     */
+    public DBObject getDocument(int index) {
+        final int offset = records.getInt(index * RECORD_SIZE + Long.BYTES);
+        final int length = records.getInt(index * RECORD_SIZE + Long.BYTES + Integer.BYTES);
+        final byte[] bytes = new byte[length];
+        final ByteBuffer duplicate = documents.duplicate();
+        duplicate.position(offset);
+        duplicate.get(bytes);
+        return new DefaultDBDecoder().decode(bytes, (DBCollection) null);
+    }
+
+    /**
+     * @param id given id
+     * @return index of the record with the given id, <code>-1</code> if there is no such record
+     */
+    public int indexOfId(String id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int index = idIndex.getInt(mid * Integer.BYTES);
+            final int comparison = getId(index).compareTo(id);
+            if (comparison == 0) {
+                return index;
+            } else if (comparison < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param displayName given display name
+     * @return index of a record with the given display name, <code>-1</code> if there is no such record
+     */
+    public int indexOfDisplayName(String displayName) {
+        int low = 0;
+        int high = nameCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int index = nameIndex.getInt(mid * Integer.BYTES);
+            final int comparison = getDisplayName(index).compareTo(displayName);
+            if (comparison == 0) {
+                return index;
+            } else if (comparison < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param key given key
+     * @return index of the first record whose key is greater than or equal to the given key
+     */
+    public int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (getKey(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param key given key
+     * @return index of the first record whose key is greater than the given key
+     */
+    public int upperBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (getKey(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private String getString(int stringIndex) {
+        final int from = strings.getInt(stringIndex * Integer.BYTES);
+        final int to = strings.getInt((stringIndex + 1) * Integer.BYTES);
+        final byte[] bytes = new byte[to - from];
+        final ByteBuffer duplicate = strings.duplicate();
+        duplicate.position(stringsDataOffset + from);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SnapshotCollection{name=%s, size=%s}", name, size);
+    }
+}
@@ -0,0 +1,55 @@
+package com.alphasystem.morphologicalanalysis.snapshot;
+
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.springframework.data.mongodb.core.convert.DbRefProxyHandler;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.DbRefResolverCallback;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DbRefResolver} resolving references from a {@link CorpusSnapshot}, lazy references are resolved eagerly.
+ *
+ * @author sali
+ */
+class SnapshotDbRefResolver implements DbRefResolver {
+
+    private final CorpusSnapshot snapshot;
+
+    SnapshotDbRefResolver(CorpusSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Object resolveDbRef(MongoPersistentProperty property, DBRef dbref, DbRefResolverCallback callback,
+                               DbRefProxyHandler proxyHandler) {
+        return callback.resolve(property);
+    }
+
+    @Override
+    public DBRef createDbRef(org.springframework.data.mongodb.core.mapping.DBRef annotation,
+                             MongoPersistentEntity<?> entity, Object id) {
+        return new DBRef(entity.getCollection(), id);
+    }
+
+    @Override
+    public DBObject fetch(DBRef dbRef) {
+        return snapshot.findDocument(dbRef.getCollectionName(), dbRef.getId());
+    }
+
+    @Override
+    public List<DBObject> bulkFetch(List<DBRef> dbRefs) {
+        final List<DBObject> result = new ArrayList<>(dbRefs.size());
+        for (DBRef dbRef : dbRefs) {
+            final DBObject dbObject = fetch(dbRef);
+            if (dbObject != null) {
+                result.add(dbObject);
+            }
+        }
+        return result;
+    }
+}
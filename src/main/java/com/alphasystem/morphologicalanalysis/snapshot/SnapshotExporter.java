@@ -0,0 +1,303 @@
+package com.alphasystem.morphologicalanalysis.snapshot;
+
+import com.alphasystem.arabic.model.ArabicWord;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.HiddenNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ImpliedNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PhraseNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ReferenceNode;
+import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
+import com.alphasystem.morphologicalanalysis.graph.model.TerminalNode;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.spring.support.MorphologicalAnalysisSpringConfiguration;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.KEY_FIELD_NAMES;
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.MAGIC;
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.VERSION;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Exports the corpus from MongoDB into a snapshot file (see {@link SnapshotFormat}) to be served by
+ * {@link CorpusSnapshot}.
+ * <p>
+ * Documents are exported as stored, except that missing text of locations is computed from the text of their tokens.
+ * Can be run from the command line: <code>SnapshotExporter &lt;snapshot-file&gt;</code>.
+ * </p>
+ *
+ * @author sali
+ */
+public class SnapshotExporter {
+
+    /**
+     * Exported document types, tokens must be exported before locations.
+     */
+    static final List<Class<?>> DOCUMENT_TYPES = Arrays.asList(Chapter.class, Verse.class, Token.class, Location.class,
+            DependencyGraph.class, TerminalNode.class, PartOfSpeechNode.class, PhraseNode.class, RelationshipNode.class,
+            ReferenceNode.class, HiddenNode.class, ImpliedNode.class, MorphologicalEntry.class);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotExporter.class);
+    private static final int CURSOR_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public SnapshotExporter(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SnapshotExporter <snapshot-file>");
+            System.exit(1);
+        }
+        try (AnnotationConfigApplicationContext context =
+                     new AnnotationConfigApplicationContext(MorphologicalAnalysisSpringConfiguration.class)) {
+            new SnapshotExporter(context.getBean(MongoTemplate.class)).export(Paths.get(args[0]));
+        }
+    }
+
+    private static Integer getInt(DBObject dbObject, String key) {
+        final Object value = dbObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : null;
+    }
+
+    /**
+     * @param dbObject given document
+     * @return bit mask of the key fields present in the given document
+     */
+    private static int getKeyFields(DBObject dbObject) {
+        int keyFields = 0;
+        for (int i = 0; i < KEY_FIELD_NAMES.length; i++) {
+            if (getInt(dbObject, KEY_FIELD_NAMES[i]) != null) {
+                keyFields |= 1 << i;
+            }
+        }
+        return keyFields;
+    }
+
+    private static long getKey(DBObject dbObject) {
+        final int[] numbers = new int[KEY_FIELD_NAMES.length];
+        for (int i = 0; i < numbers.length; i++) {
+            final Integer value = getInt(dbObject, KEY_FIELD_NAMES[i]);
+            numbers[i] = (value == null) ? 0 : value;
+        }
+        if (numbers[1] == 0) {
+            // dependency graphs have verse numbers in their token ranges
+            final Object tokens = dbObject.get("tokens");
+            if (tokens instanceof List && !((List<?>) tokens).isEmpty() && ((List<?>) tokens).get(0) instanceof DBObject) {
+                final Integer verseNumber = getInt((DBObject) ((List<?>) tokens).get(0), "verseNumber");
+                numbers[1] = (verseNumber == null) ? 0 : verseNumber;
+            }
+        }
+        return LocationKey.encode(numbers[0], numbers[1], numbers[2], numbers[3]);
+    }
+
+    /**
+     * Exports the corpus into given file, file is written to a temporary file first and then moved.
+     *
+     * @param file snapshot file
+     * @throws IOException if file can not be written
+     */
+    public void export(Path file) throws IOException {
+        final long start = System.currentTimeMillis();
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        final List<CollectionData> collections = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile),
+                1 << 16))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            final Map<Long, String> tokenTexts = new HashMap<>();
+            for (Class<?> type : DOCUMENT_TYPES) {
+                collections.add(writeDocuments(out, type, tokenTexts));
+            }
+            for (CollectionData collection : collections) {
+                writeTables(out, collection);
+            }
+            final int directoryOffset = position(out);
+            out.writeInt(collections.size());
+            for (CollectionData collection : collections) {
+                out.writeUTF(collection.name);
+                out.writeInt(collection.records.size());
+                out.writeInt(collection.keyFields);
+                out.writeInt(collection.documentsOffset);
+                out.writeInt(collection.recordsOffset);
+                out.writeInt(collection.stringsOffset);
+                out.writeInt(collection.idIndexOffset);
+                out.writeInt(collection.nameIndexOffset);
+                out.writeInt(collection.nameCount);
+            }
+            out.writeInt(directoryOffset);
+            out.writeLong(MAGIC);
+        }
+        Files.move(tempFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        LOGGER.info("Exported snapshot {} ({} bytes) in {} ms", file, Files.size(file),
+                System.currentTimeMillis() - start);
+    }
+
+    private CollectionData writeDocuments(DataOutputStream out, Class<?> type, Map<Long, String> tokenTexts)
+            throws IOException {
+        final CollectionData collection = new CollectionData(mongoTemplate.getCollectionName(type));
+        collection.documentsOffset = position(out);
+        final DefaultDBEncoder encoder = new DefaultDBEncoder();
+        int keyFields = -1;
+        try (DBCursor cursor = mongoTemplate.getCollection(collection.name).find().batchSize(CURSOR_BATCH_SIZE)) {
+            while (cursor.hasNext()) {
+                final DBObject dbObject = cursor.next();
+                final long key = getKey(dbObject);
+                if (type == Token.class) {
+                    tokenTexts.put(key, (String) dbObject.get("token"));
+                } else if (type == Location.class) {
+                    populateText(dbObject, tokenTexts);
+                }
+                final byte[] bytes = encoder.encode(dbObject);
+                final Object displayName = dbObject.get("displayName");
+                collection.records.add(new RecordData(key, position(out) - collection.documentsOffset, bytes.length,
+                        String.valueOf(dbObject.get("_id")), (displayName == null) ? "" : displayName.toString()));
+                out.write(bytes);
+                keyFields &= getKeyFields(dbObject);
+            }
+        }
+        collection.keyFields = collection.records.isEmpty() ? 0 : keyFields;
+        LOGGER.info("Exported {} documents of collection {}", collection.records.size(), collection.name);
+        return collection;
+    }
+
+    private static void populateText(DBObject dbObject, Map<Long, String> tokenTexts) {
+        if (StringUtils.isNotBlank((String) dbObject.get("text")) && StringUtils.isNotBlank((String) dbObject.get("derivedText"))) {
+            return;
+        }
+        final Integer chapterNumber = getInt(dbObject, "chapterNumber");
+        final Integer verseNumber = getInt(dbObject, "verseNumber");
+        final Integer tokenNumber = getInt(dbObject, "tokenNumber");
+        if (chapterNumber == null || verseNumber == null || tokenNumber == null) {
+            return;
+        }
+        final String tokenText = tokenTexts.get(LocationKey.encode(chapterNumber, verseNumber, tokenNumber, 0));
+        if (tokenText == null) {
+            return;
+        }
+        final Integer startIndex = getInt(dbObject, "startIndex");
+        final Integer endIndex = getInt(dbObject, "endIndex");
+        final ArabicWord tokenWord = new Token(chapterNumber, verseNumber, tokenNumber, tokenText).tokenWord();
+        final String text = ArabicWord.getSubWord(tokenWord, (startIndex == null) ? 0 : startIndex,
+                (endIndex == null) ? 0 : endIndex).toUnicode();
+        if (StringUtils.isBlank((String) dbObject.get("text"))) {
+            dbObject.put("text", text);
+        }
+        if (StringUtils.isBlank((String) dbObject.get("derivedText"))) {
+            dbObject.put("derivedText", text);
+        }
+    }
+
+    private static void writeTables(DataOutputStream out, CollectionData collection) throws IOException {
+        final List<RecordData> records = collection.records;
+        records.sort(Comparator.comparingLong(record -> record.key));
+        final int size = records.size();
+
+        collection.recordsOffset = position(out);
+        for (RecordData record : records) {
+            out.writeLong(record.key);
+            out.writeInt(record.documentOffset);
+            out.writeInt(record.documentLength);
+        }
+
+        collection.stringsOffset = position(out);
+        final byte[][] strings = new byte[2 * size][];
+        for (int i = 0; i < size; i++) {
+            strings[2 * i] = records.get(i).id.getBytes(StandardCharsets.UTF_8);
+            strings[2 * i + 1] = records.get(i).displayName.getBytes(StandardCharsets.UTF_8);
+        }
+        int offset = 0;
+        for (byte[] string : strings) {
+            out.writeInt(offset);
+            offset += string.length;
+        }
+        out.writeInt(offset);
+        for (byte[] string : strings) {
+            out.write(string);
+        }
+
+        collection.idIndexOffset = position(out);
+        for (int index : IntStream.range(0, size).boxed().sorted(Comparator.comparing(i -> records.get(i).id))
+                .mapToInt(Integer::intValue).toArray()) {
+            out.writeInt(index);
+        }
+
+        collection.nameIndexOffset = position(out);
+        final int[] nameIndex = IntStream.range(0, size).filter(i -> !records.get(i).displayName.isEmpty()).boxed()
+                .sorted(Comparator.comparing(i -> records.get(i).displayName)).mapToInt(Integer::intValue).toArray();
+        for (int index : nameIndex) {
+            out.writeInt(index);
+        }
+        collection.nameCount = nameIndex.length;
+    }
+
+    private static int position(DataOutputStream out) throws IOException {
+        final int position = out.size();
+        if (position < 0 || position == Integer.MAX_VALUE) {
+            throw new IOException("Snapshot exceeds maximum size of 2 GB");
+        }
+        return position;
+    }
+
+    private static final class CollectionData {
+        private final String name;
+        private final List<RecordData> records = new ArrayList<>();
+        private int keyFields;
+        private int documentsOffset;
+        private int recordsOffset;
+        private int stringsOffset;
+        private int idIndexOffset;
+        private int nameIndexOffset;
+        private int nameCount;
+
+        private CollectionData(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class RecordData {
+        private final long key;
+        private final int documentOffset;
+        private final int documentLength;
+        private final String id;
+        private final String displayName;
+
+        private RecordData(long key, int documentOffset, int documentLength, String id, String displayName) {
+            this.key = key;
+            this.documentOffset = documentOffset;
+            this.documentLength = documentLength;
+            this.id = id;
+            this.displayName = displayName;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.alphasystem.morphologicalanalysis.snapshot;
+
+/**
+ * Layout of a corpus snapshot file, all numbers are big endian.
+ * <pre>
+ * header     : long MAGIC, int VERSION
+ * documents  : per collection, BSON documents back to back
+ * tables     : per collection
+ *              records          : recordCount * (long key, int documentOffset, int documentLength), sorted by key
+ *              strings          : int[2 * recordCount + 1] offsets, UTF-8 bytes (id and display name of every record)
+ *              id index         : int[recordCount] record indices sorted by id
+ *              name index       : int[nameCount] record indices sorted by display name
+ * directory  : int collectionCount, per collection: UTF name, int recordCount, int keyFields,
+ *              int documentsOffset, int recordsOffset, int stringsOffset, int idIndexOffset, int nameIndexOffset,
+ *              int nameCount
+ * footer     : int directoryOffset, long MAGIC
+ * </pre>
+ * Key of a record is {@link com.alphasystem.morphologicalanalysis.util.LocationKey} of the document, so records are in
+ * reading order of the corpus. Snapshot is limited to 2 GB, so that it can be mapped with one buffer.
+ *
+ * @author sali
+ */
+final class SnapshotFormat {
+
+    static final long MAGIC = 0x4D41534E41505331L; // "MASNAPS1"
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 16;
+    static final int FOOTER_SIZE = 12;
+
+    static final int CHAPTER_NUMBER = 1;
+    static final int VERSE_NUMBER = 1 << 1;
+    static final int TOKEN_NUMBER = 1 << 2;
+    static final int LOCATION_NUMBER = 1 << 3;
+
+    static final String[] KEY_FIELD_NAMES = {"chapterNumber", "verseNumber", "tokenNumber", "locationNumber"};
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,388 @@
+package com.alphasystem.morphologicalanalysis.snapshot;
+
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.persistence.mongo.repository.BaseRepository;
+import com.mongodb.DBObject;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.alphasystem.morphologicalanalysis.snapshot.SnapshotFormat.KEY_FIELD_NAMES;
+
+/**
+ * Creates read-only implementations of repository interfaces (i.e.,
+ * {@link com.alphasystem.morphologicalanalysis.wordbyword.repository.TokenRepository}) backed by a
+ * {@link CorpusSnapshot}.
+ * <p>
+ * Supported are <code>findOne(id)</code>, <code>exists(id)</code>, <code>findAll()</code>,
+ * <code>findAll(ids)</code>, <code>count()</code>, derived queries (<code>findBy</code>, <code>streamBy</code>,
+ * <code>countBy</code> and <code>existsBy</code>) with equality and <code>Between</code> (exclusive) criteria joined
+ * by <code>And</code>, and QueryDSL <code>findOne</code>, <code>findAll</code>, <code>count</code> and
+ * <code>exists</code> with a {@link Predicate} made of <code>eq</code>, <code>between</code> (inclusive),
+ * <code>gt</code>, <code>goe</code>, <code>lt</code> and <code>loe</code> on properties of the document joined by
+ * <code>and</code>. Criteria on chapter, verse, token and location numbers are answered with a range scan of the
+ * record keys and criteria on display name with the display name index, other criteria require documents to be
+ * decoded. Any other method throws {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @author sali
+ */
+public class SnapshotRepositoryFactory {
+
+    private static final Pattern DERIVED_QUERY = Pattern.compile("^(find|read|get|query|stream|count|exists)\\w*?By(\\w+)$");
+    private static final Pattern AND = Pattern.compile("And(?=[A-Z])");
+    private static final String BETWEEN = "Between";
+    private static final int MASK = 0xFFFF;
+
+    private final CorpusSnapshot snapshot;
+
+    public SnapshotRepositoryFactory(CorpusSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    private static String uncapitalize(String value) {
+        return Character.toLowerCase(value.charAt(0)) + value.substring(1);
+    }
+
+    /**
+     * @param repositoryInterface repository interface extending {@link BaseRepository}
+     * @param <R>                 type of the repository
+     * @return read-only repository backed by the snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends BaseRepository<?>> R getRepository(Class<R> repositoryInterface) {
+        final Class<?> domainType = ResolvableType.forClass(repositoryInterface).as(BaseRepository.class).resolveGeneric(0);
+        if (domainType == null) {
+            throw new IllegalArgumentException(String.format("Unable to resolve domain type of {%s}",
+                    repositoryInterface.getName()));
+        }
+        return (R) Proxy.newProxyInstance(repositoryInterface.getClassLoader(), new Class<?>[]{repositoryInterface},
+                new RepositoryInvocationHandler(repositoryInterface, domainType));
+    }
+
+    private final class RepositoryInvocationHandler implements InvocationHandler {
+
+        private final Class<?> repositoryInterface;
+        private final Class<?> domainType;
+        private final MongoPersistentEntity<?> entity;
+
+        private RepositoryInvocationHandler(Class<?> repositoryInterface, Class<?> domainType) {
+            this.repositoryInterface = repositoryInterface;
+            this.domainType = domainType;
+            this.entity = snapshot.getPersistentEntity(domainType);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            final String name = method.getName();
+            final int argumentCount = (args == null) ? 0 : args.length;
+            if (method.getDeclaringClass() == Object.class) {
+                switch (name) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return String.format("Snapshot%s{%s}", repositoryInterface.getSimpleName(), snapshot.getFile());
+                }
+            }
+            final SnapshotCollection collection = snapshot.getCollection(domainType);
+            if (argumentCount == 1 && args[0] instanceof String && ("findOne".equals(name) || "findById".equals(name)
+                    || "exists".equals(name) || "existsById".equals(name))) {
+                final int index = (collection == null) ? -1 : collection.indexOfId((String) args[0]);
+                return toResult(method, (index < 0) ? Collections.emptyList() : Collections.singletonList(index),
+                        collection);
+            }
+            if ("findAll".equals(name) && argumentCount == 0) {
+                return toResult(method, range(0, (collection == null) ? 0 : collection.size()), collection);
+            }
+            if ("findAll".equals(name) && argumentCount == 1 && args[0] instanceof Iterable) {
+                final List<Integer> indices = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    final int index = (collection == null || id == null) ? -1 : collection.indexOfId(id.toString());
+                    if (index >= 0) {
+                        indices.add(index);
+                    }
+                }
+                return toResult(method, indices, collection);
+            }
+            if ("count".equals(name) && argumentCount == 0) {
+                return (long) ((collection == null) ? 0 : collection.size());
+            }
+            if (argumentCount == 1 && args[0] instanceof Predicate) {
+                final List<Criterion> criteria = new ArrayList<>();
+                parse((Predicate) args[0], criteria);
+                return toResult(method, (collection == null) ? Collections.emptyList() : find(collection, criteria),
+                        collection);
+            }
+            final Matcher matcher = DERIVED_QUERY.matcher(name);
+            if (!matcher.matches()) {
+                throw new UnsupportedOperationException(String.format("Method {%s} is not supported by snapshot " +
+                        "repositories, snapshot repositories are read-only", name));
+            }
+            final List<Criterion> criteria = parse(matcher.group(2), args);
+            return toResult(method, (collection == null) ? Collections.emptyList() : find(collection, criteria),
+                    collection);
+        }
+
+        private List<Criterion> parse(String expression, Object[] args) {
+            final List<Criterion> criteria = new ArrayList<>();
+            int argumentIndex = 0;
+            for (String part : AND.split(expression)) {
+                final boolean between = part.endsWith(BETWEEN);
+                final String propertyName = uncapitalize(between ? part.substring(0, part.length() - BETWEEN.length())
+                        : part);
+                final MongoPersistentProperty property = entity.getPersistentProperty(propertyName);
+                if (property == null) {
+                    throw new IllegalArgumentException(String.format("No property {%s} found in {%s}", propertyName,
+                            domainType.getName()));
+                }
+                if (between) {
+                    criteria.add(Criterion.range(property.getFieldName(), args[argumentIndex++], false,
+                            args[argumentIndex++], false));
+                } else {
+                    criteria.add(Criterion.equalTo(property.getFieldName(), args[argumentIndex++]));
+                }
+            }
+            return criteria;
+        }
+
+        private void parse(Predicate predicate, List<Criterion> criteria) {
+            if (!(predicate instanceof Operation)) {
+                throw unsupported(predicate);
+            }
+            final Operation<?> operation = (Operation<?>) predicate;
+            final Operator operator = operation.getOperator();
+            if (operator == Ops.AND) {
+                operation.getArgs().forEach(arg -> parse((Predicate) arg, criteria));
+                return;
+            }
+            if (operation.getArgs().isEmpty() || !(operation.getArg(0) instanceof Path)) {
+                throw unsupported(predicate);
+            }
+            final String fieldName = getFieldName((Path<?>) operation.getArg(0), predicate);
+            if (operator == Ops.EQ) {
+                criteria.add(Criterion.equalTo(fieldName, getConstant(operation, 1)));
+            } else if (operator == Ops.BETWEEN) {
+                criteria.add(Criterion.range(fieldName, getConstant(operation, 1), true, getConstant(operation, 2),
+                        true));
+            } else if (operator == Ops.GT || operator == Ops.GOE) {
+                criteria.add(Criterion.range(fieldName, getConstant(operation, 1), operator == Ops.GOE, null, false));
+            } else if (operator == Ops.LT || operator == Ops.LOE) {
+                criteria.add(Criterion.range(fieldName, null, false, getConstant(operation, 1), operator == Ops.LOE));
+            } else {
+                throw unsupported(predicate);
+            }
+        }
+
+        private String getFieldName(Path<?> path, Predicate predicate) {
+            final Path<?> parent = path.getMetadata().getParent();
+            if (parent == null || !parent.getMetadata().isRoot()) {
+                throw unsupported(predicate);
+            }
+            final String propertyName = path.getMetadata().getName();
+            final MongoPersistentProperty property = entity.getPersistentProperty(propertyName);
+            if (property == null) {
+                throw new IllegalArgumentException(String.format("No property {%s} found in {%s}", propertyName,
+                        domainType.getName()));
+            }
+            return property.getFieldName();
+        }
+
+        private Object getConstant(Operation<?> operation, int index) {
+            final Expression<?> arg = (operation.getArgs().size() > index) ? operation.getArg(index) : null;
+            if (!(arg instanceof Constant)) {
+                throw unsupported(operation);
+            }
+            return ((Constant<?>) arg).getConstant();
+        }
+
+        private UnsupportedOperationException unsupported(Expression<?> expression) {
+            return new UnsupportedOperationException(String.format("Predicate {%s} is not supported by snapshot " +
+                    "repositories", expression));
+        }
+
+        private List<Integer> find(SnapshotCollection collection, List<Criterion> criteria) {
+            if (criteria.size() == 1 && !criteria.get(0).range && "displayName".equals(criteria.get(0).fieldName)) {
+                final Object value = criteria.get(0).value;
+                final int index = (value == null) ? -1 : collection.indexOfDisplayName(value.toString());
+                return (index < 0) ? Collections.emptyList() : Collections.singletonList(index);
+            }
+            // narrow down the key range using criteria on key fields, in the order of the key
+            final int[] lower = new int[KEY_FIELD_NAMES.length];
+            final int[] upper = {MASK, MASK, MASK, MASK};
+            for (int i = 0; i < KEY_FIELD_NAMES.length && collection.hasKeyField(1 << i); i++) {
+                final Criterion criterion = find(criteria, KEY_FIELD_NAMES[i]);
+                if (criterion == null) {
+                    break;
+                }
+                if (criterion.range) {
+                    if (criterion.value instanceof Number) {
+                        lower[i] = (int) Math.max(0, ((Number) criterion.value).longValue()
+                                + (criterion.lowerInclusive ? 0 : 1));
+                    }
+                    if (criterion.upperValue instanceof Number) {
+                        upper[i] = (int) Math.min(MASK, ((Number) criterion.upperValue).longValue()
+                                - (criterion.upperInclusive ? 0 : 1));
+                    }
+                    if (lower[i] > upper[i]) {
+                        return Collections.emptyList();
+                    }
+                    break;
+                }
+                if (!(criterion.value instanceof Number)) {
+                    break;
+                }
+                lower[i] = upper[i] = ((Number) criterion.value).intValue();
+            }
+            final int from = collection.lowerBound(LocationKey.encode(lower[0], lower[1], lower[2], lower[3]));
+            final int to = collection.upperBound(LocationKey.encode(upper[0], upper[1], upper[2], upper[3]));
+            final List<Integer> result = new ArrayList<>();
+            for (int index = from; index < to; index++) {
+                if (matches(collection, index, criteria)) {
+                    result.add(index);
+                }
+            }
+            return result;
+        }
+
+        private Criterion find(List<Criterion> criteria, String fieldName) {
+            return criteria.stream().filter(criterion -> criterion.fieldName.equals(fieldName)).findFirst().orElse(null);
+        }
+
+        private boolean matches(SnapshotCollection collection, int index, List<Criterion> criteria) {
+            final long key = collection.getKey(index);
+            DBObject document = null;
+            for (Criterion criterion : criteria) {
+                final int keyFieldIndex = getKeyFieldIndex(collection, criterion.fieldName);
+                final Object value;
+                if (keyFieldIndex >= 0) {
+                    value = (int) (key >>> (48 - 16 * keyFieldIndex)) & MASK;
+                } else if ("displayName".equals(criterion.fieldName)) {
+                    value = collection.getDisplayName(index);
+                } else {
+                    if (document == null) {
+                        document = collection.getDocument(index);
+                    }
+                    value = document.get(criterion.fieldName);
+                }
+                if (!criterion.matches(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int getKeyFieldIndex(SnapshotCollection collection, String fieldName) {
+            for (int i = 0; i < KEY_FIELD_NAMES.length; i++) {
+                if (KEY_FIELD_NAMES[i].equals(fieldName)) {
+                    return collection.hasKeyField(1 << i) ? i : -1;
+                }
+            }
+            return -1;
+        }
+
+        private Object toResult(Method method, List<Integer> indices, SnapshotCollection collection) {
+            final Class<?> returnType = method.getReturnType();
+            if (returnType == long.class || returnType == Long.class) {
+                return (long) indices.size();
+            }
+            if (returnType == boolean.class || returnType == Boolean.class) {
+                return !indices.isEmpty();
+            }
+            final List<Object> documents = new ArrayList<>(indices.size());
+            indices.forEach(index -> documents.add(snapshot.read(domainType, collection, index)));
+            if (Stream.class.isAssignableFrom(returnType)) {
+                return documents.stream();
+            }
+            if (returnType.isAssignableFrom(List.class)) {
+                return documents;
+            }
+            return documents.isEmpty() ? null : documents.get(0);
+        }
+    }
+
+    /**
+     * Equality, or range if <code>range</code> is set, <code>null</code> bound of a range is unbounded.
+     */
+    private static final class Criterion {
+        private final String fieldName;
+        private final boolean range;
+        private final Object value;
+        private final boolean lowerInclusive;
+        private final Object upperValue;
+        private final boolean upperInclusive;
+
+        private Criterion(String fieldName, boolean range, Object value, boolean lowerInclusive, Object upperValue,
+                          boolean upperInclusive) {
+            this.fieldName = fieldName;
+            this.range = range;
+            this.value = value;
+            this.lowerInclusive = lowerInclusive;
+            this.upperValue = upperValue;
+            this.upperInclusive = upperInclusive;
+        }
+
+        private static Criterion equalTo(String fieldName, Object value) {
+            return new Criterion(fieldName, false, value, true, value, true);
+        }
+
+        private static Criterion range(String fieldName, Object lowerValue, boolean lowerInclusive, Object upperValue,
+                                       boolean upperInclusive) {
+            return new Criterion(fieldName, true, lowerValue, lowerInclusive, upperValue, upperInclusive);
+        }
+
+        private boolean matches(Object actual) {
+            if (!range) {
+                if (actual instanceof Number && value instanceof Number) {
+                    return ((Number) actual).longValue() == ((Number) value).longValue();
+                }
+                return Objects.equals(actual == null ? null : actual.toString(), value == null ? null : value.toString());
+            }
+            if (!(actual instanceof Number) || (value != null && !(value instanceof Number))
+                    || (upperValue != null && !(upperValue instanceof Number))) {
+                return false;
+            }
+            final long number = ((Number) actual).longValue();
+            if (value != null) {
+                final long lower = ((Number) value).longValue();
+                if (lowerInclusive ? number < lower : number <= lower) {
+                    return false;
+                }
+            }
+            if (upperValue != null) {
+                final long upper = ((Number) upperValue).longValue();
+                if (upperInclusive ? number > upper : number >= upper) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static List<Integer> range(int from, int to) {
+        final List<Integer> indices = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            indices.add(i);
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,201 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.common.model.VerseTokenPairGroup;
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non-blocking facade over {@link MorphologicalAnalysisRepositoryUtil}, every method runs the corresponding blocking
+ * method on the configured executor and returns a {@link CompletableFuture}.
+ * <p>
+ * By default tasks run on virtual threads when the runtime supports them (Java 21 or newer), otherwise on a cached pool
+ * of daemon threads. Any other executor can be set with {@link #setExecutor(Executor)}.
+ * </p>
+ * <p>
+ * Since the number of tasks in flight is not bounded, the wait queue of the MongoDB connection pool
+ * (<code>connectionsPerHost * threadsAllowedToBlockForConnectionMultiplier</code>) must be large enough for the
+ * expected concurrency.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class AsyncMorphologicalAnalysisRepositoryUtil implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncMorphologicalAnalysisRepositoryUtil.class);
+
+    @Autowired private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private final ExecutorService defaultExecutor;
+    private volatile Executor executor;
+
+    public AsyncMorphologicalAnalysisRepositoryUtil() {
+        defaultExecutor = createDefaultExecutor();
+        executor = defaultExecutor;
+    }
+
+    /**
+     * @return executor running a virtual thread per task if available, otherwise a cached thread pool
+     */
+    static ExecutorService createDefaultExecutor() {
+        try {
+            final ExecutorService executorService = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOGGER.info("Using virtual threads for asynchronous repository operations");
+            return executorService;
+        } catch (ReflectiveOperationException e) {
+            LOGGER.info("Virtual threads not available, using cached thread pool for asynchronous repository operations");
+            final AtomicInteger count = new AtomicInteger();
+            final ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "async-repository-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @param executor executor to run the operations, <code>null</code> to reset to the default executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = (executor == null) ? defaultExecutor : executor;
+    }
+
+    /**
+     * Runs given operation on the executor.
+     *
+     * @param operation operation to run
+     * @param <T>       type of the result
+     * @return future result of the operation
+     */
+    public <T> CompletableFuture<T> supplyAsync(Function<MorphologicalAnalysisRepositoryUtil, T> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(repositoryUtil), executor);
+    }
+
+    public CompletableFuture<Void> runAsync(Consumer<MorphologicalAnalysisRepositoryUtil> operation) {
+        return CompletableFuture.runAsync(() -> operation.accept(repositoryUtil), executor);
+    }
+
+    public CompletableFuture<List<Chapter>> findAllChapters() {
+        return supplyAsync(MorphologicalAnalysisRepositoryUtil::findAllChapters);
+    }
+
+    public CompletableFuture<Token> getNextToken(Token token) {
+        return supplyAsync(util -> util.getNextToken(token));
+    }
+
+    public CompletableFuture<Token> getPreviousToken(Token token) {
+        return supplyAsync(util -> util.getPreviousToken(token));
+    }
+
+    public CompletableFuture<Token> getToken(int ordinal) {
+        return supplyAsync(util -> util.getToken(ordinal));
+    }
+
+    public CompletableFuture<List<Token>> getTokens(VerseTokenPairGroup group) {
+        return supplyAsync(util -> util.getTokens(group));
+    }
+
+    public CompletableFuture<List<DependencyGraph>> getDependencyGraphs(VerseTokenPairGroup group) {
+        return supplyAsync(util -> util.getDependencyGraphs(group));
+    }
+
+    public CompletableFuture<DependencyGraph> getDependencyGraph(String displayName) {
+        return supplyAsync(util -> util.getDependencyGraph(displayName));
+    }
+
+    /**
+     * Fetches tokens and dependency graphs of the given group in parallel.
+     *
+     * @param group    given group
+     * @param combiner function to combine tokens and graphs
+     * @param <R>      type of the result
+     * @return future combined result
+     */
+    public <R> CompletableFuture<R> getTokensAndDependencyGraphs(VerseTokenPairGroup group,
+                                                                 BiFunction<List<Token>, List<DependencyGraph>, R> combiner) {
+        return getTokens(group).thenCombine(getDependencyGraphs(group), combiner);
+    }
+
+    /**
+     * Fetches tokens and dependency graphs of the given group in parallel.
+     *
+     * @param group given group
+     * @return future tokens and graphs of the group
+     */
+    public CompletableFuture<TokensAndGraphs> getTokensAndDependencyGraphs(VerseTokenPairGroup group) {
+        return getTokensAndDependencyGraphs(group, TokensAndGraphs::new);
+    }
+
+    public CompletableFuture<MorphologicalEntry> findMorphologicalEntry(MorphologicalEntry src) {
+        return supplyAsync(util -> util.findMorphologicalEntry(src));
+    }
+
+    public CompletableFuture<Void> mergeTokens(int chapterNumber, int verseNumber, int... tokenNumbers) {
+        return runAsync(util -> util.mergeTokens(chapterNumber, verseNumber, tokenNumbers));
+    }
+
+    public CompletableFuture<Void> bulkMergeTokens(int chapterNumber, int verseNumber, int... tokenNumbers) {
+        return runAsync(util -> util.bulkMergeTokens(chapterNumber, verseNumber, tokenNumbers));
+    }
+
+    public CompletableFuture<Void> saveDependencyGraph(DependencyGraph dependencyGraph,
+                                                       List<Token> impliedOrHiddenTokens,
+                                                       Map<GraphNodeType, List<String>> removalIds) {
+        return runAsync(util -> util.saveDependencyGraph(dependencyGraph, impliedOrHiddenTokens, removalIds));
+    }
+
+    public CompletableFuture<Void> deleteDependencyGraph(String id, Map<GraphNodeType, List<String>> removalIds) {
+        return runAsync(util -> util.deleteDependencyGraph(id, removalIds));
+    }
+
+    @Override
+    public void destroy() {
+        defaultExecutor.shutdown();
+    }
+
+    /**
+     * Tokens and dependency graphs of a {@link VerseTokenPairGroup}.
+     */
+    public static final class TokensAndGraphs {
+        private final List<Token> tokens;
+        private final List<DependencyGraph> dependencyGraphs;
+
+        public TokensAndGraphs(List<Token> tokens, List<DependencyGraph> dependencyGraphs) {
+            this.tokens = tokens;
+            this.dependencyGraphs = dependencyGraphs;
+        }
+
+        public List<Token> getTokens() {
+            return tokens;
+        }
+
+        public List<DependencyGraph> getDependencyGraphs() {
+            return dependencyGraphs;
+        }
+    }
+}
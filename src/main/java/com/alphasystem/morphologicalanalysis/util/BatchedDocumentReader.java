@@ -0,0 +1,198 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads documents the same way as {@link MongoTemplate#find(Query, Class)}, except that references are resolved in
+ * batches by {@link BatchingDbRefResolver}: references of the whole result set (e.g., <code>Token.locations</code> of
+ * all tokens, or <code>MorphologicalEntry.locations</code>) are fetched with one <code>$in</code> query per target
+ * collection before the documents are converted, and texts of the resolved locations are populated by
+ * {@link LocationTextHydrator} with one query at the end.
+ * <p>
+ * If {@link #setLazyLocations(boolean) lazy locations} is enabled, location lists of tokens and morphological entries
+ * are not resolved until first accessed.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class BatchedDocumentReader implements ApplicationContextAware {
+
+    public static final int DEFAULT_PREFETCH_DEPTH = 2;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchedDocumentReader.class);
+    private static final String LOCATIONS = "locations";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private MongoDbFactory mongoDbFactory;
+    @Autowired(required = false) private CustomConversions customConversions;
+    @Autowired private LocationTextHydrator locationTextHydrator;
+    private ApplicationContext applicationContext;
+    private volatile BatchingDbRefResolver resolver;
+    private volatile MappingMongoConverter converter;
+    private volatile int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
+    private volatile boolean lazyLocations;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * @param prefetchDepth number of levels of references to prefetch, <code>0</code> to disable prefetching
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException(String.format("Invalid prefetch depth {%s}", prefetchDepth));
+        }
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    public boolean isLazyLocations() {
+        return lazyLocations;
+    }
+
+    /**
+     * @param lazyLocations if <code>true</code> locations of tokens and morphological entries are resolved when first
+     *                      accessed
+     */
+    public void setLazyLocations(boolean lazyLocations) {
+        this.lazyLocations = lazyLocations;
+        final BatchingDbRefResolver current = resolver;
+        if (current != null) {
+            applyLazyLocations(current);
+        }
+    }
+
+    /**
+     * @param query given query
+     * @param type  type of the documents
+     * @param <T>   type of the documents
+     * @return all documents matching the given query
+     */
+    public <T> List<T> find(Query query, Class<T> type) {
+        return find(query, type, query.getLimit());
+    }
+
+    /**
+     * @param query given query
+     * @param type  type of the document
+     * @param <T>   type of the document
+     * @return first document matching the given query, <code>null</code> if there is no such document
+     */
+    public <T> T findOne(Query query, Class<T> type) {
+        final List<T> result = find(query, type, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private <T> List<T> find(Query query, Class<T> type, int limit) {
+        final MappingMongoConverter converter = getConverter();
+        final String collectionName = mongoTemplate.getCollectionName(type);
+        final List<DBObject> dbObjects = findDocuments(query, type, collectionName, converter, limit);
+        final List<T> result = new ArrayList<>(dbObjects.size());
+        resolver.beginBatch();
+        locationTextHydrator.beginBatch();
+        try {
+            if (prefetchDepth > 0 && !dbObjects.isEmpty()) {
+                resolver.prefetch(dbObjects, type, prefetchDepth);
+            }
+            dbObjects.forEach(dbObject -> {
+                applicationContext.publishEvent(new AfterLoadEvent<>(dbObject, type, collectionName));
+                final T source = converter.read(type, dbObject);
+                applicationContext.publishEvent(new AfterConvertEvent<>(dbObject, source, collectionName));
+                result.add(source);
+            });
+        } finally {
+            try {
+                locationTextHydrator.endBatch();
+            } finally {
+                resolver.endBatch();
+            }
+        }
+        LOGGER.debug("Read {} documents from \"{}\"", result.size(), collectionName);
+        return result;
+    }
+
+    private List<DBObject> findDocuments(Query query, Class<?> type, String collectionName, MongoConverter converter,
+                                         int limit) {
+        final MongoPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(type);
+        final QueryMapper queryMapper = new QueryMapper(converter);
+        final DBObject queryObject = queryMapper.getMappedObject(query.getQueryObject(), entity);
+        final DBObject fieldsObject = queryMapper.getMappedFields(query.getFieldsObject(), entity);
+        DBCursor cursor = mongoTemplate.getCollection(collectionName).find(queryObject, fieldsObject);
+        try {
+            final DBObject sortObject = query.getSortObject();
+            if (sortObject != null) {
+                cursor = cursor.sort(queryMapper.getMappedSort(sortObject, entity));
+            }
+            if (query.getSkip() > 0) {
+                cursor = cursor.skip(query.getSkip());
+            }
+            if (limit > 0) {
+                cursor = cursor.limit(limit);
+            }
+            return cursor.toArray();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private MappingMongoConverter getConverter() {
+        MappingMongoConverter result = converter;
+        if (result == null) {
+            synchronized (this) {
+                result = converter;
+                if (result == null) {
+                    final MongoConverter templateConverter = mongoTemplate.getConverter();
+                    final BatchingDbRefResolver dbRefResolver = new BatchingDbRefResolver(mongoDbFactory);
+                    applyLazyLocations(dbRefResolver);
+                    result = new MappingMongoConverter(dbRefResolver, templateConverter.getMappingContext());
+                    if (customConversions != null) {
+                        result.setCustomConversions(customConversions);
+                    }
+                    if (templateConverter instanceof MappingMongoConverter) {
+                        result.setTypeMapper(((MappingMongoConverter) templateConverter).getTypeMapper());
+                    }
+                    // referenced documents publish load and convert events as well
+                    result.setApplicationContext(applicationContext);
+                    result.afterPropertiesSet();
+                    resolver = dbRefResolver;
+                    converter = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void applyLazyLocations(BatchingDbRefResolver dbRefResolver) {
+        dbRefResolver.setLazy(Token.class, LOCATIONS, lazyLocations);
+        dbRefResolver.setLazy(MorphologicalEntry.class, LOCATIONS, lazyLocations);
+    }
+}
@@ -0,0 +1,330 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.DbRefProxyHandler;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.DbRefResolverCallback;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * {@link DbRefResolver} serving references from documents prefetched for the current thread.
+ * <p>
+ * Within a batch (see {@link #beginBatch()} and {@link #endBatch()}) {@link #prefetch(Collection, Class, int)}
+ * collects the {@link DBRef}s of a whole result set and fetches them with one <code>$in</code> query per target
+ * collection (in chunks of {@link #FETCH_BATCH_SIZE}), references of the fetched documents are followed up to given
+ * depth. Conversion of the result set then resolves references from memory, references which have not been prefetched
+ * are fetched by {@link DefaultDbRefResolver}.
+ * </p>
+ * <p>
+ * Collection properties registered with {@link #setLazy(Class, String, boolean)} are not resolved during conversion,
+ * they are resolved when first accessed.
+ * </p>
+ *
+ * @author sali
+ */
+public class BatchingDbRefResolver implements DbRefResolver {
+
+    public static final int FETCH_BATCH_SIZE = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingDbRefResolver.class);
+    private static final ThreadLocal<Batch> CURRENT_BATCH = new ThreadLocal<>();
+    private static final String ID = "_id";
+
+    private final MongoDbFactory mongoDbFactory;
+    private final DbRefResolver delegate;
+    private final Set<String> lazyProperties = ConcurrentHashMap.newKeySet();
+
+    public BatchingDbRefResolver(MongoDbFactory mongoDbFactory) {
+        this.mongoDbFactory = mongoDbFactory;
+        this.delegate = new DefaultDbRefResolver(mongoDbFactory);
+    }
+
+    private static String getPropertyKey(Class<?> type, String propertyName) {
+        return String.format("%s#%s", type.getName(), propertyName);
+    }
+
+    /**
+     * @param type         owner of the property
+     * @param propertyName name of a collection property holding references
+     * @param lazy         <code>true</code> if property should be resolved when first accessed
+     */
+    public void setLazy(Class<?> type, String propertyName, boolean lazy) {
+        final String key = getPropertyKey(type, propertyName);
+        if (lazy) {
+            lazyProperties.add(key);
+        } else {
+            lazyProperties.remove(key);
+        }
+    }
+
+    /**
+     * Starts a batch for current thread, batches can be nested, prefetched documents are released when the outer most
+     * batch ends.
+     */
+    public void beginBatch() {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch == null) {
+            batch = new Batch();
+            CURRENT_BATCH.set(batch);
+        }
+        batch.depth++;
+    }
+
+    /**
+     * Ends the batch for current thread.
+     */
+    public void endBatch() {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch == null) {
+            return;
+        }
+        batch.depth--;
+        if (batch.depth <= 0) {
+            CURRENT_BATCH.remove();
+        }
+    }
+
+    /**
+     * Fetches all documents referenced by the given documents with one query per target collection, for the current
+     * batch. Lazy properties of the given documents are skipped.
+     *
+     * @param documents given documents
+     * @param type      type of the given documents
+     * @param depth     number of levels of references to follow, <code>1</code> to fetch only direct references
+     */
+    public void prefetch(Collection<DBObject> documents, Class<?> type, int depth) {
+        final Batch batch = CURRENT_BATCH.get();
+        if (batch == null) {
+            throw new IllegalStateException("No batch in progress");
+        }
+        Collection<DBObject> current = documents;
+        for (int level = 0; level < depth && !current.isEmpty(); level++) {
+            final Map<String, Set<Object>> ids = new LinkedHashMap<>();
+            final boolean topLevel = level == 0;
+            current.forEach(document -> document.keySet().forEach(key -> {
+                if (!topLevel || !lazyProperties.contains(getPropertyKey(type, key))) {
+                    collectReferences(document.get(key), batch, ids);
+                }
+            }));
+            final List<DBObject> fetched = new ArrayList<>();
+            ids.forEach((collectionName, collectionIds) -> fetched.addAll(fetch(batch, collectionName,
+                    new ArrayList<>(collectionIds))));
+            current = fetched;
+        }
+    }
+
+    private static void collectReferences(Object value, Batch batch, Map<String, Set<Object>> ids) {
+        if (value instanceof DBRef) {
+            final DBRef dbRef = (DBRef) value;
+            if (!batch.contains(dbRef)) {
+                ids.computeIfAbsent(dbRef.getCollectionName(), key -> new LinkedHashSet<>()).add(dbRef.getId());
+            }
+        } else if (value instanceof List) {
+            ((List<?>) value).forEach(element -> collectReferences(element, batch, ids));
+        } else if (value instanceof DBObject) {
+            final DBObject dbObject = (DBObject) value;
+            dbObject.keySet().forEach(key -> collectReferences(dbObject.get(key), batch, ids));
+        }
+    }
+
+    private List<DBObject> fetch(Batch batch, String collectionName, List<Object> ids) {
+        final List<DBObject> fetched = new ArrayList<>(ids.size());
+        final Map<Object, DBObject> documents = batch.documents.computeIfAbsent(collectionName,
+                key -> new HashMap<>());
+        for (int from = 0; from < ids.size(); from += FETCH_BATCH_SIZE) {
+            final List<Object> chunk = ids.subList(from, Math.min(from + FETCH_BATCH_SIZE, ids.size()));
+            final DBObject query = new BasicDBObject(ID, new BasicDBObject("$in", chunk));
+            try (DBCursor cursor = mongoDbFactory.getDb().getCollection(collectionName).find(query)) {
+                cursor.forEach(dbObject -> {
+                    documents.put(dbObject.get(ID), dbObject);
+                    fetched.add(dbObject);
+                });
+            }
+            // missing documents are remembered as well, so that they are not fetched one by one later
+            chunk.forEach(id -> documents.putIfAbsent(id, null));
+        }
+        LOGGER.debug("Prefetched {} of {} documents from \"{}\"", fetched.size(), ids.size(), collectionName);
+        return fetched;
+    }
+
+    @Override
+    public Object resolveDbRef(MongoPersistentProperty property, DBRef dbref, DbRefResolverCallback callback,
+                               DbRefProxyHandler proxyHandler) {
+        if (property.isCollectionLike()
+                && lazyProperties.contains(getPropertyKey(property.getOwner().getType(), property.getName()))) {
+            final Class<?> type = property.getType();
+            final Supplier<Collection<?>> loader = () -> (Collection<?>) callback.resolve(property);
+            if (type.isAssignableFrom(LazyList.class)) {
+                return new LazyList<>(loader);
+            }
+            if (type.isAssignableFrom(LazySet.class)) {
+                return new LazySet<>(loader);
+            }
+        }
+        return delegate.resolveDbRef(property, dbref, callback, proxyHandler);
+    }
+
+    @Override
+    public DBRef createDbRef(org.springframework.data.mongodb.core.mapping.DBRef annotation,
+                             MongoPersistentEntity<?> entity, Object id) {
+        return delegate.createDbRef(annotation, entity, id);
+    }
+
+    @Override
+    public DBObject fetch(DBRef dbRef) {
+        final Batch batch = CURRENT_BATCH.get();
+        if (batch != null && batch.contains(dbRef)) {
+            return batch.get(dbRef);
+        }
+        return delegate.fetch(dbRef);
+    }
+
+    @Override
+    public List<DBObject> bulkFetch(List<DBRef> dbRefs) {
+        final Batch batch = CURRENT_BATCH.get();
+        final Map<String, List<DBRef>> misses = new LinkedHashMap<>();
+        dbRefs.forEach(dbRef -> {
+            if (batch == null || !batch.contains(dbRef)) {
+                misses.computeIfAbsent(dbRef.getCollectionName(), key -> new ArrayList<>()).add(dbRef);
+            }
+        });
+        final Map<String, Map<Object, DBObject>> fetched = new HashMap<>();
+        misses.forEach((collectionName, collectionRefs) -> {
+            final Map<Object, DBObject> documents = fetched.computeIfAbsent(collectionName, key -> new HashMap<>());
+            delegate.bulkFetch(collectionRefs).forEach(dbObject -> documents.put(dbObject.get(ID), dbObject));
+        });
+        // in order of the references
+        final List<DBObject> result = new ArrayList<>(dbRefs.size());
+        dbRefs.forEach(dbRef -> {
+            final Map<Object, DBObject> documents = fetched.get(dbRef.getCollectionName());
+            final DBObject dbObject = (documents == null || !documents.containsKey(dbRef.getId()))
+                    ? ((batch == null) ? null : batch.get(dbRef)) : documents.get(dbRef.getId());
+            if (dbObject != null) {
+                result.add(dbObject);
+            }
+        });
+        return result;
+    }
+
+    private static final class Batch {
+        private final Map<String, Map<Object, DBObject>> documents = new HashMap<>();
+        private int depth;
+
+        private boolean contains(DBRef dbRef) {
+            final Map<Object, DBObject> collection = documents.get(dbRef.getCollectionName());
+            return collection != null && collection.containsKey(dbRef.getId());
+        }
+
+        private DBObject get(DBRef dbRef) {
+            final Map<Object, DBObject> collection = documents.get(dbRef.getCollectionName());
+            return (collection == null) ? null : collection.get(dbRef.getId());
+        }
+    }
+
+    /**
+     * {@link List} resolved on first access.
+     */
+    private static final class LazyList<E> extends AbstractList<E> {
+
+        private final Supplier<Collection<?>> loader;
+        private List<E> target;
+
+        private LazyList(Supplier<Collection<?>> loader) {
+            this.loader = loader;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized List<E> getTarget() {
+            if (target == null) {
+                final Collection<?> resolved = loader.get();
+                target = (resolved == null) ? new ArrayList<>() : new ArrayList<>((Collection<E>) resolved);
+            }
+            return target;
+        }
+
+        @Override
+        public E get(int index) {
+            return getTarget().get(index);
+        }
+
+        @Override
+        public int size() {
+            return getTarget().size();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            return getTarget().set(index, element);
+        }
+
+        @Override
+        public void add(int index, E element) {
+            getTarget().add(index, element);
+        }
+
+        @Override
+        public E remove(int index) {
+            return getTarget().remove(index);
+        }
+    }
+
+    /**
+     * {@link Set} resolved on first access.
+     */
+    private static final class LazySet<E> extends AbstractSet<E> {
+
+        private final Supplier<Collection<?>> loader;
+        private Set<E> target;
+
+        private LazySet(Supplier<Collection<?>> loader) {
+            this.loader = loader;
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized Set<E> getTarget() {
+            if (target == null) {
+                final Collection<?> resolved = loader.get();
+                target = (resolved == null) ? new LinkedHashSet<>()
+                        : new LinkedHashSet<>((Collection<E>) resolved);
+            }
+            return target;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return getTarget().iterator();
+        }
+
+        @Override
+        public int size() {
+            return getTarget().size();
+        }
+
+        @Override
+        public boolean add(E element) {
+            return getTarget().add(element);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.snapshot.CorpusSnapshot;
+import com.alphasystem.morphologicalanalysis.snapshot.SnapshotCollection;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory navigation index of the corpus, built once from the chapter / verse / token counts.
+ * <p>
+ * Every token of the corpus gets a flat ordinal (zero based, in reading order), which allows next / previous,
+ * first / last and "token at ordinal N" to be answered in constant time without touching the database. Only the
+ * counts are kept in memory, the actual {@link com.alphasystem.morphologicalanalysis.wordbyword.model.Token} still
+ * needs to be fetched by caller.
+ * </p>
+ * <p>
+ * The index is built lazily on first use and is updated by
+ * {@link com.alphasystem.morphologicalanalysis.wordbyword.listener.VerseEventListener} whenever token count of a
+ * verse changes.
+ * </p>
+ * <p>
+ * An index created for a {@link CorpusSnapshot} is built from the chapter and verse documents of the snapshot instead
+ * of MongoDB, so that ordinals match the tokens served from that snapshot.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class CorpusNavigationIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CorpusNavigationIndex.class);
+
+    @Autowired private MongoTemplate mongoTemplate;
+    private final CorpusSnapshot corpusSnapshot;
+    private volatile Snapshot snapshot;
+
+    public CorpusNavigationIndex() {
+        this(null);
+    }
+
+    /**
+     * @param corpusSnapshot snapshot to build the index from, <code>null</code> to build it from MongoDB
+     */
+    public CorpusNavigationIndex(CorpusSnapshot corpusSnapshot) {
+        this.corpusSnapshot = corpusSnapshot;
+    }
+
+    private static int getInt(DBObject dbObject, String key) {
+        final Object value = dbObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * @return total number of chapters in the index
+     */
+    public int getChapterCount() {
+        return getSnapshot().chapterCount;
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @return number of verses in the given chapter, <code>0</code> if chapter number is out of range
+     */
+    public int getVerseCount(int chapterNumber) {
+        return getSnapshot().getVerseCount(chapterNumber);
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @param verseNumber   given verse number
+     * @return number of tokens in the given verse, <code>0</code> if chapter or verse number is out of range
+     */
+    public int getTokenCount(int chapterNumber, int verseNumber) {
+        final Snapshot snapshot = getSnapshot();
+        final int verseIndex = snapshot.getVerseIndex(chapterNumber, verseNumber);
+        return (verseIndex < 0) ? 0 : snapshot.tokenCounts[verseIndex];
+    }
+
+    /**
+     * @return total number of tokens in the index
+     */
+    public int getTotalTokenCount() {
+        return getSnapshot().getTotalTokenCount();
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @param verseNumber   given verse number
+     * @param tokenNumber   given token number
+     * @return ordinal of the given token, <code>-1</code> if given token is not part of the index
+     */
+    public int getOrdinal(int chapterNumber, int verseNumber, int tokenNumber) {
+        return getSnapshot().getOrdinal(chapterNumber, verseNumber, tokenNumber);
+    }
+
+    /**
+     * @param ordinal given ordinal
+     * @return <code>int</code> array of length three containing chapter number, verse number and token number of the
+     * token at the given ordinal, <code>null</code> if ordinal is out of range
+     */
+    public int[] getTokenAddress(int ordinal) {
+        return getSnapshot().getTokenAddress(ordinal);
+    }
+
+    /**
+     * Updates token count of the given verse. If the given verse is not part of current index then the index will
+     * be rebuild on next access.
+     *
+     * @param chapterNumber given chapter number
+     * @param verseNumber   given verse number
+     * @param tokenCount    new token count
+     */
+    public synchronized void updateTokenCount(int chapterNumber, int verseNumber, int tokenCount) {
+        final Snapshot current = snapshot;
+        if (current == null) {
+            // index not built yet, nothing to update
+            return;
+        }
+        final int verseIndex = current.getVerseIndex(chapterNumber, verseNumber);
+        if (verseIndex < 0) {
+            LOGGER.debug("Verse {}:{} is not part of navigation index, invalidating index", chapterNumber, verseNumber);
+            snapshot = null;
+            return;
+        }
+        if (current.tokenCounts[verseIndex] == tokenCount) {
+            return;
+        }
+        LOGGER.debug("Updating token count of verse {}:{} from {} to {}", chapterNumber, verseNumber,
+                current.tokenCounts[verseIndex], tokenCount);
+        final int[] tokenCounts = current.tokenCounts.clone();
+        tokenCounts[verseIndex] = tokenCount;
+        snapshot = new Snapshot(current.verseCounts, tokenCounts);
+    }
+
+    /**
+     * Discards current index, the index will be rebuild on next access.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = build();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot build() {
+        LOGGER.info("Building corpus navigation index from {}", (corpusSnapshot == null) ? "MongoDB" : corpusSnapshot);
+        final long start = System.currentTimeMillis();
+        final List<Chapter> chapters = new ArrayList<>();
+        final List<Verse> verses = new ArrayList<>();
+        if (corpusSnapshot == null) {
+            Query chapterQuery = new Query();
+            chapterQuery.fields().include("chapterNumber").include("verseCount");
+            chapters.addAll(mongoTemplate.find(chapterQuery, Chapter.class,
+                    Chapter.class.getSimpleName().toLowerCase()));
+            Query verseQuery = new Query();
+            verseQuery.fields().include("chapterNumber").include("verseNumber").include("tokenCount");
+            verses.addAll(mongoTemplate.find(verseQuery, Verse.class));
+        } else {
+            readCounts(chapters, verses);
+        }
+
+        int chapterCount = 0;
+        for (Chapter chapter : chapters) {
+            chapterCount = Math.max(chapterCount, chapter.getChapterNumber());
+        }
+        final int[] verseCounts = new int[chapterCount + 1];
+        chapters.forEach(chapter -> verseCounts[chapter.getChapterNumber()] = chapter.getVerseCount());
+        int totalVerses = 0;
+        for (int verseCount : verseCounts) {
+            totalVerses += verseCount;
+        }
+
+        final int[] verseOffsets = Snapshot.offsets(verseCounts);
+        final int[] tokenCounts = new int[totalVerses];
+        verses.forEach(verse -> {
+            final int chapterNumber = verse.getChapterNumber();
+            final int verseNumber = verse.getVerseNumber();
+            if (chapterNumber < verseCounts.length && verseNumber >= 1 && verseNumber <= verseCounts[chapterNumber]) {
+                final Integer tokenCount = verse.getTokenCount();
+                tokenCounts[verseOffsets[chapterNumber] + verseNumber - 1] = (tokenCount == null) ? 0 : tokenCount;
+            }
+        });
+
+        final Snapshot result = new Snapshot(verseCounts, tokenCounts);
+        LOGGER.info("Corpus navigation index built with {} chapters, {} verses and {} tokens in {} ms", chapterCount,
+                totalVerses, result.getTotalTokenCount(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Reads the counts from the documents of the snapshot, without converting them.
+     */
+    private void readCounts(List<Chapter> chapters, List<Verse> verses) {
+        final SnapshotCollection chapterCollection = corpusSnapshot.getCollection(Chapter.class);
+        for (int index = 0; chapterCollection != null && index < chapterCollection.size(); index++) {
+            final DBObject dbObject = chapterCollection.getDocument(index);
+            final Chapter chapter = new Chapter(getInt(dbObject, "chapterNumber"), null);
+            chapter.setVerseCount(getInt(dbObject, "verseCount"));
+            chapters.add(chapter);
+        }
+        final SnapshotCollection verseCollection = corpusSnapshot.getCollection(Verse.class);
+        for (int index = 0; verseCollection != null && index < verseCollection.size(); index++) {
+            final DBObject dbObject = verseCollection.getDocument(index);
+            final Verse verse = new Verse(getInt(dbObject, "chapterNumber"), getInt(dbObject, "verseNumber"));
+            verse.setTokenCount(getInt(dbObject, "tokenCount"));
+            verses.add(verse);
+        }
+    }
+
+    /**
+     * Immutable state of the index, replaced as a whole on every update.
+     */
+    private static final class Snapshot {
+
+        private final int chapterCount;
+
+        /**
+         * Number of verses per chapter, indexed by chapter number (index 0 is unused).
+         */
+        private final int[] verseCounts;
+
+        /**
+         * Global index of the first verse of each chapter, indexed by chapter number.
+         */
+        private final int[] verseOffsets;
+
+        /**
+         * Number of tokens per verse, indexed by global verse index.
+         */
+        private final int[] tokenCounts;
+
+        /**
+         * Ordinal of the first token of each verse, indexed by global verse index, last element is total number of
+         * tokens.
+         */
+        private final int[] tokenOffsets;
+
+        /**
+         * Chapter number of each verse, indexed by global verse index.
+         */
+        private final int[] verseChapters;
+
+        /**
+         * Global verse index of each token, indexed by token ordinal.
+         */
+        private final int[] tokenVerses;
+
+        private Snapshot(int[] verseCounts, int[] tokenCounts) {
+            this.chapterCount = verseCounts.length - 1;
+            this.verseCounts = verseCounts;
+            this.tokenCounts = tokenCounts;
+            this.verseOffsets = offsets(verseCounts);
+            this.tokenOffsets = new int[tokenCounts.length + 1];
+            for (int i = 0; i < tokenCounts.length; i++) {
+                tokenOffsets[i + 1] = tokenOffsets[i] + tokenCounts[i];
+            }
+            this.verseChapters = new int[tokenCounts.length];
+            for (int chapterNumber = 1; chapterNumber <= chapterCount; chapterNumber++) {
+                for (int i = verseOffsets[chapterNumber]; i < verseOffsets[chapterNumber + 1]; i++) {
+                    verseChapters[i] = chapterNumber;
+                }
+            }
+            this.tokenVerses = new int[tokenOffsets[tokenCounts.length]];
+            for (int verseIndex = 0; verseIndex < tokenCounts.length; verseIndex++) {
+                for (int ordinal = tokenOffsets[verseIndex]; ordinal < tokenOffsets[verseIndex + 1]; ordinal++) {
+                    tokenVerses[ordinal] = verseIndex;
+                }
+            }
+        }
+
+        private static int[] offsets(int[] verseCounts) {
+            final int[] offsets = new int[verseCounts.length + 1];
+            for (int chapterNumber = 1; chapterNumber < verseCounts.length; chapterNumber++) {
+                offsets[chapterNumber + 1] = offsets[chapterNumber] + verseCounts[chapterNumber];
+            }
+            return offsets;
+        }
+
+        private int getTotalTokenCount() {
+            return tokenVerses.length;
+        }
+
+        private int getVerseCount(int chapterNumber) {
+            return (chapterNumber <= 0 || chapterNumber > chapterCount) ? 0 : verseCounts[chapterNumber];
+        }
+
+        private int getVerseIndex(int chapterNumber, int verseNumber) {
+            if (verseNumber <= 0 || verseNumber > getVerseCount(chapterNumber)) {
+                return -1;
+            }
+            return verseOffsets[chapterNumber] + verseNumber - 1;
+        }
+
+        private int getOrdinal(int chapterNumber, int verseNumber, int tokenNumber) {
+            final int verseIndex = getVerseIndex(chapterNumber, verseNumber);
+            if (verseIndex < 0 || tokenNumber <= 0 || tokenNumber > tokenCounts[verseIndex]) {
+                return -1;
+            }
+            return tokenOffsets[verseIndex] + tokenNumber - 1;
+        }
+
+        private int[] getTokenAddress(int ordinal) {
+            if (ordinal < 0 || ordinal >= tokenVerses.length) {
+                return null;
+            }
+            final int verseIndex = tokenVerses[ordinal];
+            final int chapterNumber = verseChapters[verseIndex];
+            return new int[]{chapterNumber, verseIndex - verseOffsets[chapterNumber] + 1,
+                    ordinal - tokenOffsets[verseIndex] + 1};
+        }
+    }
+}
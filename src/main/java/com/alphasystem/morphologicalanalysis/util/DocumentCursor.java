@@ -0,0 +1,79 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.NoSuchElementException;
+
+/**
+ * {@link CloseableIterator} over the result of given {@link Query}, documents are fetched from the server in batches of
+ * configured size and converted one at a time, so that only one batch is held in memory at any given time.
+ * <p>
+ * Same as {@link MongoTemplate#find(Query, Class)} this cursor publishes {@link AfterLoadEvent} and
+ * {@link AfterConvertEvent} for every document, so that the document event listeners are applied to the streamed
+ * documents as well.
+ * </p>
+ * <p>
+ * Cursor must be closed after use.
+ * </p>
+ *
+ * @author sali
+ */
+public class DocumentCursor<T> implements CloseableIterator<T> {
+
+    private final Class<T> type;
+    private final String collectionName;
+    private final MongoConverter converter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DBCursor cursor;
+
+    public DocumentCursor(MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher, Query query,
+                          Class<T> type, int batchSize) {
+        this.type = type;
+        this.collectionName = mongoTemplate.getCollectionName(type);
+        this.converter = mongoTemplate.getConverter();
+        this.eventPublisher = eventPublisher;
+        final MongoPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(type);
+        final QueryMapper queryMapper = new QueryMapper(converter);
+        final DBObject queryObject = queryMapper.getMappedObject(query.getQueryObject(), entity);
+        final DBObject fieldsObject = queryMapper.getMappedFields(query.getFieldsObject(), entity);
+        DBCursor dbCursor = mongoTemplate.getCollection(collectionName).find(queryObject, fieldsObject)
+                .batchSize(batchSize);
+        final DBObject sortObject = query.getSortObject();
+        if (sortObject != null) {
+            dbCursor = dbCursor.sort(queryMapper.getMappedSort(sortObject, entity));
+        }
+        this.cursor = dbCursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final DBObject dbObject = cursor.next();
+        eventPublisher.publishEvent(new AfterLoadEvent<>(dbObject, type, collectionName));
+        final T source = converter.read(type, dbObject);
+        eventPublisher.publishEvent(new AfterConvertEvent<>(dbObject, source, collectionName));
+        return source;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.mongodb.DBObject;
+
+/**
+ * Encodes chapter, verse, token and location numbers into single 64 bit key.
+ * <p>
+ * Each of the four numbers occupies 16 bits, chapter number being the most significant, so that natural ordering of
+ * the keys is same as reading order of the corpus. This allows all tokens (or locations) of a verse or a range of
+ * tokens to be selected with one range scan on single indexed field ({@link #FIELD_NAME}).
+ * </p>
+ *
+ * @author sali
+ */
+public final class LocationKey {
+
+    /**
+     * Name of the field in which key is stored in the documents.
+     */
+    public static final String FIELD_NAME = "locationKey";
+
+    private static final int MASK = 0xFFFF;
+
+    private LocationKey() {
+    }
+
+    /**
+     * @param chapterNumber  chapter number
+     * @param verseNumber    verse number
+     * @param tokenNumber    token number
+     * @param locationNumber location number, <code>0</code> for documents which are not a location
+     * @return encoded key
+     */
+    public static long encode(int chapterNumber, int verseNumber, int tokenNumber, int locationNumber) {
+        return ((long) (chapterNumber & MASK) << 48) | ((long) (verseNumber & MASK) << 32)
+                | ((long) (tokenNumber & MASK) << 16) | (locationNumber & MASK);
+    }
+
+    public static int getChapterNumber(long key) {
+        return (int) (key >>> 48) & MASK;
+    }
+
+    public static int getVerseNumber(long key) {
+        return (int) (key >>> 32) & MASK;
+    }
+
+    public static int getTokenNumber(long key) {
+        return (int) (key >>> 16) & MASK;
+    }
+
+    public static int getLocationNumber(long key) {
+        return (int) key & MASK;
+    }
+
+    /**
+     * @param chapterNumber    chapter number
+     * @param verseNumber      verse number
+     * @param firstTokenNumber first token number (inclusive)
+     * @return lower bound (inclusive) of keys of the given token range
+     */
+    public static long lowerBound(int chapterNumber, int verseNumber, int firstTokenNumber) {
+        return encode(chapterNumber, verseNumber, firstTokenNumber, 0);
+    }
+
+    /**
+     * @param chapterNumber   chapter number
+     * @param verseNumber     verse number
+     * @param lastTokenNumber last token number (inclusive)
+     * @return upper bound (inclusive) of keys of the given token range
+     */
+    public static long upperBound(int chapterNumber, int verseNumber, int lastTokenNumber) {
+        return encode(chapterNumber, verseNumber, lastTokenNumber, MASK);
+    }
+
+    /**
+     * Computes the key from <code>chapterNumber</code>, <code>verseNumber</code>, <code>tokenNumber</code> and
+     * <code>locationNumber</code> of the given document and stores it in {@link #FIELD_NAME}.
+     *
+     * @param dbObject given document
+     * @return <code>true</code> if key is populated, <code>false</code> if document has no chapter, verse or token
+     * number
+     */
+    public static boolean populate(DBObject dbObject) {
+        if (dbObject == null) {
+            return false;
+        }
+        final Integer chapterNumber = getInt(dbObject, "chapterNumber");
+        final Integer verseNumber = getInt(dbObject, "verseNumber");
+        final Integer tokenNumber = getInt(dbObject, "tokenNumber");
+        if (chapterNumber == null || verseNumber == null || tokenNumber == null) {
+            return false;
+        }
+        final Integer locationNumber = getInt(dbObject, "locationNumber");
+        dbObject.put(FIELD_NAME, encode(chapterNumber, verseNumber, tokenNumber,
+                (locationNumber == null) ? 0 : locationNumber));
+        return true;
+    }
+
+    private static Integer getInt(DBObject dbObject, String key) {
+        final Object value = dbObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : null;
+    }
+}
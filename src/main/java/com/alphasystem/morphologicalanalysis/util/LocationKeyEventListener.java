@@ -0,0 +1,26 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores {@link LocationKey} in every {@link Token}, {@link Location} and {@link GraphNode} document being saved.
+ *
+ * @author sali
+ */
+@Component
+public class LocationKeyEventListener extends AbstractMongoEventListener<Object> {
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Object> event) {
+        super.onBeforeSave(event);
+        final Object source = event.getSource();
+        if (source instanceof Token || source instanceof Location || source instanceof GraphNode) {
+            LocationKey.populate(event.getDBObject());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.arabic.model.ArabicWord;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.singletonList;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+/**
+ * Populates <code>text</code> and <code>derivedText</code> of {@link Location}s from the text of their
+ * {@link Token}s.
+ * <p>
+ * Within a batch (see {@link #beginBatch()} and {@link #endBatch()}) every converted location is collected and all
+ * required tokens are fetched with one <code>$in</code> query when the batch ends. A location which is not deferred
+ * fetches the tokens of its whole verse with one query; within a batch these are kept until the batch ends, so that
+ * consecutive locations of the same verse are resolved in memory. Nothing is kept across batches, a batch however
+ * drops its tokens as soon as a token is saved or deleted (see {@link #tokensModified()}).
+ * </p>
+ * <p>
+ * If write back is enabled, computed text is stored in the database with one bulk write, so that it is never
+ * computed again.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class LocationTextHydrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationTextHydrator.class);
+    private static final ThreadLocal<Batch> CURRENT_BATCH = new ThreadLocal<>();
+
+    @Autowired private MongoTemplate mongoTemplate;
+    private final AtomicLong modificationCount = new AtomicLong();
+    private volatile boolean writeBack;
+
+    private static long getKey(int chapterNumber, int verseNumber, int tokenNumber) {
+        return ((long) chapterNumber << 32) | ((long) verseNumber << 16) | tokenNumber;
+    }
+
+    private static boolean needsText(Location location) {
+        return StringUtils.isBlank(location.getText()) || StringUtils.isBlank(location.getDerivedText());
+    }
+
+    public boolean isWriteBack() {
+        return writeBack;
+    }
+
+    /**
+     * @param writeBack if <code>true</code> computed text will be stored in the database
+     */
+    public void setWriteBack(boolean writeBack) {
+        this.writeBack = writeBack;
+    }
+
+    /**
+     * Starts a batch for current thread, batches can be nested, only the outer most batch hydrates the locations.
+     */
+    public void beginBatch() {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch == null) {
+            batch = new Batch();
+            CURRENT_BATCH.set(batch);
+        }
+        batch.depth++;
+    }
+
+    /**
+     * Ends the batch for current thread and hydrates all locations collected during the batch.
+     */
+    public void endBatch() {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch == null) {
+            return;
+        }
+        batch.depth--;
+        if (batch.depth <= 0) {
+            CURRENT_BATCH.remove();
+            hydrate(batch.locations);
+        }
+    }
+
+    /**
+     * Defers the hydration of given location to the end of current batch.
+     *
+     * @param location given location
+     * @return <code>true</code> if a batch is active and location is deferred, <code>false</code> otherwise
+     */
+    public boolean defer(Location location) {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch == null) {
+            return false;
+        }
+        batch.locations.add(location);
+        return true;
+    }
+
+    /**
+     * Notifies that one or more tokens have been saved or deleted, verse words kept by current batches will no longer
+     * be used.
+     */
+    public void tokensModified() {
+        modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Hydrates given locations with one query for all required tokens.
+     *
+     * @param locations given locations
+     */
+    public void hydrate(Collection<Location> locations) {
+        if (locations == null || locations.isEmpty()) {
+            return;
+        }
+        final List<Location> targets = new ArrayList<>();
+        final Set<String> displayNames = new LinkedHashSet<>();
+        locations.forEach(location -> {
+            if (location != null && !location.isTransient() && needsText(location)) {
+                targets.add(location);
+                displayNames.add(new Token(location.getChapterNumber(), location.getVerseNumber(),
+                        location.getTokenNumber(), "").getDisplayName());
+            }
+        });
+        if (targets.isEmpty()) {
+            return;
+        }
+        final Map<Long, ArabicWord> words = findTokenWords(Criteria.where("displayName").in(displayNames));
+        LOGGER.debug("Hydrating {} locations from {} tokens", targets.size(), words.size());
+        final List<Location> updated = new ArrayList<>();
+        targets.forEach(location -> {
+            ArabicWord tokenWord = words.get(getKey(location.getChapterNumber(), location.getVerseNumber(),
+                    location.getTokenNumber()));
+            if (tokenWord != null && populate(location, tokenWord)) {
+                updated.add(location);
+            }
+        });
+        writeBack(updated);
+    }
+
+    /**
+     * Hydrates given location, tokens of the verse of the given location are fetched and kept for current thread.
+     *
+     * @param location given location
+     */
+    public void hydrate(Location location) {
+        if (location == null || !needsText(location)) {
+            return;
+        }
+        final ArabicWord tokenWord = getTokenWord(location);
+        if (tokenWord != null && populate(location, tokenWord)) {
+            writeBack(singletonList(location));
+        }
+    }
+
+    /**
+     * @param location given location
+     * @return word for the given location, <code>null</code> if location is transient or there is no token
+     */
+    public ArabicWord getLocationWord(Location location) {
+        final ArabicWord tokenWord = getTokenWord(location);
+        return (tokenWord == null) ? null : ArabicWord.getSubWord(tokenWord, location.getStartIndex(),
+                location.getEndIndex());
+    }
+
+    private ArabicWord getTokenWord(Location location) {
+        if (location == null || location.isTransient()) {
+            return null;
+        }
+        final int chapterNumber = location.getChapterNumber();
+        final int verseNumber = location.getVerseNumber();
+        final long version = modificationCount.get();
+        final Batch batch = CURRENT_BATCH.get();
+        VerseWords verseWords = (batch == null) ? null : batch.lastVerse;
+        if (verseWords == null || !verseWords.matches(chapterNumber, verseNumber, version)) {
+            verseWords = new VerseWords(chapterNumber, verseNumber, version, findTokenWords(
+                    Criteria.where("chapterNumber").is(chapterNumber).and("verseNumber").is(verseNumber)));
+            if (batch != null) {
+                batch.lastVerse = verseWords;
+            }
+        }
+        return verseWords.words.get(getKey(chapterNumber, verseNumber, location.getTokenNumber()));
+    }
+
+    private Map<Long, ArabicWord> findTokenWords(Criteria criteria) {
+        Query query = new Query(criteria);
+        // only fetch what we need, specially not the locations, which would bring us back here
+        query.fields().include("chapterNumber").include("verseNumber").include("tokenNumber").include("token");
+        final List<Token> tokens = mongoTemplate.find(query, Token.class);
+        final Map<Long, ArabicWord> words = new HashMap<>();
+        tokens.forEach(token -> words.put(getKey(token.getChapterNumber(), token.getVerseNumber(),
+                token.getTokenNumber()), token.tokenWord()));
+        return words;
+    }
+
+    private boolean populate(Location location, ArabicWord tokenWord) {
+        final String text = ArabicWord.getSubWord(tokenWord, location.getStartIndex(), location.getEndIndex()).toUnicode();
+        boolean updated = false;
+        if (StringUtils.isBlank(location.getText())) {
+            location.setText(text);
+            updated = true;
+        }
+        if (StringUtils.isBlank(location.getDerivedText())) {
+            location.setDerivedText(text);
+            updated = true;
+        }
+        return updated;
+    }
+
+    private void writeBack(List<Location> locations) {
+        if (!writeBack || locations.isEmpty()) {
+            return;
+        }
+        LOGGER.debug("Writing back text of {} locations", locations.size());
+        final BulkOperations bulkOperations = mongoTemplate.bulkOps(UNORDERED, Location.class);
+        locations.forEach(location -> bulkOperations.updateOne(new Query(Criteria.where("id").is(location.getId())),
+                new Update().set("text", location.getText()).set("derivedText", location.getDerivedText())));
+        bulkOperations.execute();
+    }
+
+    private static final class Batch {
+        private final List<Location> locations = new ArrayList<>();
+        private int depth;
+        private VerseWords lastVerse;
+    }
+
+    private static final class VerseWords {
+        private final int chapterNumber;
+        private final int verseNumber;
+        private final long version;
+        private final Map<Long, ArabicWord> words;
+
+        private VerseWords(int chapterNumber, int verseNumber, long version, Map<Long, ArabicWord> words) {
+            this.chapterNumber = chapterNumber;
+            this.verseNumber = verseNumber;
+            this.version = version;
+            this.words = words;
+        }
+
+        private boolean matches(int chapterNumber, int verseNumber, long version) {
+            return this.chapterNumber == chapterNumber && this.verseNumber == verseNumber && this.version == version;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.HiddenNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ImpliedNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PhraseNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ReferenceNode;
+import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
+import com.alphasystem.morphologicalanalysis.graph.model.TerminalNode;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.IndexOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+/**
+ * Creates and verifies, at startup, the compound indexes used by the lookups of the <code>wordbyword</code>,
+ * <code>graph</code> and <code>morphology</code> repositories. It also populates {@link LocationKey} in the documents
+ * which were saved before the key was introduced. Population runs in the background so that startup is not blocked on
+ * large corpora, meanwhile lookups by key fall back to chapter, verse and token numbers for documents without one.
+ *
+ * @author sali
+ */
+@Component
+public class MorphologicalAnalysisIndexManager implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalAnalysisIndexManager.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final String CHAPTER_NUMBER = "chapterNumber";
+    private static final String VERSE_NUMBER = "verseNumber";
+    private static final String TOKEN_NUMBER = "tokenNumber";
+    private static final String LOCATION_NUMBER = "locationNumber";
+
+    /**
+     * Types which store {@link LocationKey}.
+     */
+    static final List<Class<?>> KEYED_TYPES = asList(Token.class, Location.class, TerminalNode.class,
+            PartOfSpeechNode.class, PhraseNode.class, RelationshipNode.class, ReferenceNode.class, HiddenNode.class,
+            ImpliedNode.class);
+
+    private static final List<RequiredIndex> REQUIRED_INDEXES = new ArrayList<>();
+
+    static {
+        REQUIRED_INDEXES.add(new RequiredIndex(Chapter.class, CHAPTER_NUMBER));
+        REQUIRED_INDEXES.add(new RequiredIndex(Verse.class, CHAPTER_NUMBER, VERSE_NUMBER));
+        REQUIRED_INDEXES.add(new RequiredIndex(Token.class, CHAPTER_NUMBER, VERSE_NUMBER, TOKEN_NUMBER));
+        REQUIRED_INDEXES.add(new RequiredIndex(Location.class, CHAPTER_NUMBER, VERSE_NUMBER, TOKEN_NUMBER,
+                LOCATION_NUMBER));
+        REQUIRED_INDEXES.add(new RequiredIndex(DependencyGraph.class, CHAPTER_NUMBER, "tokens.verseNumber"));
+        REQUIRED_INDEXES.add(new RequiredIndex(MorphologicalEntry.class, "groupTag"));
+        // entries referring a location, see "MorphologicalEntryLocations"
+        REQUIRED_INDEXES.add(new RequiredIndex(MorphologicalEntry.class, MorphologicalEntryLocations.LOCATIONS));
+        // a reference is in at most one bucket of an entry
+        REQUIRED_INDEXES.add(new RequiredIndex(MorphologicalEntryLocations.BUCKET_COLLECTION, true,
+                MorphologicalEntryLocations.BUCKET_ENTRY, MorphologicalEntryLocations.LOCATIONS));
+        REQUIRED_INDEXES.add(new RequiredIndex(MorphologicalEntryLocations.BUCKET_COLLECTION,
+                MorphologicalEntryLocations.LOCATIONS));
+        // word lookups of "ConcordanceEngine"
+        REQUIRED_INDEXES.add(new RequiredIndex(Token.class, "token"));
+        KEYED_TYPES.forEach(type -> {
+            if (!Token.class.equals(type) && !Location.class.equals(type)) {
+                REQUIRED_INDEXES.add(new RequiredIndex(type, CHAPTER_NUMBER, VERSE_NUMBER, TOKEN_NUMBER));
+            }
+            REQUIRED_INDEXES.add(new RequiredIndex(type, LocationKey.FIELD_NAME));
+        });
+        REQUIRED_INDEXES.add(new RequiredIndex(PartOfSpeechNode.class, CHAPTER_NUMBER, VERSE_NUMBER, TOKEN_NUMBER,
+                LOCATION_NUMBER));
+    }
+
+    @Autowired private MongoTemplate mongoTemplate;
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "location-key-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile CompletableFuture<Void> locationKeyBackfill = CompletableFuture.completedFuture(null);
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        ensureIndexes();
+        final List<String> missingIndexes = verifyIndexes();
+        if (!missingIndexes.isEmpty()) {
+            LOGGER.warn("Following indexes are missing: {}", missingIndexes);
+        }
+        locationKeyBackfill = CompletableFuture.runAsync(this::backfillLocationKeys, backfillExecutor)
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        LOGGER.error("Unable to populate \"" + LocationKey.FIELD_NAME + "\"", ex);
+                    }
+                });
+    }
+
+    @Override
+    public void destroy() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * @return completion of the background population of {@link LocationKey}, started at startup
+     */
+    public CompletableFuture<Void> getLocationKeyBackfill() {
+        return locationKeyBackfill;
+    }
+
+    /**
+     * @return <code>true</code> if {@link LocationKey} has been populated in all documents, <code>false</code> while
+     * background population is running or if it has failed
+     */
+    public boolean isLocationKeyBackfilled() {
+        final CompletableFuture<Void> backfill = locationKeyBackfill;
+        return backfill.isDone() && !backfill.isCompletedExceptionally();
+    }
+
+    /**
+     * Creates all required indexes, if they do not exist already.
+     */
+    public void ensureIndexes() {
+        REQUIRED_INDEXES.forEach(requiredIndex -> {
+            Index index = new Index();
+            for (String field : requiredIndex.fields) {
+                index = index.on(field, ASC);
+            }
+            if (requiredIndex.unique) {
+                index = index.unique();
+            }
+            try {
+                indexOps(requiredIndex).ensureIndex(index.background());
+            } catch (Exception e) {
+                LOGGER.warn(format("Unable to create index %s", requiredIndex), e);
+            }
+        });
+    }
+
+    /**
+     * @return description of all required indexes which are not present in the database
+     */
+    public List<String> verifyIndexes() {
+        List<String> missingIndexes = new ArrayList<>();
+        REQUIRED_INDEXES.forEach(requiredIndex -> {
+            final List<IndexInfo> indexInfo = indexOps(requiredIndex).getIndexInfo();
+            if (indexInfo.stream().noneMatch(info -> info.isIndexForFields(asList(requiredIndex.fields)))) {
+                missingIndexes.add(requiredIndex.toString());
+            }
+        });
+        return missingIndexes;
+    }
+
+    private IndexOperations indexOps(RequiredIndex requiredIndex) {
+        return (requiredIndex.type == null) ? mongoTemplate.indexOps(requiredIndex.collectionName)
+                : mongoTemplate.indexOps(requiredIndex.type);
+    }
+
+    /**
+     * Populates {@link LocationKey} in every document of the keyed collections which does not have one yet.
+     */
+    public void backfillLocationKeys() {
+        KEYED_TYPES.forEach(type -> {
+            final String collectionName = mongoTemplate.getCollectionName(type);
+            final DBObject query = new BasicDBObject(LocationKey.FIELD_NAME, new BasicDBObject("$exists", false));
+            final DBObject fields = new BasicDBObject(CHAPTER_NUMBER, 1).append(VERSE_NUMBER, 1)
+                    .append(TOKEN_NUMBER, 1).append(LOCATION_NUMBER, 1);
+            int count = 0;
+            BulkOperations bulkOperations = null;
+            try (DBCursor cursor = mongoTemplate.getCollection(collectionName).find(query, fields).batchSize(BATCH_SIZE)) {
+                while (cursor.hasNext()) {
+                    final DBObject dbObject = cursor.next();
+                    if (!LocationKey.populate(dbObject)) {
+                        continue;
+                    }
+                    if (bulkOperations == null) {
+                        bulkOperations = mongoTemplate.bulkOps(UNORDERED, collectionName);
+                    }
+                    bulkOperations.updateOne(new Query(Criteria.where("_id").is(dbObject.get("_id"))),
+                            Update.update(LocationKey.FIELD_NAME, dbObject.get(LocationKey.FIELD_NAME)));
+                    count++;
+                    if (count % BATCH_SIZE == 0) {
+                        bulkOperations.execute();
+                        bulkOperations = null;
+                    }
+                }
+            }
+            if (bulkOperations != null) {
+                bulkOperations.execute();
+            }
+            if (count > 0) {
+                LOGGER.info("Populated \"{}\" in {} documents of collection \"{}\"", LocationKey.FIELD_NAME, count,
+                        collectionName);
+            }
+        });
+    }
+
+    private static final class RequiredIndex {
+
+        private final Class<?> type;
+        private final String collectionName;
+        private final boolean unique;
+        private final String[] fields;
+
+        private RequiredIndex(Class<?> type, String... fields) {
+            this.type = type;
+            this.collectionName = null;
+            this.unique = false;
+            this.fields = fields;
+        }
+
+        // collection without mapped type
+        private RequiredIndex(String collectionName, String... fields) {
+            this(collectionName, false, fields);
+        }
+
+        private RequiredIndex(String collectionName, boolean unique, String... fields) {
+            this.type = null;
+            this.collectionName = collectionName;
+            this.unique = unique;
+            this.fields = fields;
+        }
+
+        @Override
+        public String toString() {
+            return format("%s%s%s", (type == null) ? collectionName : type.getSimpleName(), asList(fields),
+                    unique ? " unique" : "");
+        }
+    }
+}
@@ -6,6 +6,12 @@ import com.alphasystem.morphologicalanalysis.common.model.VerseTokenPairGroup;
 import com.alphasystem.morphologicalanalysis.common.model.VerseTokensPair;
 import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
 import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.HiddenNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ImpliedNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PhraseNode;
+import com.alphasystem.morphologicalanalysis.graph.model.ReferenceNode;
+import com.alphasystem.morphologicalanalysis.graph.model.RelationshipNode;
 import com.alphasystem.morphologicalanalysis.graph.model.TerminalNode;
 import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
 import com.alphasystem.morphologicalanalysis.graph.repository.DependencyGraphRepository;
@@ -21,6 +27,9 @@ import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry
 import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
 import com.alphasystem.morphologicalanalysis.morphology.repository.DictionaryNotesRepository;
 import com.alphasystem.morphologicalanalysis.morphology.repository.MorphologicalEntryRepository;
+import com.alphasystem.morphologicalanalysis.snapshot.CorpusSnapshot;
+import com.alphasystem.morphologicalanalysis.snapshot.SnapshotRepositoryFactory;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
 import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
 import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
 import com.alphasystem.morphologicalanalysis.wordbyword.model.QChapter;
@@ -34,23 +43,43 @@ import com.alphasystem.morphologicalanalysis.wordbyword.repository.LocationRepos
 import com.alphasystem.morphologicalanalysis.wordbyword.repository.TokenRepository;
 import com.alphasystem.morphologicalanalysis.wordbyword.repository.VerseRepository;
 import com.alphasystem.morphologicalanalysis.wordbyword.util.ChapterComparator;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.GRAPH_COVERAGE;
 import static java.util.Collections.sort;
 
 /**
@@ -60,6 +89,18 @@ import static java.util.Collections.sort;
 public class MorphologicalAnalysisRepositoryUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalAnalysisRepositoryUtil.class);
+    public static final int DEFAULT_CURSOR_BATCH_SIZE = 100;
+    private static final Map<GraphNodeType, Class<? extends GraphNode>> GRAPH_NODE_CLASSES = new EnumMap<>(GraphNodeType.class);
+
+    static {
+        GRAPH_NODE_CLASSES.put(GraphNodeType.TERMINAL, TerminalNode.class);
+        GRAPH_NODE_CLASSES.put(GraphNodeType.PART_OF_SPEECH, PartOfSpeechNode.class);
+        GRAPH_NODE_CLASSES.put(GraphNodeType.PHRASE, PhraseNode.class);
+        GRAPH_NODE_CLASSES.put(GraphNodeType.RELATIONSHIP, RelationshipNode.class);
+        GRAPH_NODE_CLASSES.put(GraphNodeType.REFERENCE, ReferenceNode.class);
+        GRAPH_NODE_CLASSES.put(GraphNodeType.HIDDEN, HiddenNode.class);
+        GRAPH_NODE_CLASSES.put(GraphNodeType.IMPLIED, ImpliedNode.class);
+    }
 
     @Autowired private MongoTemplate mongoTemplate;
     @Autowired private ChapterRepository chapterRepository;
@@ -76,7 +117,20 @@ public class MorphologicalAnalysisRepositoryUtil {
     @Autowired private RelationshipNodeRepository relationshipNodeRepository;
     @Autowired private MorphologicalEntryRepository morphologicalEntryRepository;
     @Autowired private DictionaryNotesRepository dictionaryNotesRepository;
+    @Autowired private CorpusNavigationIndex navigationIndex;
+    @Autowired private LocationTextHydrator locationTextHydrator;
+    @Autowired private BatchedDocumentReader batchedDocumentReader;
+    @Autowired private WriteBehindBuffer writeBehindBuffer;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private MorphologicalEntryCache morphologicalEntryCache;
+    @Autowired private MorphologicalEntryLocations morphologicalEntryLocations;
+    @Autowired private VerseLockManager verseLockManager;
+    @Autowired private CorpusStatisticsService corpusStatisticsService;
+    @Autowired private MorphologicalAnalysisIndexManager indexManager;
     private Query findAllChaptersQuery;
+    private int cursorBatchSize = DEFAULT_CURSOR_BATCH_SIZE;
+    private volatile Executor graphPersistenceExecutor;
+    private volatile SnapshotRepositories snapshotRepositories;
 
     public MorphologicalAnalysisRepositoryUtil() {
         findAllChaptersQuery = new Query();
@@ -162,7 +216,14 @@ public class MorphologicalAnalysisRepositoryUtil {
         }
         LOGGER.info("Merging tokens \"{}\" in chapter \"{}\" and verse \"{}\".", ArrayUtils.toString(tokenNumbers),
                 chapterNumber, verseNumber);
-        final List<Token> tokens = tokenRepository.findByChapterNumberAndVerseNumber(chapterNumber, verseNumber);
+        writeBehindBuffer.flush(Token.class, Location.class);
+        verseLockManager.withLock(chapterNumber, verseNumber, () -> doMergeTokens(chapterNumber, verseNumber,
+                tokenNumbers));
+    }
+
+    private void doMergeTokens(int chapterNumber, int verseNumber, int... tokenNumbers) {
+        final List<Token> tokens = hydrated(() -> tokenRepository.findByChapterNumberAndVerseNumber(chapterNumber,
+                verseNumber));
         if (tokens == null || tokens.isEmpty()) {
             return;
         }
@@ -179,17 +240,8 @@ public class MorphologicalAnalysisRepositoryUtil {
                 LOGGER.info("    Current location: \"{}:{}\"", location, location.getId());
                 MorphologicalEntry morphologicalEntry = location.getMorphologicalEntry();
                 if (morphologicalEntry != null) {
-                    LOGGER.info("        MorphologicalEntry \"{}\" is not null for location \"{}:{}\".", morphologicalEntry, location, location.getId());
-                    final MorphologicalEntry entry = morphologicalEntryRepository.findOne(morphologicalEntry.getId());
-                    final Iterator<Location> iterator = entry.getLocations().iterator();
-                    while (iterator.hasNext()) {
-                        final Location location1 = iterator.next();
-                        if (location1.equals(location)) {
-                            LOGGER.info("        Removing location \"{}\" from morphological entry \"{}\"", location1.getId(), morphologicalEntry.getId());
-                            iterator.remove();
-                        }
-                    }
-                    morphologicalEntryRepository.save(entry);
+                    LOGGER.info("        Removing location \"{}\" from morphological entry \"{}\"", location.getId(), morphologicalEntry.getId());
+                    morphologicalEntryLocations.removeLocation(morphologicalEntry.getId(), location.getId());
                     location.setMorphologicalEntry(null);
                 }
 
@@ -201,7 +253,103 @@ public class MorphologicalAnalysisRepositoryUtil {
         }); // end of token forEach
     }
 
+    /**
+     * Batched version of {@link #mergeTokens(int, int, int...)}.
+     * <p>
+     * Instead of one round trip per location, token and attached {@link MorphologicalEntry}, this method removes the
+     * back references from all affected morphological entries in one bulk write (guarded <code>$pull</code> per reference), deletes
+     * old locations and tokens with one <code>deleteMany</code> per collection, inserts new locations and tokens
+     * with one <code>insertMany</code> per collection and finally updates the verse in place.
+     * </p>
+     *
+     * @param chapterNumber chapter number
+     * @param verseNumber   verse number
+     * @param tokenNumbers  token numbers to merge
+     */
+    public void bulkMergeTokens(int chapterNumber, int verseNumber, int... tokenNumbers) {
+        if (ArrayUtils.isEmpty(tokenNumbers) || tokenNumbers.length <= 1) {
+            return;
+        }
+        LOGGER.info("Bulk merging tokens \"{}\" in chapter \"{}\" and verse \"{}\".", ArrayUtils.toString(tokenNumbers),
+                chapterNumber, verseNumber);
+        writeBehindBuffer.flush(Token.class, Location.class);
+        verseLockManager.withLock(chapterNumber, verseNumber, () -> doBulkMergeTokens(chapterNumber, verseNumber,
+                tokenNumbers));
+    }
+
+    private void doBulkMergeTokens(int chapterNumber, int verseNumber, int... tokenNumbers) {
+        final List<Token> tokens = hydrated(() -> tokenRepository.findByChapterNumberAndVerseNumber(chapterNumber,
+                verseNumber));
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Total number of tokens: \"{}\".", tokens.size());
+
+        final List<String> tokenIds = new ArrayList<>();
+        final List<String> locationIds = new ArrayList<>();
+        final Map<String, List<DBRef>> entryLocations = new LinkedHashMap<>();
+        tokens.forEach(token -> {
+            tokenIds.add(token.getId());
+            token.getLocations().forEach(location -> {
+                locationIds.add(location.getId());
+                MorphologicalEntry morphologicalEntry = location.getMorphologicalEntry();
+                if (morphologicalEntry != null) {
+                    entryLocations.computeIfAbsent(morphologicalEntry.getId(), id -> new ArrayList<>())
+                            .add(morphologicalEntryLocations.toReference(location.getId()));
+                }
+            });
+        });
+
+        morphologicalEntryLocations.removeReferences(entryLocations);
+        mongoTemplate.remove(new Query(Criteria.where("id").in(locationIds)), Location.class);
+        mongoTemplate.remove(new Query(Criteria.where("id").in(tokenIds)), Token.class);
+
+        final List<Token> newTokens = buildNewTokens(chapterNumber, verseNumber, tokens, tokenNumbers);
+        final List<Location> newLocations = new ArrayList<>();
+        newTokens.forEach(token -> newLocations.addAll(token.getLocations()));
+        // locations first, tokens refer them
+        mongoTemplate.insert(newLocations, Location.class);
+        mongoTemplate.insert(newTokens, Token.class);
+
+        Query verseQuery = new Query(Criteria.where("chapterNumber").is(chapterNumber).and("verseNumber").is(verseNumber));
+        mongoTemplate.updateFirst(verseQuery, new Update().set("tokens", newTokens).set("tokenCount", newTokens.size()),
+                Verse.class);
+        // update does not go through "VerseEventListener", keep navigation index in sync explicitly
+        navigationIndex.updateTokenCount(chapterNumber, verseNumber, newTokens.size());
+        corpusStatisticsService.markDirty(GRAPH_COVERAGE, chapterNumber);
+        LOGGER.info("Merged tokens into \"{}\" new tokens in chapter \"{}\" and verse \"{}\".", newTokens.size(),
+                chapterNumber, verseNumber);
+    }
+
+    /**
+     * Runs given read within a {@link LocationTextHydrator} batch, so that text of all loaded locations is
+     * populated with one query.
+     */
+    private <T> T hydrated(Supplier<T> reader) {
+        locationTextHydrator.beginBatch();
+        try {
+            return reader.get();
+        } finally {
+            locationTextHydrator.endBatch();
+        }
+    }
+
     private void createNewTokens(int chapterNumber, int verseNumber, List<Token> tokens, int... tokenNumbers) {
+        List<Token> newTokens = buildNewTokens(chapterNumber, verseNumber, tokens, tokenNumbers);
+        newTokens.forEach(newToken -> {
+            Location newLocation = newToken.getLocations().get(0);
+            locationRepository.save(newLocation);
+            tokenRepository.save(newToken);
+            LOGGER.info("NEW \"{}:{}:{}\", \"{}:{}\"", newToken, newToken.getId(), newToken.tokenWord().toBuckWalter(), newLocation, newLocation.getId());
+        });
+
+        final Verse verse = verseRepository.findByChapterNumberAndVerseNumber(chapterNumber, verseNumber);
+        verse.setTokens(newTokens);
+        verse.setTokenCount(newTokens.size());
+        verseRepository.save(verse);
+    }
+
+    private static List<Token> buildNewTokens(int chapterNumber, int verseNumber, List<Token> tokens, int... tokenNumbers) {
         List<Token> newTokens = new ArrayList<>();
         int firstTokenNumber = tokenNumbers[0];
         int tokenNumber = 1;
@@ -220,29 +368,22 @@ public class MorphologicalAnalysisRepositoryUtil {
             Location newLocation = new Location(chapterNumber, verseNumber, tokenNumber, 1, WordType.NOUN);
             newToken.addLocation(newLocation);
             newTokens.add(newToken);
-            locationRepository.save(newLocation);
-            tokenRepository.save(newToken);
-            LOGGER.info("NEW \"{}:{}:{}\", \"{}:{}\"", newToken, newToken.getId(), newToken.tokenWord().toBuckWalter(), newLocation, newLocation.getId());
             tokenNumber++;
             index++;
         }
-
-        final Verse verse = verseRepository.findByChapterNumberAndVerseNumber(chapterNumber, verseNumber);
-        verse.setTokens(newTokens);
-        verse.setTokenCount(newTokens.size());
-        verseRepository.save(verse);
+        return newTokens;
     }
 
     public int getTokenCount(Integer chapterNumber, Integer verseNumber) {
         QVerse qVerse = QVerse.verse1;
         BooleanExpression predicate = qVerse.chapterNumber.eq(chapterNumber).and(qVerse.verseNumber.eq(verseNumber));
-        Verse verse = verseRepository.findOne(predicate);
+        Verse verse = getVerseRepository().findOne(predicate);
         return (verse == null) ? 0 : verse.getTokenCount();
     }
 
     public int getVerseCount(Integer chapterNumber) {
         BooleanExpression predicate = QChapter.chapter.chapterNumber.eq(chapterNumber);
-        Chapter chapter = chapterRepository.findOne(predicate);
+        Chapter chapter = getChapterRepository().findOne(predicate);
         return (chapter == null) ? 0 : chapter.getVerseCount();
     }
 
@@ -251,8 +392,17 @@ public class MorphologicalAnalysisRepositoryUtil {
         if (token == null) {
             return null;
         }
-        Token result = getToken(token.getChapterNumber(), token.getVerseNumber(), token.getTokenNumber() + 1, true,
-                tokenRepository, this);
+        Token result;
+        int ordinal = getNavigationIndex().getOrdinal(token.getChapterNumber(), token.getVerseNumber(),
+                token.getTokenNumber());
+        if (ordinal < 0) {
+            // token is not part of navigation index, fall back to database navigation
+            writeBehindBuffer.flush(Token.class, Location.class);
+            result = getToken(token.getChapterNumber(), token.getVerseNumber(), token.getTokenNumber() + 1, true,
+                    getTokenRepository(), this);
+        } else {
+            result = getToken(ordinal + 1);
+        }
         LOGGER.debug("Next token for {} is {}", token, result);
         return result;
     }
@@ -262,48 +412,116 @@ public class MorphologicalAnalysisRepositoryUtil {
         if (token == null) {
             return null;
         }
-        Token result = getToken(token.getChapterNumber(), token.getVerseNumber(), token.getTokenNumber() - 1, false,
-                tokenRepository, this);
+        Token result;
+        int ordinal = getNavigationIndex().getOrdinal(token.getChapterNumber(), token.getVerseNumber(),
+                token.getTokenNumber());
+        if (ordinal < 0) {
+            // token is not part of navigation index, fall back to database navigation
+            writeBehindBuffer.flush(Token.class, Location.class);
+            result = getToken(token.getChapterNumber(), token.getVerseNumber(), token.getTokenNumber() - 1, false,
+                    getTokenRepository(), this);
+        } else {
+            result = getToken(ordinal - 1);
+        }
         LOGGER.debug("Previous token for {} is {}", token, result);
         return result;
     }
 
+    /**
+     * @return first token of the corpus
+     */
+    public Token getFirstToken() {
+        return getToken(0);
+    }
+
+    /**
+     * @return last token of the corpus
+     */
+    public Token getLastToken() {
+        return getToken(getNavigationIndex().getTotalTokenCount() - 1);
+    }
+
+    /**
+     * Returns token at the given ordinal, see {@link CorpusNavigationIndex}.
+     *
+     * @param ordinal zero based position of the token in the corpus
+     * @return token at the given ordinal, <code>null</code> if ordinal is out of range
+     */
+    public Token getToken(int ordinal) {
+        final int[] address = getNavigationIndex().getTokenAddress(ordinal);
+        if (address == null) {
+            LOGGER.warn("No token found at ordinal {}", ordinal);
+            return null;
+        }
+        writeBehindBuffer.flush(Token.class, Location.class);
+        return hydrated(() -> getTokenRepository().findByChapterNumberAndVerseNumberAndTokenNumber(address[0],
+                address[1], address[2]));
+    }
+
     public List<Token> getTokens(VerseTokenPairGroup group) {
         List<VerseTokensPair> pairs = group.getPairs();
         if (pairs == null || pairs.isEmpty()) {
             return new ArrayList<>();
         }
-        VerseTokensPair pair = pairs.get(0);
-        QToken qToken = QToken.token1;
-        BooleanExpression predicate = qToken.verseNumber.eq(pair.getVerseNumber()).
-                and(qToken.tokenNumber.between(pair.getFirstTokenIndex(), pair.getLastTokenIndex()));
-        for (int i = 1; i < pairs.size(); i++) {
-            pair = pairs.get(i);
-            BooleanExpression predicate1 = qToken.verseNumber.eq(pair.getVerseNumber())
-                    .and(qToken.tokenNumber.between(pair.getFirstTokenIndex(), pair.getLastTokenIndex()));
-            predicate = predicate.or(predicate1);
-        }
-        predicate = qToken.chapterNumber.eq(group.getChapterNumber()).and(predicate);
-        if (group.isIncludeHidden()) {
-            predicate = predicate.and(qToken.hidden.eq(true));
+        final SnapshotRepositories repositories = snapshotRepositories;
+        if (repositories != null) {
+            return repositories.findTokens(group);
         }
-        LOGGER.info(format("Query for \"getTokens\" is {%s}", predicate));
-        return (List<Token>) tokenRepository.findAll(predicate);
+        final Query query = getTokensQuery(group);
+        LOGGER.info(format("Query for \"getTokens\" is {%s}", query));
+        writeBehindBuffer.flush(Token.class, Location.class);
+        return batchedDocumentReader.find(query, Token.class);
     }
 
-    public ArabicWord getLocationWord(Location location) {
-        if (location == null || location.isTransient()) {
-            return null;
+    /**
+     * Streaming variant of {@link #getTokens(VerseTokenPairGroup)}, tokens are fetched in batches of
+     * {@link #getCursorBatchSize()}. Returned iterator must be closed after use.
+     *
+     * @param group given group
+     * @return iterator over tokens of the given group
+     */
+    public CloseableIterator<Token> streamTokens(VerseTokenPairGroup group) {
+        List<VerseTokensPair> pairs = group.getPairs();
+        if (pairs == null || pairs.isEmpty()) {
+            return emptyCursor();
         }
-        ArabicWord locationWord = null;
+        final SnapshotRepositories repositories = snapshotRepositories;
+        if (repositories != null) {
+            return toCursor(repositories.findTokens(group).stream());
+        }
+        final Query query = getTokensQuery(group);
+        LOGGER.info(format("Query for \"streamTokens\" is {%s}", query));
+        writeBehindBuffer.flush(Token.class, Location.class);
+        return new DocumentCursor<>(mongoTemplate, eventPublisher, query, Token.class, cursorBatchSize);
+    }
 
-        Token token = tokenRepository.findByChapterNumberAndVerseNumberAndTokenNumber(location.getChapterNumber(),
-                location.getVerseNumber(), location.getTokenNumber());
-        if (token != null) {
-            locationWord = ArabicWord.getSubWord(token.tokenWord(), location.getStartIndex(), location.getEndIndex());
+    private Query getTokensQuery(VerseTokenPairGroup group) {
+        List<VerseTokensPair> pairs = group.getPairs();
+        // each pair is a single range scan on "locationKey", see "LocationKey", while the key is still being
+        // populated by "MorphologicalAnalysisIndexManager" documents saved before it was introduced are matched by
+        // their numbers
+        final boolean fallback = !indexManager.isLocationKeyBackfilled();
+        final int chapterNumber = group.getChapterNumber();
+        List<Criteria> ranges = new ArrayList<>();
+        for (VerseTokensPair pair : pairs) {
+            ranges.add(Criteria.where(LocationKey.FIELD_NAME)
+                    .gte(LocationKey.lowerBound(chapterNumber, pair.getVerseNumber(), pair.getFirstTokenIndex()))
+                    .lte(LocationKey.upperBound(chapterNumber, pair.getVerseNumber(), pair.getLastTokenIndex())));
+            if (fallback) {
+                ranges.add(Criteria.where(LocationKey.FIELD_NAME).exists(false)
+                        .and("chapterNumber").is(chapterNumber).and("verseNumber").is(pair.getVerseNumber())
+                        .and("tokenNumber").gte(pair.getFirstTokenIndex()).lte(pair.getLastTokenIndex()));
+            }
+        }
+        Criteria criteria = new Criteria().orOperator(ranges.toArray(new Criteria[ranges.size()]));
+        if (group.isIncludeHidden()) {
+            criteria = new Criteria().andOperator(criteria, Criteria.where("hidden").is(true));
         }
+        return new Query(criteria);
+    }
 
-        return locationWord;
+    public ArabicWord getLocationWord(Location location) {
+        return locationTextHydrator.getLocationWord(location);
     }
 
     public List<DependencyGraph> getDependencyGraphs(VerseTokenPairGroup group) {
@@ -313,6 +531,40 @@ public class MorphologicalAnalysisRepositoryUtil {
         }
 
         LOGGER.info(format("Group to find DependencyGraph is {%s}", group));
+        final SnapshotRepositories repositories = snapshotRepositories;
+        if (repositories != null) {
+            return repositories.findDependencyGraphs(group);
+        }
+        Query query = getDependencyGraphsQuery(group);
+        LOGGER.info(format("Query for \"getDependencyGraphs\" is {%s}", query));
+        writeBehindBuffer.flush(DependencyGraph.class);
+        return mongoTemplate.find(query, DependencyGraph.class);
+    }
+
+    /**
+     * Streaming variant of {@link #getDependencyGraphs(VerseTokenPairGroup)}, graphs are fetched in batches of
+     * {@link #getCursorBatchSize()}. Returned iterator must be closed after use.
+     *
+     * @param group given group
+     * @return iterator over dependency graphs of the given group
+     */
+    public CloseableIterator<DependencyGraph> streamDependencyGraphs(VerseTokenPairGroup group) {
+        List<VerseTokensPair> pairs = group.getPairs();
+        if (pairs == null || pairs.isEmpty()) {
+            return emptyCursor();
+        }
+        final SnapshotRepositories repositories = snapshotRepositories;
+        if (repositories != null) {
+            return toCursor(repositories.findDependencyGraphs(group).stream());
+        }
+        Query query = getDependencyGraphsQuery(group);
+        LOGGER.info(format("Query for \"streamDependencyGraphs\" is {%s}", query));
+        writeBehindBuffer.flush(DependencyGraph.class);
+        return new DocumentCursor<>(mongoTemplate, eventPublisher, query, DependencyGraph.class, cursorBatchSize);
+    }
+
+    private static Query getDependencyGraphsQuery(VerseTokenPairGroup group) {
+        List<VerseTokensPair> pairs = group.getPairs();
         int index = 0;
         VerseTokensPair pair = pairs.get(index);
         Criteria[] verseNumberCriterion = new Criteria[pairs.size()];
@@ -326,60 +578,334 @@ public class MorphologicalAnalysisRepositoryUtil {
         Query query = new Query();
         query.addCriteria(Criteria.where("chapterNumber").is(group.getChapterNumber())).addCriteria(tokensCriteria)
                 .with(new Sort("tokens.verseNumber"));
+        return query;
+    }
 
-        LOGGER.info(format("Query for \"getDependencyGraphs\" is {%s}", query));
-        return mongoTemplate.find(query, DependencyGraph.class);
+    /**
+     * @param chapterNumber given chapter number
+     * @return iterator over all verses of the given chapter, ordered by verse number, must be closed after use
+     */
+    public CloseableIterator<Verse> streamVerses(Integer chapterNumber) {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        if (repositories != null) {
+            return toCursor(repositories.verseRepository.streamByChapterNumber(chapterNumber));
+        }
+        Query query = new Query(Criteria.where("chapterNumber").is(chapterNumber)).with(new Sort("verseNumber"));
+        return new DocumentCursor<>(mongoTemplate, eventPublisher, query, Verse.class, cursorBatchSize);
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @return iterator over all dependency graphs of the given chapter, must be closed after use
+     */
+    public CloseableIterator<DependencyGraph> streamDependencyGraphs(Integer chapterNumber) {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        if (repositories != null) {
+            return toCursor(repositories.dependencyGraphRepository.streamByChapterNumber(chapterNumber));
+        }
+        Query query = new Query(Criteria.where("chapterNumber").is(chapterNumber));
+        writeBehindBuffer.flush(DependencyGraph.class);
+        return new DocumentCursor<>(mongoTemplate, eventPublisher, query, DependencyGraph.class, cursorBatchSize);
+    }
+
+    /**
+     * Wraps given iterator into a {@link Stream}, closing the stream closes the underlying cursor.
+     *
+     * @param iterator given iterator
+     * @param <T>      type of the elements
+     * @return stream backed by given iterator
+     */
+    public static <T> Stream<T> toStream(CloseableIterator<T> iterator) {
+        return StreamUtils.createStreamFromIterator(iterator);
+    }
+
+    private static <T> CloseableIterator<T> emptyCursor() {
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public T next() {
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static <T> CloseableIterator<T> toCursor(Stream<T> stream) {
+        final Iterator<T> iterator = stream.iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                stream.close();
+            }
+        };
+    }
+
+    /**
+     * Saves given location, through {@link WriteBehindBuffer} if buffering is enabled. Read methods of this class
+     * flush pending locations before reading.
+     *
+     * @param location location to save
+     */
+    public void saveLocation(Location location) {
+        writeBehindBuffer.save(location);
     }
 
+    /**
+     * Saves given token, through {@link WriteBehindBuffer} if buffering is enabled. Read methods of this class flush
+     * pending tokens before reading.
+     *
+     * @param token token to save
+     */
+    public void saveToken(Token token) {
+        writeBehindBuffer.save(token);
+    }
+
+    /**
+     * Saves given dependency graph along with its implied or hidden tokens and removes the given nodes.
+     * <p>
+     * Nodes are removed with one <code>deleteMany</code> per {@link GraphNodeType}, new tokens are inserted with one
+     * <code>insertMany</code> and existing tokens are upserted with one bulk write. If
+     * {@link #setGraphPersistenceExecutor(Executor) graph persistence executor} is set then removal of each node type
+     * runs concurrently with saving of tokens and the graph.
+     * </p>
+     *
+     * @param dependencyGraph       graph to save
+     * @param impliedOrHiddenTokens implied or hidden tokens of the graph
+     * @param removalIds            ids of the nodes to remove keyed by their type
+     */
     public void saveDependencyGraph(DependencyGraph dependencyGraph, List<Token> impliedOrHiddenTokens,
                                     Map<GraphNodeType, List<String>> removalIds) {
-        if (impliedOrHiddenTokens != null && !impliedOrHiddenTokens.isEmpty()) {
-            impliedOrHiddenTokens.forEach(tokenRepository::save);
+        // buffered saves must not overwrite this save later
+        writeBehindBuffer.flush(DependencyGraph.class, Token.class, Location.class);
+        verseLockManager.withLocks(dependencyGraph.getChapterNumber(), getVerseNumbers(dependencyGraph), () -> {
+            List<Runnable> tasks = new ArrayList<>();
+            tasks.add(() -> {
+                saveTokens(impliedOrHiddenTokens);
+                dependencyGraphRepository.save(dependencyGraph);
+            });
+            tasks.addAll(getNodeRemovals(removalIds));
+            runAll(tasks);
+        });
+    }
+
+    /**
+     * Deletes dependency graph with the given id along with its hidden tokens and removes the given nodes.
+     * <p>
+     * The graph is looked up again once locks of its verses are held, if it has been moved to other verses meanwhile
+     * then locks of those verses are taken instead.
+     * </p>
+     *
+     * @param id         id of the graph to delete
+     * @param removalIds ids of the nodes to remove keyed by their type
+     */
+    public void deleteDependencyGraph(String id, Map<GraphNodeType, List<String>> removalIds) {
+        writeBehindBuffer.flush(DependencyGraph.class, Token.class, Location.class);
+        DependencyGraph candidate = dependencyGraphRepository.findOne(id);
+        if (candidate == null) {
+            LOGGER.warn("No dependency graph found with id \"{}\"", id);
+            runAll(getNodeRemovals(removalIds));
+            return;
         }
-        dependencyGraphRepository.save(dependencyGraph);
-        if (removalIds != null && !removalIds.isEmpty()) {
-            removalIds.entrySet().forEach(this::removeNode);
+        while (candidate != null) {
+            final Integer chapterNumber = candidate.getChapterNumber();
+            final List<Integer> verseNumbers = getVerseNumbers(candidate);
+            candidate = verseLockManager.withLocks(chapterNumber, verseNumbers, () ->
+                    doDeleteDependencyGraph(id, removalIds, chapterNumber, verseNumbers));
         }
     }
 
-    public void deleteDependencyGraph(String id, Map<GraphNodeType, List<String>> removalIds) {
-        if (!removalIds.isEmpty()) {
-            removalIds.entrySet().forEach(this::removeNode);
+    /**
+     * @return graph with the given id if its verses are not the given ones, <code>null</code> once deleted
+     */
+    private DependencyGraph doDeleteDependencyGraph(String id, Map<GraphNodeType, List<String>> removalIds,
+                                                    Integer chapterNumber, List<Integer> verseNumbers) {
+        final DependencyGraph dependencyGraph = dependencyGraphRepository.findOne(id);
+        if (dependencyGraph == null) {
+            LOGGER.warn("No dependency graph found with id \"{}\"", id);
+            runAll(getNodeRemovals(removalIds));
+            return null;
         }
-        DependencyGraph dependencyGraph = dependencyGraphRepository.findOne(id);
+        if (!Objects.equals(chapterNumber, dependencyGraph.getChapterNumber())
+                || !verseNumbers.equals(getVerseNumbers(dependencyGraph))) {
+            return dependencyGraph;
+        }
+        runAll(getNodeRemovals(removalIds));
         VerseTokenPairGroup group = new VerseTokenPairGroup();
         group.setIncludeHidden(true);
         group.setChapterNumber(dependencyGraph.getChapterNumber());
         group.getPairs().addAll(dependencyGraph.getTokens());
         List<Token> hiddenTokens = getTokens(group);
         if (hiddenTokens != null && !hiddenTokens.isEmpty()) {
-            hiddenTokens.forEach(token -> locationRepository.delete(token.getLocations()));
-            tokenRepository.delete(hiddenTokens);
+            final List<String> locationIds = new ArrayList<>();
+            final List<String> tokenIds = new ArrayList<>();
+            hiddenTokens.forEach(token -> {
+                tokenIds.add(token.getId());
+                token.getLocations().forEach(location -> locationIds.add(location.getId()));
+            });
+            mongoTemplate.remove(new Query(Criteria.where("id").in(locationIds)), Location.class);
+            mongoTemplate.remove(new Query(Criteria.where("id").in(tokenIds)), Token.class);
         }
         dependencyGraphRepository.delete(id);
+        return null;
+    }
+
+    /**
+     * Inserts new tokens with one <code>insertMany</code> and replaces (upserts) existing tokens with one bulk write,
+     * fields which are no longer set on a token are therefore removed, the same as {@link MongoTemplate#save(Object)}.
+     */
+    private void saveTokens(List<Token> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        final List<Token> newTokens = new ArrayList<>();
+        final List<Token> existingTokens = new ArrayList<>();
+        tokens.forEach(token -> (token.isTransient() ? newTokens : existingTokens).add(token));
+        if (!newTokens.isEmpty()) {
+            mongoTemplate.insert(newTokens, Token.class);
+        }
+        if (!existingTokens.isEmpty()) {
+            final BulkWriteOperation bulkOperation = mongoTemplate.getCollection(
+                    mongoTemplate.getCollectionName(Token.class)).initializeUnorderedBulkOperation();
+            existingTokens.forEach(token -> {
+                DBObject dbObject = new BasicDBObject();
+                mongoTemplate.getConverter().write(token, dbObject);
+                // bulk writes do not go through "LocationKeyEventListener"
+                LocationKey.populate(dbObject);
+                bulkOperation.find(new BasicDBObject("_id", dbObject.get("_id"))).upsert().replaceOne(dbObject);
+            });
+            bulkOperation.execute();
+            // nor through "TokenEventListener"
+            locationTextHydrator.tokensModified();
+        }
+    }
+
+    private List<Runnable> getNodeRemovals(Map<GraphNodeType, List<String>> removalIds) {
+        List<Runnable> removals = new ArrayList<>();
+        if (removalIds != null) {
+            removalIds.entrySet().forEach(entry -> {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    removals.add(() -> removeNode(entry));
+                }
+            });
+        }
+        return removals;
+    }
+
+    /**
+     * Runs given tasks on {@link #getGraphPersistenceExecutor() graph persistence executor} if one is set, otherwise
+     * runs them sequentially in current thread.
+     */
+    private void runAll(List<Runnable> tasks) {
+        final Executor executor = graphPersistenceExecutor;
+        if (executor == null || tasks.size() <= 1) {
+            tasks.forEach(Runnable::run);
+            return;
+        }
+        CompletableFuture<?>[] futures = tasks.stream().map(task -> CompletableFuture.runAsync(task, executor))
+                .toArray(CompletableFuture<?>[]::new);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : e;
+        }
+    }
+
+    private static List<Integer> getVerseNumbers(DependencyGraph dependencyGraph) {
+        final List<VerseTokensPair> pairs = dependencyGraph.getTokens();
+        final List<Integer> verseNumbers = new ArrayList<>();
+        if (pairs != null) {
+            pairs.forEach(pair -> verseNumbers.add(pair.getVerseNumber()));
+        }
+        return verseNumbers;
+    }
+
+    /**
+     * @return lock manager used to serialize edits of the same verse
+     */
+    public VerseLockManager getVerseLockManager() {
+        return verseLockManager;
     }
 
-    @SuppressWarnings({"unchecked"})
     private void removeNode(Map.Entry<GraphNodeType, List<String>> entry) {
         GraphNodeType key = entry.getKey();
         List<String> ids = entry.getValue();
-        GraphNodeRepository repository = getRepository(key);
-        ids.forEach(repository::delete);
+        Class<? extends GraphNode> nodeClass = GRAPH_NODE_CLASSES.get(key);
+        if (nodeClass == null) {
+            LOGGER.warn("Unable to remove nodes {} of type {}", ids, key);
+            return;
+        }
+        mongoTemplate.remove(new Query(Criteria.where("id").in(ids)), nodeClass);
     }
 
     public DependencyGraph getDependencyGraph(String displayName) {
-        return dependencyGraphRepository.findByDisplayName(displayName);
+        writeBehindBuffer.flush(DependencyGraph.class);
+        return getDependencyGraphRepository().findByDisplayName(displayName);
     }
 
+    /**
+     * Finds the {@link MorphologicalEntry} with the display name of the given entry, lookups are served by
+     * {@link MorphologicalEntryCache}.
+     * <p>
+     * <code>locations</code> of the returned entry is a summary holding at most
+     * {@link MorphologicalEntryLocations#getSummarySize() summary size} locations, use
+     * {@link #streamLocations(MorphologicalEntry)} or {@link #getLocationCount(MorphologicalEntry)} for all of them.
+     * </p>
+     *
+     * @param src given entry
+     * @return persisted entry, <code>null</code> if there is no such entry
+     */
     public MorphologicalEntry findMorphologicalEntry(MorphologicalEntry src) {
         src.initDisplayName();
-        return morphologicalEntryRepository.findByDisplayName(src.getDisplayName());
+        return morphologicalEntryCache.get(src.getDisplayName());
     }
 
     public MorphologicalEntry findMorphologicalEntry(RootLetters src, NamedTemplate form) {
         return findMorphologicalEntry(new MorphologicalEntry(src, form));
     }
 
+    /**
+     * @param morphologicalEntry given entry
+     * @return all locations of the given entry, including the ones which are not in its summary
+     * @see MorphologicalEntryLocations#streamLocations(String)
+     */
+    public Stream<Location> streamLocations(MorphologicalEntry morphologicalEntry) {
+        return morphologicalEntryLocations.streamLocations(morphologicalEntry.getId());
+    }
+
+    /**
+     * @param morphologicalEntry given entry
+     * @return number of all locations of the given entry
+     */
+    public long getLocationCount(MorphologicalEntry morphologicalEntry) {
+        return morphologicalEntryLocations.getLocationCount(morphologicalEntry.getId());
+    }
+
+
+    /**
+     * @param nodeType given node type
+     * @return document class of the given node type, <code>null</code> if nodes of the given type are not persisted
+     */
+    public static Class<? extends GraphNode> getGraphNodeClass(GraphNodeType nodeType) {
+        return GRAPH_NODE_CLASSES.get(nodeType);
+    }
 
     @SuppressWarnings("unchecked")
     public <N extends GraphNode, R extends GraphNodeRepository<N>> R getRepository(GraphNodeType nodeType) {
@@ -435,4 +961,129 @@ public class MorphologicalAnalysisRepositoryUtil {
         repository.delete(graphNode.getId());
     }
 
+    public int getCursorBatchSize() {
+        return cursorBatchSize;
+    }
+
+    /**
+     * @param cursorBatchSize number of documents fetched per round trip by the streaming methods
+     */
+    public void setCursorBatchSize(int cursorBatchSize) {
+        if (cursorBatchSize <= 0) {
+            throw new IllegalArgumentException(format("Invalid cursor batch size {%s}", cursorBatchSize));
+        }
+        this.cursorBatchSize = cursorBatchSize;
+    }
+
+    public Executor getGraphPersistenceExecutor() {
+        return graphPersistenceExecutor;
+    }
+
+    /**
+     * @param graphPersistenceExecutor executor to run removal of graph nodes concurrently with saving of the graph,
+     *                                 <code>null</code> to run them sequentially in the calling thread
+     */
+    public void setGraphPersistenceExecutor(Executor graphPersistenceExecutor) {
+        this.graphPersistenceExecutor = graphPersistenceExecutor;
+    }
+
+    public CorpusSnapshot getSnapshot() {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        return (repositories == null) ? null : repositories.snapshot;
+    }
+
+    /**
+     * Serves lookups of chapters, verses, tokens and dependency graphs by number, ordinal, group or display name (i.e.,
+     * {@link #getVerseCount(Integer)}, {@link #getTokenCount(Integer, Integer)}, token navigation,
+     * {@link #getTokens(VerseTokenPairGroup)}, {@link #getDependencyGraphs(VerseTokenPairGroup)}, their streaming
+     * variants and {@link #getDependencyGraph(String)}) from the given snapshot instead of MongoDB. Token navigation
+     * uses a {@link CorpusNavigationIndex} built from the snapshot. Writes still go to MongoDB and
+     * are not visible to these lookups until a new snapshot is set, therefore a snapshot is meant for read-only
+     * deployments.
+     *
+     * @param snapshot snapshot to read from, <code>null</code> to read from MongoDB again
+     */
+    public void setSnapshot(CorpusSnapshot snapshot) {
+        snapshotRepositories = (snapshot == null) ? null : new SnapshotRepositories(snapshot);
+        LOGGER.info("Serving lookups from {}", (snapshot == null) ? "MongoDB" : snapshot);
+    }
+
+    private CorpusNavigationIndex getNavigationIndex() {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        return (repositories == null) ? navigationIndex : repositories.navigationIndex;
+    }
+
+    private ChapterRepository getChapterRepository() {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        return (repositories == null) ? chapterRepository : repositories.chapterRepository;
+    }
+
+    private VerseRepository getVerseRepository() {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        return (repositories == null) ? verseRepository : repositories.verseRepository;
+    }
+
+    private TokenRepository getTokenRepository() {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        return (repositories == null) ? tokenRepository : repositories.tokenRepository;
+    }
+
+    private DependencyGraphRepository getDependencyGraphRepository() {
+        final SnapshotRepositories repositories = snapshotRepositories;
+        return (repositories == null) ? dependencyGraphRepository : repositories.dependencyGraphRepository;
+    }
+
+    private static final class SnapshotRepositories {
+        private final CorpusSnapshot snapshot;
+        private final ChapterRepository chapterRepository;
+        private final VerseRepository verseRepository;
+        private final TokenRepository tokenRepository;
+        private final DependencyGraphRepository dependencyGraphRepository;
+        private final CorpusNavigationIndex navigationIndex;
+
+        private SnapshotRepositories(CorpusSnapshot snapshot) {
+            this.snapshot = snapshot;
+            final SnapshotRepositoryFactory factory = new SnapshotRepositoryFactory(snapshot);
+            chapterRepository = factory.getRepository(ChapterRepository.class);
+            verseRepository = factory.getRepository(VerseRepository.class);
+            tokenRepository = factory.getRepository(TokenRepository.class);
+            dependencyGraphRepository = factory.getRepository(DependencyGraphRepository.class);
+            navigationIndex = new CorpusNavigationIndex(snapshot);
+        }
+
+        /**
+         * Same as {@link #getTokensQuery(VerseTokenPairGroup)}, one key range scan per pair.
+         */
+        private List<Token> findTokens(VerseTokenPairGroup group) {
+            final QToken qToken = QToken.token1;
+            final List<Token> tokens = new ArrayList<>();
+            group.getPairs().forEach(pair -> {
+                BooleanExpression predicate = qToken.chapterNumber.eq(group.getChapterNumber())
+                        .and(qToken.verseNumber.eq(pair.getVerseNumber()))
+                        .and(qToken.tokenNumber.between(pair.getFirstTokenIndex(), pair.getLastTokenIndex()));
+                if (group.isIncludeHidden()) {
+                    predicate = predicate.and(qToken.hidden.eq(true));
+                }
+                tokenRepository.findAll(predicate).forEach(tokens::add);
+            });
+            return tokens;
+        }
+
+        /**
+         * Same as {@link #getDependencyGraphsQuery(VerseTokenPairGroup)}, graphs of the chapter are filtered by the
+         * verse numbers of their tokens.
+         */
+        private List<DependencyGraph> findDependencyGraphs(VerseTokenPairGroup group) {
+            final Set<Integer> verseNumbers = new HashSet<>();
+            group.getPairs().forEach(pair -> verseNumbers.add(pair.getVerseNumber()));
+            final List<DependencyGraph> dependencyGraphs = new ArrayList<>();
+            dependencyGraphRepository.findByChapterNumber(group.getChapterNumber()).forEach(dependencyGraph -> {
+                final List<VerseTokensPair> pairs = dependencyGraph.getTokens();
+                if (pairs != null && pairs.stream().anyMatch(pair -> verseNumbers.contains(pair.getVerseNumber()))) {
+                    dependencyGraphs.add(dependencyGraph);
+                }
+            });
+            return dependencyGraphs;
+        }
+    }
 }
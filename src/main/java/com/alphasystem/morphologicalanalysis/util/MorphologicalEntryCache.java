@@ -0,0 +1,106 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Read-through cache of {@link MorphologicalEntry} keyed by display name.
+ * <p>
+ * Entries are invalidated by {@link com.alphasystem.morphologicalanalysis.morphology.listener.MorphologicalEntryEventListener}
+ * whenever a {@link MorphologicalEntry} is saved or deleted. Entries are loaded by {@link BatchedDocumentReader}, so that
+ * locations of an entry are fetched with one query.
+ * </p>
+ * <p>
+ * Cached instances are never handed out: {@link #get(String)} returns a copy of the entry with copies of its
+ * collections, so that callers may modify (and save) it. Documents referred by the entry, e.g., its locations, are
+ * still shared and must be treated as read-only.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class MorphologicalEntryCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 2000;
+    public static final long DEFAULT_TIME_TO_LIVE_MINUTES = 30;
+
+    private final ReadThroughCache<String, MorphologicalEntry> cache;
+    @Autowired private BatchedDocumentReader batchedDocumentReader;
+
+    public MorphologicalEntryCache() {
+        cache = new ReadThroughCache<>(displayName -> batchedDocumentReader.findOne(
+                new Query(where("displayName").is(displayName)), MorphologicalEntry.class),
+                DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param displayName display name of the entry
+     * @return copy of the entry with the given display name, <code>null</code> if there is no such entry
+     */
+    public MorphologicalEntry get(String displayName) {
+        return copy(cache.get(displayName));
+    }
+
+    /**
+     * Invalidates cached entry with the given display name and any other cached entry with the given id.
+     *
+     * @param id          id of the entry, may be <code>null</code>
+     * @param displayName display name of the entry, may be <code>null</code>
+     */
+    public void invalidate(String id, String displayName) {
+        if (displayName != null) {
+            cache.invalidate(displayName);
+        }
+        if (id != null) {
+            // display name might have been changed
+            cache.invalidateIf(entry -> id.equals(entry.getId()));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return underlying cache, for configuration and statistics; values of the underlying cache are shared and must
+     * not be modified
+     */
+    public ReadThroughCache<String, MorphologicalEntry> getCache() {
+        return cache;
+    }
+
+    private static MorphologicalEntry copy(MorphologicalEntry source) {
+        if (source == null) {
+            return null;
+        }
+        final BeanWrapper sourceWrapper = new BeanWrapperImpl(source);
+        final BeanWrapper targetWrapper = new BeanWrapperImpl(new MorphologicalEntry());
+        for (PropertyDescriptor descriptor : sourceWrapper.getPropertyDescriptors()) {
+            final String name = descriptor.getName();
+            if (!sourceWrapper.isReadableProperty(name) || !targetWrapper.isWritableProperty(name)) {
+                continue;
+            }
+            Object value = sourceWrapper.getPropertyValue(name);
+            if (value instanceof Set) {
+                value = new LinkedHashSet<>((Set<?>) value);
+            } else if (value instanceof List) {
+                value = new ArrayList<>((List<?>) value);
+            }
+            targetWrapper.setPropertyValue(name, value);
+        }
+        return (MorphologicalEntry) targetWrapper.getWrappedInstance();
+    }
+}
@@ -0,0 +1,807 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.LOCATION_COUNTS;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+/**
+ * Maintains <code>MorphologicalEntry.locations</code> back references with atomic in place updates, instead of
+ * loading and saving the whole entry.
+ * <p>
+ * A reference is added with <code>$push</code> and removed with <code>$pull</code>, each update is guarded by a match
+ * on the reference itself, so that the denormalized {@link #LOCATION_COUNT} can be adjusted with <code>$inc</code> in
+ * the same update. Adding or removing a location therefore sends one reference over the wire regardless of the size
+ * of the entry. Whole entry saves through
+ * {@link com.alphasystem.morphologicalanalysis.morphology.repository.MorphologicalEntryRepository} never write
+ * <code>locations</code> and counts of an existing entry.
+ * </p>
+ * <p>
+ * References are bucketed, so that entries of frequent roots and forms do not grow without bound:
+ * <code>locations</code> of an entry is a summary holding the first {@link #setSummarySize(int) summary size}
+ * references, further references go to documents of {@link #BUCKET_COLLECTION}, each holding up to
+ * {@link #setBucketSize(int) bucket size} references of one entry. {@link #OVERFLOW_COUNT} of the entry is the number
+ * of its bucketed references, while {@link #LOCATION_COUNT} counts all of them. Loading an entry thus resolves at
+ * most summary size locations, {@link #getLocations(String, int, int)} and {@link #streamLocations(String)} page
+ * through all of them. Room left in the summary by a removed reference is only reused while the entry has no buckets.
+ * Entries stored before bucketing are split by {@link #migrate(String)}.
+ * </p>
+ * <p>
+ * A bucketed reference is written in two updates, one of the bucket and one of the counts of the entry, concurrent
+ * readers may see the counts one behind meanwhile. References of an entry are unique among its buckets through the
+ * unique index on {@link #BUCKET_ENTRY} and {@link #LOCATIONS} (see {@link MorphologicalAnalysisIndexManager}), but a
+ * reference added to the buckets while another edit frees room in the summary may end up in both.
+ * </p>
+ * <p>
+ * Updates do not go through
+ * {@link com.alphasystem.morphologicalanalysis.morphology.listener.MorphologicalEntryEventListener},
+ * {@link MorphologicalEntryCache} and location counts of {@link CorpusStatisticsService} are kept in sync explicitly.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class MorphologicalEntryLocations {
+
+    public static final String LOCATIONS = "locations";
+    public static final String LOCATION_COUNT = "locationCount";
+    public static final String OVERFLOW_COUNT = "overflowCount";
+    public static final String BUCKET_COLLECTION = "morphologicalEntryLocationBucket";
+    public static final String BUCKET_ENTRY = "entry";
+    public static final String LOCK_COLLECTION = "morphologicalEntryLocationLock";
+    public static final int DEFAULT_SUMMARY_SIZE = 100;
+    public static final int DEFAULT_BUCKET_SIZE = 1000;
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalEntryLocations.class);
+    private static final String ID = "_id";
+    private static final String COUNT = "count";
+    private static final String SUMMARY_SIZE = "summarySize";
+    private static final String OWNER = "owner";
+    private static final String EXPIRES = "expires";
+    private static final long LOCK_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private MorphologicalEntryCache morphologicalEntryCache;
+    @Autowired private CorpusStatisticsService corpusStatisticsService;
+    @Autowired private BatchedDocumentReader batchedDocumentReader;
+    private volatile int summarySize = DEFAULT_SUMMARY_SIZE;
+    private volatile int bucketSize = DEFAULT_BUCKET_SIZE;
+
+    public int getSummarySize() {
+        return summarySize;
+    }
+
+    public void setSummarySize(int summarySize) {
+        if (summarySize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid summary size {%s}", summarySize));
+        }
+        this.summarySize = summarySize;
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    public void setBucketSize(int bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid bucket size {%s}", bucketSize));
+        }
+        this.bucketSize = bucketSize;
+    }
+
+    /**
+     * @param locationId id of a location
+     * @return reference to the given location, as stored in <code>MorphologicalEntry.locations</code>
+     */
+    public DBRef toReference(Object locationId) {
+        return new DBRef(mongoTemplate.getCollectionName(Location.class), toObjectId(locationId));
+    }
+
+    private static Object toObjectId(Object id) {
+        return (id instanceof String && ObjectId.isValid((String) id)) ? new ObjectId((String) id) : id;
+    }
+
+    /**
+     * @param entryId    id of the entry
+     * @param locationId id of the location
+     * @return <code>true</code> if the location has been added, <code>false</code> if it was already referenced or
+     * the entry does not exist
+     */
+    public boolean addLocation(String entryId, String locationId) {
+        final DBRef reference = toReference(locationId);
+        final Object id = toObjectId(entryId);
+        // room in the summary and no buckets, raw paths since "locations.n" can not be mapped through the reference
+        final Query summaryQuery = new Query(Criteria.where(ID).is(id).and(LOCATIONS).ne(reference)
+                .and(LOCATIONS + "." + (summarySize - 1)).exists(false).and(OVERFLOW_COUNT).in(0, null));
+        if (mongoTemplate.updateFirst(summaryQuery, new Update().push(LOCATIONS, reference).inc(LOCATION_COUNT, 1),
+                getEntryCollectionName()).getN() > 0) {
+            entryModified(entryId);
+            return true;
+        }
+
+        if (mongoTemplate.exists(new Query(Criteria.where(ID).is(id).and(LOCATIONS).is(reference)),
+                getEntryCollectionName()) || mongoTemplate.exists(new Query(Criteria.where(BUCKET_ENTRY).is(id)
+                .and(LOCATIONS).is(reference)), BUCKET_COLLECTION)) {
+            return false;
+        }
+        final DBObject summary = getSummary(id, 0, 1);
+        if (summary == null) {
+            LOGGER.warn("Unable to add location \"{}\", morphological entry \"{}\" does not exist", locationId,
+                    entryId);
+            return false;
+        }
+        final Query bucketQuery = new Query(Criteria.where(BUCKET_ENTRY).is(id).and(COUNT).lt(bucketSize)
+                .and(LOCATIONS).ne(reference));
+        try {
+            if (mongoTemplate.updateFirst(bucketQuery, new Update().push(LOCATIONS, reference).inc(COUNT, 1),
+                    BUCKET_COLLECTION).getN() == 0) {
+                getBuckets().insert(newBucket(id, Collections.singletonList(reference)));
+            }
+        } catch (DuplicateKeyException | com.mongodb.DuplicateKeyException e) {
+            // added to another bucket meanwhile
+            return false;
+        }
+        final Update update = new Update().inc(OVERFLOW_COUNT, 1);
+        if (summary.get(LOCATION_COUNT) instanceof Number) {
+            update.inc(LOCATION_COUNT, 1);
+        } else {
+            // stored before counts were maintained
+            update.set(LOCATION_COUNT, getInt(summary, SUMMARY_SIZE) + getInt(summary, OVERFLOW_COUNT) + 1);
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where(ID).is(id)), update, getEntryCollectionName());
+        entryModified(entryId);
+        return true;
+    }
+
+    /**
+     * @param entryId    id of the entry
+     * @param locationId id of the location
+     * @return <code>true</code> if the location has been removed, <code>false</code> if it was not referenced
+     */
+    public boolean removeLocation(String entryId, String locationId) {
+        final DBRef reference = toReference(locationId);
+        final Object id = toObjectId(entryId);
+        boolean removed = mongoTemplate.updateFirst(new Query(Criteria.where(ID).is(id).and(LOCATIONS).is(reference)),
+                new Update().pull(LOCATIONS, reference).inc(LOCATION_COUNT, -1), getEntryCollectionName()).getN() > 0;
+        if (!removed) {
+            removed = !pullFromBuckets(new BasicDBObject(BUCKET_ENTRY, id).append(LOCATIONS, reference),
+                    (bucketEntry, bucketReference) -> reference.equals(bucketReference)).isEmpty();
+        }
+        if (removed) {
+            entryModified(entryId);
+        }
+        return removed;
+    }
+
+    /**
+     * Adds given location to its entry and removes it from any other entry, i.e., when morphological entry of the
+     * location has been changed. Nothing is done for a location without entry, so that inserting new locations costs
+     * no round trip; reference of a location whose entry has been unset is removed when the location is deleted (or by
+     * {@link com.alphasystem.morphologicalanalysis.util.integrity.IntegrityChecker}).
+     *
+     * @param location saved location
+     */
+    public void locationSaved(Location location) {
+        if (location == null || location.getId() == null) {
+            return;
+        }
+        final MorphologicalEntry morphologicalEntry = location.getMorphologicalEntry();
+        if (morphologicalEntry == null || morphologicalEntry.getId() == null) {
+            return;
+        }
+        final String entryId = morphologicalEntry.getId();
+        if (!addLocation(entryId, location.getId())) {
+            // already referenced by its entry, hence not moved
+            return;
+        }
+        final DBRef reference = toReference(location.getId());
+        final Object id = toObjectId(entryId);
+        final Set<Object> previousEntries = new HashSet<>();
+        getEntries().find(new BasicDBObject(LOCATIONS, reference).append(ID, new BasicDBObject("$ne", id)),
+                new BasicDBObject(ID, 1)).forEach(dbObject -> previousEntries.add(dbObject.get(ID)));
+        getBuckets().find(new BasicDBObject(LOCATIONS, reference).append(BUCKET_ENTRY, new BasicDBObject("$ne", id)),
+                new BasicDBObject(BUCKET_ENTRY, 1))
+                .forEach(dbObject -> previousEntries.add(dbObject.get(BUCKET_ENTRY)));
+        previousEntries.forEach(previousEntry -> removeLocation(previousEntry.toString(), location.getId()));
+    }
+
+    /**
+     * Removes deleted locations from the entries referring them.
+     *
+     * @param query query of the delete event
+     */
+    public void locationsDeleted(DBObject query) {
+        final List<Object> locationIds = getIds(query);
+        if (locationIds == null || locationIds.isEmpty()) {
+            LOGGER.debug("Unable to determine ids of deleted locations from {}", query);
+            return;
+        }
+        final List<DBRef> references = new ArrayList<>(locationIds.size());
+        locationIds.forEach(locationId -> references.add(toReference(locationId)));
+        // only the ids of the affected entries, never their locations
+        final DBObject entryQuery = new BasicDBObject(LOCATIONS, new BasicDBObject("$in", references));
+        final Set<Object> entryIds = new HashSet<>();
+        getEntries().find(entryQuery, new BasicDBObject(ID, 1)).forEach(dbObject -> entryIds.add(dbObject.get(ID)));
+        if (!entryIds.isEmpty()) {
+            final BulkOperations bulkOperations = mongoTemplate.bulkOps(UNORDERED, getEntryCollectionName());
+            references.forEach(reference -> bulkOperations.updateMulti(
+                    new Query(Criteria.where(ID).in(entryIds).and(LOCATIONS).is(reference)),
+                    new Update().pull(LOCATIONS, reference).inc(LOCATION_COUNT, -1)));
+            bulkOperations.execute();
+        }
+        final Set<DBRef> deleted = new HashSet<>(references);
+        entryIds.addAll(pullFromBuckets(entryQuery, (entryId, reference) -> deleted.contains(reference)).keySet());
+        entryIds.forEach(entryId -> entryModified(entryId.toString()));
+    }
+
+    /**
+     * Removes buckets of the deleted entries.
+     *
+     * @param query query of the delete event
+     */
+    public void entriesDeleted(DBObject query) {
+        if (query == null || query.keySet().isEmpty()) {
+            getBuckets().remove(new BasicDBObject());
+            return;
+        }
+        final List<Object> entryIds = getIds(query);
+        if (entryIds == null) {
+            LOGGER.debug("Unable to determine ids of deleted entries from {}", query);
+            return;
+        }
+        if (!entryIds.isEmpty()) {
+            getBuckets().remove(new BasicDBObject(BUCKET_ENTRY, new BasicDBObject("$in", entryIds)));
+        }
+    }
+
+    /**
+     * Removes the references of all entries along with all buckets, used when all locations are removed.
+     */
+    public void removeAllReferences() {
+        getEntries().updateMulti(new BasicDBObject(), new BasicDBObject("$set", new BasicDBObject(LOCATIONS,
+                new BasicDBList()).append(LOCATION_COUNT, 0).append(OVERFLOW_COUNT, 0)));
+        getBuckets().remove(new BasicDBObject());
+        morphologicalEntryCache.invalidateAll();
+        corpusStatisticsService.markAllDirty();
+    }
+
+    /**
+     * Removes given references with one bulk write, one guarded update per reference, and one more bulk write for
+     * references found in buckets.
+     *
+     * @param references references to remove keyed by entry id
+     * @return number of references removed
+     */
+    public int removeReferences(Map<?, ? extends Collection<DBRef>> references) {
+        if (references.isEmpty()) {
+            return 0;
+        }
+        final BulkOperations bulkOperations = mongoTemplate.bulkOps(UNORDERED, getEntryCollectionName());
+        final Map<Object, Set<DBRef>> entryReferences = new HashMap<>();
+        final Set<DBRef> allReferences = new HashSet<>();
+        references.forEach((entryId, refs) -> {
+            final Object id = toObjectId(entryId);
+            entryReferences.computeIfAbsent(id, key -> new HashSet<>()).addAll(refs);
+            allReferences.addAll(refs);
+            refs.forEach(reference -> bulkOperations.updateOne(
+                    new Query(Criteria.where(ID).is(id).and(LOCATIONS).is(reference)),
+                    new Update().pull(LOCATIONS, reference).inc(LOCATION_COUNT, -1)));
+        });
+        int removed = bulkOperations.execute().getModifiedCount();
+        final DBObject bucketQuery = new BasicDBObject(BUCKET_ENTRY, new BasicDBObject("$in",
+                new ArrayList<>(entryReferences.keySet()))).append(LOCATIONS, new BasicDBObject("$in",
+                new ArrayList<>(allReferences)));
+        for (Integer count : pullFromBuckets(bucketQuery, (entryId, reference) ->
+                entryReferences.getOrDefault(entryId, Collections.emptySet()).contains(reference)).values()) {
+            removed += count;
+        }
+        references.keySet().forEach(entryId -> entryModified(entryId.toString()));
+        return removed;
+    }
+
+    /**
+     * Pulls matching references from the buckets found by given query, adjusts the counts of the affected entries and
+     * removes emptied buckets.
+     *
+     * @return number of references removed keyed by entry id
+     */
+    private Map<Object, Integer> pullFromBuckets(DBObject bucketQuery, BiPredicate<Object, DBRef> matcher) {
+        final Map<Object, Integer> removed = new HashMap<>();
+        final BulkOperations bucketOperations = mongoTemplate.bulkOps(UNORDERED, BUCKET_COLLECTION);
+        try (DBCursor cursor = getBuckets().find(bucketQuery)) {
+            cursor.forEach(bucket -> {
+                final Object entryId = bucket.get(BUCKET_ENTRY);
+                final List<DBRef> matched = new ArrayList<>();
+                forEachReference(bucket.get(LOCATIONS), reference -> {
+                    if (matcher.test(entryId, reference)) {
+                        matched.add(reference);
+                    }
+                });
+                if (!matched.isEmpty()) {
+                    bucketOperations.updateOne(new Query(Criteria.where(ID).is(bucket.get(ID))),
+                            new Update().pullAll(LOCATIONS, matched.toArray()).inc(COUNT, -matched.size()));
+                    removed.merge(entryId, matched.size(), Integer::sum);
+                }
+            });
+        }
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        bucketOperations.execute();
+        getBuckets().remove(new BasicDBObject(BUCKET_ENTRY, new BasicDBObject("$in", new ArrayList<>(removed.keySet())))
+                .append(COUNT, new BasicDBObject("$lte", 0)));
+        final BulkOperations entryOperations = mongoTemplate.bulkOps(UNORDERED, getEntryCollectionName());
+        removed.forEach((entryId, count) -> entryOperations.updateOne(new Query(Criteria.where(ID).is(entryId)),
+                new Update().inc(LOCATION_COUNT, -count).inc(OVERFLOW_COUNT, -count)));
+        entryOperations.execute();
+        return removed;
+    }
+
+    /**
+     * @param entryId id of the entry
+     * @return number of locations of the given entry, without fetching its locations
+     */
+    public long getLocationCount(String entryId) {
+        final DBObject dbObject = getEntries().findOne(new BasicDBObject(ID, toObjectId(entryId)),
+                new BasicDBObject(LOCATION_COUNT, 1));
+        final Object count = (dbObject == null) ? null : dbObject.get(LOCATION_COUNT);
+        return (count instanceof Number) ? ((Number) count).longValue() : 0L;
+    }
+
+    /**
+     * @param entryId id of the entry
+     * @return number of bucketed locations of the given entry, counted from its buckets
+     */
+    public long getOverflowCount(String entryId) {
+        long count = 0;
+        try (DBCursor cursor = getBuckets().find(new BasicDBObject(BUCKET_ENTRY, toObjectId(entryId)),
+                new BasicDBObject(COUNT, 1))) {
+            while (cursor.hasNext()) {
+                count += getInt(cursor.next(), COUNT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns one page of the references of given entry, summary first and then buckets in order of creation.
+     *
+     * @param entryId id of the entry
+     * @param offset  number of references to skip
+     * @param limit   maximum number of references to return
+     * @return references of the given page
+     */
+    public List<DBRef> getReferences(String entryId, int offset, int limit) {
+        if (offset < 0 || limit <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid page {%s, %s}", offset, limit));
+        }
+        final Object id = toObjectId(entryId);
+        final DBObject summary = getSummary(id, offset, limit);
+        if (summary == null) {
+            return Collections.emptyList();
+        }
+        final List<DBRef> references = new ArrayList<>();
+        forEachReference(summary.get(LOCATIONS), references::add);
+        if (references.size() >= limit || getInt(summary, OVERFLOW_COUNT) <= 0) {
+            return references;
+        }
+
+        // skip whole buckets by their counts, then slice the ones overlapping the page
+        final List<Object> bucketIds = new ArrayList<>();
+        final List<Integer> counts = new ArrayList<>();
+        try (DBCursor cursor = getBuckets().find(new BasicDBObject(BUCKET_ENTRY, id), new BasicDBObject(COUNT, 1))
+                .sort(new BasicDBObject(ID, 1))) {
+            cursor.forEach(bucket -> {
+                bucketIds.add(bucket.get(ID));
+                counts.add(getInt(bucket, COUNT));
+            });
+        }
+        final int skip = Math.max(0, offset - getInt(summary, SUMMARY_SIZE));
+        for (int[] slice : getSlices(counts, skip, limit - references.size())) {
+            final DBObject bucket = getBuckets().findOne(new BasicDBObject(ID, bucketIds.get(slice[0])),
+                    new BasicDBObject(LOCATIONS, new BasicDBObject("$slice", Arrays.asList(slice[1], slice[2]))));
+            if (bucket != null) {
+                forEachReference(bucket.get(LOCATIONS), references::add);
+            }
+        }
+        return references;
+    }
+
+    /**
+     * @param entryId id of the entry
+     * @param offset  number of locations to skip
+     * @param limit   maximum number of locations to return
+     * @return locations of the given page, in the order of {@link #getReferences(String, int, int)}
+     */
+    public List<Location> getLocations(String entryId, int offset, int limit) {
+        return resolve(getReferences(entryId, offset, limit));
+    }
+
+    /**
+     * Streams all locations of given entry, {@link #DEFAULT_PAGE_SIZE} locations are loaded at a time. Pages are
+     * read by offset, locations added or removed while streaming may therefore be missed or repeated.
+     *
+     * @param entryId id of the entry
+     * @return stream of locations
+     */
+    public Stream<Location> streamLocations(String entryId) {
+        final Iterator<Location> iterator = new Iterator<Location>() {
+            private Iterator<Location> page = Collections.emptyIterator();
+            private int offset;
+            private boolean last;
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !last) {
+                    final List<DBRef> references = getReferences(entryId, offset, DEFAULT_PAGE_SIZE);
+                    offset += references.size();
+                    last = references.size() < DEFAULT_PAGE_SIZE;
+                    page = resolve(references).iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Location next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED |
+                Spliterator.NONNULL), false);
+    }
+
+    private List<Location> resolve(List<DBRef> references) {
+        if (references.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<String> ids = new ArrayList<>(references.size());
+        references.forEach(reference -> ids.add(reference.getId().toString()));
+        final Map<String, Location> locations = new HashMap<>();
+        batchedDocumentReader.find(new Query(Criteria.where("id").in(ids)), Location.class)
+                .forEach(location -> locations.put(location.getId(), location));
+        final List<Location> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> {
+            final Location location = locations.get(id);
+            if (location != null) {
+                result.add(location);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Splits <code>locations</code> of given entry into summary and buckets, if it holds more references than the
+     * summary size. References already present in a bucket are not bucketed again, so that an interrupted migration
+     * can simply be repeated. Migration of an entry holds a lock in {@link #LOCK_COLLECTION}, an entry locked by
+     * another migration is skipped. Summary is replaced only if it has not been edited since it was read, otherwise
+     * the new buckets are rolled back and the migration is retried.
+     *
+     * @param entryId id of the entry
+     * @return number of references moved into buckets
+     */
+    public int migrate(String entryId) {
+        final Object id = toObjectId(entryId);
+        final ObjectId owner = lock(id);
+        if (owner == null) {
+            LOGGER.debug("Morphological entry \"{}\" is being migrated by another process", entryId);
+            return 0;
+        }
+        try {
+            Integer moved;
+            while ((moved = tryMigrate(id)) == null) {
+                LOGGER.debug("Morphological entry \"{}\" has been edited while migrating, retrying", entryId);
+            }
+            return moved;
+        } finally {
+            unlock(id, owner);
+        }
+    }
+
+    /**
+     * @return number of references moved into buckets, <code>null</code> if the entry has been edited meanwhile
+     */
+    private Integer tryMigrate(Object id) {
+        final int size = summarySize;
+        final DBObject entry = getEntries().findOne(new BasicDBObject(ID, id).append(LOCATIONS + "." + size,
+                new BasicDBObject("$exists", true)), new BasicDBObject(LOCATIONS, 1).append(LOCATION_COUNT, 1)
+                .append(OVERFLOW_COUNT, 1));
+        if (entry == null) {
+            return 0;
+        }
+        final List<DBRef> references = new ArrayList<>();
+        forEachReference(entry.get(LOCATIONS), references::add);
+        final Set<DBRef> bucketed = new HashSet<>();
+        try (DBCursor cursor = getBuckets().find(new BasicDBObject(BUCKET_ENTRY, id),
+                new BasicDBObject(LOCATIONS, 1))) {
+            cursor.forEach(bucket -> forEachReference(bucket.get(LOCATIONS), bucketed::add));
+        }
+        // references of the tail already bucketed by an interrupted migration are not counted yet
+        final Set<DBRef> tail = new LinkedHashSet<>(references.subList(size, references.size()));
+        final List<DBObject> buckets = new ArrayList<>();
+        int moved = 0;
+        for (List<DBRef> bucketReferences : partition(tail, bucketed, bucketSize)) {
+            buckets.add(newBucket(id, bucketReferences));
+            moved += bucketReferences.size();
+        }
+        if (!buckets.isEmpty()) {
+            try {
+                getBuckets().insert(buckets);
+            } catch (com.mongodb.DuplicateKeyException e) {
+                rollback(buckets);
+                return null;
+            }
+        }
+
+        // counts are adjusted relative to the stored ones, so that concurrent increments are kept
+        final BasicDBList summary = new BasicDBList();
+        summary.addAll(references.subList(0, size));
+        final BasicDBObject query = new BasicDBObject(ID, id).append(LOCATIONS, entry.get(LOCATIONS));
+        final BasicDBObject update = new BasicDBObject("$set", new BasicDBObject(LOCATIONS, summary));
+        if (entry.get(LOCATION_COUNT) instanceof Number) {
+            query.append(LOCATION_COUNT, new BasicDBObject("$exists", true));
+            update.append("$inc", new BasicDBObject(LOCATION_COUNT, tail.size() + size - references.size())
+                    .append(OVERFLOW_COUNT, tail.size()));
+        } else {
+            // stored before counts were maintained
+            query.append(LOCATION_COUNT, new BasicDBObject("$exists", false));
+            ((DBObject) update.get("$set")).put(LOCATION_COUNT, size + getInt(entry, OVERFLOW_COUNT)
+                    + tail.size());
+            update.append("$inc", new BasicDBObject(OVERFLOW_COUNT, tail.size()));
+        }
+        if (getEntries().update(query, update).getN() == 0) {
+            rollback(buckets);
+            return null;
+        }
+        entryModified(id.toString());
+        LOGGER.debug("Moved {} locations of morphological entry \"{}\" into {} buckets", moved, id, buckets.size());
+        return moved;
+    }
+
+    /**
+     * Pulls the references of given new buckets, references added to them meanwhile are kept.
+     */
+    private void rollback(List<DBObject> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        final BulkOperations bulkOperations = mongoTemplate.bulkOps(UNORDERED, BUCKET_COLLECTION);
+        final List<Object> ids = new ArrayList<>();
+        buckets.forEach(bucket -> {
+            final List<?> references = (List<?>) bucket.get(LOCATIONS);
+            ids.add(bucket.get(ID));
+            bulkOperations.updateOne(new Query(Criteria.where(ID).is(bucket.get(ID))),
+                    new Update().pullAll(LOCATIONS, references.toArray()).inc(COUNT, -references.size()));
+        });
+        bulkOperations.execute();
+        getBuckets().remove(new BasicDBObject(ID, new BasicDBObject("$in", ids))
+                .append(COUNT, new BasicDBObject("$lte", 0)));
+    }
+
+    /**
+     * @return owner of the acquired lock of given entry, <code>null</code> if it is locked by another owner
+     */
+    private ObjectId lock(Object entryId) {
+        final DBCollection locks = mongoTemplate.getCollection(LOCK_COLLECTION);
+        final long now = System.currentTimeMillis();
+        // lock of a crashed process
+        locks.remove(new BasicDBObject(ID, entryId).append(EXPIRES, new BasicDBObject("$lt", new Date(now))));
+        final ObjectId owner = new ObjectId();
+        try {
+            locks.insert(new BasicDBObject(ID, entryId).append(OWNER, owner)
+                    .append(EXPIRES, new Date(now + LOCK_TIMEOUT)));
+            return owner;
+        } catch (com.mongodb.DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    private void unlock(Object entryId, ObjectId owner) {
+        mongoTemplate.getCollection(LOCK_COLLECTION).remove(new BasicDBObject(ID, entryId).append(OWNER, owner));
+    }
+
+    /**
+     * Replaces all references of given entry, e.g., when rebuilding them: the first summary size references become
+     * the summary and the rest goes into new buckets. Summary is updated first, then the previous buckets are removed
+     * and the new ones inserted, as a reference may not be in two buckets of the entry; readers may thus briefly miss
+     * bucketed references, never the summary. Entry should not be edited meanwhile.
+     *
+     * @param entryId    id of the entry
+     * @param references all references of the entry, without duplicates
+     */
+    public void replaceLocations(String entryId, List<DBRef> references) {
+        final Object id = toObjectId(entryId);
+        final List<Object> previousBuckets = new ArrayList<>();
+        try (DBCursor cursor = getBuckets().find(new BasicDBObject(BUCKET_ENTRY, id), new BasicDBObject(ID, 1))) {
+            cursor.forEach(bucket -> previousBuckets.add(bucket.get(ID)));
+        }
+        final int size = Math.min(summarySize, references.size());
+        final List<DBRef> overflow = references.subList(size, references.size());
+        final BasicDBList summary = new BasicDBList();
+        summary.addAll(references.subList(0, size));
+        getEntries().update(new BasicDBObject(ID, id), new BasicDBObject("$set", new BasicDBObject(LOCATIONS, summary)
+                .append(LOCATION_COUNT, references.size()).append(OVERFLOW_COUNT, overflow.size())));
+        if (!previousBuckets.isEmpty()) {
+            getBuckets().remove(new BasicDBObject(ID, new BasicDBObject("$in", previousBuckets)));
+        }
+        final List<DBObject> buckets = new ArrayList<>();
+        partition(overflow, Collections.emptySet(), bucketSize)
+                .forEach(bucketReferences -> buckets.add(newBucket(id, bucketReferences)));
+        if (!buckets.isEmpty()) {
+            getBuckets().insert(buckets);
+        }
+        entryModified(entryId);
+    }
+
+    /**
+     * @param references given references
+     * @param excluded   references which are already bucketed
+     * @param bucketSize maximum number of references of a bucket
+     * @return given references, except excluded ones, split into buckets in their order
+     */
+    static List<List<DBRef>> partition(Collection<DBRef> references, Set<DBRef> excluded, int bucketSize) {
+        final List<List<DBRef>> buckets = new ArrayList<>();
+        List<DBRef> bucket = null;
+        for (DBRef reference : references) {
+            if (excluded.contains(reference)) {
+                continue;
+            }
+            if (bucket == null || bucket.size() >= bucketSize) {
+                bucket = new ArrayList<>(bucketSize);
+                buckets.add(bucket);
+            }
+            bucket.add(reference);
+        }
+        return buckets;
+    }
+
+    /**
+     * Finds the buckets overlapping a page of bucketed references.
+     *
+     * @param counts number of references of each bucket, in order of the buckets
+     * @param skip   number of bucketed references to skip
+     * @param limit  maximum number of references of the page
+     * @return index of the bucket, number of its references to skip and to return, for each overlapping bucket
+     */
+    static List<int[]> getSlices(List<Integer> counts, int skip, int limit) {
+        final List<int[]> slices = new ArrayList<>();
+        int remainingSkip = skip;
+        int remaining = limit;
+        for (int index = 0; index < counts.size() && remaining > 0; index++) {
+            final int count = counts.get(index);
+            if (remainingSkip >= count) {
+                remainingSkip -= count;
+                continue;
+            }
+            final int size = Math.min(count - remainingSkip, remaining);
+            slices.add(new int[]{index, remainingSkip, size});
+            remaining -= size;
+            remainingSkip = 0;
+        }
+        return slices;
+    }
+
+    private DBObject newBucket(Object entryId, List<DBRef> references) {
+        final BasicDBList locations = new BasicDBList();
+        locations.addAll(references);
+        return new BasicDBObject(ID, new ObjectId()).append(BUCKET_ENTRY, entryId).append(COUNT, references.size())
+                .append(LOCATIONS, locations);
+    }
+
+    /**
+     * @return given slice of the summary along with its size and counts of the entry, <code>null</code> if the entry
+     * does not exist
+     */
+    private DBObject getSummary(Object entryId, int offset, int limit) {
+        final BasicDBList locations = new BasicDBList();
+        locations.add("$" + LOCATIONS);
+        locations.add(new BasicDBList());
+        final DBObject ifNull = new BasicDBObject("$ifNull", locations);
+        final DBObject project = new BasicDBObject(SUMMARY_SIZE, new BasicDBObject("$size", ifNull))
+                .append(LOCATIONS, new BasicDBObject("$slice", Arrays.asList(ifNull, offset, limit)))
+                .append(LOCATION_COUNT, 1).append(OVERFLOW_COUNT, 1);
+        final AggregationOptions options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR).build();
+        try (Cursor cursor = getEntries().aggregate(Arrays.asList(new BasicDBObject("$match",
+                new BasicDBObject(ID, entryId)), new BasicDBObject("$project", project)), options)) {
+            return cursor.hasNext() ? cursor.next() : null;
+        }
+    }
+
+    /**
+     * @return ids of the documents deleted by given query, <code>null</code> if they can not be determined
+     */
+    private static List<Object> getIds(DBObject query) {
+        final Object id = (query == null) ? null : query.get(ID);
+        final List<Object> ids = new ArrayList<>();
+        if (id instanceof DBObject) {
+            final Object in = ((DBObject) id).get("$in");
+            if (((DBObject) id).keySet().size() != 1 || !(in instanceof Collection)) {
+                return null;
+            }
+            ((Collection<?>) in).forEach(value -> ids.add(toObjectId(value)));
+        } else if (id != null) {
+            ids.add(toObjectId(id));
+        } else {
+            return null;
+        }
+        return ids;
+    }
+
+    private static void forEachReference(Object value, Consumer<DBRef> consumer) {
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (element instanceof DBRef) {
+                    consumer.accept((DBRef) element);
+                }
+            }
+        }
+    }
+
+    private static int getInt(DBObject dbObject, String key) {
+        final Object value = dbObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : 0;
+    }
+
+    private String getEntryCollectionName() {
+        return mongoTemplate.getCollectionName(MorphologicalEntry.class);
+    }
+
+    private DBCollection getEntries() {
+        return mongoTemplate.getCollection(getEntryCollectionName());
+    }
+
+    private DBCollection getBuckets() {
+        return mongoTemplate.getCollection(BUCKET_COLLECTION);
+    }
+
+    private void entryModified(String entryId) {
+        morphologicalEntryCache.invalidate(entryId, null);
+        corpusStatisticsService.markDirty(LOCATION_COUNTS, entryId);
+    }
+}
@@ -0,0 +1,191 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded read-through cache with least recently used and time to live eviction.
+ * <p>
+ * On a miss value is loaded using the given loader, <code>null</code> values are cached as well, so that repeated
+ * lookups of non-existing values do not hit the database. Values must be invalidated explicitly when underlying
+ * data changes.
+ * </p>
+ *
+ * @param <K> type of the key
+ * @param <V> type of the value
+ * @author sali
+ */
+public class ReadThroughCache<K, V> {
+
+    private final Function<K, V> loader;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    /**
+     * Incremented on every invalidation, a value loaded concurrently with an invalidation is not cached.
+     */
+    private long generation;
+    private volatile int maximumSize;
+    private volatile long timeToLiveNanos;
+
+    /**
+     * @param loader      function to load the value on a miss
+     * @param maximumSize maximum number of entries
+     * @param timeToLive  time to live of an entry
+     * @param unit        time unit of <code>timeToLive</code>
+     */
+    public ReadThroughCache(Function<K, V> loader, int maximumSize, long timeToLive, TimeUnit unit) {
+        this.loader = loader;
+        setMaximumSize(maximumSize);
+        setTimeToLive(timeToLive, unit);
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                final boolean remove = size() > ReadThroughCache.this.maximumSize;
+                if (remove) {
+                    evictionCount.incrementAndGet();
+                }
+                return remove;
+            }
+        };
+    }
+
+    /**
+     * @param key given key
+     * @return cached value for the given key, loading it if not cached or expired
+     */
+    public V get(K key) {
+        final long now = System.nanoTime();
+        final long loadGeneration;
+        synchronized (entries) {
+            loadGeneration = generation;
+            final Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadTime < timeToLiveNanos) {
+                    hitCount.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictionCount.incrementAndGet();
+            }
+        }
+        missCount.incrementAndGet();
+        final V value = loader.apply(key);
+        synchronized (entries) {
+            if (loadGeneration == generation) {
+                entries.put(key, new Entry<>(value, now));
+            }
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Invalidates all entries whose value matches given predicate, <code>null</code> values are never passed to the
+     * predicate.
+     *
+     * @param predicate given predicate
+     */
+    public void invalidateIf(Predicate<V> predicate) {
+        synchronized (entries) {
+            generation++;
+            final Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                final V value = iterator.next().value;
+                if (value != null && predicate.test(value)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid maximum size {%s}", maximumSize));
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    public long getTimeToLive(TimeUnit unit) {
+        return unit.convert(timeToLiveNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void setTimeToLive(long timeToLive, TimeUnit unit) {
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid time to live {%s}", timeToLive));
+        }
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return ratio of hits to total number of requests, <code>1.0</code> if there were no requests
+     */
+    public double getHitRate() {
+        final long hits = hitCount.get();
+        final long total = hits + missCount.get();
+        return (total == 0) ? 1.0 : (double) hits / total;
+    }
+
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReadThroughCache{size=%s, hitCount=%s, missCount=%s, evictionCount=%s}", size(),
+                getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadTime;
+
+        private Entry(V value, long loadTime) {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.util.index.LocationInvertedIndex;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.support.WordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Imports a Tanzil text file (see {@link Script}) into <code>chapter</code>, <code>verse</code>, <code>token</code>
+ * and <code>location</code> collections.
+ * <p>
+ * File is parsed with StAX on the calling thread, one chapter at a time. Parsed chapters are handed over to
+ * {@link #setWriterThreads(int) writer threads} through a bounded queue, so that parsing never gets more than
+ * {@link #setQueueCapacity(int) queue capacity} chapters ahead of writing. Each writer inserts locations, tokens,
+ * verses and finally the chapter with batched <code>insertMany</code>. Every token gets one location spanning the
+ * whole token, text of the locations is populated at import time.
+ * </p>
+ * <p>
+ * If a writer fails, parsing stops, the remaining writers stop after their current chapter and the import fails with
+ * the chapters which were not written.
+ * </p>
+ * <p>
+ * Existing data can only be cleared as long as there are no dependency graphs, since their nodes refer the tokens and
+ * locations being removed. Morphological entries are kept, their references to the removed locations are dropped.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class TanzilImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TanzilImporter.class);
+    private static final ChapterData END_OF_INPUT = new ChapterData(null);
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private CorpusNavigationIndex navigationIndex;
+    @Autowired private LocationTextHydrator locationTextHydrator;
+    @Autowired private LocationInvertedIndex locationInvertedIndex;
+    @Autowired private CorpusStatisticsService corpusStatisticsService;
+    @Autowired private MorphologicalEntryLocations morphologicalEntryLocations;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int writerThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Imports given script from the classpath.
+     *
+     * @param script        script to import
+     * @param clearExisting if <code>true</code> existing chapters, verses, tokens and locations are removed first
+     * @return statistics of the import
+     * @throws IllegalStateException if <code>clearExisting</code> is <code>true</code> and dependency graphs exist
+     */
+    public ImportStatistics importScript(Script script, boolean clearExisting) {
+        final InputStream inputStream = getClass().getClassLoader().getResourceAsStream(script.getPath());
+        if (inputStream == null) {
+            throw new RuntimeException(String.format("Unable to find script file \"%s\" in classpath", script.getPath()));
+        }
+        try (InputStream in = inputStream) {
+            return importScript(in, clearExisting);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Imports Tanzil XML from given stream, stream is not closed.
+     *
+     * @param inputStream   stream of the XML
+     * @param clearExisting if <code>true</code> existing chapters, verses, tokens and locations are removed first
+     * @return statistics of the import
+     * @throws IllegalStateException if <code>clearExisting</code> is <code>true</code> and dependency graphs exist
+     */
+    public ImportStatistics importScript(InputStream inputStream, boolean clearExisting) {
+        if (clearExisting) {
+            clear();
+        }
+        final ImportStatistics statistics = new ImportStatistics();
+        final ImportState state = new ImportState(queueCapacity);
+        final ExecutorService executorService = Executors.newFixedThreadPool(writerThreads);
+        final List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < writerThreads; i++) {
+            writers.add(executorService.submit(() -> write(state, statistics)));
+        }
+        try {
+            parse(inputStream, state);
+            for (int i = 0; i < writerThreads; i++) {
+                if (!offer(state, END_OF_INPUT)) {
+                    break;
+                }
+            }
+            for (Future<?> writer : writers) {
+                try {
+                    writer.get();
+                } catch (ExecutionException e) {
+                    // reported below, remaining writers stop once they see the failure
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import interrupted", e);
+        } finally {
+            executorService.shutdownNow();
+            // inserts do not go through the navigation index, rebuild on next use
+            navigationIndex.invalidate();
+            locationTextHydrator.tokensModified();
+            locationInvertedIndex.invalidate();
+            corpusStatisticsService.markAllDirty();
+        }
+        final Throwable failure = state.failure.get();
+        if (failure != null) {
+            throw new RuntimeException(state.getFailureMessage(), failure);
+        }
+        statistics.finish();
+        LOGGER.info("Import finished: {}", statistics);
+        return statistics;
+    }
+
+    private void clear() {
+        if (mongoTemplate.exists(new Query(), DependencyGraph.class)) {
+            throw new IllegalStateException("Unable to clear existing data, dependency graphs refer existing tokens");
+        }
+        LOGGER.info("Removing existing chapters, verses, tokens and locations");
+        mongoTemplate.remove(new Query(), Chapter.class);
+        mongoTemplate.remove(new Query(), Verse.class);
+        mongoTemplate.remove(new Query(), Token.class);
+        mongoTemplate.remove(new Query(), Location.class);
+        // entries stay, but must not refer removed locations
+        morphologicalEntryLocations.removeAllReferences();
+    }
+
+    /**
+     * Parses chapters into the queue, stops as soon as a writer has failed.
+     */
+    private void parse(InputStream inputStream, ImportState state) throws XMLStreamException, InterruptedException {
+        final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream, "UTF-8");
+        try {
+            ChapterData chapterData = null;
+            int event = reader.getEventType();
+            while (event != END_DOCUMENT) {
+                if (event == START_ELEMENT) {
+                    final String name = reader.getLocalName();
+                    if ("sura".equals(name)) {
+                        if (chapterData != null && !offer(state, chapterData)) {
+                            return;
+                        }
+                        chapterData = new ChapterData(new Chapter(Integer.parseInt(reader.getAttributeValue(null,
+                                "index")), reader.getAttributeValue(null, "name")));
+                    } else if ("aya".equals(name) && chapterData != null) {
+                        chapterData.addVerse(Integer.parseInt(reader.getAttributeValue(null, "index")),
+                                reader.getAttributeValue(null, "text"));
+                    }
+                }
+                event = reader.next();
+            }
+            if (chapterData != null && !offer(state, chapterData)) {
+                return;
+            }
+            state.parsed = true;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Puts given chapter on the queue, waiting while the queue is full.
+     *
+     * @return <code>false</code> if any writer has failed, chapter is not queued
+     */
+    private boolean offer(ImportState state, ChapterData chapterData) throws InterruptedException {
+        if (chapterData != END_OF_INPUT) {
+            state.lastChapterNumber = chapterData.chapter.getChapterNumber();
+            state.pendingChapters.add(state.lastChapterNumber);
+        }
+        while (!state.queue.offer(chapterData, 100, TimeUnit.MILLISECONDS)) {
+            if (state.failure.get() != null) {
+                return false;
+            }
+        }
+        return state.failure.get() == null;
+    }
+
+    private Void write(ImportState state, ImportStatistics statistics) throws InterruptedException {
+        while (state.failure.get() == null) {
+            final ChapterData chapterData = state.queue.poll(100, TimeUnit.MILLISECONDS);
+            if (chapterData == null) {
+                continue;
+            }
+            if (chapterData == END_OF_INPUT) {
+                return null;
+            }
+            final Chapter chapter = chapterData.chapter;
+            try {
+                // locations first, tokens refer them and verses refer tokens
+                insert(chapterData.locations, Location.class);
+                insert(chapterData.tokens, Token.class);
+                insert(chapterData.verses, Verse.class);
+                chapter.setVerseCount(chapterData.verses.size());
+                mongoTemplate.insert(chapter);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to import chapter " + chapter.getChapterNumber(), e);
+                state.failure.compareAndSet(null, e);
+                throw e;
+            }
+            state.pendingChapters.remove(chapter.getChapterNumber());
+            statistics.chapterImported(chapterData);
+            LOGGER.info("Imported chapter {} ({} verses, {} tokens), {}", chapter.getChapterNumber(),
+                    chapterData.verses.size(), chapterData.tokens.size(), statistics);
+        }
+        return null;
+    }
+
+    private <T> void insert(List<T> documents, Class<T> type) {
+        for (int from = 0; from < documents.size(); from += batchSize) {
+            mongoTemplate.insert(documents.subList(from, Math.min(from + batchSize, documents.size())), type);
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid batch size {%s}", batchSize));
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid queue capacity {%s}", queueCapacity));
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        if (writerThreads <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid number of writer threads {%s}", writerThreads));
+        }
+        this.writerThreads = writerThreads;
+    }
+
+    /**
+     * State shared between the parser and the writers of one import.
+     */
+    private static final class ImportState {
+        private final BlockingQueue<ChapterData> queue;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        /**
+         * Chapters queued but not (completely) written yet.
+         */
+        private final Set<Integer> pendingChapters = new ConcurrentSkipListSet<>();
+        private volatile int lastChapterNumber;
+        private volatile boolean parsed;
+
+        private ImportState(int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private String getFailureMessage() {
+            final StringBuilder builder = new StringBuilder(String.format("Import failed, chapters %s were not written",
+                    pendingChapters));
+            if (!parsed) {
+                builder.append(String.format(" and chapters after chapter %s were not imported", lastChapterNumber));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Parsed chapter waiting to be written.
+     */
+    private static final class ChapterData {
+        private final Chapter chapter;
+        private final List<Verse> verses = new ArrayList<>();
+        private final List<Token> tokens = new ArrayList<>();
+        private final List<Location> locations = new ArrayList<>();
+
+        private ChapterData(Chapter chapter) {
+            this.chapter = chapter;
+        }
+
+        private void addVerse(int verseNumber, String text) {
+            final int chapterNumber = chapter.getChapterNumber();
+            final Verse verse = new Verse(chapterNumber, verseNumber);
+            final List<Token> verseTokens = new ArrayList<>();
+            int tokenNumber = 1;
+            for (String tokenText : text.trim().split("\\s+")) {
+                if (tokenText.isEmpty()) {
+                    continue;
+                }
+                final Token token = new Token(chapterNumber, verseNumber, tokenNumber, tokenText);
+                final Location location = new Location(chapterNumber, verseNumber, tokenNumber, 1, WordType.NOUN);
+                location.setText(tokenText);
+                location.setDerivedText(tokenText);
+                token.addLocation(location);
+                verseTokens.add(token);
+                locations.add(location);
+                tokenNumber++;
+            }
+            verse.setTokens(verseTokens);
+            verse.setTokenCount(verseTokens.size());
+            tokens.addAll(verseTokens);
+            verses.add(verse);
+        }
+    }
+
+    /**
+     * Progress and throughput of an import, updated while the import is running.
+     */
+    public static final class ImportStatistics {
+        private final long startTime = System.nanoTime();
+        private final AtomicInteger chapters = new AtomicInteger();
+        private final AtomicInteger verses = new AtomicInteger();
+        private final AtomicLong tokens = new AtomicLong();
+        private final AtomicLong locations = new AtomicLong();
+        private volatile long endTime;
+
+        private void chapterImported(ChapterData chapterData) {
+            chapters.incrementAndGet();
+            verses.addAndGet(chapterData.verses.size());
+            tokens.addAndGet(chapterData.tokens.size());
+            locations.addAndGet(chapterData.locations.size());
+        }
+
+        private void finish() {
+            endTime = System.nanoTime();
+        }
+
+        public int getChapters() {
+            return chapters.get();
+        }
+
+        public int getVerses() {
+            return verses.get();
+        }
+
+        public long getTokens() {
+            return tokens.get();
+        }
+
+        public long getLocations() {
+            return locations.get();
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(((endTime == 0) ? System.nanoTime() : endTime) - startTime);
+        }
+
+        /**
+         * @return documents (chapters, verses, tokens and locations) written per second
+         */
+        public double getDocumentsPerSecond() {
+            final long elapsedMillis = Math.max(1, getElapsedMillis());
+            return (getChapters() + getVerses() + getTokens() + getLocations()) * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ImportStatistics{chapters=%s, verses=%s, tokens=%s, locations=%s, elapsed=%sms, " +
+                            "documentsPerSecond=%.0f}", getChapters(), getVerses(), getTokens(), getLocations(),
+                    getElapsedMillis(), getDocumentsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks keyed by (chapter, verse), used to serialize read-modify-write sequences on the same verse while
+ * letting edits of different verses run in parallel.
+ * <p>
+ * Each verse is mapped to one of a fixed number of {@link ReentrantLock}s, with the default number of stripes
+ * collisions between two verses being edited at the same time are rare. Operations spanning multiple verses acquire
+ * their stripes in ascending order, so that they can not deadlock with each other. Locks are reentrant, so nested
+ * operations on the same verse from same thread are allowed.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class VerseLockManager {
+
+    public static final int DEFAULT_STRIPES = 4096;
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public VerseLockManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes minimum number of stripes, rounded up to the next power of two
+     */
+    public VerseLockManager(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid number of stripes {%s}", stripes));
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public int getStripes() {
+        return locks.length;
+    }
+
+    /**
+     * Runs given action while holding the lock of the given verse.
+     *
+     * @param chapterNumber chapter number
+     * @param verseNumber   verse number
+     * @param action        action to run
+     * @param <T>           type of the result
+     * @return result of the action
+     */
+    public <T> T withLock(int chapterNumber, int verseNumber, Supplier<T> action) {
+        final ReentrantLock lock = locks[getStripe(chapterNumber, verseNumber)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withLock(int chapterNumber, int verseNumber, Runnable action) {
+        withLock(chapterNumber, verseNumber, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs given action while holding the locks of all given verses of the given chapter.
+     *
+     * @param chapterNumber chapter number
+     * @param verseNumbers  verse numbers
+     * @param action        action to run
+     * @param <T>           type of the result
+     * @return result of the action
+     */
+    public <T> T withLocks(int chapterNumber, Collection<Integer> verseNumbers, Supplier<T> action) {
+        final int[] stripes = verseNumbers.stream().mapToInt(verseNumber -> getStripe(chapterNumber, verseNumber))
+                .distinct().sorted().toArray();
+        int acquired = 0;
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                acquired++;
+            }
+            return action.get();
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    public void withLocks(int chapterNumber, Collection<Integer> verseNumbers, Runnable action) {
+        withLocks(chapterNumber, verseNumbers, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @param chapterNumber chapter number
+     * @param verseNumber   verse number
+     * @return <code>true</code> if the lock of the given verse is held by current thread
+     */
+    public boolean isHeldByCurrentThread(int chapterNumber, int verseNumber) {
+        return locks[getStripe(chapterNumber, verseNumber)].isHeldByCurrentThread();
+    }
+
+    int getStripe(int chapterNumber, int verseNumber) {
+        int hash = (chapterNumber << 16) ^ verseNumber;
+        // spread bits, so that consecutive verses of a chapter end up in different stripes
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VerseLockManager{stripes=%s, locked=%s}", locks.length,
+                Arrays.stream(locks).filter(ReentrantLock::isLocked).count());
+    }
+}
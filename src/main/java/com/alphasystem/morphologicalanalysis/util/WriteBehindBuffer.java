@@ -0,0 +1,579 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.persistence.mongo.model.AbstractDocument;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Optional write-behind layer for documents saved repeatedly by the editor (e.g., {@link
+ * com.alphasystem.morphologicalanalysis.wordbyword.model.Location}, {@link
+ * com.alphasystem.morphologicalanalysis.wordbyword.model.Token} and {@link
+ * com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph}).
+ * <p>
+ * While {@link #setEnabled(boolean) enabled}, {@link #save(AbstractDocument)} only records a copy of the document
+ * (properties are copied, referenced documents are shared), so that later changes of the caller's instance are not
+ * written unless saved again. Saves of the same document (same collection and id) within the
+ * {@link #setWindow(long, TimeUnit) window} are coalesced into one. When the window elapses, or the number of pending
+ * documents reaches {@link #setMaxPending(int) maximum}, pending documents are written with one bulk replace-upsert per
+ * type, i.e., each document replaces the stored one as {@link MongoTemplate#save(Object)} does. Each flushed document
+ * still goes through the event listener chain (before convert, before save and after save events), after save event
+ * is published exactly once, for the attempt which has written the document. If a bulk write fails only the documents
+ * which were not written are kept pending. Transient documents are saved immediately, since they can't be identified
+ * before they have an id.
+ * </p>
+ * <p>
+ * Pending documents of a type are flushed before documents of that type are deleted through {@link MongoTemplate} or
+ * a repository (see {@link #onApplicationEvent(BeforeDeleteEvent)}), so that a later flush does not bring deleted
+ * documents back.
+ * </p>
+ * <p>
+ * The editor saves locations and tokens through {@link MorphologicalAnalysisRepositoryUtil#saveLocation} and
+ * {@link MorphologicalAnalysisRepositoryUtil#saveToken}, whose read methods call {@link #flush(Class[])} for the
+ * types they read; any other read-your-writes query must do the same. Pending documents are flushed when the bean is
+ * destroyed.
+ * </p>
+ * <p>
+ * Every recorded save is appended to a local journal (system property {@link #JOURNAL_FILE_PROPERTY}) and synced to
+ * disk before {@link #save(AbstractDocument)} returns. A flush rotates the journal, the rotated file is deleted once
+ * the bulk write has succeeded. Journals are owned by one process at a time through a {@link FileLock}: when the bean
+ * is initialized it locks the configured journal, or the first numbered sibling (<code>journal.1</code>,
+ * <code>journal.2</code>, ...) not locked by another process, and replays whatever a crashed previous owner of that
+ * journal left behind.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class WriteBehindBuffer implements InitializingBean, DisposableBean, ApplicationListener<BeforeDeleteEvent<?>> {
+
+    public static final String JOURNAL_FILE_PROPERTY = "morphologicalanalysis.writeBehind.journal";
+    public static final long DEFAULT_WINDOW_MILLIS = 2000;
+    public static final int DEFAULT_MAX_PENDING = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    private static final String TYPE = "type";
+    private static final String DOCUMENT = "document";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    private final Path baseJournalFile;
+    private Path journalFile;
+    private Path flushingFile;
+    private FileChannel lockChannel;
+    private FileLock journalLock;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private FileChannel journal;
+    private boolean flushScheduled;
+    private volatile boolean enabled;
+    private volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+    private volatile int maxPending = DEFAULT_MAX_PENDING;
+    private volatile boolean journalSync = true;
+
+    public WriteBehindBuffer() {
+        this(Paths.get(System.getProperty(JOURNAL_FILE_PROPERTY, Paths.get(System.getProperty("user.home"),
+                ".morphological-analysis", "write-behind.journal").toString())));
+    }
+
+    /**
+     * @param journalFile preferred journal, numbered siblings are used if it is locked by another process
+     */
+    public WriteBehindBuffer(Path journalFile) {
+        this.baseJournalFile = journalFile;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled <code>true</code> to buffer saves, <code>false</code> to save immediately; pending documents are
+     *                flushed when buffering is disabled
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            flush();
+        }
+    }
+
+    public void setWindow(long window, TimeUnit unit) {
+        if (window <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid window {%s}", window));
+        }
+        this.windowMillis = unit.toMillis(window);
+    }
+
+    public void setMaxPending(int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid maximum pending {%s}", maxPending));
+        }
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * @param journalSync <code>false</code> to skip syncing the journal to disk after every save, buffered edits might
+     *                    be lost if the machine crashes
+     */
+    public void setJournalSync(boolean journalSync) {
+        this.journalSync = journalSync;
+    }
+
+    /**
+     * @return journal of this process, <code>null</code> until the bean is initialized
+     */
+    public Path getJournalFile() {
+        synchronized (lock) {
+            return journalFile;
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Saves given document, if buffering is enabled and given document has an id the save is deferred until next
+     * flush.
+     *
+     * @param document document to save
+     * @param <T>      type of the document
+     */
+    public <T extends AbstractDocument> void save(T document) {
+        if (!enabled || document.isTransient()) {
+            mongoTemplate.save(document);
+            return;
+        }
+        final AbstractDocument copy = copy(document);
+        final Pending entry = new Pending(copy, mongoTemplate.getCollectionName(document.getClass()),
+                toJournalLine(copy));
+        final int size;
+        synchronized (lock) {
+            appendToJournal(entry.journalLine);
+            // remove first, so that order of pending documents is the order of their last save
+            pending.remove(entry.getKey());
+            pending.put(entry.getKey(), entry);
+            size = pending.size();
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::scheduledFlush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (size >= maxPending) {
+            flush();
+        }
+    }
+
+    /**
+     * Flushes all pending documents.
+     */
+    public void flush() {
+        flush(AbstractDocument.class);
+    }
+
+    /**
+     * Flushes pending documents of the given types (including sub types), a no-op if there are no pending documents.
+     *
+     * @param types types of the documents to flush
+     */
+    public void flush(Class<?>... types) {
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        flushLock.lock();
+        try {
+            final List<Pending> batch = new ArrayList<>();
+            synchronized (lock) {
+                pending.values().removeIf(entry -> {
+                    for (Class<?> type : types) {
+                        if (type.isInstance(entry.document)) {
+                            batch.add(entry);
+                            return true;
+                        }
+                    }
+                    return false;
+                });
+                if (batch.isEmpty()) {
+                    return;
+                }
+                rotateJournal();
+            }
+            final Set<Pending> unwritten = new LinkedHashSet<>(batch);
+            try {
+                write(batch, unwritten);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    // newer saves of the same documents win
+                    unwritten.forEach(entry -> {
+                        if (!pending.containsKey(entry.getKey())) {
+                            appendToJournal(entry.journalLine);
+                            pending.put(entry.getKey(), entry);
+                        }
+                    });
+                }
+                throw e;
+            } finally {
+                deleteQuietly(flushingFile);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void scheduledFlush() {
+        synchronized (lock) {
+            flushScheduled = false;
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.error("Error flushing pending documents, retrying in {} ms", windowMillis, e);
+            synchronized (lock) {
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::scheduledFlush, windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes given documents with one bulk replace-upsert per type, fields missing from a document are removed from the
+     * stored one, as with {@link MongoTemplate#save(Object)}. Written documents are removed from
+     * <code>unwritten</code>, including the ones written by a bulk write which has failed for other documents.
+     */
+    private void write(List<Pending> batch, Set<Pending> unwritten) {
+        final Map<Class<?>, List<Pending>> byType = new LinkedHashMap<>();
+        batch.forEach(entry -> byType.computeIfAbsent(entry.document.getClass(), type -> new ArrayList<>()).add(entry));
+        byType.forEach((type, entries) -> {
+            final List<DBObject> dbObjects = new ArrayList<>(entries.size());
+            entries.forEach(entry -> {
+                final AbstractDocument document = entry.document;
+                eventPublisher.publishEvent(new BeforeConvertEvent<>(document, entry.collectionName));
+                final DBObject dbObject = new BasicDBObject();
+                mongoTemplate.getConverter().write(document, dbObject);
+                eventPublisher.publishEvent(new BeforeSaveEvent<>(document, dbObject, entry.collectionName));
+                dbObjects.add(dbObject);
+            });
+            final Set<Integer> failed = new HashSet<>();
+            try {
+                replace(entries.get(0).collectionName, dbObjects);
+            } catch (BulkWriteException e) {
+                if (e.getWriteConcernError() != null) {
+                    // none of the documents is known to be written
+                    throw e;
+                }
+                e.getWriteErrors().forEach(error -> failed.add(error.getIndex()));
+                written(entries, dbObjects, failed, unwritten);
+                throw e;
+            }
+            written(entries, dbObjects, failed, unwritten);
+            LOGGER.debug("Flushed {} documents of type \"{}\"", entries.size(), type.getSimpleName());
+        });
+    }
+
+    private void written(List<Pending> entries, List<DBObject> dbObjects, Set<Integer> failed,
+                         Set<Pending> unwritten) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (failed.contains(i)) {
+                continue;
+            }
+            final Pending entry = entries.get(i);
+            unwritten.remove(entry);
+            eventPublisher.publishEvent(new AfterSaveEvent<>(entry.document, dbObjects.get(i), entry.collectionName));
+        }
+    }
+
+    /**
+     * Replaces (or inserts) given documents of the given collection with one unordered bulk write.
+     *
+     * @param collectionName name of the collection
+     * @param dbObjects      documents to write
+     * @throws BulkWriteException if any of the documents could not be written
+     */
+    void replace(String collectionName, List<DBObject> dbObjects) {
+        final BulkWriteOperation bulkWriteOperation = mongoTemplate.getCollection(collectionName)
+                .initializeUnorderedBulkOperation();
+        dbObjects.forEach(dbObject -> bulkWriteOperation.find(new BasicDBObject("_id", dbObject.get("_id"))).upsert()
+                .replaceOne(dbObject));
+        bulkWriteOperation.execute();
+    }
+
+    /**
+     * Flushes pending documents of the type being deleted, the delete then removes them as well.
+     *
+     * @param event event of the delete
+     */
+    @Override
+    public void onApplicationEvent(BeforeDeleteEvent<?> event) {
+        final Class<?> type = event.getType();
+        flush((type == null) ? AbstractDocument.class : type);
+    }
+
+    /**
+     * @return new instance of the type of the given document with all of its properties, collections are copied,
+     * elements and other referred documents are shared
+     */
+    private static AbstractDocument copy(AbstractDocument source) {
+        final BeanWrapper sourceWrapper = new BeanWrapperImpl(source);
+        final BeanWrapper targetWrapper = new BeanWrapperImpl(BeanUtils.instantiateClass(source.getClass()));
+        for (PropertyDescriptor descriptor : sourceWrapper.getPropertyDescriptors()) {
+            final String name = descriptor.getName();
+            if (!sourceWrapper.isReadableProperty(name) || !targetWrapper.isWritableProperty(name)) {
+                continue;
+            }
+            Object value = sourceWrapper.getPropertyValue(name);
+            if (value instanceof Set) {
+                value = new LinkedHashSet<>((Set<?>) value);
+            } else if (value instanceof List) {
+                value = new ArrayList<>((List<?>) value);
+            }
+            targetWrapper.setPropertyValue(name, value);
+        }
+        return (AbstractDocument) targetWrapper.getWrappedInstance();
+    }
+
+    private String toJournalLine(AbstractDocument document) {
+        final DBObject dbObject = new BasicDBObject();
+        mongoTemplate.getConverter().write(document, dbObject);
+        return JSON.serialize(new BasicDBObject(TYPE, document.getClass().getName()).append(DOCUMENT, dbObject));
+    }
+
+    private void appendToJournal(String line) {
+        try {
+            if (journal == null) {
+                if (journalFile == null) {
+                    throw new IllegalStateException("Write-behind buffer is not initialized");
+                }
+                journal = FileChannel.open(journalFile, CREATE, WRITE, APPEND);
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            if (journalSync) {
+                journal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Unable to write journal \"%s\"", journalFile), e);
+        }
+    }
+
+    /**
+     * Moves current journal aside for the flush in progress, and starts a new journal with documents still pending.
+     * Must be called while holding the lock.
+     */
+    private void rotateJournal() {
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            if (Files.exists(journalFile)) {
+                Files.move(journalFile, flushingFile, ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Unable to rotate journal \"%s\"", journalFile), e);
+        }
+        pending.values().forEach(entry -> appendToJournal(entry.journalLine));
+    }
+
+    /**
+     * Locks a journal of this process and replays what a previous owner of it left behind.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        int count = 0;
+        synchronized (lock) {
+            lockJournal();
+            for (Path file : new Path[]{flushingFile, journalFile}) {
+                count += replay(file);
+            }
+            rotateJournal();
+        }
+        if (count > 0) {
+            LOGGER.info("Replaying {} saves from journal \"{}\"", count, journalFile);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to flush replayed documents, they will be flushed later", e);
+            }
+        }
+        deleteQuietly(flushingFile);
+    }
+
+    /**
+     * Locks the configured journal, or the first numbered sibling which is not locked by another process. Lock is
+     * released by the operating system if this process dies, so that the next process replays the journal.
+     * Must be called while holding the lock.
+     */
+    private void lockJournal() {
+        try {
+            Files.createDirectories(baseJournalFile.toAbsolutePath().getParent());
+            for (int slot = 0; journalLock == null; slot++) {
+                final Path file = (slot == 0) ? baseJournalFile
+                        : baseJournalFile.resolveSibling(baseJournalFile.getFileName() + "." + slot);
+                final FileChannel channel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                        CREATE, WRITE);
+                FileLock fileLock;
+                try {
+                    fileLock = channel.tryLock();
+                } catch (IOException | RuntimeException e) {
+                    // OverlappingFileLockException if this process holds it already, e.g., another buffer
+                    fileLock = null;
+                }
+                if (fileLock == null) {
+                    channel.close();
+                    continue;
+                }
+                lockChannel = channel;
+                journalLock = fileLock;
+                journalFile = file;
+                flushingFile = file.resolveSibling(file.getFileName() + ".flushing");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Unable to lock journal \"%s\"", baseJournalFile), e);
+        }
+        LOGGER.info("Using write-behind journal \"{}\"", journalFile);
+    }
+
+    private int replay(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final DBObject dbObject;
+                final Class<?> type;
+                try {
+                    dbObject = (DBObject) JSON.parse(line);
+                    type = Class.forName((String) dbObject.get(TYPE));
+                } catch (RuntimeException | ClassNotFoundException e) {
+                    // last line might have been partially written
+                    LOGGER.warn("Skipping invalid journal entry in \"{}\": {}", file, e.getMessage());
+                    continue;
+                }
+                final AbstractDocument document = (AbstractDocument) mongoTemplate.getConverter()
+                        .read(type, (DBObject) dbObject.get(DOCUMENT));
+                final Pending entry = new Pending(document, mongoTemplate.getCollectionName(type), line);
+                pending.remove(entry.getKey());
+                pending.put(entry.getKey(), entry);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Unable to read journal \"%s\"", file), e);
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        scheduler.shutdownNow();
+        try {
+            flush();
+        } finally {
+            synchronized (lock) {
+                if (journal != null) {
+                    journal.close();
+                    journal = null;
+                }
+                if (pending.isEmpty() && journalFile != null) {
+                    deleteQuietly(journalFile);
+                }
+                if (lockChannel != null) {
+                    // closing the channel releases the lock
+                    lockChannel.close();
+                    lockChannel = null;
+                    journalLock = null;
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete \"{}\": {}", file, e.getMessage());
+        }
+    }
+
+    private static final class Pending {
+        private final AbstractDocument document;
+        private final String collectionName;
+        private final String journalLine;
+
+        private Pending(AbstractDocument document, String collectionName, String journalLine) {
+            this.document = document;
+            this.collectionName = collectionName;
+            this.journalLine = journalLine;
+        }
+
+        private String getKey() {
+            return collectionName + "#" + document.getId();
+        }
+    }
+}
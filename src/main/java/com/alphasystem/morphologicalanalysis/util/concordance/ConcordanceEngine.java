@@ -0,0 +1,241 @@
+package com.alphasystem.morphologicalanalysis.util.concordance;
+
+import com.alphasystem.arabic.model.NamedTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.util.index.IndexTerm;
+import com.alphasystem.morphologicalanalysis.util.index.LocationInvertedIndex;
+import com.alphasystem.morphologicalanalysis.util.index.RoaringBitmap;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.alphasystem.morphologicalanalysis.util.concordance.ConcordanceOrder.READING_ORDER;
+
+/**
+ * Keyword-in-context (KWIC) concordance of words, lemmas and roots.
+ * <p>
+ * All hits are resolved first, words from the <code>token</code> collection and lemmas and roots from
+ * {@link LocationInvertedIndex}. Context windows (<code>contextSize</code> tokens on each side, within the verse of
+ * the hit) are then fetched with one range query on {@link LocationKey} per verse, covering all hits of that verse.
+ * In {@link ConcordanceOrder#READING_ORDER} only the windows of the requested page are fetched, other orders need the
+ * context of every hit to rank the lines.
+ * </p>
+ * <p>
+ * Lines are "ranked" only in the sense of {@link ConcordanceOrder}, i.e., by position in the corpus or alphabetically
+ * by left or right context; there is no relevance scoring. Hidden tokens are excluded from the hits of
+ * {@link #findByWord(String, int, ConcordanceOrder, Pageable)} and from every context window.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class ConcordanceEngine {
+
+    public static final int DEFAULT_CONTEXT_SIZE = 5;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcordanceEngine.class);
+    private static final String CHAPTER_NUMBER = "chapterNumber";
+    private static final String VERSE_NUMBER = "verseNumber";
+    private static final String TOKEN_NUMBER = "tokenNumber";
+    private static final String TOKEN = "token";
+    private static final String HIDDEN = "hidden";
+    private static final long TOKEN_MASK = ~0xFFFFL;
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private CorpusNavigationIndex navigationIndex;
+    @Autowired private LocationInvertedIndex locationInvertedIndex;
+
+    private static int getTokenNumber(long key) {
+        return LocationKey.getTokenNumber(key);
+    }
+
+    private static long getVerse(long key) {
+        return key >>> 32;
+    }
+
+    /**
+     * @param word        text of the token to find, matched exactly
+     * @param contextSize number of tokens on each side of the hit
+     * @param order       order of the lines
+     * @param pageable    requested page, <code>null</code> for all lines
+     * @return page of concordance lines
+     */
+    public Page<ConcordanceLine> findByWord(String word, int contextSize, ConcordanceOrder order, Pageable pageable) {
+        final List<Long> keys = new ArrayList<>();
+        final DBObject fields = new BasicDBObject(CHAPTER_NUMBER, 1).append(VERSE_NUMBER, 1).append(TOKEN_NUMBER, 1);
+        final DBObject query = new BasicDBObject(TOKEN, word).append(HIDDEN, new BasicDBObject("$ne", true));
+        try (DBCursor cursor = getTokenCollection().find(query, fields)) {
+            cursor.forEach(dbObject -> keys.add(LocationKey.encode(((Number) dbObject.get(CHAPTER_NUMBER)).intValue(),
+                    ((Number) dbObject.get(VERSE_NUMBER)).intValue(), ((Number) dbObject.get(TOKEN_NUMBER)).intValue(),
+                    0)));
+        }
+        return find(toHits(keys), contextSize, order, pageable);
+    }
+
+    /**
+     * @param rootLetters given root letters
+     * @param contextSize number of tokens on each side of the hit
+     * @param order       order of the lines
+     * @param pageable    requested page, <code>null</code> for all lines
+     * @return page of concordance lines
+     */
+    public Page<ConcordanceLine> findByRoot(RootLetters rootLetters, int contextSize, ConcordanceOrder order,
+                                           Pageable pageable) {
+        return findByTerms(contextSize, order, pageable, IndexTerm.rootLetters(rootLetters));
+    }
+
+    /**
+     * @param rootLetters root letters of the lemma
+     * @param form        form of the lemma
+     * @param contextSize number of tokens on each side of the hit
+     * @param order       order of the lines
+     * @param pageable    requested page, <code>null</code> for all lines
+     * @return page of concordance lines
+     */
+    public Page<ConcordanceLine> findByLemma(RootLetters rootLetters, NamedTemplate form, int contextSize,
+                                            ConcordanceOrder order, Pageable pageable) {
+        return findByTerms(contextSize, order, pageable, IndexTerm.rootLetters(rootLetters), IndexTerm.form(form));
+    }
+
+    /**
+     * @param contextSize number of tokens on each side of the hit
+     * @param order       order of the lines
+     * @param pageable    requested page, <code>null</code> for all lines
+     * @param terms       terms every hit must match
+     * @return page of concordance lines
+     */
+    public Page<ConcordanceLine> findByTerms(int contextSize, ConcordanceOrder order, Pageable pageable,
+                                            IndexTerm... terms) {
+        final RoaringBitmap ordinals = locationInvertedIndex.and(terms);
+        final List<Long> keys = new ArrayList<>(ordinals.getCardinality());
+        // tokens with more than one matching location are reported once
+        ordinals.forEach(ordinal -> keys.add(LocationInvertedIndex.toLocationKey(ordinal) & TOKEN_MASK));
+        return find(toHits(keys), contextSize, order, pageable);
+    }
+
+    private Page<ConcordanceLine> find(long[] hits, int contextSize, ConcordanceOrder order, Pageable pageable) {
+        if (contextSize < 0) {
+            throw new IllegalArgumentException(String.format("Invalid context size {%s}", contextSize));
+        }
+        if (order == null || order == READING_ORDER) {
+            final long[] page = (pageable == null) ? hits : slice(hits, pageable);
+            return toPage(resolve(page, contextSize), pageable, hits.length);
+        }
+        final List<ConcordanceLine> lines = resolve(hits, contextSize);
+        lines.sort(order.comparator());
+        final List<ConcordanceLine> page;
+        if (pageable == null) {
+            page = lines;
+        } else {
+            final int from = (int) Math.min(pageable.getOffset(), lines.size());
+            page = lines.subList(from, Math.min(from + pageable.getPageSize(), lines.size()));
+        }
+        return toPage(page, pageable, hits.length);
+    }
+
+    private static Page<ConcordanceLine> toPage(List<ConcordanceLine> lines, Pageable pageable, int total) {
+        return (pageable == null) ? new PageImpl<>(lines) : new PageImpl<>(lines, pageable, total);
+    }
+
+    private static long[] slice(long[] hits, Pageable pageable) {
+        final int from = (int) Math.min(pageable.getOffset(), hits.length);
+        return Arrays.copyOfRange(hits, from, Math.min(from + pageable.getPageSize(), hits.length));
+    }
+
+    private static long[] toHits(List<Long> keys) {
+        final long[] hits = keys.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        LOGGER.debug("Found {} hits", hits.length);
+        return hits;
+    }
+
+    /**
+     * @param hits        sorted keys of the hits
+     * @param contextSize number of tokens on each side of the hit
+     * @return concordance lines of the given hits, in reading order
+     */
+    private List<ConcordanceLine> resolve(long[] hits, int contextSize) {
+        final List<ConcordanceLine> lines = new ArrayList<>(hits.length);
+        int queryCount = 0;
+        int from = 0;
+        while (from < hits.length) {
+            // hits of one verse
+            int to = from + 1;
+            while (to < hits.length && getVerse(hits[to]) == getVerse(hits[from])) {
+                to++;
+            }
+            final int chapterNumber = LocationKey.getChapterNumber(hits[from]);
+            final int verseNumber = LocationKey.getVerseNumber(hits[from]);
+            final int tokenCount = navigationIndex.getTokenCount(chapterNumber, verseNumber);
+            final int firstTokenNumber = Math.max(1, getTokenNumber(hits[from]) - contextSize);
+            int lastTokenNumber = getTokenNumber(hits[to - 1]) + contextSize;
+            if (tokenCount > 0) {
+                lastTokenNumber = Math.min(tokenCount, lastTokenNumber);
+            }
+            final Map<Integer, String> texts = findTokenTexts(chapterNumber, verseNumber, firstTokenNumber,
+                    lastTokenNumber);
+            queryCount++;
+            for (int i = from; i < to; i++) {
+                final int tokenNumber = getTokenNumber(hits[i]);
+                lines.add(new ConcordanceLine(chapterNumber, verseNumber, tokenNumber, texts.get(tokenNumber),
+                        getTexts(texts, tokenNumber - contextSize, tokenNumber - 1),
+                        getTexts(texts, tokenNumber + 1, tokenNumber + contextSize)));
+            }
+            from = to;
+        }
+        LOGGER.debug("Resolved context of {} hits with {} queries", hits.length, queryCount);
+        return lines;
+    }
+
+    private Map<Integer, String> findTokenTexts(int chapterNumber, int verseNumber, int firstTokenNumber,
+                                                int lastTokenNumber) {
+        final DBObject keyed = new BasicDBObject(LocationKey.FIELD_NAME,
+                new BasicDBObject("$gte", LocationKey.lowerBound(chapterNumber, verseNumber, firstTokenNumber))
+                        .append("$lte", LocationKey.upperBound(chapterNumber, verseNumber, lastTokenNumber)));
+        // tokens whose key has not been populated yet
+        final DBObject unkeyed = new BasicDBObject(LocationKey.FIELD_NAME, new BasicDBObject("$exists", false))
+                .append(CHAPTER_NUMBER, chapterNumber).append(VERSE_NUMBER, verseNumber)
+                .append(TOKEN_NUMBER, new BasicDBObject("$gte", firstTokenNumber).append("$lte", lastTokenNumber));
+        final DBObject query = new BasicDBObject("$or", Arrays.asList(keyed, unkeyed))
+                .append(HIDDEN, new BasicDBObject("$ne", true));
+        final DBObject fields = new BasicDBObject(TOKEN_NUMBER, 1).append(TOKEN, 1);
+        final Map<Integer, String> texts = new HashMap<>();
+        try (DBCursor cursor = getTokenCollection().find(query, fields)) {
+            cursor.forEach(dbObject -> texts.put(((Number) dbObject.get(TOKEN_NUMBER)).intValue(),
+                    (String) dbObject.get(TOKEN)));
+        }
+        return texts;
+    }
+
+    private static List<String> getTexts(Map<Integer, String> texts, int firstTokenNumber, int lastTokenNumber) {
+        final List<String> result = new ArrayList<>(Math.max(0, lastTokenNumber - firstTokenNumber + 1));
+        for (int tokenNumber = firstTokenNumber; tokenNumber <= lastTokenNumber; tokenNumber++) {
+            final String text = texts.get(tokenNumber);
+            if (text != null) {
+                result.add(text);
+            }
+        }
+        return result;
+    }
+
+    private DBCollection getTokenCollection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Token.class));
+    }
+}
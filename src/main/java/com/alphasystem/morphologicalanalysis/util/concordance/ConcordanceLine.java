@@ -0,0 +1,71 @@
+package com.alphasystem.morphologicalanalysis.util.concordance;
+
+import java.util.List;
+
+/**
+ * One line of a concordance, i.e., a hit with the tokens preceding and following it within the same verse.
+ *
+ * @author sali
+ */
+public final class ConcordanceLine {
+
+    private final int chapterNumber;
+    private final int verseNumber;
+    private final int tokenNumber;
+    private final String keyword;
+    private final List<String> leftContext;
+    private final List<String> rightContext;
+
+    ConcordanceLine(int chapterNumber, int verseNumber, int tokenNumber, String keyword, List<String> leftContext,
+                    List<String> rightContext) {
+        this.chapterNumber = chapterNumber;
+        this.verseNumber = verseNumber;
+        this.tokenNumber = tokenNumber;
+        this.keyword = keyword;
+        this.leftContext = leftContext;
+        this.rightContext = rightContext;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    public int getVerseNumber() {
+        return verseNumber;
+    }
+
+    public int getTokenNumber() {
+        return tokenNumber;
+    }
+
+    /**
+     * @return text of the hit token
+     */
+    public String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * @return text of the tokens preceding the hit, in reading order
+     */
+    public List<String> getLeftContext() {
+        return leftContext;
+    }
+
+    /**
+     * @return text of the tokens following the hit, in reading order
+     */
+    public List<String> getRightContext() {
+        return rightContext;
+    }
+
+    public String getDisplayName() {
+        return String.format("%s:%s:%s", chapterNumber, verseNumber, tokenNumber);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s [%s] %s", getDisplayName(), String.join(" ", leftContext), keyword,
+                String.join(" ", rightContext));
+    }
+}
@@ -0,0 +1,63 @@
+package com.alphasystem.morphologicalanalysis.util.concordance;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sort order of {@link ConcordanceLine}s, by position in the corpus or by context; lines are not scored.
+ *
+ * @author sali
+ */
+public enum ConcordanceOrder {
+
+    /**
+     * Order of the hits in the corpus.
+     */
+    READING_ORDER {
+        @Override
+        Comparator<ConcordanceLine> comparator() {
+            return Comparator.comparingInt(ConcordanceLine::getChapterNumber)
+                    .thenComparingInt(ConcordanceLine::getVerseNumber)
+                    .thenComparingInt(ConcordanceLine::getTokenNumber);
+        }
+    },
+
+    /**
+     * Sorted by the tokens preceding the hit, nearest token first, so that hits with same preceding phrase are
+     * grouped together.
+     */
+    LEFT_CONTEXT {
+        @Override
+        Comparator<ConcordanceLine> comparator() {
+            return ((Comparator<ConcordanceLine>) (first, second) -> compare(first.getLeftContext(),
+                    second.getLeftContext(), true)).thenComparing(READING_ORDER.comparator());
+        }
+    },
+
+    /**
+     * Sorted by the tokens following the hit, nearest token first, so that hits with same following phrase are
+     * grouped together.
+     */
+    RIGHT_CONTEXT {
+        @Override
+        Comparator<ConcordanceLine> comparator() {
+            return ((Comparator<ConcordanceLine>) (first, second) -> compare(first.getRightContext(),
+                    second.getRightContext(), false)).thenComparing(READING_ORDER.comparator());
+        }
+    };
+
+    private static int compare(List<String> first, List<String> second, boolean reverse) {
+        final int length = Math.min(first.size(), second.size());
+        for (int i = 0; i < length; i++) {
+            final int result = reverse
+                    ? first.get(first.size() - 1 - i).compareTo(second.get(second.size() - 1 - i))
+                    : first.get(i).compareTo(second.get(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(first.size(), second.size());
+    }
+
+    abstract Comparator<ConcordanceLine> comparator();
+}
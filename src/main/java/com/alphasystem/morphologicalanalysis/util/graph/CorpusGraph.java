@@ -0,0 +1,483 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable snapshot of all {@link com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph}s of the corpus
+ * held in primitive arrays.
+ * <p>
+ * Every {@link com.alphasystem.morphologicalanalysis.graph.model.GraphNode} is identified by an <code>int</code> index,
+ * its {@link GraphNodeType} is stored as a <code>byte</code> and its label (relationship type of relationship nodes) as
+ * dictionary code. Edges (references between nodes) are stored in compressed sparse row form, one
+ * <code>int[]</code> of targets per direction with offsets per node, labelled by the dictionary code of the
+ * referencing field. Pattern and path queries evaluate start nodes in parallel.
+ * </p>
+ *
+ * @author sali
+ */
+public final class CorpusGraph {
+
+    private static final GraphNodeType[] NODE_TYPES = GraphNodeType.values();
+    private static final int UNKNOWN_LABEL = -2;
+
+    private final String[] nodeIds;
+    private final Map<String, Integer> nodeIndex;
+    private final byte[] nodeTypes;
+    private final int[] nodeLabels;
+    private final long[] locationKeys;
+    private final int[] nodeGraphs;
+    private final String[] labelNames;
+    private final Map<String, Integer> labelCodes;
+    private final String[] edgeLabelNames;
+    private final Map<String, Integer> edgeLabelCodes;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final byte[] outLabels;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final byte[] inLabels;
+    private final String[] graphIds;
+    private final String[] graphDisplayNames;
+
+    private CorpusGraph(Builder builder, int[] edgeSources, int[] edgeTargets, byte[] edgeLabels) {
+        final int nodeCount = builder.nodeCount;
+        nodeIds = builder.nodeIds.toArray(new String[nodeCount]);
+        nodeIndex = builder.nodeIndex;
+        nodeTypes = Arrays.copyOf(builder.nodeTypes, nodeCount);
+        nodeLabels = Arrays.copyOf(builder.nodeLabels, nodeCount);
+        locationKeys = Arrays.copyOf(builder.locationKeys, nodeCount);
+        nodeGraphs = new int[nodeCount];
+        Arrays.fill(nodeGraphs, -1);
+        labelNames = builder.labelNames.toArray(new String[builder.labelNames.size()]);
+        labelCodes = builder.labelCodes;
+        edgeLabelNames = builder.edgeLabelNames.toArray(new String[builder.edgeLabelNames.size()]);
+        edgeLabelCodes = builder.edgeLabelCodes;
+        graphIds = builder.graphIds.toArray(new String[builder.graphIds.size()]);
+        graphDisplayNames = builder.graphDisplayNames.toArray(new String[builder.graphDisplayNames.size()]);
+        for (int graph = 0; graph < graphIds.length; graph++) {
+            for (String nodeId : builder.graphNodes.get(graph)) {
+                final Integer node = nodeIndex.get(nodeId);
+                if (node != null) {
+                    nodeGraphs[node] = graph;
+                }
+            }
+        }
+
+        final int edgeCount = edgeSources.length;
+        outOffsets = new int[nodeCount + 1];
+        inOffsets = new int[nodeCount + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            outOffsets[edgeSources[edge] + 1]++;
+            inOffsets[edgeTargets[edge] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            outOffsets[node + 1] += outOffsets[node];
+            inOffsets[node + 1] += inOffsets[node];
+        }
+        outTargets = new int[edgeCount];
+        outLabels = new byte[edgeCount];
+        inSources = new int[edgeCount];
+        inLabels = new byte[edgeCount];
+        final int[] outPositions = Arrays.copyOf(outOffsets, nodeCount);
+        final int[] inPositions = Arrays.copyOf(inOffsets, nodeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            final int outPosition = outPositions[edgeSources[edge]]++;
+            outTargets[outPosition] = edgeTargets[edge];
+            outLabels[outPosition] = edgeLabels[edge];
+            final int inPosition = inPositions[edgeTargets[edge]]++;
+            inSources[inPosition] = edgeSources[edge];
+            inLabels[inPosition] = edgeLabels[edge];
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeIds.length;
+    }
+
+    public int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    public int getGraphCount() {
+        return graphIds.length;
+    }
+
+    /**
+     * @param nodeId id of the node document
+     * @return index of the given node, <code>-1</code> if there is no such node
+     */
+    public int indexOf(String nodeId) {
+        final Integer node = nodeIndex.get(nodeId);
+        return (node == null) ? -1 : node;
+    }
+
+    public String getNodeId(int node) {
+        return nodeIds[node];
+    }
+
+    /**
+     * @param nodes given node indices, e.g., one match of {@link #match(GraphPattern)}
+     * @return ids of the node documents
+     */
+    public String[] getNodeIds(int[] nodes) {
+        return Arrays.stream(nodes).mapToObj(node -> nodeIds[node]).toArray(String[]::new);
+    }
+
+    public GraphNodeType getNodeType(int node) {
+        return NODE_TYPES[nodeTypes[node]];
+    }
+
+    /**
+     * @param node given node index
+     * @return label of the given node, <code>null</code> if node has no label
+     */
+    public String getLabel(int node) {
+        final int code = nodeLabels[node];
+        return (code < 0) ? null : labelNames[code];
+    }
+
+    public long getLocationKey(int node) {
+        return locationKeys[node];
+    }
+
+    /**
+     * @param node given node index
+     * @return index of the graph containing the given node, <code>-1</code> if node is not part of any graph
+     */
+    public int getGraph(int node) {
+        return nodeGraphs[node];
+    }
+
+    public String getGraphId(int graph) {
+        return graphIds[graph];
+    }
+
+    public String getGraphDisplayName(int graph) {
+        return graphDisplayNames[graph];
+    }
+
+    /**
+     * @param node      given node index
+     * @param direction direction of edges
+     * @param edgeLabel name of the referencing field, <code>null</code> for any field
+     * @return indices of the adjacent nodes
+     */
+    public int[] getNeighbours(int node, EdgeDirection direction, String edgeLabel) {
+        final boolean[] edgeLabels = compileEdgeLabels(edgeLabel);
+        if (edgeLabels != null && edgeLabels.length == 0) {
+            return new int[0];
+        }
+        final IntStream.Builder neighbours = IntStream.builder();
+        forEachNeighbour(node, direction, edgeLabels, neighbours);
+        return neighbours.build().toArray();
+    }
+
+    /**
+     * Finds all matches of the given pattern, start nodes are evaluated in parallel. A match does not visit the same
+     * node twice.
+     *
+     * @param pattern given pattern
+     * @return node indices of every match, in order of the pattern and sorted by start node
+     */
+    public List<int[]> match(GraphPattern pattern) {
+        final int length = pattern.getLength();
+        final List<NodeFilter> filters = pattern.getFilters();
+        final int[] typeMasks = new int[length];
+        final boolean[][] labels = new boolean[length][];
+        for (int i = 0; i < length; i++) {
+            typeMasks[i] = filters.get(i).getTypeMask();
+            labels[i] = filters.get(i).compileLabels(this);
+        }
+        final List<GraphPattern.Step> steps = pattern.getSteps();
+        final EdgeDirection[] directions = new EdgeDirection[length];
+        final boolean[][] edgeLabels = new boolean[length][];
+        for (int i = 1; i < length; i++) {
+            final GraphPattern.Step step = steps.get(i - 1);
+            directions[i] = step.getDirection();
+            edgeLabels[i] = compileEdgeLabels(step.getEdgeLabel());
+            if (edgeLabels[i] != null && edgeLabels[i].length == 0) {
+                return Collections.emptyList();
+            }
+        }
+        return IntStream.range(0, getNodeCount()).parallel()
+                .filter(node -> matches(node, typeMasks[0], labels[0]))
+                .mapToObj(node -> {
+                    final List<int[]> matches = new ArrayList<>(1);
+                    final int[] path = new int[length];
+                    path[0] = node;
+                    extend(path, 1, typeMasks, labels, directions, edgeLabels, matches);
+                    return matches;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private void extend(int[] path, int position, int[] typeMasks, boolean[][] labels, EdgeDirection[] directions,
+                        boolean[][] edgeLabels, List<int[]> matches) {
+        if (position == path.length) {
+            matches.add(path.clone());
+            return;
+        }
+        forEachNeighbour(path[position - 1], directions[position], edgeLabels[position], neighbour -> {
+            if (!matches(neighbour, typeMasks[position], labels[position]) || contains(path, position, neighbour)) {
+                return;
+            }
+            path[position] = neighbour;
+            extend(path, position + 1, typeMasks, labels, directions, edgeLabels, matches);
+        });
+    }
+
+    /**
+     * Finds the shortest paths from every node matching <code>from</code> to every node matching <code>to</code>
+     * within <code>maxDepth</code> edges, breadth first searches from start nodes run in parallel.
+     *
+     * @param from       filter of start nodes
+     * @param to         filter of end nodes
+     * @param maxDepth   maximum number of edges in a path
+     * @param direction  direction of edges
+     * @param edgeLabels names of the referencing fields to follow, all fields if empty
+     * @return node indices of every path, from start node to end node, sorted by start node
+     */
+    public List<int[]> findPaths(NodeFilter from, NodeFilter to, int maxDepth, EdgeDirection direction,
+                                 String... edgeLabels) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException(String.format("Invalid max depth {%s}", maxDepth));
+        }
+        final int fromTypeMask = from.getTypeMask();
+        final boolean[] fromLabels = from.compileLabels(this);
+        final int toTypeMask = to.getTypeMask();
+        final boolean[] toLabels = to.compileLabels(this);
+        final boolean[] followedLabels = compileEdgeLabels(edgeLabels);
+        if (followedLabels != null && followedLabels.length == 0) {
+            return Collections.emptyList();
+        }
+        return IntStream.range(0, getNodeCount()).parallel()
+                .filter(node -> matches(node, fromTypeMask, fromLabels))
+                .mapToObj(start -> {
+                    final List<int[]> paths = new ArrayList<>();
+                    final Map<Integer, Integer> parents = new HashMap<>();
+                    parents.put(start, -1);
+                    ArrayDeque<Integer> level = new ArrayDeque<>();
+                    level.add(start);
+                    for (int depth = 1; depth <= maxDepth && !level.isEmpty(); depth++) {
+                        final ArrayDeque<Integer> next = new ArrayDeque<>();
+                        for (int node : level) {
+                            forEachNeighbour(node, direction, followedLabels, neighbour -> {
+                                if (parents.putIfAbsent(neighbour, node) != null) {
+                                    return;
+                                }
+                                next.add(neighbour);
+                                if (matches(neighbour, toTypeMask, toLabels)) {
+                                    paths.add(toPath(parents, neighbour));
+                                }
+                            });
+                        }
+                        level = next;
+                    }
+                    return paths;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private static int[] toPath(Map<Integer, Integer> parents, int end) {
+        final IntStream.Builder reversed = IntStream.builder();
+        for (int node = end; node >= 0; node = parents.get(node)) {
+            reversed.add(node);
+        }
+        final int[] path = reversed.build().toArray();
+        for (int i = 0, j = path.length - 1; i < j; i++, j--) {
+            final int tmp = path[i];
+            path[i] = path[j];
+            path[j] = tmp;
+        }
+        return path;
+    }
+
+    private static boolean contains(int[] path, int length, int node) {
+        for (int i = 0; i < length; i++) {
+            if (path[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(int node, int typeMask, boolean[] labels) {
+        if (typeMask != 0 && (typeMask & (1 << nodeTypes[node])) == 0) {
+            return false;
+        }
+        if (labels == null) {
+            return true;
+        }
+        final int code = nodeLabels[node];
+        return code >= 0 && labels[code];
+    }
+
+    private void forEachNeighbour(int node, EdgeDirection direction, boolean[] edgeLabels, IntConsumer consumer) {
+        if (direction != EdgeDirection.INCOMING) {
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                if (edgeLabels == null || edgeLabels[outLabels[i]]) {
+                    consumer.accept(outTargets[i]);
+                }
+            }
+        }
+        if (direction != EdgeDirection.OUTGOING) {
+            for (int i = inOffsets[node]; i < inOffsets[node + 1]; i++) {
+                if (edgeLabels == null || edgeLabels[inLabels[i]]) {
+                    consumer.accept(inSources[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param edgeLabels names of the referencing fields
+     * @return match flags indexed by edge label code, <code>null</code> if any label matches, empty if none of the
+     * given labels exists
+     */
+    private boolean[] compileEdgeLabels(String... edgeLabels) {
+        if (edgeLabels == null || edgeLabels.length == 0 || (edgeLabels.length == 1 && edgeLabels[0] == null)) {
+            return null;
+        }
+        final boolean[] matches = new boolean[edgeLabelNames.length];
+        boolean found = false;
+        for (String edgeLabel : edgeLabels) {
+            final Integer code = edgeLabelCodes.get(edgeLabel);
+            if (code != null) {
+                matches[code] = true;
+                found = true;
+            }
+        }
+        return found ? matches : new boolean[0];
+    }
+
+    int getLabelCount() {
+        return labelNames.length;
+    }
+
+    int getLabelCode(String label) {
+        final Integer code = labelCodes.get(label);
+        return (code == null) ? UNKNOWN_LABEL : code;
+    }
+
+    /**
+     * Collects nodes, edges and graphs while documents are being read, edges may refer to nodes not yet added.
+     */
+    static final class Builder {
+
+        private final List<String> nodeIds = new ArrayList<>();
+        private final Map<String, Integer> nodeIndex = new HashMap<>();
+        private byte[] nodeTypes = new byte[1024];
+        private int[] nodeLabels = new int[1024];
+        private long[] locationKeys = new long[1024];
+        private int nodeCount;
+        private final List<String> labelNames = new ArrayList<>();
+        private final Map<String, Integer> labelCodes = new HashMap<>();
+        private final List<String> edgeLabelNames = new ArrayList<>();
+        private final Map<String, Integer> edgeLabelCodes = new HashMap<>();
+        private int[] edgeSources = new int[1024];
+        private byte[] edgeLabels = new byte[1024];
+        private final List<String> edgeTargetIds = new ArrayList<>();
+        private final List<String> graphIds = new ArrayList<>();
+        private final List<String> graphDisplayNames = new ArrayList<>();
+        private final List<List<String>> graphNodes = new ArrayList<>();
+
+        /**
+         * @param nodeId      id of the node document
+         * @param nodeType    type of the node
+         * @param label       label of the node, may be <code>null</code>
+         * @param locationKey {@link com.alphasystem.morphologicalanalysis.util.LocationKey} of the node
+         * @return index of the node
+         */
+        int addNode(String nodeId, GraphNodeType nodeType, String label, long locationKey) {
+            final Integer existing = nodeIndex.get(nodeId);
+            if (existing != null) {
+                return existing;
+            }
+            if (nodeCount == nodeTypes.length) {
+                final int capacity = nodeCount * 2;
+                nodeTypes = Arrays.copyOf(nodeTypes, capacity);
+                nodeLabels = Arrays.copyOf(nodeLabels, capacity);
+                locationKeys = Arrays.copyOf(locationKeys, capacity);
+            }
+            final int node = nodeCount++;
+            nodeIds.add(nodeId);
+            nodeIndex.put(nodeId, node);
+            nodeTypes[node] = (byte) nodeType.ordinal();
+            nodeLabels[node] = (label == null) ? -1 : labelCodes.computeIfAbsent(label, key -> {
+                labelNames.add(key);
+                return labelNames.size() - 1;
+            });
+            locationKeys[node] = locationKey;
+            return node;
+        }
+
+        /**
+         * @param source       index of the referencing node
+         * @param targetNodeId id of the referenced node document
+         * @param edgeLabel    name of the referencing field
+         */
+        void addEdge(int source, String targetNodeId, String edgeLabel) {
+            final int code = edgeLabelCodes.computeIfAbsent(edgeLabel, key -> {
+                if (edgeLabelNames.size() > Byte.MAX_VALUE) {
+                    throw new IllegalStateException(String.format("Too many edge labels, unable to add {%s}", key));
+                }
+                edgeLabelNames.add(key);
+                return edgeLabelNames.size() - 1;
+            });
+            final int edge = edgeTargetIds.size();
+            if (edge == edgeSources.length) {
+                edgeSources = Arrays.copyOf(edgeSources, edge * 2);
+                edgeLabels = Arrays.copyOf(edgeLabels, edge * 2);
+            }
+            edgeSources[edge] = source;
+            edgeLabels[edge] = (byte) code;
+            edgeTargetIds.add(targetNodeId);
+        }
+
+        /**
+         * @param graphId     id of the graph document
+         * @param displayName display name of the graph
+         * @param nodeIds     ids of the nodes of the graph
+         */
+        void addGraph(String graphId, String displayName, List<String> nodeIds) {
+            graphIds.add(graphId);
+            graphDisplayNames.add(displayName);
+            graphNodes.add(nodeIds);
+        }
+
+        /**
+         * @return graph of the nodes added so far, edges referring to unknown nodes are dropped
+         */
+        CorpusGraph build() {
+            final int edgeCount = edgeTargetIds.size();
+            final int[] sources = new int[edgeCount];
+            final int[] targets = new int[edgeCount];
+            final byte[] labels = new byte[edgeCount];
+            int resolved = 0;
+            for (int edge = 0; edge < edgeCount; edge++) {
+                final Integer target = nodeIndex.get(edgeTargetIds.get(edge));
+                if (target != null) {
+                    sources[resolved] = edgeSources[edge];
+                    targets[resolved] = target;
+                    labels[resolved] = edgeLabels[edge];
+                    resolved++;
+                }
+            }
+            return new CorpusGraph(this, Arrays.copyOf(sources, resolved), Arrays.copyOf(targets, resolved),
+                    Arrays.copyOf(labels, resolved));
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.util.BatchedDocumentReader;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.SimpleAssociationHandler;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Loads all {@link DependencyGraph}s and their {@link GraphNode}s into one {@link CorpusGraph} for corpus wide pattern
+ * and path queries.
+ * <p>
+ * Documents are read chapter by chapter through {@link BatchedDocumentReader}, i.e., mapped the same way as the
+ * repositories map them but with references resolved in batches. Node classes are taken from
+ * {@link MorphologicalAnalysisRepositoryUtil#getGraphNodeClass(GraphNodeType)}, one per {@link GraphNodeType}. Every
+ * reference (or collection of references) to another node becomes an edge labelled by the name of the referencing
+ * field, e.g., <code>dependent</code> and <code>owner</code> of relationship nodes or <code>partOfSpeechNodes</code> of
+ * terminal nodes. Relationship type is the label of relationship nodes. Nodes and graphs without chapter number are
+ * not loaded.
+ * </p>
+ * <p>
+ * Nodes, edges and graphs of every chapter are kept, so that a change of a graph document only reloads the chapter(s)
+ * of that document, see {@link DependencyGraphEngineEventListener}. {@link CorpusGraph} is then assembled again from
+ * memory on next use.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class DependencyGraphEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraphEngine.class);
+    private static final String CHAPTER_NUMBER = "chapterNumber";
+    private static final String RELATIONSHIP = "relationship";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private BatchedDocumentReader batchedDocumentReader;
+    @Autowired private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private final Object buildLock = new Object();
+    private final Map<Integer, ChapterGraph> chapterGraphs = new HashMap<>();
+    private final Map<String, Integer> documentChapters = new ConcurrentHashMap<>();
+    private final Set<Integer> staleChapters = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+    private volatile CorpusGraph graph;
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * @return current graph, chapters changed since last load are reloaded first
+     */
+    public CorpusGraph getGraph() {
+        CorpusGraph result = graph;
+        if (result != null) {
+            return result;
+        }
+        synchronized (buildLock) {
+            result = graph;
+            if (result == null) {
+                final long expectedModificationCount = modificationCount.get();
+                result = load();
+                // a change during load makes this graph stale, serve it once but do not keep it
+                if (expectedModificationCount == modificationCount.get()) {
+                    graph = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards the current graph and all loaded chapters, next query loads every chapter again.
+     */
+    public void invalidate() {
+        loaded = false;
+        modificationCount.incrementAndGet();
+        graph = null;
+    }
+
+    /**
+     * Marks chapter of a saved node or graph document as changed, as well as the chapter it was loaded from if the
+     * document has been moved.
+     *
+     * @param id            id of the saved document
+     * @param chapterNumber chapter number of the saved document, may be <code>null</code>
+     */
+    public void documentSaved(String id, Integer chapterNumber) {
+        final Integer previousChapterNumber = (id == null) ? null : documentChapters.get(id);
+        if (previousChapterNumber != null) {
+            staleChapters.add(previousChapterNumber);
+        }
+        if (chapterNumber != null) {
+            staleChapters.add(chapterNumber);
+        }
+        if (previousChapterNumber != null || chapterNumber != null) {
+            modificationCount.incrementAndGet();
+            graph = null;
+        }
+    }
+
+    /**
+     * Marks chapters of deleted node or graph documents as changed.
+     *
+     * @param ids ids of the deleted documents, <code>null</code> if they are not known
+     */
+    public void documentsDeleted(Collection<String> ids) {
+        if (ids == null) {
+            invalidate();
+            return;
+        }
+        // documents which have not been loaded are not part of the graph
+        final List<Integer> chapterNumbers = ids.stream().map(documentChapters::get).filter(chapterNumber ->
+                chapterNumber != null).collect(Collectors.toList());
+        if (!chapterNumbers.isEmpty()) {
+            staleChapters.addAll(chapterNumbers);
+            modificationCount.incrementAndGet();
+            graph = null;
+        }
+    }
+
+    /**
+     * @param pattern given pattern
+     * @return node ids of every match of the given pattern
+     * @see CorpusGraph#match(GraphPattern)
+     */
+    public List<String[]> match(GraphPattern pattern) {
+        final CorpusGraph graph = getGraph();
+        return graph.match(pattern).stream().map(graph::getNodeIds).collect(Collectors.toList());
+    }
+
+    /**
+     * @param from       filter of start nodes
+     * @param to         filter of end nodes
+     * @param maxDepth   maximum number of edges in a path
+     * @param direction  direction of edges
+     * @param edgeLabels names of the referencing fields to follow, all fields if empty
+     * @return node ids of every path
+     * @see CorpusGraph#findPaths(NodeFilter, NodeFilter, int, EdgeDirection, String...)
+     */
+    public List<String[]> findPaths(NodeFilter from, NodeFilter to, int maxDepth, EdgeDirection direction,
+                                    String... edgeLabels) {
+        final CorpusGraph graph = getGraph();
+        return graph.findPaths(from, to, maxDepth, direction, edgeLabels).stream().map(graph::getNodeIds)
+                .collect(Collectors.toList());
+    }
+
+    private CorpusGraph load() {
+        final long start = System.currentTimeMillis();
+        final List<Integer> chapterNumbers = new ArrayList<>();
+        if (!loaded) {
+            loaded = true;
+            staleChapters.clear();
+            chapterGraphs.clear();
+            documentChapters.clear();
+            repositoryUtil.findAllChapters().forEach(chapter -> chapterNumbers.add(chapter.getChapterNumber()));
+        } else {
+            for (Integer chapterNumber : new ArrayList<>(staleChapters)) {
+                staleChapters.remove(chapterNumber);
+                chapterNumbers.add(chapterNumber);
+            }
+        }
+        chapterNumbers.forEach(this::loadChapter);
+
+        final CorpusGraph.Builder builder = new CorpusGraph.Builder();
+        chapterGraphs.values().forEach(chapterGraph -> chapterGraph.nodes.forEach(nodeRecord -> {
+            final int node = builder.addNode(nodeRecord.id, nodeRecord.nodeType, nodeRecord.label,
+                    nodeRecord.locationKey);
+            nodeRecord.edges.forEach((label, targetNodeIds) -> targetNodeIds.forEach(targetNodeId ->
+                    builder.addEdge(node, targetNodeId, label)));
+        }));
+        chapterGraphs.values().forEach(chapterGraph -> chapterGraph.graphs.forEach(graphRecord ->
+                builder.addGraph(graphRecord.id, graphRecord.displayName, graphRecord.nodeIds)));
+        final CorpusGraph result = builder.build();
+        LOGGER.info("Loaded {} chapters, {} graphs with {} nodes and {} edges in {} ms", chapterNumbers.size(),
+                result.getGraphCount(), result.getNodeCount(), result.getEdgeCount(),
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private void loadChapter(Integer chapterNumber) {
+        final ChapterGraph previous = chapterGraphs.remove(chapterNumber);
+        if (previous != null) {
+            previous.nodes.forEach(nodeRecord -> documentChapters.remove(nodeRecord.id, chapterNumber));
+            previous.graphs.forEach(graphRecord -> documentChapters.remove(graphRecord.id, chapterNumber));
+        }
+        final Query query = new Query(Criteria.where(CHAPTER_NUMBER).is(chapterNumber));
+        final ChapterGraph chapterGraph = new ChapterGraph();
+        for (GraphNodeType nodeType : GraphNodeType.values()) {
+            final Class<? extends GraphNode> nodeClass =
+                    MorphologicalAnalysisRepositoryUtil.getGraphNodeClass(nodeType);
+            if (nodeClass == null) {
+                continue;
+            }
+            batchedDocumentReader.find(query, nodeClass).forEach(node -> {
+                final NodeRecord nodeRecord = new NodeRecord(node.getId(), nodeType, getLabel(node),
+                        getLocationKey(node));
+                forEachReference(node, (label, targetNodeId) -> nodeRecord.edges.computeIfAbsent(label,
+                        key -> new ArrayList<>()).add(targetNodeId));
+                chapterGraph.nodes.add(nodeRecord);
+                documentChapters.put(nodeRecord.id, chapterNumber);
+            });
+        }
+        batchedDocumentReader.find(query, DependencyGraph.class).forEach(dependencyGraph -> {
+            final List<String> nodeIds = new ArrayList<>();
+            forEachReference(dependencyGraph, (label, nodeId) -> nodeIds.add(nodeId));
+            chapterGraph.graphs.add(new GraphRecord(dependencyGraph.getId(), dependencyGraph.getDisplayName(),
+                    nodeIds));
+            documentChapters.put(dependencyGraph.getId(), chapterNumber);
+        });
+        chapterGraphs.put(chapterNumber, chapterGraph);
+    }
+
+    private MongoPersistentEntity<?> getPersistentEntity(Class<?> type) {
+        final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        return mappingContext.getPersistentEntity(type);
+    }
+
+    private String getLabel(GraphNode node) {
+        final MongoPersistentEntity<?> entity = getPersistentEntity(node.getClass());
+        final MongoPersistentProperty property = (entity == null) ? null : entity.getPersistentProperty(RELATIONSHIP);
+        final Object label = (property == null) ? null : entity.getPropertyAccessor(node).getProperty(property);
+        if (label == null) {
+            return null;
+        }
+        // same as the stored value
+        return (label instanceof Enum) ? ((Enum<?>) label).name() : label.toString();
+    }
+
+    private static long getLocationKey(GraphNode node) {
+        if (node.getChapterNumber() == null || node.getVerseNumber() == null || node.getTokenNumber() == null) {
+            return 0L;
+        }
+        final Integer locationNumber = (node instanceof PartOfSpeechNode)
+                ? ((PartOfSpeechNode) node).getLocationNumber() : null;
+        return LocationKey.encode(node.getChapterNumber(), node.getVerseNumber(), node.getTokenNumber(),
+                (locationNumber == null) ? 0 : locationNumber);
+    }
+
+    /**
+     * @param document given node or graph
+     * @param consumer consumer of the name of the referencing field and the id of every referenced node
+     */
+    private void forEachReference(Object document, ReferenceConsumer consumer) {
+        final MongoPersistentEntity<?> entity = getPersistentEntity(document.getClass());
+        if (entity == null) {
+            return;
+        }
+        final PersistentPropertyAccessor accessor = entity.getPropertyAccessor(document);
+        entity.doWithAssociations((SimpleAssociationHandler) association -> {
+            final MongoPersistentProperty property = (MongoPersistentProperty) association.getInverse();
+            forEachNode(accessor.getProperty(property), node -> consumer.accept(property.getFieldName(),
+                    node.getId()));
+        });
+    }
+
+    private static void forEachNode(Object value, Consumer<GraphNode> consumer) {
+        if (value instanceof GraphNode) {
+            final GraphNode node = (GraphNode) value;
+            if (node.getId() != null) {
+                consumer.accept(node);
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                forEachNode(element, consumer);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReferenceConsumer {
+        void accept(String label, String nodeId);
+    }
+
+    /**
+     * Nodes and graphs of one chapter.
+     */
+    private static final class ChapterGraph {
+        private final List<NodeRecord> nodes = new ArrayList<>();
+        private final List<GraphRecord> graphs = new ArrayList<>();
+    }
+
+    private static final class NodeRecord {
+        private final String id;
+        private final GraphNodeType nodeType;
+        private final String label;
+        private final long locationKey;
+        private final Map<String, List<String>> edges = new HashMap<>();
+
+        private NodeRecord(String id, GraphNodeType nodeType, String label, long locationKey) {
+            this.id = id;
+            this.nodeType = nodeType;
+            this.label = label;
+            this.locationKey = locationKey;
+        }
+    }
+
+    private static final class GraphRecord {
+        private final String id;
+        private final String displayName;
+        private final List<String> nodeIds;
+
+        private GraphRecord(String id, String displayName, List<String> nodeIds) {
+            this.id = id;
+            this.displayName = displayName;
+            this.nodeIds = nodeIds;
+        }
+    }
+}
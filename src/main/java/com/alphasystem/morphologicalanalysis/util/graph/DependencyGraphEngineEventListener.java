@@ -0,0 +1,76 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.mongodb.DBObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports every saved or deleted {@link DependencyGraph} and {@link GraphNode} document to
+ * {@link DependencyGraphEngine}, which reloads the chapters of these documents on next use.
+ *
+ * @author sali
+ */
+@Component
+public class DependencyGraphEngineEventListener extends AbstractMongoEventListener<Object> {
+
+    @Autowired
+    private DependencyGraphEngine dependencyGraphEngine;
+
+    private static boolean isGraphType(Class<?> type) {
+        return type != null && (DependencyGraph.class.isAssignableFrom(type) || GraphNode.class.isAssignableFrom(type));
+    }
+
+    /**
+     * @param query query of a delete event
+     * @return ids of the deleted documents, <code>null</code> if ids can not be determined from the query
+     */
+    private static List<String> getIds(DBObject query) {
+        final Object id = (query == null) ? null : query.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (!(id instanceof DBObject)) {
+            return Collections.singletonList(id.toString());
+        }
+        final DBObject criteria = (DBObject) id;
+        final Object in = criteria.get("$in");
+        if (criteria.keySet().size() != 1 || !(in instanceof Collection)) {
+            return null;
+        }
+        final List<String> ids = new ArrayList<>();
+        ((Collection<?>) in).forEach(value -> ids.add(value.toString()));
+        return ids;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Object> event) {
+        super.onAfterSave(event);
+        final Object source = event.getSource();
+        if (source instanceof GraphNode) {
+            final GraphNode node = (GraphNode) source;
+            dependencyGraphEngine.documentSaved(node.getId(), node.getChapterNumber());
+        } else if (source instanceof DependencyGraph) {
+            final DependencyGraph dependencyGraph = (DependencyGraph) source;
+            dependencyGraphEngine.documentSaved(dependencyGraph.getId(), dependencyGraph.getChapterNumber());
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Object> event) {
+        super.onAfterDelete(event);
+        // type is not known when documents are removed by collection name
+        if (event.getType() == null || isGraphType(event.getType())) {
+            dependencyGraphEngine.documentsDeleted(getIds(event.getDBObject()));
+        }
+    }
+}
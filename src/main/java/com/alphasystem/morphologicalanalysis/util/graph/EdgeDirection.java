@@ -0,0 +1,24 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+/**
+ * Direction in which edges of {@link CorpusGraph} are followed.
+ *
+ * @author sali
+ */
+public enum EdgeDirection {
+
+    /**
+     * From the node holding the reference to the referenced node, e.g., from relationship to its dependent.
+     */
+    OUTGOING,
+
+    /**
+     * From the referenced node to the node holding the reference, e.g., from dependent to its relationships.
+     */
+    INCOMING,
+
+    /**
+     * Both directions.
+     */
+    BOTH
+}
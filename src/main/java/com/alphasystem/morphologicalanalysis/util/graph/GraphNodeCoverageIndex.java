@@ -0,0 +1,354 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.util.index.LocationInvertedIndex;
+import com.alphasystem.morphologicalanalysis.util.index.RoaringBitmap;
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Annotation coverage of chapters, i.e., which tokens (and locations) have {@link GraphNode}s of each
+ * {@link GraphNodeType}, one {@link RoaringBitmap} of {@link LocationInvertedIndex#toOrdinal(int, int, int, int)
+ * location ordinals} per chapter and node type.
+ * <p>
+ * Coverage of a chapter is computed on first use with one aggregation per node collection, replacing one
+ * <code>countByChapterNumberAndVerseNumberAndTokenNumber</code> query per token. Aggregations run outside of the
+ * lock and the bitmaps of a chapter are published at once, coverage loaded while any node was saved or deleted is
+ * served to its caller but not kept. Bitmaps are kept up to date by the
+ * graph node listeners, which report every saved and deleted node. Location number is only part of the ordinal for
+ * {@link PartOfSpeechNode}s, nodes of other types are stored with location number <code>0</code>. Nodes whose
+ * location does not fit into an ordinal are logged and left out.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class GraphNodeCoverageIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphNodeCoverageIndex.class);
+    private static final String ID = "_id";
+    private static final String IDS = "ids";
+    private static final String CHAPTER_NUMBER = "chapterNumber";
+    private static final String VERSE_NUMBER = "verseNumber";
+    private static final String TOKEN_NUMBER = "tokenNumber";
+    private static final String LOCATION_NUMBER = "locationNumber";
+    private static final int MAX_LOCATION_NUMBER = 0x7F;
+
+    @Autowired private MongoTemplate mongoTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Map<GraphNodeType, NodeCoverage>> chapters = new HashMap<>();
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * @param nodeClass given node class
+     * @return node type persisted with the given class, <code>null</code> if there is no such type
+     */
+    private static GraphNodeType getNodeType(Class<?> nodeClass) {
+        for (GraphNodeType nodeType : GraphNodeType.values()) {
+            if (MorphologicalAnalysisRepositoryUtil.getGraphNodeClass(nodeType) == nodeClass) {
+                return nodeType;
+            }
+        }
+        return null;
+    }
+
+    private static Integer ordinalOf(GraphNodeType nodeType, Object chapterNumber, Object verseNumber,
+                                     Object tokenNumber, Object locationNumber) {
+        if (!(chapterNumber instanceof Number) || !(verseNumber instanceof Number)
+                || !(tokenNumber instanceof Number)) {
+            return null;
+        }
+        final int chapter = ((Number) chapterNumber).intValue();
+        final int verse = ((Number) verseNumber).intValue();
+        final int token = ((Number) tokenNumber).intValue();
+        final int location = (nodeType == GraphNodeType.PART_OF_SPEECH && locationNumber instanceof Number)
+                ? ((Number) locationNumber).intValue() : 0;
+        if (!LocationInvertedIndex.isInRange(chapter, verse, token, location)) {
+            LOGGER.warn("Node location {}:{}:{}:{} of type {} is out of range, skipping it", chapter, verse, token,
+                    location, nodeType);
+            return null;
+        }
+        return LocationInvertedIndex.toOrdinal(chapter, verse, token, location);
+    }
+
+    /**
+     * @param query query of a delete event
+     * @return ids of the deleted documents, <code>null</code> if ids can not be determined from the query
+     */
+    private static List<String> getIds(DBObject query) {
+        final Object id = (query == null) ? null : query.get(ID);
+        if (id == null) {
+            return null;
+        }
+        if (!(id instanceof DBObject)) {
+            return Collections.singletonList(id.toString());
+        }
+        final DBObject criteria = (DBObject) id;
+        final Object in = criteria.get("$in");
+        if (criteria.keySet().size() != 1 || !(in instanceof Collection)) {
+            return null;
+        }
+        final List<String> ids = new ArrayList<>();
+        ((Collection<?>) in).forEach(value -> ids.add(value.toString()));
+        return ids;
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @param nodeType      given node type
+     * @return ordinals of all locations of the given chapter having nodes of the given type
+     */
+    public RoaringBitmap getCoverage(int chapterNumber, GraphNodeType nodeType) {
+        return read(chapterNumber, coverage -> {
+            final NodeCoverage nodeCoverage = coverage.get(nodeType);
+            return (nodeCoverage == null) ? new RoaringBitmap() : nodeCoverage.ordinals.copy();
+        });
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @return ordinals of all locations of the given chapter having nodes, by node type
+     */
+    public Map<GraphNodeType, RoaringBitmap> getCoverage(int chapterNumber) {
+        return read(chapterNumber, coverage -> {
+            final Map<GraphNodeType, RoaringBitmap> result = new EnumMap<>(GraphNodeType.class);
+            coverage.forEach((nodeType, nodeCoverage) -> result.put(nodeType, nodeCoverage.ordinals.copy()));
+            return result;
+        });
+    }
+
+    /**
+     * @param nodeType      given node type
+     * @param chapterNumber chapter number of the token
+     * @param verseNumber   verse number of the token
+     * @param tokenNumber   token number
+     * @return <code>true</code> if given token (any of its locations for part of speech nodes) has nodes of the given
+     * type
+     */
+    public boolean isCovered(GraphNodeType nodeType, int chapterNumber, int verseNumber, int tokenNumber) {
+        if (!LocationInvertedIndex.isInRange(chapterNumber, verseNumber, tokenNumber, 0)) {
+            // such a token is never indexed
+            return false;
+        }
+        final int first = LocationInvertedIndex.toOrdinal(chapterNumber, verseNumber, tokenNumber, 0);
+        return read(chapterNumber, coverage -> {
+            final NodeCoverage nodeCoverage = coverage.get(nodeType);
+            if (nodeCoverage != null) {
+                for (int ordinal = first; ordinal <= first + MAX_LOCATION_NUMBER; ordinal++) {
+                    if (nodeCoverage.ordinals.contains(ordinal)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @param chapterNumber  chapter number of the location
+     * @param verseNumber    verse number of the location
+     * @param tokenNumber    token number of the location
+     * @param locationNumber location number
+     * @return <code>true</code> if given location has part of speech nodes
+     */
+    public boolean isCovered(int chapterNumber, int verseNumber, int tokenNumber, int locationNumber) {
+        if (!LocationInvertedIndex.isInRange(chapterNumber, verseNumber, tokenNumber, locationNumber)) {
+            return false;
+        }
+        final int ordinal = LocationInvertedIndex.toOrdinal(chapterNumber, verseNumber, tokenNumber, locationNumber);
+        return read(chapterNumber, coverage -> {
+            final NodeCoverage nodeCoverage = coverage.get(GraphNodeType.PART_OF_SPEECH);
+            return nodeCoverage != null && nodeCoverage.ordinals.contains(ordinal);
+        });
+    }
+
+    /**
+     * Updates coverage of a saved node, called from graph node listeners.
+     *
+     * @param node saved node
+     */
+    public void nodeSaved(GraphNode node) {
+        final GraphNodeType nodeType = getNodeType(node.getClass());
+        if (nodeType == null || node.getId() == null) {
+            return;
+        }
+        final Integer locationNumber = (node instanceof PartOfSpeechNode)
+                ? ((PartOfSpeechNode) node).getLocationNumber() : null;
+        final Integer ordinal = ordinalOf(nodeType, node.getChapterNumber(), node.getVerseNumber(),
+                node.getTokenNumber(), locationNumber);
+        lock.writeLock().lock();
+        try {
+            modificationCount.incrementAndGet();
+            // a node may have been moved from another chapter
+            chapters.values().forEach(coverage -> {
+                final NodeCoverage nodeCoverage = coverage.get(nodeType);
+                if (nodeCoverage != null) {
+                    nodeCoverage.remove(node.getId());
+                }
+            });
+            if (ordinal != null) {
+                final Map<GraphNodeType, NodeCoverage> coverage = chapters.get(node.getChapterNumber());
+                if (coverage != null) {
+                    coverage.computeIfAbsent(nodeType, key -> new NodeCoverage()).add(node.getId(), ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates coverage of deleted nodes, called from graph node listeners.
+     *
+     * @param nodeClass class of the deleted nodes
+     * @param query     query of the delete event
+     */
+    public void nodesDeleted(Class<?> nodeClass, DBObject query) {
+        final GraphNodeType nodeType = getNodeType(nodeClass);
+        final List<String> ids = getIds(query);
+        lock.writeLock().lock();
+        try {
+            modificationCount.incrementAndGet();
+            if (nodeType == null || ids == null) {
+                // deleted nodes are not known
+                chapters.clear();
+                return;
+            }
+            chapters.values().forEach(coverage -> {
+                final NodeCoverage nodeCoverage = coverage.get(nodeType);
+                if (nodeCoverage != null) {
+                    ids.forEach(nodeCoverage::remove);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards coverage of all chapters, coverage is computed again on next use.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            modificationCount.incrementAndGet();
+            chapters.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(int chapterNumber, Function<Map<GraphNodeType, NodeCoverage>, T> reader) {
+        lock.readLock().lock();
+        try {
+            final Map<GraphNodeType, NodeCoverage> coverage = chapters.get(chapterNumber);
+            if (coverage != null) {
+                return reader.apply(coverage);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // aggregations run without holding the lock, so that other chapters stay readable and updatable meanwhile
+        final long expectedModificationCount = modificationCount.get();
+        final Map<GraphNodeType, NodeCoverage> loaded = load(chapterNumber);
+        lock.writeLock().lock();
+        try {
+            final Map<GraphNodeType, NodeCoverage> coverage = chapters.get(chapterNumber);
+            if (coverage != null) {
+                // published by a concurrent load
+                return reader.apply(coverage);
+            }
+            // a node saved or deleted during load may be missing, serve the coverage once but do not keep it
+            if (expectedModificationCount == modificationCount.get()) {
+                chapters.put(chapterNumber, loaded);
+            }
+            return reader.apply(loaded);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<GraphNodeType, NodeCoverage> load(int chapterNumber) {
+        final long start = System.currentTimeMillis();
+        final Map<GraphNodeType, NodeCoverage> coverage = new EnumMap<>(GraphNodeType.class);
+        final List<DBObject> pipeline = new ArrayList<>();
+        pipeline.add(new BasicDBObject("$match", new BasicDBObject(CHAPTER_NUMBER, chapterNumber)));
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject(ID, new BasicDBObject(VERSE_NUMBER, "$verseNumber")
+                .append(TOKEN_NUMBER, "$tokenNumber").append(LOCATION_NUMBER, "$locationNumber"))
+                .append(IDS, new BasicDBObject("$push", "$_id"))));
+        final AggregationOptions options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR).build();
+        for (GraphNodeType nodeType : GraphNodeType.values()) {
+            final Class<? extends GraphNode> nodeClass =
+                    MorphologicalAnalysisRepositoryUtil.getGraphNodeClass(nodeType);
+            if (nodeClass == null) {
+                continue;
+            }
+            final NodeCoverage nodeCoverage = new NodeCoverage();
+            try (Cursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(nodeClass))
+                    .aggregate(pipeline, options)) {
+                cursor.forEachRemaining(dbObject -> {
+                    final DBObject id = (DBObject) dbObject.get(ID);
+                    final Integer ordinal = ordinalOf(nodeType, chapterNumber, id.get(VERSE_NUMBER),
+                            id.get(TOKEN_NUMBER), id.get(LOCATION_NUMBER));
+                    final Object ids = dbObject.get(IDS);
+                    if (ordinal != null && ids instanceof Collection) {
+                        ((Collection<?>) ids).forEach(nodeId -> nodeCoverage.add(nodeId.toString(), ordinal));
+                    }
+                });
+            }
+            coverage.put(nodeType, nodeCoverage);
+        }
+        LOGGER.debug("Loaded graph node coverage of chapter {} in {} ms", chapterNumber,
+                System.currentTimeMillis() - start);
+        return coverage;
+    }
+
+    /**
+     * Coverage of one node type within one chapter, with the ordinal of every node so that deletes (which only carry
+     * node ids) can be applied.
+     */
+    private static final class NodeCoverage {
+
+        private final RoaringBitmap ordinals = new RoaringBitmap();
+        private final Map<String, Integer> ordinalsById = new HashMap<>();
+        private final Map<Integer, Integer> nodeCounts = new HashMap<>();
+
+        private void add(String nodeId, int ordinal) {
+            if (ordinalsById.putIfAbsent(nodeId, ordinal) == null) {
+                nodeCounts.merge(ordinal, 1, Integer::sum);
+                ordinals.add(ordinal);
+            }
+        }
+
+        private void remove(String nodeId) {
+            final Integer ordinal = ordinalsById.remove(nodeId);
+            if (ordinal != null && nodeCounts.merge(ordinal, -1, Integer::sum) <= 0) {
+                nodeCounts.remove(ordinal);
+                ordinals.remove(ordinal);
+            }
+        }
+    }
+}
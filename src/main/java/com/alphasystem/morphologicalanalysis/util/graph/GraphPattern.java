@@ -0,0 +1,116 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.alphasystem.morphologicalanalysis.util.graph.EdgeDirection.INCOMING;
+import static com.alphasystem.morphologicalanalysis.util.graph.EdgeDirection.OUTGOING;
+
+/**
+ * Linear pattern over {@link CorpusGraph}, a start {@link NodeFilter} followed by steps, each step following one edge
+ * and matching the node reached. Edges are labelled by the name of the referencing field, e.g., all subject
+ * relationships whose dependent is the part of speech of an implied node:
+ * <pre>
+ * GraphPattern.start(NodeFilter.type(RELATIONSHIP).label(SUBJECT))
+ *         .out("dependent", NodeFilter.type(PART_OF_SPEECH))
+ *         .in("partOfSpeechNodes", NodeFilter.type(IMPLIED));
+ * </pre>
+ * Patterns are immutable, every step returns a new pattern.
+ *
+ * @author sali
+ */
+public final class GraphPattern {
+
+    private final List<NodeFilter> filters;
+    private final List<Step> steps;
+
+    private GraphPattern(List<NodeFilter> filters, List<Step> steps) {
+        this.filters = Collections.unmodifiableList(filters);
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * @param filter filter of the first node
+     * @return pattern matching single nodes
+     */
+    public static GraphPattern start(NodeFilter filter) {
+        return new GraphPattern(Collections.singletonList(requireFilter(filter)), Collections.emptyList());
+    }
+
+    private static NodeFilter requireFilter(NodeFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Node filter cannot be null");
+        }
+        return filter;
+    }
+
+    /**
+     * @param edgeLabel name of the referencing field, <code>null</code> for any field
+     * @param filter    filter of the referenced node
+     * @return pattern extended by following one outgoing edge
+     */
+    public GraphPattern out(String edgeLabel, NodeFilter filter) {
+        return step(OUTGOING, edgeLabel, filter);
+    }
+
+    /**
+     * @param edgeLabel name of the referencing field, <code>null</code> for any field
+     * @param filter    filter of the referencing node
+     * @return pattern extended by following one incoming edge
+     */
+    public GraphPattern in(String edgeLabel, NodeFilter filter) {
+        return step(INCOMING, edgeLabel, filter);
+    }
+
+    /**
+     * @param direction direction of the edge
+     * @param edgeLabel name of the referencing field, <code>null</code> for any field
+     * @param filter    filter of the node reached
+     * @return pattern extended by following one edge
+     */
+    public GraphPattern step(EdgeDirection direction, String edgeLabel, NodeFilter filter) {
+        if (direction == null) {
+            throw new IllegalArgumentException("Edge direction cannot be null");
+        }
+        final List<NodeFilter> filters = new ArrayList<>(this.filters);
+        filters.add(requireFilter(filter));
+        final List<Step> steps = new ArrayList<>(this.steps);
+        steps.add(new Step(direction, edgeLabel));
+        return new GraphPattern(filters, steps);
+    }
+
+    /**
+     * @return number of nodes in a match
+     */
+    public int getLength() {
+        return filters.size();
+    }
+
+    List<NodeFilter> getFilters() {
+        return filters;
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    static final class Step {
+
+        private final EdgeDirection direction;
+        private final String edgeLabel;
+
+        private Step(EdgeDirection direction, String edgeLabel) {
+            this.direction = direction;
+            this.edgeLabel = edgeLabel;
+        }
+
+        EdgeDirection getDirection() {
+            return direction;
+        }
+
+        String getEdgeLabel() {
+            return edgeLabel;
+        }
+    }
+}
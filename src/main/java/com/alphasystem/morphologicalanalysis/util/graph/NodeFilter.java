@@ -0,0 +1,95 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Condition on a node of {@link CorpusGraph}, matching node type and label (relationship type of relationship
+ * nodes).
+ *
+ * @author sali
+ */
+public final class NodeFilter {
+
+    private static final NodeFilter ANY = new NodeFilter(0, null);
+
+    private final int typeMask;
+    private final Set<String> labels;
+
+    private NodeFilter(int typeMask, Set<String> labels) {
+        this.typeMask = typeMask;
+        this.labels = labels;
+    }
+
+    /**
+     * @return filter matching every node
+     */
+    public static NodeFilter any() {
+        return ANY;
+    }
+
+    /**
+     * @param nodeTypes given node types
+     * @return filter matching nodes of any of the given types
+     */
+    public static NodeFilter type(GraphNodeType... nodeTypes) {
+        if (nodeTypes == null || nodeTypes.length == 0) {
+            throw new IllegalArgumentException("No node type given");
+        }
+        int typeMask = 0;
+        for (GraphNodeType nodeType : nodeTypes) {
+            typeMask |= 1 << nodeType.ordinal();
+        }
+        return new NodeFilter(typeMask, null);
+    }
+
+    /**
+     * @param labels given labels, e.g., names of {@link com.alphasystem.morphologicalanalysis.graph.model.support.RelationshipType}
+     * @return copy of this filter, additionally matching only nodes with any of the given labels
+     */
+    public NodeFilter label(String... labels) {
+        if (labels == null || labels.length == 0) {
+            throw new IllegalArgumentException("No label given");
+        }
+        return new NodeFilter(typeMask, Collections.unmodifiableSet(new HashSet<>(Arrays.asList(labels))));
+    }
+
+    /**
+     * @param labels given labels
+     * @return copy of this filter, additionally matching only nodes with any of the given labels
+     */
+    public NodeFilter label(Enum<?>... labels) {
+        return label(Arrays.stream(labels).map(Enum::name).toArray(String[]::new));
+    }
+
+    /**
+     * @param graph graph the filter is evaluated against
+     * @return match flags indexed by label code of the given graph, <code>null</code> if any label matches
+     */
+    boolean[] compileLabels(CorpusGraph graph) {
+        if (labels == null) {
+            return null;
+        }
+        final boolean[] matches = new boolean[graph.getLabelCount()];
+        labels.forEach(label -> {
+            final int code = graph.getLabelCode(label);
+            if (code >= 0) {
+                matches[code] = true;
+            }
+        });
+        return matches;
+    }
+
+    int getTypeMask() {
+        return typeMask;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NodeFilter{typeMask=%s, labels=%s}", Integer.toBinaryString(typeMask), labels);
+    }
+}
@@ -0,0 +1,137 @@
+package com.alphasystem.morphologicalanalysis.util.index;
+
+import com.alphasystem.arabic.model.ArabicLetterType;
+import com.alphasystem.arabic.model.NamedTemplate;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.morphology.model.RootLetters;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.support.WordType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Key of a posting list in {@link LocationInvertedIndex}, i.e., root letters, a radical, form or word type.
+ *
+ * @author sali
+ */
+public final class IndexTerm {
+
+    private final Field field;
+    private final String value;
+
+    private IndexTerm(Field field, String value) {
+        this.field = field;
+        this.value = value;
+    }
+
+    static IndexTerm of(Field field, String value) {
+        return new IndexTerm(field, value);
+    }
+
+    public static IndexTerm rootLetters(RootLetters rootLetters) {
+        return new IndexTerm(Field.ROOT_LETTERS, rootLetters.getDisplayName());
+    }
+
+    /**
+     * @param radical given radical
+     * @return term matching given radical in any position of the root
+     */
+    public static IndexTerm radical(ArabicLetterType radical) {
+        return new IndexTerm(Field.RADICAL, radical.name());
+    }
+
+    public static IndexTerm firstRadical(ArabicLetterType radical) {
+        return new IndexTerm(Field.FIRST_RADICAL, radical.name());
+    }
+
+    public static IndexTerm secondRadical(ArabicLetterType radical) {
+        return new IndexTerm(Field.SECOND_RADICAL, radical.name());
+    }
+
+    public static IndexTerm thirdRadical(ArabicLetterType radical) {
+        return new IndexTerm(Field.THIRD_RADICAL, radical.name());
+    }
+
+    public static IndexTerm fourthRadical(ArabicLetterType radical) {
+        return new IndexTerm(Field.FOURTH_RADICAL, radical.name());
+    }
+
+    public static IndexTerm form(NamedTemplate form) {
+        return new IndexTerm(Field.FORM, form.name());
+    }
+
+    public static IndexTerm wordType(WordType wordType) {
+        return new IndexTerm(Field.WORD_TYPE, wordType.name());
+    }
+
+    /**
+     * @param morphologicalEntry given morphological entry
+     * @return terms of root letters, radicals and form of the given entry
+     */
+    static List<IndexTerm> termsOf(MorphologicalEntry morphologicalEntry) {
+        if (morphologicalEntry == null) {
+            return Collections.emptyList();
+        }
+        final List<IndexTerm> terms = new ArrayList<>();
+        final RootLetters rootLetters = morphologicalEntry.getRootLetters();
+        if (rootLetters != null) {
+            terms.add(rootLetters(rootLetters));
+            addRadical(terms, Field.FIRST_RADICAL, rootLetters.getFirstRadical());
+            addRadical(terms, Field.SECOND_RADICAL, rootLetters.getSecondRadical());
+            addRadical(terms, Field.THIRD_RADICAL, rootLetters.getThirdRadical());
+            addRadical(terms, Field.FOURTH_RADICAL, rootLetters.getFourthRadical());
+        }
+        final NamedTemplate form = morphologicalEntry.getForm();
+        if (form != null) {
+            terms.add(form(form));
+        }
+        return terms;
+    }
+
+    private static void addRadical(List<IndexTerm> terms, Field field, ArabicLetterType radical) {
+        if (radical != null) {
+            terms.add(new IndexTerm(field, radical.name()));
+            final IndexTerm term = radical(radical);
+            // same letter can occur in more than one position
+            if (!terms.contains(term)) {
+                terms.add(term);
+            }
+        }
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof IndexTerm)) {
+            return false;
+        }
+        final IndexTerm other = (IndexTerm) obj;
+        return field == other.field && Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * field.hashCode() + Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s", field, value);
+    }
+
+    public enum Field {
+        ROOT_LETTERS, RADICAL, FIRST_RADICAL, SECOND_RADICAL, THIRD_RADICAL, FOURTH_RADICAL, FORM, WORD_TYPE
+    }
+}
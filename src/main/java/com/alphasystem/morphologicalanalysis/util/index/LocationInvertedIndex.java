@@ -0,0 +1,533 @@
+package com.alphasystem.morphologicalanalysis.util.index;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.util.LocationTextHydrator;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.support.WordType;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static com.alphasystem.morphologicalanalysis.util.index.IndexTerm.Field.WORD_TYPE;
+
+/**
+ * In-memory inverted index mapping {@link IndexTerm terms} (root letters, radicals, form and word type) to posting
+ * lists of location ordinals, stored as {@link RoaringBitmap}s.
+ * <p>
+ * A location ordinal packs chapter (7 bits), verse (9 bits), token (9 bits) and location (7 bits) numbers into one
+ * <code>int</code>, so that all locations of one verse fall into the same bitmap partition and ordinals sort in
+ * reading order of the corpus. Queries (<code>AND</code>, <code>OR</code> and counts) are answered from memory,
+ * {@link #findLocations(RoaringBitmap)} resolves ordinals to {@link Location}s with one query per batch of
+ * {@link LocationKey}s.
+ * </p>
+ * <p>
+ * Index is built on first use and maintained incrementally by
+ * {@link com.alphasystem.morphologicalanalysis.wordbyword.listener.LocationEventListener} and
+ * {@link com.alphasystem.morphologicalanalysis.morphology.listener.MorphologicalEntryEventListener}.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class LocationInvertedIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationInvertedIndex.class);
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+    private static final int CURSOR_BATCH_SIZE = 5000;
+    private static final String MORPHOLOGICAL_ENTRY = "morphologicalEntry";
+    private static final String LOCATIONS = "locations";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private LocationTextHydrator locationTextHydrator;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<IndexTerm, RoaringBitmap> postings;
+    private Map<String, List<IndexTerm>> entryTerms;
+    private Map<String, RoaringBitmap> entryLocations;
+    private Map<String, LocationState> locationsById;
+    private Map<Integer, String> locationIdsByOrdinal;
+
+    /**
+     * @param chapterNumber  chapter number
+     * @param verseNumber    verse number
+     * @param tokenNumber    token number
+     * @param locationNumber location number
+     * @return <code>true</code> if given location can be represented by an ordinal
+     */
+    public static boolean isInRange(int chapterNumber, int verseNumber, int tokenNumber, int locationNumber) {
+        return chapterNumber >= 0 && chapterNumber <= 0x7F && verseNumber >= 0 && verseNumber <= 0x1FF
+                && tokenNumber >= 0 && tokenNumber <= 0x1FF && locationNumber >= 0 && locationNumber <= 0x7F;
+    }
+
+    /**
+     * @param chapterNumber  chapter number (up to 127)
+     * @param verseNumber    verse number (up to 511)
+     * @param tokenNumber    token number (up to 511)
+     * @param locationNumber location number (up to 127)
+     * @return location ordinal
+     * @throws IllegalArgumentException if given location is out of range, see
+     *                                  {@link #isInRange(int, int, int, int)}
+     */
+    public static int toOrdinal(int chapterNumber, int verseNumber, int tokenNumber, int locationNumber) {
+        if (!isInRange(chapterNumber, verseNumber, tokenNumber, locationNumber)) {
+            throw new IllegalArgumentException(String.format("Location %s:%s:%s:%s is out of range", chapterNumber,
+                    verseNumber, tokenNumber, locationNumber));
+        }
+        return (chapterNumber << 25) | (verseNumber << 16) | (tokenNumber << 7) | locationNumber;
+    }
+
+    /**
+     * @param ordinal given location ordinal
+     * @return {@link LocationKey} of the given ordinal
+     */
+    public static long toLocationKey(int ordinal) {
+        return LocationKey.encode(ordinal >>> 25, (ordinal >>> 16) & 0x1FF, (ordinal >>> 7) & 0x1FF, ordinal & 0x7F);
+    }
+
+    /**
+     * @return ordinal of the given location, <code>null</code> if numbers are missing or out of range, such a location
+     * is not indexed
+     */
+    private static Integer ordinalOf(Object chapterNumber, Object verseNumber, Object tokenNumber,
+                                     Object locationNumber) {
+        if (!(chapterNumber instanceof Number) || !(verseNumber instanceof Number) || !(tokenNumber instanceof Number)
+                || !(locationNumber instanceof Number)) {
+            return null;
+        }
+        final int chapter = ((Number) chapterNumber).intValue();
+        final int verse = ((Number) verseNumber).intValue();
+        final int token = ((Number) tokenNumber).intValue();
+        final int location = ((Number) locationNumber).intValue();
+        if (!isInRange(chapter, verse, token, location)) {
+            LOGGER.warn("Location {}:{}:{}:{} is out of range, skipping it", chapter, verse, token, location);
+            return null;
+        }
+        return toOrdinal(chapter, verse, token, location);
+    }
+
+    /**
+     * @param query query of a delete event
+     * @return ids of the deleted documents, <code>null</code> if ids can not be determined from the query
+     */
+    private static List<String> getIds(DBObject query) {
+        final Object id = (query == null) ? null : query.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (!(id instanceof DBObject)) {
+            return Collections.singletonList(id.toString());
+        }
+        final DBObject criteria = (DBObject) id;
+        final Object in = criteria.get("$in");
+        if (criteria.keySet().size() != 1 || !(in instanceof Collection)) {
+            return null;
+        }
+        final List<String> ids = new ArrayList<>();
+        ((Collection<?>) in).forEach(value -> ids.add(value.toString()));
+        return ids;
+    }
+
+    /**
+     * @param term given term
+     * @return ordinals of all locations matching given term
+     */
+    public RoaringBitmap get(IndexTerm term) {
+        return read(() -> getPostings(term).copy());
+    }
+
+    /**
+     * @param terms given terms
+     * @return ordinals of all locations matching all of the given terms
+     */
+    public RoaringBitmap and(IndexTerm... terms) {
+        return read(() -> {
+            final List<RoaringBitmap> bitmaps = getPostingsBySize(terms);
+            if (bitmaps.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            RoaringBitmap result = bitmaps.get(0).copy();
+            for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+                result = RoaringBitmap.and(result, bitmaps.get(i));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @param terms given terms
+     * @return ordinals of all locations matching any of the given terms
+     */
+    public RoaringBitmap or(IndexTerm... terms) {
+        return read(() -> {
+            RoaringBitmap result = new RoaringBitmap();
+            for (IndexTerm term : terms) {
+                result = RoaringBitmap.or(result, getPostings(term));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @param terms given terms
+     * @return number of locations matching all of the given terms
+     */
+    public int count(IndexTerm... terms) {
+        return read(() -> {
+            final List<RoaringBitmap> bitmaps = getPostingsBySize(terms);
+            switch (bitmaps.size()) {
+                case 0:
+                    return 0;
+                case 1:
+                    return bitmaps.get(0).getCardinality();
+                default:
+                    RoaringBitmap intersection = bitmaps.get(0);
+                    for (int i = 1; i < bitmaps.size() - 1; i++) {
+                        intersection = RoaringBitmap.and(intersection, bitmaps.get(i));
+                    }
+                    return RoaringBitmap.andCardinality(intersection, bitmaps.get(bitmaps.size() - 1));
+            }
+        });
+    }
+
+    /**
+     * Loads locations of the given ordinals, sorted in reading order.
+     *
+     * @param ordinals given ordinals
+     * @return list of locations
+     */
+    public List<Location> findLocations(RoaringBitmap ordinals) {
+        final List<Location> locations = new ArrayList<>(ordinals.getCardinality());
+        final List<Long> keys = new ArrayList<>(Math.min(LOOKUP_BATCH_SIZE, ordinals.getCardinality()));
+        locationTextHydrator.beginBatch();
+        try {
+            ordinals.forEach(ordinal -> {
+                keys.add(toLocationKey(ordinal));
+                if (keys.size() == LOOKUP_BATCH_SIZE) {
+                    locations.addAll(findLocations(keys));
+                    keys.clear();
+                }
+            });
+            if (!keys.isEmpty()) {
+                locations.addAll(findLocations(keys));
+            }
+        } finally {
+            locationTextHydrator.endBatch();
+        }
+        return locations;
+    }
+
+    private List<Location> findLocations(List<Long> keys) {
+        final Query query = new Query(Criteria.where(LocationKey.FIELD_NAME).in(keys))
+                .with(new Sort(Sort.Direction.ASC, LocationKey.FIELD_NAME));
+        final List<Location> locations = mongoTemplate.find(query, Location.class);
+        if (locations.size() >= keys.size()) {
+            return locations;
+        }
+        // locations whose key has not been populated yet are looked up by their numbers
+        final Set<Long> missingKeys = new HashSet<>(keys);
+        locations.forEach(location -> missingKeys.remove(keyOf(location)));
+        final List<Criteria> unkeyed = new ArrayList<>(missingKeys.size());
+        missingKeys.forEach(key -> unkeyed.add(Criteria.where(LocationKey.FIELD_NAME).exists(false)
+                .and("chapterNumber").is(LocationKey.getChapterNumber(key))
+                .and("verseNumber").is(LocationKey.getVerseNumber(key))
+                .and("tokenNumber").is(LocationKey.getTokenNumber(key))
+                .and("locationNumber").is(LocationKey.getLocationNumber(key))));
+        final List<Location> unkeyedLocations = mongoTemplate.find(new Query(new Criteria()
+                .orOperator(unkeyed.toArray(new Criteria[unkeyed.size()]))), Location.class);
+        if (!unkeyedLocations.isEmpty()) {
+            locations.addAll(unkeyedLocations);
+            locations.sort(Comparator.comparingLong(LocationInvertedIndex::keyOf));
+        }
+        return locations;
+    }
+
+    private static long keyOf(Location location) {
+        return LocationKey.encode(location.getChapterNumber(), location.getVerseNumber(), location.getTokenNumber(),
+                location.getLocationNumber());
+    }
+
+    /**
+     * Updates postings of the given (saved) location.
+     *
+     * @param location given location
+     */
+    public void locationSaved(Location location) {
+        if (location == null || location.getId() == null) {
+            return;
+        }
+        final Integer ordinal = ordinalOf(location.getChapterNumber(), location.getVerseNumber(),
+                location.getTokenNumber(), location.getLocationNumber());
+        final MorphologicalEntry morphologicalEntry = location.getMorphologicalEntry();
+        final String entryId = (morphologicalEntry == null) ? null : morphologicalEntry.getId();
+        final WordType wordType = location.getWordType();
+        write(() -> {
+            if (ordinal == null) {
+                removeLocation(location.getId());
+                return;
+            }
+            List<IndexTerm> terms = (entryId == null) ? null : entryTerms.get(entryId);
+            if (terms == null) {
+                terms = IndexTerm.termsOf(morphologicalEntry);
+                if (entryId != null) {
+                    entryTerms.put(entryId, terms);
+                }
+            }
+            addLocation(location.getId(), ordinal, entryId, (wordType == null) ? null : wordType.name(), terms);
+        });
+    }
+
+    /**
+     * Removes postings of the locations deleted by the given query.
+     *
+     * @param query query of the delete event
+     */
+    public void locationsDeleted(DBObject query) {
+        final List<String> ids = getIds(query);
+        if (ids == null) {
+            invalidate();
+            return;
+        }
+        write(() -> ids.forEach(this::removeLocation));
+    }
+
+    /**
+     * Moves locations of the given (saved) entry from the postings of its previous root letters and form to the
+     * postings of current ones.
+     *
+     * @param morphologicalEntry given entry
+     */
+    public void entrySaved(MorphologicalEntry morphologicalEntry) {
+        if (morphologicalEntry == null || morphologicalEntry.getId() == null) {
+            return;
+        }
+        final List<IndexTerm> terms = IndexTerm.termsOf(morphologicalEntry);
+        write(() -> updateEntry(morphologicalEntry.getId(), terms));
+    }
+
+    /**
+     * Removes locations of the deleted entries from the postings of their root letters and form.
+     *
+     * @param query query of the delete event
+     */
+    public void entriesDeleted(DBObject query) {
+        final List<String> ids = getIds(query);
+        if (ids == null) {
+            invalidate();
+            return;
+        }
+        write(() -> ids.forEach(id -> {
+            updateEntry(id, Collections.emptyList());
+            entryTerms.remove(id);
+        }));
+    }
+
+    /**
+     * Discards the index, it will be rebuilt on next use.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            postings = null;
+            entryTerms = null;
+            entryLocations = null;
+            locationsById = null;
+            locationIdsByOrdinal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            if (postings != null) {
+                return reader.get();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (postings == null) {
+                build();
+            }
+            return reader.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void write(Runnable writer) {
+        lock.writeLock().lock();
+        try {
+            // index which is not built yet will pick up the change from the database
+            if (postings != null) {
+                writer.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap getPostings(IndexTerm term) {
+        final RoaringBitmap bitmap = postings.get(term);
+        return (bitmap == null) ? new RoaringBitmap() : bitmap;
+    }
+
+    private List<RoaringBitmap> getPostingsBySize(IndexTerm... terms) {
+        final List<RoaringBitmap> bitmaps = new ArrayList<>(terms.length);
+        for (IndexTerm term : terms) {
+            bitmaps.add(getPostings(term));
+        }
+        // intersect smallest first
+        bitmaps.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        return bitmaps;
+    }
+
+    private void addLocation(String id, int ordinal, String entryId, String wordType,
+                             List<IndexTerm> termsOfEntry) {
+        removeLocation(id);
+        // another location at the same position is stale
+        final String previousId = locationIdsByOrdinal.get(ordinal);
+        if (previousId != null) {
+            removeLocation(previousId);
+        }
+        final List<IndexTerm> terms = new ArrayList<>(termsOfEntry);
+        if (wordType != null) {
+            terms.add(IndexTerm.of(WORD_TYPE, wordType));
+        }
+        terms.forEach(term -> postings.computeIfAbsent(term, key -> new RoaringBitmap()).add(ordinal));
+        if (entryId != null) {
+            entryLocations.computeIfAbsent(entryId, key -> new RoaringBitmap()).add(ordinal);
+        }
+        locationsById.put(id, new LocationState(ordinal, entryId, terms));
+        locationIdsByOrdinal.put(ordinal, id);
+    }
+
+    private void removeLocation(String id) {
+        final LocationState state = locationsById.remove(id);
+        if (state == null) {
+            return;
+        }
+        locationIdsByOrdinal.remove(state.ordinal);
+        state.terms.forEach(term -> removePosting(term, state.ordinal));
+        if (state.entryId != null) {
+            final RoaringBitmap bitmap = entryLocations.get(state.entryId);
+            if (bitmap != null) {
+                bitmap.remove(state.ordinal);
+            }
+        }
+    }
+
+    private void removePosting(IndexTerm term, int ordinal) {
+        final RoaringBitmap bitmap = postings.get(term);
+        if (bitmap != null && bitmap.remove(ordinal) && bitmap.isEmpty()) {
+            postings.remove(term);
+        }
+    }
+
+    private void updateEntry(String entryId, List<IndexTerm> terms) {
+        final List<IndexTerm> previousTerms = entryTerms.put(entryId, terms);
+        final RoaringBitmap ordinals = entryLocations.get(entryId);
+        if (terms.equals(previousTerms) || ordinals == null || ordinals.isEmpty()) {
+            return;
+        }
+        if (previousTerms != null) {
+            previousTerms.forEach(term -> {
+                final RoaringBitmap bitmap = postings.get(term);
+                if (bitmap != null) {
+                    final RoaringBitmap remaining = RoaringBitmap.andNot(bitmap, ordinals);
+                    if (remaining.isEmpty()) {
+                        postings.remove(term);
+                    } else {
+                        postings.put(term, remaining);
+                    }
+                }
+            });
+        }
+        terms.forEach(term -> postings.merge(term, ordinals.copy(), RoaringBitmap::or));
+        ordinals.forEach(ordinal -> {
+            final LocationState state = locationsById.get(locationIdsByOrdinal.get(ordinal));
+            if (state != null) {
+                state.terms.removeIf(term -> term.getField() != WORD_TYPE);
+                state.terms.addAll(terms);
+            }
+        });
+    }
+
+    private void build() {
+        final long start = System.currentTimeMillis();
+        postings = new HashMap<>();
+        entryTerms = new HashMap<>();
+        entryLocations = new HashMap<>();
+        locationsById = new HashMap<>();
+        locationIdsByOrdinal = new HashMap<>();
+
+        // back references of entries are not needed, skip resolving them
+        final Query entryQuery = new Query();
+        entryQuery.fields().exclude(LOCATIONS);
+        mongoTemplate.find(entryQuery, MorphologicalEntry.class).forEach(morphologicalEntry ->
+                entryTerms.put(morphologicalEntry.getId(), IndexTerm.termsOf(morphologicalEntry)));
+
+        // raw documents, so that neither text hydration nor entry references get in the way
+        final DBObject fields = new BasicDBObject();
+        Arrays.asList("chapterNumber", "verseNumber", "tokenNumber", "locationNumber", "wordType", MORPHOLOGICAL_ENTRY)
+                .forEach(field -> fields.put(field, 1));
+        final String collectionName = mongoTemplate.getCollectionName(Location.class);
+        try (DBCursor cursor = mongoTemplate.getCollection(collectionName).find(new BasicDBObject(), fields)
+                .batchSize(CURSOR_BATCH_SIZE)) {
+            while (cursor.hasNext()) {
+                final DBObject dbObject = cursor.next();
+                final Integer ordinal = ordinalOf(dbObject.get("chapterNumber"), dbObject.get("verseNumber"),
+                        dbObject.get("tokenNumber"), dbObject.get("locationNumber"));
+                if (ordinal == null) {
+                    continue;
+                }
+                final Object reference = dbObject.get(MORPHOLOGICAL_ENTRY);
+                final String entryId = (reference instanceof DBRef) ? ((DBRef) reference).getId().toString() : null;
+                final List<IndexTerm> terms = (entryId == null) ? null : entryTerms.get(entryId);
+                final Object wordType = dbObject.get("wordType");
+                addLocation(dbObject.get("_id").toString(), ordinal, entryId,
+                        (wordType == null) ? null : wordType.toString(),
+                        (terms == null) ? Collections.emptyList() : terms);
+            }
+        }
+        LOGGER.info("Built inverted index of {} locations and {} terms in {} ms", locationsById.size(),
+                postings.size(), System.currentTimeMillis() - start);
+    }
+
+    private static final class LocationState {
+        private final int ordinal;
+        private final String entryId;
+        private final List<IndexTerm> terms;
+
+        private LocationState(int ordinal, String entryId, List<IndexTerm> terms) {
+            this.ordinal = ordinal;
+            this.entryId = entryId;
+            this.terms = terms;
+        }
+    }
+}
@@ -0,0 +1,638 @@
+package com.alphasystem.morphologicalanalysis.util.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of <code>int</code> values in the style of roaring bitmaps.
+ * <p>
+ * Values are partitioned by their high 16 bits, each partition stores the low 16 bits of its values either in a sorted
+ * <code>char</code> array (up to {@link #MAX_ARRAY_SIZE} values) or in a bitmap of 2<sup>16</sup> bits, whichever is
+ * smaller. Set operations work partition by partition, so that only partitions present in both operands are
+ * intersected.
+ * </p>
+ * <p>
+ * Instances are not thread safe.
+ * </p>
+ *
+ * @author sali
+ */
+public final class RoaringBitmap {
+
+    static final int MAX_ARRAY_SIZE = 4096;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public RoaringBitmap() {
+        this(4);
+    }
+
+    private RoaringBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Container[capacity];
+    }
+
+    /**
+     * @param values given values
+     * @return bitmap containing given values
+     */
+    public static RoaringBitmap of(int... values) {
+        final RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return new bitmap containing values present in both given bitmaps
+     */
+    public static RoaringBitmap and(RoaringBitmap first, RoaringBitmap second) {
+        final RoaringBitmap result = new RoaringBitmap(Math.max(1, Math.min(first.size, second.size)));
+        if (first.size > second.size) {
+            final RoaringBitmap temp = first;
+            first = second;
+            second = temp;
+        }
+        int from = 0;
+        for (int i = 0; i < first.size && from < second.size; i++) {
+            final int index = Arrays.binarySearch(second.keys, from, second.size, first.keys[i]);
+            if (index >= 0) {
+                final Container container = first.containers[i].and(second.containers[index]);
+                if (container.cardinality > 0) {
+                    result.append(first.keys[i], container);
+                }
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of values present in both given bitmaps, without materializing the intersection
+     */
+    public static int andCardinality(RoaringBitmap first, RoaringBitmap second) {
+        if (first.size > second.size) {
+            final RoaringBitmap temp = first;
+            first = second;
+            second = temp;
+        }
+        int cardinality = 0;
+        int from = 0;
+        for (int i = 0; i < first.size && from < second.size; i++) {
+            final int index = Arrays.binarySearch(second.keys, from, second.size, first.keys[i]);
+            if (index >= 0) {
+                cardinality += first.containers[i].andCardinality(second.containers[index]);
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return new bitmap containing values present in either of given bitmaps
+     */
+    public static RoaringBitmap or(RoaringBitmap first, RoaringBitmap second) {
+        final RoaringBitmap result = new RoaringBitmap(Math.max(1, first.size + second.size));
+        int i = 0;
+        int j = 0;
+        while (i < first.size && j < second.size) {
+            final char firstKey = first.keys[i];
+            final char secondKey = second.keys[j];
+            if (firstKey < secondKey) {
+                result.append(firstKey, first.containers[i++].copy());
+            } else if (firstKey > secondKey) {
+                result.append(secondKey, second.containers[j++].copy());
+            } else {
+                result.append(firstKey, first.containers[i++].or(second.containers[j++]));
+            }
+        }
+        while (i < first.size) {
+            result.append(first.keys[i], first.containers[i++].copy());
+        }
+        while (j < second.size) {
+            result.append(second.keys[j], second.containers[j++].copy());
+        }
+        return result;
+    }
+
+    /**
+     * @return new bitmap containing values of the first bitmap which are not present in the second bitmap
+     */
+    public static RoaringBitmap andNot(RoaringBitmap first, RoaringBitmap second) {
+        final RoaringBitmap result = new RoaringBitmap(Math.max(1, first.size));
+        int from = 0;
+        for (int i = 0; i < first.size; i++) {
+            final int index = (from < second.size) ? Arrays.binarySearch(second.keys, from, second.size, first.keys[i]) : -from - 1;
+            final Container container;
+            if (index >= 0) {
+                container = first.containers[i].andNot(second.containers[index]);
+                from = index + 1;
+            } else {
+                container = first.containers[i].copy();
+                from = -index - 1;
+            }
+            if (container.cardinality > 0) {
+                result.append(first.keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param value given value
+     * @return <code>true</code> if the value was not already present
+     */
+    public boolean add(int value) {
+        final char high = (char) (value >>> 16);
+        final int index = indexOf(high);
+        if (index >= 0) {
+            final Container container = containers[index];
+            final int cardinality = container.cardinality;
+            containers[index] = container.add((char) value);
+            return containers[index].cardinality > cardinality;
+        }
+        insert(-index - 1, high, new ArrayContainer().add((char) value));
+        return true;
+    }
+
+    /**
+     * @param value given value
+     * @return <code>true</code> if the value was present
+     */
+    public boolean remove(int value) {
+        final int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        final Container container = containers[index];
+        final int cardinality = container.cardinality;
+        final Container result = container.remove((char) value);
+        if (result.cardinality == 0) {
+            removeAt(index);
+        } else {
+            containers[index] = result;
+        }
+        return result.cardinality < cardinality;
+    }
+
+    public boolean contains(int value) {
+        final int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls given consumer for every value in ascending (unsigned) order.
+     *
+     * @param consumer given consumer
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    public int[] toArray() {
+        final int[] values = new int[getCardinality()];
+        final int[] position = {0};
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    public RoaringBitmap copy() {
+        final RoaringBitmap copy = new RoaringBitmap(Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            copy.append(keys[i], containers[i].copy());
+        }
+        return copy;
+    }
+
+    /**
+     * @return approximate number of bytes used by the values
+     */
+    public long getSizeInBytes() {
+        long bytes = 2L * keys.length;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RoaringBitmap)) {
+            return false;
+        }
+        final RoaringBitmap other = (RoaringBitmap) obj;
+        return getCardinality() == other.getCardinality() && andCardinality(this, other) == getCardinality();
+    }
+
+    @Override
+    public int hashCode() {
+        final int[] hash = {1};
+        forEach(value -> hash[0] = 31 * hash[0] + value);
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RoaringBitmap{cardinality=%s, partitions=%s}", getCardinality(), size);
+    }
+
+    private int indexOf(char high) {
+        // fast path for appending in ascending order
+        if (size > 0 && keys[size - 1] == high) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    private void append(char high, Container container) {
+        insert(size, high, container);
+    }
+
+    private void insert(int index, char high, Container container) {
+        if (size == keys.length) {
+            final int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private abstract static class Container {
+
+        int cardinality;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract void forEach(int high, IntConsumer consumer);
+
+        abstract Container copy();
+
+        abstract long getSizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+
+        private ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        private ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            final int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality >= MAX_ARRAY_SIZE) {
+                return toBitmap().add(value);
+            }
+            final int insertionPoint = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, insertionPoint, values, insertionPoint + 1, cardinality - insertionPoint);
+            values[insertionPoint] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            final int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            final char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer)) {
+                return other.or(this);
+            }
+            final ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > MAX_ARRAY_SIZE) {
+                final BitmapContainer bitmap = toBitmap();
+                for (int j = 0; j < array.cardinality; j++) {
+                    bitmap.add(array.values[j]);
+                }
+                return bitmap.cardinality > MAX_ARRAY_SIZE ? bitmap : bitmap.toArray();
+            }
+            final char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    result[count++] = values[i++];
+                } else if (values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            while (i < cardinality) {
+                result[count++] = values[i++];
+            }
+            while (j < array.cardinality) {
+                result[count++] = array.values[j++];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            final char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 2L * values.length;
+        }
+
+        private BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+
+        private BitmapContainer() {
+            this(new long[1 << 10], 0);
+        }
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            final long mask = 1L << value;
+            final int index = value >>> 6;
+            if ((words[index] & mask) == 0) {
+                words[index] |= mask;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            final long mask = 1L << value;
+            final int index = value >>> 6;
+            if ((words[index] & mask) != 0) {
+                words[index] &= ~mask;
+                cardinality--;
+            }
+            return (cardinality <= MAX_ARRAY_SIZE) ? toArray() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (!(other instanceof BitmapContainer)) {
+                return other.and(this);
+            }
+            final long[] otherWords = ((BitmapContainer) other).words;
+            final long[] result = new long[words.length];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return normalize(new BitmapContainer(result, count));
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (!(other instanceof BitmapContainer)) {
+                return other.andCardinality(this);
+            }
+            final long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                count += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return count;
+        }
+
+        @Override
+        Container or(Container other) {
+            final BitmapContainer result = (BitmapContainer) copy();
+            if (other instanceof BitmapContainer) {
+                final long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int i = 0; i < words.length; i++) {
+                    result.words[i] |= otherWords[i];
+                    count += Long.bitCount(result.words[i]);
+                }
+                result.cardinality = count;
+            } else {
+                final ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            final long[] result = Arrays.copyOf(words, words.length);
+            if (other instanceof BitmapContainer) {
+                final long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < result.length; i++) {
+                    result[i] &= ~otherWords[i];
+                }
+            } else {
+                final ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    final char value = array.values[i];
+                    result[value >>> 6] &= ~(1L << value);
+                }
+            }
+            int count = 0;
+            for (long word : result) {
+                count += Long.bitCount(word);
+            }
+            return normalize(new BitmapContainer(result, count));
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, words.length), cardinality);
+        }
+
+        @Override
+        long getSizeInBytes() {
+            return 8L * words.length;
+        }
+
+        private ArrayContainer toArray() {
+            final char[] values = new char[Math.max(1, cardinality)];
+            final int[] count = {0};
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, count[0]);
+        }
+
+        private static Container normalize(BitmapContainer bitmap) {
+            return (bitmap.cardinality <= MAX_ARRAY_SIZE) ? bitmap.toArray() : bitmap;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.GraphNode;
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+/**
+ * Checks referential integrity of the corpus, and optionally repairs the violations (see {@link ViolationType}).
+ * <p>
+ * Every collection is streamed once, in an order which makes each check a lookup into the id sets built by the
+ * previous streams: dependency graphs (referred nodes and covered tokens), tokens, locations, verses, morphological
+ * entries and their location buckets and finally the graph nodes, which are orphans unless reachable from a dependency
+ * graph through node references. Ids are kept in {@link ObjectIdSet}s and token keys in {@link LongHashSet}s, only
+ * the fields needed by the checks are fetched. Repairs are written in batches of
+ * {@link #setBatchSize(int) batch size}, deletes go through the event listeners, bulk updates keep the affected
+ * caches in sync explicitly.
+ * </p>
+ * <p>
+ * Checker should run while the corpus is not being edited, otherwise documents created during the run might be
+ * reported (or repaired) as violations.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class IntegrityChecker {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IntegrityChecker.class);
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final String ID = "_id";
+    private static final String LOCATIONS = "locations";
+    private static final String TOKENS = "tokens";
+    private static final String TOKEN_COUNT = "tokenCount";
+    private static final String CHAPTER_NUMBER = "chapterNumber";
+    private static final String VERSE_NUMBER = "verseNumber";
+    private static final String TOKEN_NUMBER = "tokenNumber";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private CorpusNavigationIndex navigationIndex;
+    @Autowired private MorphologicalEntryLocations morphologicalEntryLocations;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid batch size {%s}", batchSize));
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return report of all violations, nothing is modified
+     */
+    public IntegrityReport check() {
+        return run(false);
+    }
+
+    /**
+     * @return report of all violations, each of which has been repaired
+     */
+    public IntegrityReport repair() {
+        return run(true);
+    }
+
+    private IntegrityReport run(boolean repair) {
+        final IntegrityReport report = new IntegrityReport(repair);
+
+        // node collections, a collection shared by several node types is checked once
+        final Map<String, GraphNodeType> nodeCollections = new LinkedHashMap<>();
+        for (GraphNodeType nodeType : GraphNodeType.values()) {
+            final Class<? extends GraphNode> nodeClass =
+                    MorphologicalAnalysisRepositoryUtil.getGraphNodeClass(nodeType);
+            if (nodeClass != null) {
+                nodeCollections.putIfAbsent(mongoTemplate.getCollectionName(nodeClass), nodeType);
+            }
+        }
+
+        // 1. dependency graphs: referred nodes and covered tokens
+        final Map<String, ObjectIdSet> referredNodes = new HashMap<>();
+        nodeCollections.keySet().forEach(collectionName -> referredNodes.put(collectionName, new ObjectIdSet()));
+        final LongHashSet coveredTokens = new LongHashSet();
+        forEach(DependencyGraph.class, fields(CHAPTER_NUMBER, TOKENS, "nodes"), dbObject -> {
+            for (String field : dbObject.keySet()) {
+                forEachReference(dbObject.get(field), dbRef -> {
+                    final ObjectIdSet ids = referredNodes.get(dbRef.getCollectionName());
+                    if (ids != null) {
+                        ids.add(dbRef.getId());
+                    }
+                });
+            }
+            final int chapterNumber = getInt(dbObject, CHAPTER_NUMBER);
+            final Object tokens = dbObject.get(TOKENS);
+            if (tokens instanceof List) {
+                for (Object element : (List<?>) tokens) {
+                    if (element instanceof DBObject) {
+                        final DBObject pair = (DBObject) element;
+                        final int verseNumber = getInt(pair, VERSE_NUMBER);
+                        for (int tokenNumber = getInt(pair, "firstTokenIndex");
+                             tokenNumber <= getInt(pair, "lastTokenIndex"); tokenNumber++) {
+                            coveredTokens.add(LocationKey.encode(chapterNumber, verseNumber, tokenNumber, 0));
+                        }
+                    }
+                }
+            }
+        });
+
+        // 2. tokens, hidden tokens not covered by any graph are orphans
+        final ObjectIdSet tokenIds = new ObjectIdSet(navigationIndex.getTotalTokenCount());
+        final ObjectIdSet removedLocations = new ObjectIdSet();
+        final Removal tokenRemoval = new Removal(Token.class);
+        final Removal locationRemoval = new Removal(Location.class);
+        forEach(Token.class, fields(CHAPTER_NUMBER, VERSE_NUMBER, TOKEN_NUMBER, "hidden", LOCATIONS), dbObject -> {
+            final Object id = dbObject.get(ID);
+            if (Boolean.TRUE.equals(dbObject.get("hidden")) && !coveredTokens.contains(LocationKey.encode(
+                    getInt(dbObject, CHAPTER_NUMBER), getInt(dbObject, VERSE_NUMBER), getInt(dbObject, TOKEN_NUMBER),
+                    0))) {
+                report.violation(ViolationType.ORPHAN_HIDDEN_TOKEN, id);
+                if (repair) {
+                    tokenRemoval.add(id);
+                    forEachReference(dbObject.get(LOCATIONS), dbRef -> {
+                        removedLocations.add(dbRef.getId());
+                        locationRemoval.add(dbRef.getId());
+                    });
+                }
+                return;
+            }
+            tokenIds.add(id);
+        });
+        report.repaired(ViolationType.ORPHAN_HIDDEN_TOKEN, tokenRemoval.flush());
+        locationRemoval.flush();
+
+        // 3. locations
+        final ObjectIdSet locationIds = new ObjectIdSet(navigationIndex.getTotalTokenCount());
+        forEach(Location.class, fields(), dbObject -> {
+            final Object id = dbObject.get(ID);
+            if (!removedLocations.contains(id)) {
+                locationIds.add(id);
+            }
+        });
+
+        // 4. verses
+        final List<DBObject> verseFixes = new ArrayList<>();
+        forEach(Verse.class, fields(CHAPTER_NUMBER, VERSE_NUMBER, TOKENS, TOKEN_COUNT), dbObject -> {
+            final List<DBRef> existing = new ArrayList<>();
+            final int[] total = {0};
+            forEachReference(dbObject.get(TOKENS), dbRef -> {
+                total[0]++;
+                if (tokenIds.contains(dbRef.getId())) {
+                    existing.add(dbRef);
+                }
+            });
+            if (existing.size() != total[0] || existing.size() != getInt(dbObject, TOKEN_COUNT)) {
+                report.violation(ViolationType.VERSE_TOKEN_MISMATCH, dbObject.get(ID));
+                if (repair) {
+                    verseFixes.add(new BasicDBObject(ID, dbObject.get(ID)).append(TOKENS, existing)
+                            .append(CHAPTER_NUMBER, getInt(dbObject, CHAPTER_NUMBER))
+                            .append(VERSE_NUMBER, getInt(dbObject, VERSE_NUMBER)));
+                    if (verseFixes.size() >= batchSize) {
+                        report.repaired(ViolationType.VERSE_TOKEN_MISMATCH, fixVerses(verseFixes));
+                    }
+                }
+            }
+        });
+        report.repaired(ViolationType.VERSE_TOKEN_MISMATCH, fixVerses(verseFixes));
+
+        // 5. morphological entries
+        final Map<Object, List<DBRef>> entryFixes = new LinkedHashMap<>();
+        forEach(MorphologicalEntry.class, fields(LOCATIONS), dbObject -> {
+            final List<DBRef> dangling = new ArrayList<>();
+            forEachReference(dbObject.get(LOCATIONS), dbRef -> {
+                if (!locationIds.contains(dbRef.getId())) {
+                    dangling.add(dbRef);
+                }
+            });
+            if (!dangling.isEmpty()) {
+                final Object id = dbObject.get(ID);
+                report.violation(ViolationType.DANGLING_ENTRY_LOCATION, id);
+                if (repair) {
+                    entryFixes.put(id, dangling);
+                    if (entryFixes.size() >= batchSize) {
+                        report.repaired(ViolationType.DANGLING_ENTRY_LOCATION, fixEntries(entryFixes));
+                    }
+                }
+            }
+        });
+        report.repaired(ViolationType.DANGLING_ENTRY_LOCATION, fixEntries(entryFixes));
+        // bucketed references, see "MorphologicalEntryLocations"
+        forEach(MorphologicalEntryLocations.BUCKET_COLLECTION, fields(MorphologicalEntryLocations.BUCKET_ENTRY,
+                LOCATIONS), dbObject -> {
+            final List<DBRef> dangling = new ArrayList<>();
+            forEachReference(dbObject.get(LOCATIONS), dbRef -> {
+                if (!locationIds.contains(dbRef.getId())) {
+                    dangling.add(dbRef);
+                }
+            });
+            if (!dangling.isEmpty()) {
+                final Object id = dbObject.get(MorphologicalEntryLocations.BUCKET_ENTRY);
+                report.violation(ViolationType.DANGLING_ENTRY_LOCATION, id);
+                if (repair) {
+                    entryFixes.computeIfAbsent(id, key -> new ArrayList<>()).addAll(dangling);
+                    if (entryFixes.size() >= batchSize) {
+                        report.repaired(ViolationType.DANGLING_ENTRY_LOCATION, fixEntries(entryFixes));
+                    }
+                }
+            }
+        });
+        report.repaired(ViolationType.DANGLING_ENTRY_LOCATION, fixEntries(entryFixes));
+
+        // 6. graph nodes, a node is reachable if a dependency graph refers it or a reachable node refers it (e.g.,
+        // "partOfSpeechNodes" of a terminal node, "dependent" and "owner" of a relationship node); reachability is
+        // complete before anything is removed
+        final Map<String, List<Object>> nodeIds = new HashMap<>();
+        final Map<String, Map<Object, List<DBRef>>> nodeReferences = new HashMap<>();
+        nodeCollections.keySet().forEach(collectionName -> {
+            final List<Object> ids = new ArrayList<>();
+            final Map<Object, List<DBRef>> references = new HashMap<>();
+            // all fields, any of them might refer another node
+            forEach(collectionName, null, dbObject -> {
+                final Object id = dbObject.get(ID);
+                ids.add(id);
+                for (String field : dbObject.keySet()) {
+                    forEachReference(dbObject.get(field), dbRef -> {
+                        if (referredNodes.containsKey(dbRef.getCollectionName())) {
+                            references.computeIfAbsent(id, key -> new ArrayList<>()).add(dbRef);
+                        }
+                    });
+                }
+            });
+            nodeIds.put(collectionName, ids);
+            nodeReferences.put(collectionName, references);
+        });
+        markReachable(referredNodes, nodeIds, nodeReferences);
+        nodeCollections.forEach((collectionName, nodeType) -> {
+            final ObjectIdSet reachable = referredNodes.get(collectionName);
+            final Removal nodeRemoval = new Removal(MorphologicalAnalysisRepositoryUtil.getGraphNodeClass(nodeType));
+            nodeIds.get(collectionName).forEach(id -> {
+                if (!reachable.contains(id)) {
+                    report.orphanNode(nodeType, id);
+                    if (repair) {
+                        nodeRemoval.add(id);
+                    }
+                }
+            });
+            report.repaired(ViolationType.ORPHAN_GRAPH_NODE, nodeRemoval.flush());
+        });
+
+        report.finish();
+        LOGGER.info("Integrity {} finished: {}", repair ? "repair" : "check", report);
+        return report;
+    }
+
+    /**
+     * Adds every node reachable from the given referred nodes through node references to the referred nodes.
+     *
+     * @param referredNodes  ids of the nodes referred by dependency graphs, by collection name
+     * @param nodeIds        ids of all nodes, by collection name
+     * @param nodeReferences references to other nodes by id of the referring node, by collection name
+     */
+    private static void markReachable(Map<String, ObjectIdSet> referredNodes, Map<String, List<Object>> nodeIds,
+                                      Map<String, Map<Object, List<DBRef>>> nodeReferences) {
+        final Deque<DBRef> pending = new ArrayDeque<>();
+        nodeIds.forEach((collectionName, ids) -> {
+            final ObjectIdSet referred = referredNodes.get(collectionName);
+            ids.stream().filter(referred::contains).forEach(id -> pending.add(new DBRef(collectionName, id)));
+        });
+        while (!pending.isEmpty()) {
+            final DBRef node = pending.poll();
+            final List<DBRef> references = nodeReferences.get(node.getCollectionName()).get(node.getId());
+            if (references != null) {
+                references.stream().filter(dbRef -> referredNodes.get(dbRef.getCollectionName()).add(dbRef.getId()))
+                        .forEach(pending::add);
+            }
+        }
+    }
+
+    private long fixVerses(List<DBObject> fixes) {
+        if (fixes.isEmpty()) {
+            return 0;
+        }
+        final BulkOperations bulkOperations = mongoTemplate.bulkOps(UNORDERED, Verse.class);
+        fixes.forEach(fix -> {
+            final List<?> tokens = (List<?>) fix.get(TOKENS);
+            bulkOperations.updateOne(new Query(Criteria.where("id").is(fix.get(ID))),
+                    new Update().set(TOKENS, tokens).set(TOKEN_COUNT, tokens.size()));
+        });
+        bulkOperations.execute();
+        // update does not go through "VerseEventListener", keep navigation index in sync explicitly
+        fixes.forEach(fix -> navigationIndex.updateTokenCount(getInt(fix, CHAPTER_NUMBER), getInt(fix, VERSE_NUMBER),
+                ((List<?>) fix.get(TOKENS)).size()));
+        final long count = fixes.size();
+        fixes.clear();
+        return count;
+    }
+
+    private long fixEntries(Map<Object, List<DBRef>> fixes) {
+        if (fixes.isEmpty()) {
+            return 0;
+        }
+        morphologicalEntryLocations.removeReferences(fixes);
+        final long count = fixes.size();
+        fixes.clear();
+        return count;
+    }
+
+    private void forEach(Class<?> type, DBObject fields, Consumer<DBObject> consumer) {
+        forEach(mongoTemplate.getCollectionName(type), fields, consumer);
+    }
+
+    private void forEach(String collectionName, DBObject fields, Consumer<DBObject> consumer) {
+        final long start = System.currentTimeMillis();
+        final int[] count = {0};
+        try (DBCursor cursor = mongoTemplate.getCollection(collectionName).find(new BasicDBObject(), fields)
+                .batchSize(CURSOR_BATCH_SIZE)) {
+            cursor.forEach(dbObject -> {
+                count[0]++;
+                consumer.accept(dbObject);
+            });
+        }
+        LOGGER.debug("Checked {} documents of \"{}\" in {} ms", count[0], collectionName,
+                System.currentTimeMillis() - start);
+    }
+
+    private static DBObject fields(String... names) {
+        final DBObject fields = new BasicDBObject(ID, 1);
+        for (String name : names) {
+            fields.put(name, 1);
+        }
+        return fields;
+    }
+
+    private static void forEachReference(Object value, Consumer<DBRef> consumer) {
+        if (value instanceof DBRef) {
+            consumer.accept((DBRef) value);
+        } else if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                forEachReference(element, consumer);
+            }
+        } else if (value instanceof DBObject) {
+            // embedded document
+            final DBObject dbObject = (DBObject) value;
+            dbObject.keySet().forEach(key -> forEachReference(dbObject.get(key), consumer));
+        }
+    }
+
+    private static int getInt(DBObject dbObject, String key) {
+        final Object value = dbObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * Removes documents of one type with one <code>deleteMany</code> per batch, through the event listeners.
+     */
+    private final class Removal {
+        private final Class<?> type;
+        private final List<Object> ids = new ArrayList<>();
+        private long count;
+
+        private Removal(Class<?> type) {
+            this.type = type;
+        }
+
+        private void add(Object id) {
+            ids.add(id);
+            if (ids.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * @return total number of documents removed
+         */
+        private long flush() {
+            if (!ids.isEmpty()) {
+                mongoTemplate.remove(new Query(Criteria.where("id").in(ids)), type);
+                count += ids.size();
+                ids.clear();
+            }
+            return count;
+        }
+    }
+}
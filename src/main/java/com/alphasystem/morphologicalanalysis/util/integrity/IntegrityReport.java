@@ -0,0 +1,99 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+import com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of an {@link IntegrityChecker} run: number of violations of each {@link ViolationType}, orphan nodes of each
+ * {@link GraphNodeType}, and ids of the first {@link #MAX_SAMPLES} offending documents of each type.
+ *
+ * @author sali
+ */
+public class IntegrityReport {
+
+    public static final int MAX_SAMPLES = 20;
+
+    private final boolean repair;
+    private final long startTime = System.nanoTime();
+    private final Map<ViolationType, Long> violations = new EnumMap<>(ViolationType.class);
+    private final Map<ViolationType, Long> repaired = new EnumMap<>(ViolationType.class);
+    private final Map<ViolationType, List<String>> samples = new EnumMap<>(ViolationType.class);
+    private final Map<GraphNodeType, Long> orphanNodes = new EnumMap<>(GraphNodeType.class);
+    private long endTime;
+
+    IntegrityReport(boolean repair) {
+        this.repair = repair;
+    }
+
+    void violation(ViolationType type, Object id) {
+        violations.merge(type, 1L, Long::sum);
+        final List<String> ids = samples.computeIfAbsent(type, key -> new ArrayList<>());
+        if (ids.size() < MAX_SAMPLES) {
+            ids.add(String.valueOf(id));
+        }
+    }
+
+    void orphanNode(GraphNodeType nodeType, Object id) {
+        violation(ViolationType.ORPHAN_GRAPH_NODE, id);
+        orphanNodes.merge(nodeType, 1L, Long::sum);
+    }
+
+    void repaired(ViolationType type, long count) {
+        repaired.merge(type, count, Long::sum);
+    }
+
+    void finish() {
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * @return <code>true</code> if violations were repaired, <code>false</code> if they were only reported
+     */
+    public boolean isRepair() {
+        return repair;
+    }
+
+    public long getViolationCount(ViolationType type) {
+        return violations.getOrDefault(type, 0L);
+    }
+
+    public long getTotalViolationCount() {
+        return violations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getRepairedCount(ViolationType type) {
+        return repaired.getOrDefault(type, 0L);
+    }
+
+    public long getOrphanNodeCount(GraphNodeType nodeType) {
+        return orphanNodes.getOrDefault(nodeType, 0L);
+    }
+
+    /**
+     * @param type given type
+     * @return ids of the first offending documents (entries, verses, nodes or tokens) of the given type
+     */
+    public List<String> getSamples(ViolationType type) {
+        return Collections.unmodifiableList(samples.getOrDefault(type, Collections.emptyList()));
+    }
+
+    public boolean isClean() {
+        return violations.isEmpty();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(((endTime == 0) ? System.nanoTime() : endTime) - startTime);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("violations=%s, repaired=%s, orphanNodes=%s, elapsed=%sms", violations, repaired,
+                orphanNodes, getElapsedMillis());
+    }
+}
@@ -0,0 +1,88 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+/**
+ * Open addressing hash set of primitive <code>long</code>s, e.g., {@link
+ * com.alphasystem.morphologicalanalysis.util.LocationKey}s. Not thread safe.
+ *
+ * @author sali
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet() {
+        this(1024);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[(capacity <= 0) ? (1 << 30) : capacity];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            final boolean added = !containsEmpty;
+            containsEmpty = true;
+            return added;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash();
+        }
+        if (insert(keys, key)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmpty;
+        }
+        final int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (containsEmpty ? 1 : 0);
+    }
+
+    private static boolean insert(long[] table, long key) {
+        final int mask = table.length - 1;
+        int index = hash(key) & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = key;
+        return true;
+    }
+
+    private void rehash() {
+        final long[] table = new long[keys.length << 1];
+        for (long key : keys) {
+            if (key != EMPTY) {
+                insert(table, key);
+            }
+        }
+        keys = table;
+    }
+}
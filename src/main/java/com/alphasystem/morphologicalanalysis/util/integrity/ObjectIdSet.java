@@ -0,0 +1,135 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact set of document ids. {@link ObjectId}s (twelve bytes) are kept in primitive arrays with open addressing, so
+ * that a set of a million ids needs about 26 MB instead of more than 100 MB of boxed ids. Any other id (e.g., string
+ * ids which are not valid object ids) is kept in a regular {@link HashSet}.
+ * <p>
+ * Not thread safe.
+ * </p>
+ *
+ * @author sali
+ */
+public class ObjectIdSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] high;
+    private int[] low;
+    private boolean[] used;
+    private int size;
+    private final Set<Object> others = new HashSet<>();
+
+    public ObjectIdSet() {
+        this(1024);
+    }
+
+    public ObjectIdSet(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    private static int tableSize(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return (capacity <= 0) ? (1 << 30) : capacity;
+    }
+
+    private void allocate(int capacity) {
+        high = new long[capacity];
+        low = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int hash(long high, int low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * @param id id to add, {@link ObjectId}, or its hex string, or any other id
+     * @return <code>true</code> if the id was not already present
+     */
+    public boolean add(Object id) {
+        final ObjectId objectId = toObjectId(id);
+        if (objectId == null) {
+            return others.add(id);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(objectId.toByteArray());
+        final long h = buffer.getLong();
+        final int l = buffer.getInt();
+        if ((size + 1) > high.length * LOAD_FACTOR) {
+            rehash();
+        }
+        if (insert(h, l)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(Object id) {
+        final ObjectId objectId = toObjectId(id);
+        if (objectId == null) {
+            return others.contains(id);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(objectId.toByteArray());
+        final long h = buffer.getLong();
+        final int l = buffer.getInt();
+        final int mask = high.length - 1;
+        int index = hash(h, l) & mask;
+        while (used[index]) {
+            if (high[index] == h && low[index] == l) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + others.size();
+    }
+
+    private boolean insert(long h, int l) {
+        final int mask = high.length - 1;
+        int index = hash(h, l) & mask;
+        while (used[index]) {
+            if (high[index] == h && low[index] == l) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        high[index] = h;
+        low[index] = l;
+        return true;
+    }
+
+    private void rehash() {
+        final long[] oldHigh = high;
+        final int[] oldLow = low;
+        final boolean[] oldUsed = used;
+        allocate(oldHigh.length << 1);
+        for (int i = 0; i < oldHigh.length; i++) {
+            if (oldUsed[i]) {
+                insert(oldHigh[i], oldLow[i]);
+            }
+        }
+    }
+
+    private static ObjectId toObjectId(Object id) {
+        if (id instanceof ObjectId) {
+            return (ObjectId) id;
+        }
+        if (id instanceof String && ObjectId.isValid((String) id)) {
+            return new ObjectId((String) id);
+        }
+        return null;
+    }
+}
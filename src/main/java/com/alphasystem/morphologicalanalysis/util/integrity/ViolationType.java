@@ -0,0 +1,32 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+/**
+ * Kinds of referential integrity violations detected by {@link IntegrityChecker}.
+ *
+ * @author sali
+ */
+public enum ViolationType {
+
+    /**
+     * Entry of <code>MorphologicalEntry.locations</code> referring to a deleted location, repaired by pulling the
+     * reference.
+     */
+    DANGLING_ENTRY_LOCATION,
+
+    /**
+     * <code>Verse.tokens</code> referring to a deleted token or disagreeing with <code>tokenCount</code>, repaired by
+     * removing dangling references and setting <code>tokenCount</code> to the number of remaining tokens.
+     */
+    VERSE_TOKEN_MISMATCH,
+
+    /**
+     * Graph node not reachable from any dependency graph, directly or through other nodes, repaired by deleting the
+     * node.
+     */
+    ORPHAN_GRAPH_NODE,
+
+    /**
+     * Hidden token not covered by any dependency graph, repaired by deleting the token and its locations.
+     */
+    ORPHAN_HIDDEN_TOKEN
+}
@@ -0,0 +1,84 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import com.alphasystem.arabic.model.ArabicWord;
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recomputes <code>text</code> of every {@link Location} from the text of its {@link Token}, <code>derivedText</code>
+ * is populated only if blank. Only locations whose text actually changes are updated.
+ *
+ * @author sali
+ */
+@Component
+public class LocationTextJob implements MaintenanceJob {
+
+    private static final String TEXT = "text";
+    private static final String DERIVED_TEXT = "derivedText";
+
+    @Override
+    public String getName() {
+        return "locationText";
+    }
+
+    @Override
+    public void process(VerseRange range, MaintenanceContext context) {
+        final DBObject tokenFields = new BasicDBObject("chapterNumber", 1).append("verseNumber", 1)
+                .append("tokenNumber", 1).append("token", 1);
+        final Map<Long, ArabicWord> tokenWords = new HashMap<>();
+        context.findDocuments(Token.class, range.toQuery(), tokenFields).forEach(dbObject -> {
+            final int chapterNumber = getInt(dbObject, "chapterNumber");
+            final int verseNumber = getInt(dbObject, "verseNumber");
+            final int tokenNumber = getInt(dbObject, "tokenNumber");
+            final String tokenText = (String) dbObject.get("token");
+            if (tokenText != null) {
+                tokenWords.put(LocationKey.encode(chapterNumber, verseNumber, tokenNumber, 0),
+                        new Token(chapterNumber, verseNumber, tokenNumber, tokenText).tokenWord());
+            }
+        });
+
+        final DBObject locationFields = new BasicDBObject("chapterNumber", 1).append("verseNumber", 1)
+                .append("tokenNumber", 1).append("startIndex", 1).append("endIndex", 1).append(TEXT, 1)
+                .append(DERIVED_TEXT, 1);
+        final List<DBObject> locations = context.findDocuments(Location.class, range.toQuery(), locationFields);
+        locations.forEach(dbObject -> {
+            final ArabicWord tokenWord = tokenWords.get(LocationKey.encode(getInt(dbObject, "chapterNumber"),
+                    getInt(dbObject, "verseNumber"), getInt(dbObject, "tokenNumber"), 0));
+            if (tokenWord == null) {
+                return;
+            }
+            final String text = ArabicWord.getSubWord(tokenWord, getInt(dbObject, "startIndex"),
+                    getInt(dbObject, "endIndex")).toUnicode();
+            final Update update = new Update();
+            boolean modified = false;
+            if (!text.equals(dbObject.get(TEXT))) {
+                update.set(TEXT, text);
+                modified = true;
+            }
+            if (StringUtils.isBlank((String) dbObject.get(DERIVED_TEXT))) {
+                update.set(DERIVED_TEXT, text);
+                modified = true;
+            }
+            if (modified) {
+                context.updateOne(Location.class, new Query(Criteria.where("id").is(dbObject.get("_id"))), update);
+            }
+        });
+    }
+
+    private static int getInt(DBObject dbObject, String key) {
+        final Object value = dbObject.get(key);
+        return (value instanceof Number) ? ((Number) value).intValue() : 0;
+    }
+}
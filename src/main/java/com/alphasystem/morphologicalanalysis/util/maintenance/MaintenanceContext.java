@@ -0,0 +1,112 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+/**
+ * Database access of one {@link MaintenanceJob} task.
+ * <p>
+ * Every operation counts against the concurrency cap of the run. Updates are buffered per type and written with one
+ * unordered bulk write whenever {@link MaintenanceJobRunner#setBatchSize(int) batch size} updates of a type are
+ * pending, and when the task ends. A context must not be shared between threads.
+ * </p>
+ *
+ * @author sali
+ */
+public class MaintenanceContext {
+
+    private final MongoTemplate mongoTemplate;
+    private final OperationLimiter limiter;
+    private final int batchSize;
+    private final AtomicLong updateCount;
+    private final Map<Class<?>, PendingUpdates> pending = new LinkedHashMap<>();
+
+    MaintenanceContext(MongoTemplate mongoTemplate, OperationLimiter limiter, int batchSize, AtomicLong updateCount) {
+        this.mongoTemplate = mongoTemplate;
+        this.limiter = limiter;
+        this.batchSize = batchSize;
+        this.updateCount = updateCount;
+    }
+
+    /**
+     * Runs given operation against the template, within the concurrency cap.
+     *
+     * @param operation operation to run
+     * @param <T>       type of the result
+     * @return result of the operation
+     */
+    public <T> T execute(Function<MongoTemplate, T> operation) {
+        return limiter.execute(() -> operation.apply(mongoTemplate));
+    }
+
+    /**
+     * Finds raw documents, bypassing conversion and event listeners.
+     *
+     * @param type   type of the documents
+     * @param query  raw query
+     * @param fields fields to fetch, <code>null</code> to fetch all fields
+     * @return matching documents
+     */
+    public List<DBObject> findDocuments(Class<?> type, DBObject query, DBObject fields) {
+        return execute(template -> {
+            try (DBCursor cursor = template.getCollection(template.getCollectionName(type)).find(query, fields)) {
+                return cursor.toArray();
+            }
+        });
+    }
+
+    /**
+     * Buffers an update of one document.
+     *
+     * @param type   type of the document
+     * @param query  query matching the document
+     * @param update update to apply
+     */
+    public void updateOne(Class<?> type, Query query, Update update) {
+        final PendingUpdates updates = pending.computeIfAbsent(type, key -> new PendingUpdates(
+                mongoTemplate.bulkOps(UNORDERED, key)));
+        updates.bulkOperations.updateOne(query, update);
+        if (++updates.count >= batchSize) {
+            flush(type);
+        }
+    }
+
+    /**
+     * Writes all buffered updates.
+     */
+    public void flush() {
+        for (Class<?> type : pending.keySet().toArray(new Class<?>[0])) {
+            flush(type);
+        }
+    }
+
+    private void flush(Class<?> type) {
+        final PendingUpdates updates = pending.remove(type);
+        if (updates == null || updates.count == 0) {
+            return;
+        }
+        execute(template -> updates.bulkOperations.execute());
+        updateCount.addAndGet(updates.count);
+    }
+
+    private static final class PendingUpdates {
+        private final BulkOperations bulkOperations;
+        private int count;
+
+        private PendingUpdates(BulkOperations bulkOperations) {
+            this.bulkOperations = bulkOperations;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+/**
+ * Corpus wide maintenance job, run by {@link MaintenanceJobRunner}.
+ * <p>
+ * Job is called concurrently for disjoint {@link VerseRange}s, implementations must therefore be thread safe and
+ * should do all their database work through the given {@link MaintenanceContext}.
+ * </p>
+ *
+ * @author sali
+ */
+public interface MaintenanceJob {
+
+    /**
+     * @return unique name of the job, checkpoints are stored by name
+     */
+    String getName();
+
+    /**
+     * Called once before any range is processed, unless the job is resumed from a checkpoint.
+     *
+     * @param context context of the run
+     */
+    default void prepare(MaintenanceContext context) {
+    }
+
+    /**
+     * Processes given range.
+     *
+     * @param range   range to process
+     * @param context context of the current task
+     */
+    void process(VerseRange range, MaintenanceContext context);
+
+    /**
+     * Called once after all ranges are processed, e.g., to invalidate caches the job bypassed.
+     *
+     * @param context context of the run
+     */
+    default void complete(MaintenanceContext context) {
+    }
+}
@@ -0,0 +1,335 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link MaintenanceJob}s over the whole corpus on a {@link ForkJoinPool}.
+ * <p>
+ * Chapters are split recursively into halves down to single chapters, a chapter is further split into ranges of
+ * {@link #setVersesPerTask(int) verses per task} (<code>0</code> to process whole chapters), idle workers steal
+ * pending ranges of other workers. Each range gets its own {@link MaintenanceContext}, which writes its updates in
+ * batches. Number of MongoDB operations in flight is capped by
+ * {@link #setMaxConcurrentOperations(int) maximum concurrent operations}, regardless of the parallelism.
+ * </p>
+ * <p>
+ * Once all ranges of a chapter are processed the chapter is recorded in the <code>maintenanceCheckpoint</code>
+ * collection. A failed or interrupted run can be resumed with {@link #run(MaintenanceJob, boolean)}, checkpointed
+ * chapters are then skipped. Checkpoints of a job are removed when a run completes.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class MaintenanceJobRunner {
+
+    public static final String CHECKPOINT_COLLECTION = "maintenanceCheckpoint";
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_VERSES_PER_TASK = 20;
+    public static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaintenanceJobRunner.class);
+    private static final String CHAPTERS = "chapters";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private CorpusNavigationIndex navigationIndex;
+    private volatile int parallelism = Runtime.getRuntime().availableProcessors();
+    private volatile int maxConcurrentOperations = DEFAULT_MAX_CONCURRENT_OPERATIONS;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile int versesPerTask = DEFAULT_VERSES_PER_TASK;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid parallelism {%s}", parallelism));
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxConcurrentOperations() {
+        return maxConcurrentOperations;
+    }
+
+    public void setMaxConcurrentOperations(int maxConcurrentOperations) {
+        if (maxConcurrentOperations <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid maximum concurrent operations {%s}",
+                    maxConcurrentOperations));
+        }
+        this.maxConcurrentOperations = maxConcurrentOperations;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid batch size {%s}", batchSize));
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getVersesPerTask() {
+        return versesPerTask;
+    }
+
+    /**
+     * @param versesPerTask number of verses processed by one task, <code>0</code> to process whole chapters
+     */
+    public void setVersesPerTask(int versesPerTask) {
+        if (versesPerTask < 0) {
+            throw new IllegalArgumentException(String.format("Invalid verses per task {%s}", versesPerTask));
+        }
+        this.versesPerTask = versesPerTask;
+    }
+
+    /**
+     * Runs given job over the whole corpus from scratch, discarding any checkpoint.
+     *
+     * @param job job to run
+     * @return statistics of the run
+     */
+    public JobStatistics run(MaintenanceJob job) {
+        return run(job, false);
+    }
+
+    /**
+     * Runs given job over the whole corpus.
+     *
+     * @param job    job to run
+     * @param resume if <code>true</code> chapters checkpointed by a previous run are skipped
+     * @return statistics of the run
+     */
+    public JobStatistics run(MaintenanceJob job, boolean resume) {
+        final String jobName = job.getName();
+        final Set<Integer> checkpointed = resume ? getCheckpointedChapters(jobName) : new HashSet<>();
+        if (!resume) {
+            clearCheckpoint(jobName);
+        }
+        final JobStatistics statistics = new JobStatistics(jobName);
+        final OperationLimiter limiter = new OperationLimiter(maxConcurrentOperations);
+        final int batchSize = this.batchSize;
+        if (checkpointed.isEmpty()) {
+            final MaintenanceContext context = new MaintenanceContext(mongoTemplate, limiter, batchSize,
+                    statistics.updates);
+            job.prepare(context);
+            context.flush();
+        } else {
+            LOGGER.info("Resuming job \"{}\", skipping {} checkpointed chapters", jobName, checkpointed.size());
+        }
+
+        final List<Integer> chapters = new ArrayList<>();
+        for (int chapterNumber = 1; chapterNumber <= navigationIndex.getChapterCount(); chapterNumber++) {
+            if (checkpointed.contains(chapterNumber)) {
+                statistics.chaptersSkipped.incrementAndGet();
+            } else {
+                chapters.add(chapterNumber);
+            }
+        }
+        final RunState state = new RunState(job, limiter, batchSize, versesPerTask, statistics);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ChaptersTask(state, chapters, 0, chapters.size()));
+        } finally {
+            pool.shutdown();
+            statistics.finish();
+        }
+        final MaintenanceContext context = new MaintenanceContext(mongoTemplate, limiter, batchSize,
+                statistics.updates);
+        job.complete(context);
+        context.flush();
+        clearCheckpoint(jobName);
+        LOGGER.info("Job \"{}\" processed {} chapters ({} ranges, {} updates) in {} ms", jobName,
+                statistics.getChaptersProcessed(), statistics.getRangesProcessed(), statistics.getUpdates(),
+                statistics.getElapsedMillis());
+        return statistics;
+    }
+
+    /**
+     * @param jobName name of the job
+     * @return chapters of the given job checkpointed by an incomplete run
+     */
+    public Set<Integer> getCheckpointedChapters(String jobName) {
+        final Set<Integer> chapters = new HashSet<>();
+        final DBObject checkpoint = getCheckpointCollection().findOne(new BasicDBObject("_id", jobName));
+        if (checkpoint != null && checkpoint.get(CHAPTERS) instanceof List) {
+            ((List<?>) checkpoint.get(CHAPTERS)).forEach(chapter -> chapters.add(((Number) chapter).intValue()));
+        }
+        return chapters;
+    }
+
+    public void clearCheckpoint(String jobName) {
+        getCheckpointCollection().remove(new BasicDBObject("_id", jobName));
+    }
+
+    private void checkpoint(String jobName, int chapterNumber) {
+        getCheckpointCollection().update(new BasicDBObject("_id", jobName),
+                new BasicDBObject("$addToSet", new BasicDBObject(CHAPTERS, chapterNumber)), true, false);
+    }
+
+    private DBCollection getCheckpointCollection() {
+        return mongoTemplate.getCollection(CHECKPOINT_COLLECTION);
+    }
+
+    private final class RunState {
+        private final MaintenanceJob job;
+        private final OperationLimiter limiter;
+        private final int batchSize;
+        private final int versesPerTask;
+        private final JobStatistics statistics;
+
+        private RunState(MaintenanceJob job, OperationLimiter limiter, int batchSize, int versesPerTask,
+                         JobStatistics statistics) {
+            this.job = job;
+            this.limiter = limiter;
+            this.batchSize = batchSize;
+            this.versesPerTask = versesPerTask;
+            this.statistics = statistics;
+        }
+    }
+
+    /**
+     * Splits chapters in halves, a single chapter is split into verse ranges.
+     */
+    private final class ChaptersTask extends RecursiveAction {
+
+        private final RunState state;
+        private final List<Integer> chapters;
+        private final int from;
+        private final int to;
+
+        private ChaptersTask(RunState state, List<Integer> chapters, int from, int to) {
+            this.state = state;
+            this.chapters = chapters;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            final int size = to - from;
+            if (size <= 0) {
+                return;
+            }
+            if (size > 1) {
+                final int middle = from + size / 2;
+                invokeAll(new ChaptersTask(state, chapters, from, middle), new ChaptersTask(state, chapters, middle,
+                        to));
+                return;
+            }
+            final int chapterNumber = chapters.get(from);
+            final int verseCount = navigationIndex.getVerseCount(chapterNumber);
+            if (verseCount <= 0) {
+                return;
+            }
+            final int step = (state.versesPerTask == 0) ? verseCount : state.versesPerTask;
+            final List<RangeTask> tasks = new ArrayList<>();
+            for (int firstVerse = 1; firstVerse <= verseCount; firstVerse += step) {
+                tasks.add(new RangeTask(state, new VerseRange(chapterNumber, firstVerse,
+                        Math.min(firstVerse + step - 1, verseCount))));
+            }
+            invokeAll(tasks);
+            state.limiter.execute(() -> {
+                checkpoint(state.job.getName(), chapterNumber);
+                return null;
+            });
+            state.statistics.chaptersProcessed.incrementAndGet();
+            LOGGER.debug("Job \"{}\" finished chapter {}", state.job.getName(), chapterNumber);
+        }
+    }
+
+    private final class RangeTask extends RecursiveAction {
+
+        private final RunState state;
+        private final VerseRange range;
+
+        private RangeTask(RunState state, VerseRange range) {
+            this.state = state;
+            this.range = range;
+        }
+
+        @Override
+        protected void compute() {
+            final MaintenanceContext context = new MaintenanceContext(mongoTemplate, state.limiter,
+                    state.batchSize, state.statistics.updates);
+            state.job.process(range, context);
+            context.flush();
+            state.statistics.rangesProcessed.incrementAndGet();
+        }
+    }
+
+    public static final class JobStatistics {
+        private final String jobName;
+        private final long startTime = System.nanoTime();
+        private final AtomicInteger chaptersProcessed = new AtomicInteger();
+        private final AtomicInteger chaptersSkipped = new AtomicInteger();
+        private final AtomicInteger rangesProcessed = new AtomicInteger();
+        private final AtomicLong updates = new AtomicLong();
+        private volatile long endTime;
+
+        private JobStatistics(String jobName) {
+            this.jobName = jobName;
+        }
+
+        private void finish() {
+            endTime = System.nanoTime();
+        }
+
+        public String getJobName() {
+            return jobName;
+        }
+
+        public int getChaptersProcessed() {
+            return chaptersProcessed.get();
+        }
+
+        /**
+         * @return number of chapters skipped, since they were checkpointed by a previous run
+         */
+        public int getChaptersSkipped() {
+            return chaptersSkipped.get();
+        }
+
+        public int getRangesProcessed() {
+            return rangesProcessed.get();
+        }
+
+        /**
+         * @return number of updates written by the tasks
+         */
+        public long getUpdates() {
+            return updates.get();
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(((endTime == 0) ? System.nanoTime() : endTime) - startTime);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: chapters=%s, skipped=%s, ranges=%s, updates=%s, elapsed=%sms", jobName,
+                    getChaptersProcessed(), getChaptersSkipped(), getRangesProcessed(), getUpdates(),
+                    getElapsedMillis());
+        }
+    }
+}
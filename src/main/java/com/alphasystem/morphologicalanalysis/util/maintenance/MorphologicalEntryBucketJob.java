@@ -0,0 +1,77 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Migrates every {@link MorphologicalEntry} to the bucketed layout of {@link MorphologicalEntryLocations}, i.e.,
+ * entries holding more than summary size <code>locations</code> keep the first ones and have the rest moved into
+ * buckets. Entries are found through the <code>morphologicalEntry</code> reference of the {@link Location}s of each
+ * range, an entry is migrated by the first range referring it; migration of an entry is idempotent, therefore a
+ * resumed run simply checks entries again.
+ *
+ * @author sali
+ */
+@Component
+public class MorphologicalEntryBucketJob implements MaintenanceJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalEntryBucketJob.class);
+    private static final String MORPHOLOGICAL_ENTRY = "morphologicalEntry";
+
+    @Autowired private MorphologicalEntryLocations morphologicalEntryLocations;
+    private final Set<Object> visitedEntries = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger migratedEntries = new AtomicInteger();
+    private final AtomicLong movedLocations = new AtomicLong();
+
+    @Override
+    public String getName() {
+        return "morphologicalEntryBucket";
+    }
+
+    @Override
+    public void prepare(MaintenanceContext context) {
+        visitedEntries.clear();
+        migratedEntries.set(0);
+        movedLocations.set(0);
+    }
+
+    @Override
+    public void process(VerseRange range, MaintenanceContext context) {
+        context.findDocuments(Location.class, range.toQuery(), new BasicDBObject(MORPHOLOGICAL_ENTRY, 1))
+                .forEach(dbObject -> {
+                    final Object morphologicalEntry = dbObject.get(MORPHOLOGICAL_ENTRY);
+                    if (!(morphologicalEntry instanceof DBRef)) {
+                        return;
+                    }
+                    final Object entryId = ((DBRef) morphologicalEntry).getId();
+                    if (!visitedEntries.add(entryId)) {
+                        return;
+                    }
+                    final int moved = context.execute(template ->
+                            morphologicalEntryLocations.migrate(entryId.toString()));
+                    if (moved > 0) {
+                        migratedEntries.incrementAndGet();
+                        movedLocations.addAndGet(moved);
+                    }
+                });
+    }
+
+    @Override
+    public void complete(MaintenanceContext context) {
+        LOGGER.info("Moved {} locations of {} morphological entries into buckets", movedLocations.get(),
+                migratedEntries.get());
+        visitedEntries.clear();
+    }
+}
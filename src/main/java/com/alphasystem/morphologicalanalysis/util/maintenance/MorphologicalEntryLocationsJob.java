@@ -0,0 +1,128 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryCache;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.LOCATION_COUNTS;
+
+/**
+ * Rebuilds <code>locations</code> back references of every {@link MorphologicalEntry} from the
+ * <code>morphologicalEntry</code> reference of the {@link Location}s.
+ * <p>
+ * References are collected into {@link #STAGING_COLLECTION}, one document per entry, each range adds the locations
+ * it finds with one <code>$addToSet</code> per entry, so that a resumed range does not add a reference twice. Live
+ * references, counts and buckets of the entries are left untouched until all ranges are done, then each entry is
+ * swapped to its staged references with {@link MorphologicalEntryLocations#replaceLocations(String, List)}, which
+ * splits large entries into summary and buckets. Staging collection is dropped when the job starts and when it
+ * completes.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class MorphologicalEntryLocationsJob implements MaintenanceJob {
+
+    public static final String STAGING_COLLECTION = "morphologicalEntryLocationRebuild";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MorphologicalEntryLocationsJob.class);
+    private static final String ID = "_id";
+    private static final String LOCATIONS = MorphologicalEntryLocations.LOCATIONS;
+    private static final String MORPHOLOGICAL_ENTRY = "morphologicalEntry";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private MorphologicalEntryLocations morphologicalEntryLocations;
+    @Autowired private MorphologicalEntryCache morphologicalEntryCache;
+    @Autowired private CorpusStatisticsService corpusStatisticsService;
+
+    @Override
+    public String getName() {
+        return "morphologicalEntryLocations";
+    }
+
+    @Override
+    public void prepare(MaintenanceContext context) {
+        // leftovers of a run which has not been resumed
+        context.execute(template -> {
+            template.getCollection(STAGING_COLLECTION).drop();
+            return null;
+        });
+    }
+
+    @Override
+    public void process(VerseRange range, MaintenanceContext context) {
+        final String locationCollection = mongoTemplate.getCollectionName(Location.class);
+        final Map<Object, List<DBRef>> entryLocations = new LinkedHashMap<>();
+        context.findDocuments(Location.class, range.toQuery(), new BasicDBObject(MORPHOLOGICAL_ENTRY, 1))
+                .forEach(dbObject -> {
+                    final Object morphologicalEntry = dbObject.get(MORPHOLOGICAL_ENTRY);
+                    if (morphologicalEntry instanceof DBRef) {
+                        entryLocations.computeIfAbsent(((DBRef) morphologicalEntry).getId(), id -> new ArrayList<>())
+                                .add(new DBRef(locationCollection, dbObject.get(ID)));
+                    }
+                });
+        if (entryLocations.isEmpty()) {
+            return;
+        }
+        context.execute(template -> {
+            final BulkWriteOperation bulkWriteOperation = template.getCollection(STAGING_COLLECTION)
+                    .initializeUnorderedBulkOperation();
+            entryLocations.forEach((id, refs) -> bulkWriteOperation.find(new BasicDBObject(ID, id)).upsert()
+                    .updateOne(new BasicDBObject("$addToSet", new BasicDBObject(LOCATIONS,
+                            new BasicDBObject("$each", refs)))));
+            return bulkWriteOperation.execute();
+        });
+    }
+
+    @Override
+    public void complete(MaintenanceContext context) {
+        // only ids, each entry is swapped in an operation of its own
+        final List<Object> entryIds = context.execute(template -> {
+            final List<Object> ids = new ArrayList<>();
+            try (DBCursor cursor = template.getCollection(template.getCollectionName(MorphologicalEntry.class))
+                    .find(new BasicDBObject(), new BasicDBObject(ID, 1))) {
+                cursor.forEach(dbObject -> ids.add(dbObject.get(ID)));
+            }
+            return ids;
+        });
+        entryIds.forEach(id -> context.execute(template -> {
+            final DBObject staged = template.getCollection(STAGING_COLLECTION).findOne(new BasicDBObject(ID, id));
+            final List<DBRef> references = new ArrayList<>();
+            final Object locations = (staged == null) ? null : staged.get(LOCATIONS);
+            if (locations instanceof List) {
+                ((List<?>) locations).forEach(reference -> {
+                    if (reference instanceof DBRef) {
+                        references.add((DBRef) reference);
+                    }
+                });
+            }
+            morphologicalEntryLocations.replaceLocations(id.toString(), references);
+            return null;
+        }));
+        context.execute(template -> {
+            template.getCollection(STAGING_COLLECTION).drop();
+            return null;
+        });
+        LOGGER.info("Rebuilt locations of {} morphological entries", entryIds.size());
+        // updates do not go through "MorphologicalEntryEventListener"
+        morphologicalEntryCache.invalidateAll();
+        corpusStatisticsService.markAllDirty(LOCATION_COUNTS);
+    }
+}
@@ -0,0 +1,60 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of concurrent MongoDB operations of a job run. Waiting for a permit is a
+ * {@link ForkJoinPool.ManagedBlocker}, so that the pool may compensate for blocked workers.
+ *
+ * @author sali
+ */
+class OperationLimiter {
+
+    private final Semaphore permits;
+
+    OperationLimiter(int maxConcurrentOperations) {
+        this.permits = new Semaphore(maxConcurrentOperations, true);
+    }
+
+    <T> T execute(Supplier<T> operation) {
+        acquire();
+        try {
+            return operation.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean acquired;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!acquired) {
+                        permits.acquire();
+                        acquired = true;
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    if (!acquired) {
+                        acquired = permits.tryAcquire();
+                    }
+                    return acquired;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a MongoDB operation permit", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.alphasystem.morphologicalanalysis.util.maintenance;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Range of verses of one chapter, unit of work of a {@link MaintenanceJob}.
+ *
+ * @author sali
+ */
+public final class VerseRange {
+
+    private final int chapterNumber;
+    private final int firstVerse;
+    private final int lastVerse;
+
+    public VerseRange(int chapterNumber, int firstVerse, int lastVerse) {
+        if (firstVerse <= 0 || lastVerse < firstVerse) {
+            throw new IllegalArgumentException(String.format("Invalid verse range {%s:%s-%s}", chapterNumber,
+                    firstVerse, lastVerse));
+        }
+        this.chapterNumber = chapterNumber;
+        this.firstVerse = firstVerse;
+        this.lastVerse = lastVerse;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    public int getFirstVerse() {
+        return firstVerse;
+    }
+
+    public int getLastVerse() {
+        return lastVerse;
+    }
+
+    /**
+     * @return raw query matching documents (having <code>chapterNumber</code> and <code>verseNumber</code>) of this
+     * range
+     */
+    public DBObject toQuery() {
+        return new BasicDBObject("chapterNumber", chapterNumber).append("verseNumber",
+                new BasicDBObject("$gte", firstVerse).append("$lte", lastVerse));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s:%s-%s", chapterNumber, firstVerse, lastVerse);
+    }
+}
@@ -0,0 +1,17 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+/**
+ * Monotonically increasing count.
+ *
+ * @author sali
+ */
+public interface Counter {
+
+    default void increment() {
+        increment(1);
+    }
+
+    void increment(long amount);
+
+    long count();
+}
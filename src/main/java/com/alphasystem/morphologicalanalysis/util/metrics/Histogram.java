@@ -0,0 +1,28 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+/**
+ * Distribution of recorded non-negative values.
+ *
+ * @author sali
+ */
+public interface Histogram {
+
+    void record(long value);
+
+    long count();
+
+    long total();
+
+    long max();
+
+    default double mean() {
+        final long count = count();
+        return (count == 0) ? 0.0 : (double) total() / count;
+    }
+
+    /**
+     * @param percentile percentile between <code>0.0</code> and <code>1.0</code>
+     * @return (approximate) value at the given percentile, <code>0</code> if nothing has been recorded
+     */
+    long percentile(double percentile);
+}
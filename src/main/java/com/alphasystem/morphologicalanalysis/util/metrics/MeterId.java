@@ -0,0 +1,69 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Identity of a meter, name and a set of tags (key value pairs).
+ *
+ * @author sali
+ */
+public final class MeterId {
+
+    private final String name;
+    private final Map<String, String> tags;
+
+    /**
+     * @param name name of the meter
+     * @param tags tags as alternating keys and values
+     */
+    public MeterId(String name, String... tags) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null");
+        }
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException(String.format("Tags must be key value pairs {%s}", name));
+        }
+        this.name = name;
+        final Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            map.put(tags[i], tags[i + 1]);
+        }
+        this.tags = Collections.unmodifiableMap(map);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String key) {
+        return tags.get(key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MeterId)) {
+            return false;
+        }
+        MeterId other = (MeterId) o;
+        return name.equals(other.name) && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + tags.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return tags.isEmpty() ? name : name + tags;
+    }
+}
@@ -0,0 +1,36 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+/**
+ * Creates and holds meters. Meters are identified by name and tags, asking for the same meter twice returns the same
+ * instance.
+ * <p>
+ * Default implementation is {@link SimpleMeterRegistry}, which keeps all meters in memory. To publish metrics into a
+ * monitoring system, define a bean of this type backed by that system, it will be picked up by
+ * {@link RepositoryMetrics}.
+ * </p>
+ *
+ * @author sali
+ */
+public interface MeterRegistry {
+
+    /**
+     * @param name name of the counter
+     * @param tags tags as alternating keys and values
+     * @return counter with the given name and tags
+     */
+    Counter counter(String name, String... tags);
+
+    /**
+     * @param name name of the timer
+     * @param tags tags as alternating keys and values
+     * @return timer with the given name and tags
+     */
+    Timer timer(String name, String... tags);
+
+    /**
+     * @param name name of the histogram
+     * @param tags tags as alternating keys and values
+     * @return histogram with the given name and tags
+     */
+    Histogram histogram(String name, String... tags);
+}
@@ -0,0 +1,86 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.mongodb.core.mapping.event.AbstractDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Records every public method call of the proxied component as an operation, or, for event listeners, every
+ * <code>onApplicationEvent</code> call as a listener callback. Listeners receive the events of all types, only events
+ * of the domain type of the listener are recorded, matched the same way as <code>AbstractMongoEventListener</code>
+ * does.
+ *
+ * @author sali
+ */
+class MetricsInterceptor implements MethodInterceptor {
+
+    private static final String ON_APPLICATION_EVENT = "onApplicationEvent";
+
+    private final RepositoryMetrics repositoryMetrics;
+    private final String name;
+    private final Class<?> domainType;
+
+    /**
+     * @param repositoryMetrics metrics to record to
+     * @param name              name of the proxied component
+     * @param domainType        domain type of the proxied event listener, <code>null</code> if component is not a
+     *                          listener
+     */
+    MetricsInterceptor(RepositoryMetrics repositoryMetrics, String name, Class<?> domainType) {
+        this.repositoryMetrics = repositoryMetrics;
+        this.name = name;
+        this.domainType = domainType;
+    }
+
+    private boolean isDomainEvent(Object event) {
+        if (!(event instanceof MongoMappingEvent)) {
+            return false;
+        }
+        final Class<?> type;
+        if (event instanceof AfterLoadEvent) {
+            type = ((AfterLoadEvent<?>) event).getType();
+        } else if (event instanceof AbstractDeleteEvent) {
+            type = ((AbstractDeleteEvent<?>) event).getType();
+        } else {
+            final Object source = ((MongoMappingEvent<?>) event).getSource();
+            type = (source == null) ? null : source.getClass();
+        }
+        return type != null && domainType.isAssignableFrom(type);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        final Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class || !Modifier.isPublic(method.getModifiers())) {
+            return invocation.proceed();
+        }
+        if (domainType != null) {
+            final Object event = ON_APPLICATION_EVENT.equals(method.getName()) ? invocation.getArguments()[0] : null;
+            if (!isDomainEvent(event)) {
+                return invocation.proceed();
+            }
+            final long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                repositoryMetrics.recordListenerCallback(name, event.getClass().getSimpleName(),
+                        System.nanoTime() - start);
+            }
+        }
+        return repositoryMetrics.recordOperation(name, method.getName(), () -> {
+            try {
+                return invocation.proceed();
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new UndeclaredThrowableException(t);
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandListener} which reports every MongoDB command to {@link RepositoryMetrics}. The synchronous driver
+ * notifies command listeners on the thread issuing the command, which allows commands to be attributed to the
+ * repository operation in progress.
+ * <p>
+ * Register this listener while building the client:
+ * <pre>
+ * MongoClientOptions.builder().addCommandListener(commandMetricsListener)
+ * </pre>
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class MongoCommandMetricsListener implements CommandListener {
+
+    @Autowired private RepositoryMetrics repositoryMetrics;
+
+    public MongoCommandMetricsListener() {
+    }
+
+    public MongoCommandMetricsListener(RepositoryMetrics repositoryMetrics) {
+        this.repositoryMetrics = repositoryMetrics;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        repositoryMetrics.recordRoundTrip(event.getCommandName(), true, event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        repositoryMetrics.recordRoundTrip(event.getCommandName(), false, event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,118 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records metrics of the repository operations, document event listener callbacks and MongoDB commands.
+ * <p>
+ * Following meters are recorded:
+ * <ul>
+ * <li><code>repository.operation</code> (timer) - duration of an operation, tagged by <code>component</code> and
+ * <code>operation</code></li>
+ * <li><code>repository.operation.errors</code> (counter) - operations which threw an exception, same tags</li>
+ * <li><code>repository.operation.roundTrips</code> (histogram) - number of MongoDB commands issued by one
+ * operation, same tags</li>
+ * <li><code>listener.callback</code> (timer) - duration of a listener callback, tagged by <code>listener</code> and
+ * <code>event</code></li>
+ * <li><code>mongo.command</code> (timer) - duration of a MongoDB command, tagged by <code>command</code> and
+ * <code>outcome</code></li>
+ * </ul>
+ * Round trips are only counted if {@link MongoCommandMetricsListener} is registered with the <code>MongoClient</code>.
+ * </p>
+ * <p>
+ * By default metrics are kept in a {@link SimpleMeterRegistry}, if a {@link MeterRegistry} bean is defined it will be
+ * used instead.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class RepositoryMetrics {
+
+    public static final String OPERATION = "repository.operation";
+    public static final String OPERATION_ERRORS = "repository.operation.errors";
+    public static final String OPERATION_ROUND_TRIPS = "repository.operation.roundTrips";
+    public static final String LISTENER_CALLBACK = "listener.callback";
+    public static final String MONGO_COMMAND = "mongo.command";
+
+    /**
+     * Round trip counts of the operations in progress on current thread, inner most operation being the first.
+     */
+    private static final ThreadLocal<Deque<long[]>> ACTIVE_OPERATIONS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private volatile MeterRegistry registry = new SimpleMeterRegistry();
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    @Autowired(required = false)
+    public void setRegistry(MeterRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Registry cannot be null");
+        }
+        this.registry = registry;
+    }
+
+    /**
+     * Runs and times given operation, MongoDB commands issued by the operation (including any nested operation) are
+     * counted towards it.
+     *
+     * @param component name of the component
+     * @param operation name of the operation
+     * @param callable  operation to run
+     * @param <T>       type of the result
+     * @return result of the operation
+     * @throws Exception if operation fails
+     */
+    public <T> T recordOperation(String component, String operation, Callable<T> callable) throws Exception {
+        final Deque<long[]> activeOperations = ACTIVE_OPERATIONS.get();
+        final long[] roundTrips = new long[1];
+        activeOperations.push(roundTrips);
+        final long start = System.nanoTime();
+        try {
+            return callable.call();
+        } catch (Exception | Error e) {
+            registry.counter(OPERATION_ERRORS, "component", component, "operation", operation).increment();
+            throw e;
+        } finally {
+            final long duration = System.nanoTime() - start;
+            activeOperations.pop();
+            registry.timer(OPERATION, "component", component, "operation", operation)
+                    .record(duration, TimeUnit.NANOSECONDS);
+            registry.histogram(OPERATION_ROUND_TRIPS, "component", component, "operation", operation)
+                    .record(roundTrips[0]);
+        }
+    }
+
+    /**
+     * Records the duration of a listener callback.
+     *
+     * @param listener name of the listener
+     * @param event    name of the event
+     * @param duration duration in nanoseconds
+     */
+    public void recordListenerCallback(String listener, String event, long duration) {
+        registry.timer(LISTENER_CALLBACK, "listener", listener, "event", event).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a MongoDB command issued from current thread, and counts it towards all operations in progress on
+     * current thread.
+     *
+     * @param command  name of the command
+     * @param success  whether command succeeded
+     * @param duration duration in nanoseconds
+     */
+    public void recordRoundTrip(String command, boolean success, long duration) {
+        ACTIVE_OPERATIONS.get().forEach(roundTrips -> roundTrips[0]++);
+        registry.timer(MONGO_COMMAND, "command", command, "outcome", success ? "success" : "failure")
+                .record(duration, TimeUnit.NANOSECONDS);
+    }
+}
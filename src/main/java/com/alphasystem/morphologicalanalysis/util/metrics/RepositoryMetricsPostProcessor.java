@@ -0,0 +1,66 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import com.alphasystem.morphologicalanalysis.morphology.repository.DictionaryNotesRepository;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps {@link MorphologicalAnalysisRepositoryUtil}, {@link DictionaryNotesRepository} and all MongoDB event
+ * listeners into proxies recording their calls to {@link RepositoryMetrics}.
+ * <p>
+ * Calls made by a component on itself are not recorded separately. For methods returning a cursor only opening of the
+ * cursor is timed. Instrumentation can be turned off by setting system property {@link #ENABLED_PROPERTY} to
+ * <code>false</code>.
+ * </p>
+ * <p>
+ * {@link RepositoryMetrics} is looked up when the first bean is wrapped, so that it is created and post processed as
+ * a regular bean rather than along with this post processor.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    public static final String ENABLED_PROPERTY = "morphologicalanalysis.metrics.enabled";
+
+    @Autowired private ObjectFactory<RepositoryMetrics> repositoryMetricsFactory;
+    private final boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (!enabled) {
+            return bean;
+        }
+        final String name = bean.getClass().getSimpleName();
+        if (bean instanceof AbstractMongoEventListener) {
+            Class<?> domainType = GenericTypeResolver.resolveTypeArgument(bean.getClass(),
+                    AbstractMongoEventListener.class);
+            return createProxy(bean, new MetricsInterceptor(repositoryMetricsFactory.getObject(), name,
+                    (domainType == null) ? Object.class : domainType));
+        }
+        if (bean instanceof MorphologicalAnalysisRepositoryUtil || bean instanceof DictionaryNotesRepository) {
+            return createProxy(bean, new MetricsInterceptor(repositoryMetricsFactory.getObject(), name, null));
+        }
+        return bean;
+    }
+
+    private static Object createProxy(Object bean, MetricsInterceptor interceptor) {
+        final ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+}
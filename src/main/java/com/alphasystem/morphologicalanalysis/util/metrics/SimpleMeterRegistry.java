@@ -0,0 +1,205 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * {@link MeterRegistry} which keeps all meters in memory, meters can be looked up and asserted against with
+ * {@link #findCounter(String, String...)}, {@link #findTimer(String, String...)} and
+ * {@link #findHistogram(String, String...)}.
+ * <p>
+ * Histograms keep one bucket per power of two, percentiles are therefore approximate, reported value is the upper
+ * bound of the bucket the percentile falls into (capped by the maximum recorded value).
+ * </p>
+ *
+ * @author sali
+ */
+public class SimpleMeterRegistry implements MeterRegistry {
+
+    private final ConcurrentMap<MeterId, Object> meters = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return getOrCreate(new MeterId(name, tags), Counter.class, id -> new SimpleCounter());
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return getOrCreate(new MeterId(name, tags), Timer.class, id -> new SimpleTimer());
+    }
+
+    @Override
+    public Histogram histogram(String name, String... tags) {
+        return getOrCreate(new MeterId(name, tags), Histogram.class, id -> new SimpleHistogram());
+    }
+
+    /**
+     * @param name name of the counter
+     * @param tags tags as alternating keys and values
+     * @return counter with the given name and tags, <code>null</code> if no such counter exists
+     */
+    public Counter findCounter(String name, String... tags) {
+        return find(new MeterId(name, tags), Counter.class);
+    }
+
+    public Timer findTimer(String name, String... tags) {
+        return find(new MeterId(name, tags), Timer.class);
+    }
+
+    public Histogram findHistogram(String name, String... tags) {
+        return find(new MeterId(name, tags), Histogram.class);
+    }
+
+    /**
+     * @return snapshot of all meters keyed by their id
+     */
+    public Map<MeterId, Object> getMeters() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(meters));
+    }
+
+    public void clear() {
+        meters.clear();
+    }
+
+    private <M> M find(MeterId id, Class<M> type) {
+        final Object meter = meters.get(id);
+        return type.isInstance(meter) ? type.cast(meter) : null;
+    }
+
+    private <M> M getOrCreate(MeterId id, Class<M> type, Function<MeterId, M> factory) {
+        final Object meter = meters.computeIfAbsent(id, factory::apply);
+        if (!type.isInstance(meter)) {
+            throw new IllegalArgumentException(String.format("Meter {%s} is already registered as {%s}", id,
+                    meter.getClass().getSimpleName()));
+        }
+        return type.cast(meter);
+    }
+
+    private static final class SimpleCounter implements Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Counter{count=%s}", count());
+        }
+    }
+
+    private static final class SimpleHistogram implements Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private static int getBucket(long value) {
+            return Long.SIZE - Long.numberOfLeadingZeros(value);
+        }
+
+        @Override
+        public void record(long value) {
+            if (value < 0) {
+                return;
+            }
+            buckets.incrementAndGet(getBucket(value));
+            count.increment();
+            total.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        @Override
+        public long count() {
+            return count.sum();
+        }
+
+        @Override
+        public long total() {
+            return total.sum();
+        }
+
+        @Override
+        public long max() {
+            return max.get();
+        }
+
+        @Override
+        public long percentile(double percentile) {
+            if (percentile < 0.0 || percentile > 1.0) {
+                throw new IllegalArgumentException(String.format("Invalid percentile {%s}", percentile));
+            }
+            long remaining = (long) Math.ceil(percentile * count());
+            if (remaining == 0) {
+                return 0;
+            }
+            for (int i = 0; i < buckets.length(); i++) {
+                remaining -= buckets.get(i);
+                if (remaining <= 0) {
+                    final long upperBound = (i == 0) ? 0 : (i >= Long.SIZE - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upperBound, max());
+                }
+            }
+            return max();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Histogram{count=%s, mean=%.2f, max=%s}", count(), mean(), max());
+        }
+    }
+
+    private static final class SimpleTimer implements Timer {
+
+        private final SimpleHistogram histogram = new SimpleHistogram();
+
+        @Override
+        public void record(long duration, TimeUnit unit) {
+            histogram.record(unit.toNanos(duration));
+        }
+
+        @Override
+        public long count() {
+            return histogram.count();
+        }
+
+        @Override
+        public long totalTime(TimeUnit unit) {
+            return unit.convert(histogram.total(), NANOSECONDS);
+        }
+
+        @Override
+        public long max(TimeUnit unit) {
+            return unit.convert(histogram.max(), NANOSECONDS);
+        }
+
+        @Override
+        public long percentile(double percentile, TimeUnit unit) {
+            return unit.convert(histogram.percentile(percentile), NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Timer{count=%s, mean=%.3fms, max=%sms}", count(), histogram.mean() / 1_000_000,
+                    max(TimeUnit.MILLISECONDS));
+        }
+    }
+}
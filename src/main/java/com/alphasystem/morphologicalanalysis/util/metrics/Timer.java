@@ -0,0 +1,46 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records durations of an operation, in addition to the count, total and maximum time the distribution of durations
+ * is available through {@link #percentile(double, TimeUnit)}.
+ *
+ * @author sali
+ */
+public interface Timer {
+
+    void record(long duration, TimeUnit unit);
+
+    default <T> T record(Supplier<T> operation) {
+        final long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    default void record(Runnable operation) {
+        final long start = System.nanoTime();
+        try {
+            operation.run();
+        } finally {
+            record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    long count();
+
+    long totalTime(TimeUnit unit);
+
+    long max(TimeUnit unit);
+
+    /**
+     * @param percentile percentile between <code>0.0</code> and <code>1.0</code>
+     * @param unit       time unit of the result
+     * @return (approximate) duration at the given percentile
+     */
+    long percentile(double percentile, TimeUnit unit);
+}
@@ -0,0 +1,436 @@
+package com.alphasystem.morphologicalanalysis.util.stats;
+
+import com.alphasystem.morphologicalanalysis.graph.model.DependencyGraph;
+import com.alphasystem.morphologicalanalysis.graph.model.PartOfSpeechNode;
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.GRAPH_COVERAGE;
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.LOCATION_COUNTS;
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.PART_OF_SPEECH_NODE_COUNTS;
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.WORD_TYPE_COUNTS;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+
+/**
+ * Corpus statistics computed with aggregation pipelines on the server and materialized in collection
+ * {@link #COLLECTION_NAME}, one document per {@link StatisticType} and key (chapter number or morphological entry id).
+ * <p>
+ * Document event listeners {@link #markDirty(StatisticType, Object) mark} the keys affected by a change, dirty keys
+ * are recomputed together after {@link #setRefreshDelay(long, TimeUnit) refresh delay}, so that a burst of saves
+ * (i.e., an import) results in one aggregation per statistic. Reads never aggregate unless a key has not been computed
+ * yet, hence numbers may lag behind the latest writes by the refresh delay.
+ * </p>
+ *
+ * @author sali
+ */
+@Component
+public class CorpusStatisticsService implements DisposableBean {
+
+    public static final String COLLECTION_NAME = "corpusStatistics";
+    public static final long DEFAULT_REFRESH_DELAY_MILLIS = 1000;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CorpusStatisticsService.class);
+    private static final String ID = "_id";
+    private static final String TYPE = "type";
+    private static final String KEY = "key";
+    private static final String VALUES = "values";
+    private static final String REFRESHED_AT = "refreshedAt";
+    private static final String CHAPTER_NUMBER = "chapterNumber";
+    private static final String COUNT = "count";
+    private static final String GRAPH_COUNT = "graphCount";
+    private static final String COVERED_TOKENS = "coveredTokens";
+    private static final String TOTAL_TOKENS = "totalTokens";
+
+    @Autowired private MongoTemplate mongoTemplate;
+    private final Object lock = new Object();
+    private final Set<StatisticType> dirtyTypes = EnumSet.noneOf(StatisticType.class);
+    private final Map<StatisticType, Set<Object>> dirtyKeys = new EnumMap<>(StatisticType.class);
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private volatile long refreshDelayMillis = DEFAULT_REFRESH_DELAY_MILLIS;
+
+    public CorpusStatisticsService() {
+        scheduler = newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "corpus-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static String getId(StatisticType type, Object key) {
+        return String.format("%s:%s", type, key);
+    }
+
+    private static Object toObjectId(Object id) {
+        final String value = String.valueOf(id);
+        return ObjectId.isValid(value) ? new ObjectId(value) : value;
+    }
+
+    private static long toLong(Object value) {
+        return (value instanceof Number) ? ((Number) value).longValue() : 0;
+    }
+
+    private static BasicDBObject sum(Object expression) {
+        return new BasicDBObject("$sum", expression);
+    }
+
+    public void setRefreshDelay(long refreshDelay, TimeUnit unit) {
+        this.refreshDelayMillis = unit.toMillis(refreshDelay);
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @return number of locations per word type in the given chapter
+     */
+    public Map<String, Long> getWordTypeCounts(int chapterNumber) {
+        return getValues(WORD_TYPE_COUNTS, chapterNumber);
+    }
+
+    /**
+     * @param morphologicalEntryId id of the given morphological entry
+     * @return number of locations attached to the given entry
+     */
+    public long getLocationCount(String morphologicalEntryId) {
+        return getValues(LOCATION_COUNTS, morphologicalEntryId).getOrDefault(COUNT, 0L);
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @return dependency graph coverage of the given chapter
+     */
+    public GraphCoverage getGraphCoverage(int chapterNumber) {
+        final Map<String, Long> values = getValues(GRAPH_COVERAGE, chapterNumber);
+        return new GraphCoverage(chapterNumber, values.getOrDefault(GRAPH_COUNT, 0L),
+                values.getOrDefault(COVERED_TOKENS, 0L), values.getOrDefault(TOTAL_TOKENS, 0L));
+    }
+
+    /**
+     * @param chapterNumber given chapter number
+     * @return number of part of speech nodes in the given chapter
+     */
+    public long getPartOfSpeechNodeCount(int chapterNumber) {
+        return getValues(PART_OF_SPEECH_NODE_COUNTS, chapterNumber).getOrDefault(COUNT, 0L);
+    }
+
+    /**
+     * Reads materialized values of the given statistic, values are computed first if they have never been.
+     *
+     * @param type type of the statistic
+     * @param key  chapter number or morphological entry id
+     * @return values of the given statistic
+     */
+    public Map<String, Long> getValues(StatisticType type, Object key) {
+        final DBObject query = new BasicDBObject(ID, getId(type, key));
+        DBObject document = getCollection().findOne(query);
+        if (document == null) {
+            refresh(type, Collections.singleton(key));
+            document = getCollection().findOne(query);
+        }
+        final Map<String, Long> values = new LinkedHashMap<>();
+        final Object storedValues = (document == null) ? null : document.get(VALUES);
+        if (storedValues instanceof DBObject) {
+            final DBObject dbObject = (DBObject) storedValues;
+            dbObject.keySet().forEach(name -> values.put(name, toLong(dbObject.get(name))));
+        }
+        return values;
+    }
+
+    /**
+     * Marks given key of the given statistic for refresh.
+     *
+     * @param type type of the statistic
+     * @param key  chapter number or morphological entry id, <code>null</code> to refresh all keys
+     */
+    public void markDirty(StatisticType type, Object key) {
+        if (key == null) {
+            markAllDirty(type);
+            return;
+        }
+        synchronized (lock) {
+            if (!dirtyTypes.contains(type)) {
+                dirtyKeys.computeIfAbsent(type, t -> new HashSet<>()).add(key);
+            }
+        }
+        scheduleRefresh();
+    }
+
+    /**
+     * Marks all keys of the given statistic for refresh.
+     *
+     * @param type type of the statistic
+     */
+    public void markAllDirty(StatisticType type) {
+        synchronized (lock) {
+            dirtyTypes.add(type);
+            dirtyKeys.remove(type);
+        }
+        scheduleRefresh();
+    }
+
+    /**
+     * Marks all statistics for refresh.
+     */
+    public void markAllDirty() {
+        for (StatisticType type : StatisticType.values()) {
+            markAllDirty(type);
+        }
+    }
+
+    /**
+     * Recomputes all keys marked for refresh.
+     */
+    public void refreshPending() {
+        refreshScheduled.set(false);
+        final Set<StatisticType> types;
+        final Map<StatisticType, Set<Object>> keys;
+        synchronized (lock) {
+            types = EnumSet.copyOf(dirtyTypes);
+            keys = new EnumMap<>(dirtyKeys);
+            dirtyTypes.clear();
+            dirtyKeys.clear();
+        }
+        types.forEach(type -> {
+            try {
+                refresh(type, null);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to refresh statistic {}: {}", type, e.getMessage());
+                markAllDirty(type);
+            }
+        });
+        keys.forEach((type, typeKeys) -> {
+            try {
+                refresh(type, typeKeys);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to refresh statistic {}: {}", type, e.getMessage());
+                typeKeys.forEach(key -> markDirty(type, key));
+            }
+        });
+    }
+
+    /**
+     * Recomputes all statistics.
+     */
+    public void refreshAll() {
+        for (StatisticType type : StatisticType.values()) {
+            refresh(type, null);
+        }
+    }
+
+    /**
+     * Recomputes given keys of the given statistic.
+     *
+     * @param type type of the statistic
+     * @param keys keys to recompute, <code>null</code> to recompute all keys
+     */
+    public void refresh(StatisticType type, Collection<Object> keys) {
+        final long start = System.currentTimeMillis();
+        final Map<Object, Map<String, Long>> results;
+        switch (type) {
+            case WORD_TYPE_COUNTS:
+                results = aggregateWordTypeCounts(keys);
+                break;
+            case LOCATION_COUNTS:
+                results = aggregateLocationCounts(keys);
+                break;
+            case GRAPH_COVERAGE:
+                results = aggregateGraphCoverage(keys);
+                break;
+            case PART_OF_SPEECH_NODE_COUNTS:
+                results = aggregatePartOfSpeechNodeCounts(keys);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown statistic {%s}", type));
+        }
+        store(type, keys, results);
+        LOGGER.debug("Refreshed {} keys of statistic {} in {} ms", (keys == null) ? results.size() : keys.size(),
+                type, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        try {
+            refreshPending();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to refresh pending statistics: {}", e.getMessage());
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::refreshPending, refreshDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down, pending keys are refreshed by "destroy"
+                refreshScheduled.set(false);
+            }
+        }
+    }
+
+    private Map<Object, Map<String, Long>> aggregateWordTypeCounts(Collection<Object> chapterNumbers) {
+        final List<DBObject> pipeline = match(CHAPTER_NUMBER, chapterNumbers);
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject(ID, new BasicDBObject(CHAPTER_NUMBER,
+                "$chapterNumber").append("wordType", "$wordType")).append(COUNT, sum(1))));
+        final Map<Object, Map<String, Long>> results = new HashMap<>();
+        aggregate(Location.class, pipeline, dbObject -> {
+            final DBObject id = (DBObject) dbObject.get(ID);
+            final Object chapterNumber = id.get(CHAPTER_NUMBER);
+            if (chapterNumber instanceof Number) {
+                results.computeIfAbsent(((Number) chapterNumber).intValue(), key -> new LinkedHashMap<>())
+                        .put(String.valueOf(id.get("wordType")), toLong(dbObject.get(COUNT)));
+            }
+        });
+        return results;
+    }
+
+    private Map<Object, Map<String, Long>> aggregateLocationCounts(Collection<Object> ids) {
+        final List<Object> objectIds = new ArrayList<>();
+        if (ids != null) {
+            ids.forEach(id -> objectIds.add(toObjectId(id)));
+        }
+        final List<DBObject> pipeline = match(ID, (ids == null) ? null : objectIds);
+        // "locations" only holds the summary of bucketed entries, see "MorphologicalEntryLocations"
+        final DBObject size = new BasicDBObject("$size", new BasicDBObject("$ifNull", list("$locations",
+                new BasicDBList())));
+        pipeline.add(new BasicDBObject("$project", new BasicDBObject(COUNT, new BasicDBObject("$ifNull",
+                list("$" + MorphologicalEntryLocations.LOCATION_COUNT, size)))));
+        final Map<Object, Map<String, Long>> results = new HashMap<>();
+        aggregate(MorphologicalEntry.class, pipeline, dbObject -> results.put(dbObject.get(ID).toString(),
+                Collections.singletonMap(COUNT, toLong(dbObject.get(COUNT)))));
+        return results;
+    }
+
+    private Map<Object, Map<String, Long>> aggregateGraphCoverage(Collection<Object> chapterNumbers) {
+        final Map<Object, Map<String, Long>> results = new HashMap<>();
+        final Consumer<DBObject> collector = dbObject -> {
+            final Object chapterNumber = dbObject.get(ID);
+            if (chapterNumber instanceof Number) {
+                final Map<String, Long> values = results.computeIfAbsent(((Number) chapterNumber).intValue(),
+                        key -> new LinkedHashMap<>());
+                dbObject.keySet().stream().filter(name -> !ID.equals(name))
+                        .forEach(name -> values.put(name, toLong(dbObject.get(name))));
+            }
+        };
+
+        // tokens covered by a graph: sum of (lastTokenIndex - firstTokenIndex + 1) over its verse token pairs
+        final DBObject pairSize = new BasicDBObject("$add", list(new BasicDBObject("$subtract",
+                list("$$pair.lastTokenIndex", "$$pair.firstTokenIndex")), 1));
+        final DBObject coveredTokens = sum(new BasicDBObject("$map", new BasicDBObject("input",
+                new BasicDBObject("$ifNull", list("$tokens", new BasicDBList()))).append("as", "pair")
+                .append("in", pairSize)));
+        List<DBObject> pipeline = match(CHAPTER_NUMBER, chapterNumbers);
+        pipeline.add(new BasicDBObject("$project", new BasicDBObject(CHAPTER_NUMBER, 1)
+                .append(COVERED_TOKENS, coveredTokens)));
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject(ID, "$chapterNumber")
+                .append(GRAPH_COUNT, sum(1)).append(COVERED_TOKENS, sum("$coveredTokens"))));
+        aggregate(DependencyGraph.class, pipeline, collector);
+
+        pipeline = match(CHAPTER_NUMBER, chapterNumbers);
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject(ID, "$chapterNumber")
+                .append(TOTAL_TOKENS, sum("$tokenCount"))));
+        aggregate(Verse.class, pipeline, collector);
+        return results;
+    }
+
+    private Map<Object, Map<String, Long>> aggregatePartOfSpeechNodeCounts(Collection<Object> chapterNumbers) {
+        final List<DBObject> pipeline = match(CHAPTER_NUMBER, chapterNumbers);
+        pipeline.add(new BasicDBObject("$group", new BasicDBObject(ID, "$chapterNumber").append(COUNT, sum(1))));
+        final Map<Object, Map<String, Long>> results = new HashMap<>();
+        aggregate(PartOfSpeechNode.class, pipeline, dbObject -> {
+            final Object chapterNumber = dbObject.get(ID);
+            if (chapterNumber instanceof Number) {
+                results.put(((Number) chapterNumber).intValue(), Collections.singletonMap(COUNT,
+                        toLong(dbObject.get(COUNT))));
+            }
+        });
+        return results;
+    }
+
+    private static List<DBObject> match(String field, Collection<Object> values) {
+        final List<DBObject> pipeline = new ArrayList<>();
+        if (values != null) {
+            pipeline.add(new BasicDBObject("$match", new BasicDBObject(field, new BasicDBObject("$in", values))));
+        }
+        return pipeline;
+    }
+
+    private static BasicDBList list(Object... values) {
+        final BasicDBList list = new BasicDBList();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private void aggregate(Class<?> type, List<DBObject> pipeline, Consumer<DBObject> consumer) {
+        final AggregationOptions options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR).build();
+        try (Cursor cursor = mongoTemplate.getCollection(mongoTemplate.getCollectionName(type))
+                .aggregate(pipeline, options)) {
+            cursor.forEachRemaining(consumer);
+        }
+    }
+
+    private void store(StatisticType type, Collection<Object> keys, Map<Object, Map<String, Long>> results) {
+        final Date refreshedAt = new Date();
+        // keys without any result are stored with empty values, so that they are not aggregated on every read
+        final Set<Object> targets = new LinkedHashSet<>(results.keySet());
+        if (keys != null) {
+            targets.addAll(keys);
+        }
+        if (!targets.isEmpty()) {
+            final BulkOperations bulkOperations = mongoTemplate.bulkOps(UNORDERED, COLLECTION_NAME);
+            targets.forEach(key -> bulkOperations.upsert(new Query(Criteria.where(ID).is(getId(type, key))),
+                    new Update().set(TYPE, type.name()).set(KEY, key)
+                            .set(VALUES, new BasicDBObject(results.getOrDefault(key, Collections.emptyMap())))
+                            .set(REFRESHED_AT, refreshedAt)));
+            bulkOperations.execute();
+        }
+        if (keys == null) {
+            // full refresh, remove keys which no longer exist
+            mongoTemplate.remove(new Query(Criteria.where(TYPE).is(type.name()).and(REFRESHED_AT).lt(refreshedAt)),
+                    COLLECTION_NAME);
+        }
+    }
+
+    private DBCollection getCollection() {
+        return mongoTemplate.getCollection(COLLECTION_NAME);
+    }
+}
@@ -0,0 +1,50 @@
+package com.alphasystem.morphologicalanalysis.util.stats;
+
+/**
+ * Dependency graph coverage of one chapter.
+ *
+ * @author sali
+ */
+public final class GraphCoverage {
+
+    private final int chapterNumber;
+    private final long graphCount;
+    private final long coveredTokens;
+    private final long totalTokens;
+
+    GraphCoverage(int chapterNumber, long graphCount, long coveredTokens, long totalTokens) {
+        this.chapterNumber = chapterNumber;
+        this.graphCount = graphCount;
+        this.coveredTokens = coveredTokens;
+        this.totalTokens = totalTokens;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    public long getGraphCount() {
+        return graphCount;
+    }
+
+    public long getCoveredTokens() {
+        return coveredTokens;
+    }
+
+    public long getTotalTokens() {
+        return totalTokens;
+    }
+
+    /**
+     * @return ratio of covered tokens to total tokens, <code>0</code> if chapter has no tokens
+     */
+    public double getRatio() {
+        return (totalTokens == 0) ? 0 : Math.min(1.0, (double) coveredTokens / totalTokens);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GraphCoverage{chapterNumber=%s, graphCount=%s, coveredTokens=%s, totalTokens=%s}",
+                chapterNumber, graphCount, coveredTokens, totalTokens);
+    }
+}
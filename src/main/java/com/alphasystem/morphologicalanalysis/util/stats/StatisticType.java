@@ -0,0 +1,30 @@
+package com.alphasystem.morphologicalanalysis.util.stats;
+
+/**
+ * Statistics materialized by {@link CorpusStatisticsService}, each one keyed by chapter number or morphological entry
+ * id.
+ *
+ * @author sali
+ */
+public enum StatisticType {
+
+    /**
+     * Number of locations per word type, keyed by chapter number.
+     */
+    WORD_TYPE_COUNTS,
+
+    /**
+     * Number of locations attached to a morphological entry, keyed by entry id.
+     */
+    LOCATION_COUNTS,
+
+    /**
+     * Number of dependency graphs, tokens covered by them and total number of tokens, keyed by chapter number.
+     */
+    GRAPH_COVERAGE,
+
+    /**
+     * Number of part of speech nodes, keyed by chapter number.
+     */
+    PART_OF_SPEECH_NODE_COUNTS
+}
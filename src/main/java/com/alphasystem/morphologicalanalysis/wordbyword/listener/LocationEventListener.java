@@ -2,15 +2,23 @@ package com.alphasystem.morphologicalanalysis.wordbyword.listener;
 
 import com.alphasystem.arabic.model.ArabicWord;
 import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
-import com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil;
+import com.alphasystem.morphologicalanalysis.util.LocationTextHydrator;
+import com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations;
+import com.alphasystem.morphologicalanalysis.util.index.LocationInvertedIndex;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
 import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
 import org.springframework.stereotype.Component;
 
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.LOCATION_COUNTS;
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.WORD_TYPE_COUNTS;
+
 /**
  * @author sali
  */
@@ -18,32 +26,30 @@ import org.springframework.stereotype.Component;
 public class LocationEventListener extends DocumentEventListener<Location> {
 
     @Autowired
-    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private LocationTextHydrator locationTextHydrator;
+
+    @Autowired
+    private LocationInvertedIndex locationInvertedIndex;
+
+    @Autowired
+    private CorpusStatisticsService corpusStatisticsService;
+
+    @Autowired
+    private MorphologicalEntryLocations morphologicalEntryLocations;
 
     @Override
     public void onAfterConvert(AfterConvertEvent<Location> event) {
         super.onAfterConvert(event);
 
         Location source = event.getSource();
-        ArabicWord locationWord = null;
-        String text = source.getText();
-        if (StringUtils.isBlank(text)) {
-            locationWord = repositoryUtil.getLocationWord(source);
-            if (locationWord != null) {
-                logger.info("Setting text for \"{}\" for location \"{}\"", locationWord.toBuckWalter(), source.getDisplayName());
-                source.setText(locationWord.toUnicode());
-            }
+        if (StringUtils.isNotBlank(source.getText()) && StringUtils.isNotBlank(source.getDerivedText())) {
+            return;
         }
-        text = source.getDerivedText();
-        if (StringUtils.isBlank(text)) {
-            if (locationWord == null) {
-                locationWord = repositoryUtil.getLocationWord(source);
-            }
-            if (locationWord != null) {
-                logger.info("Setting derived text for \"{}\" for location \"{}\"", locationWord.toBuckWalter(), source.getDisplayName());
-                source.setDerivedText(locationWord.toUnicode());
-            }
+        if (locationTextHydrator.defer(source)) {
+            logger.debug("Deferring text of location \"{}\" to the end of current batch", source.getDisplayName());
+            return;
         }
+        locationTextHydrator.hydrate(source);
     }
 
     @Override
@@ -55,7 +61,7 @@ public class LocationEventListener extends DocumentEventListener<Location> {
             ArabicWord locationWord = null;
             String errorMessage = null;
             try {
-                locationWord = repositoryUtil.getLocationWord(source);
+                locationWord = locationTextHydrator.getLocationWord(source);
             } catch (Exception e) {
                 errorMessage = e.getMessage();
             }
@@ -71,9 +77,30 @@ public class LocationEventListener extends DocumentEventListener<Location> {
             if (morphologicalEntry.isEmpty()) {
                 logger.debug("Trying to save location \"{}\" with empty morphologicalEntry \"{}\"", source, morphologicalEntry);
                 source.setMorphologicalEntry(null);
-            } else {
-                morphologicalEntry.getLocations().add(source);
             }
+            // back reference is added atomically after save, see "onAfterSave"
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Location> event) {
+        super.onAfterSave(event);
+        Location source = event.getSource();
+        locationInvertedIndex.locationSaved(source);
+        morphologicalEntryLocations.locationSaved(source);
+        corpusStatisticsService.markDirty(WORD_TYPE_COUNTS, source.getChapterNumber());
+        MorphologicalEntry morphologicalEntry = source.getMorphologicalEntry();
+        if (morphologicalEntry != null && morphologicalEntry.getId() != null) {
+            corpusStatisticsService.markDirty(LOCATION_COUNTS, morphologicalEntry.getId());
         }
     }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Location> event) {
+        super.onAfterDelete(event);
+        // source of delete event is the query
+        locationInvertedIndex.locationsDeleted(event.getSource());
+        morphologicalEntryLocations.locationsDeleted(event.getSource());
+        corpusStatisticsService.markAllDirty(WORD_TYPE_COUNTS);
+    }
 }
@@ -1,7 +1,11 @@
 package com.alphasystem.morphologicalanalysis.wordbyword.listener;
 
+import com.alphasystem.morphologicalanalysis.util.LocationTextHydrator;
 import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.stereotype.Component;
 
 /**
@@ -9,4 +13,21 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class TokenEventListener extends DocumentEventListener<Token> {
+
+    @Autowired
+    private LocationTextHydrator locationTextHydrator;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Token> event) {
+        super.onAfterSave(event);
+        // token text might have changed, i.e., after "mergeTokens"
+        locationTextHydrator.tokensModified();
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Token> event) {
+        super.onAfterDelete(event);
+        // text of deleted tokens must not be given to new locations, i.e., while "mergeTokens" saves them
+        locationTextHydrator.tokensModified();
+    }
 }
@@ -3,14 +3,39 @@
  */
 package com.alphasystem.morphologicalanalysis.wordbyword.listener;
 
+import com.alphasystem.morphologicalanalysis.util.CorpusNavigationIndex;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
 import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
 import com.alphasystem.persistence.mongo.repository.DocumentEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
 import org.springframework.stereotype.Component;
 
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.GRAPH_COVERAGE;
+
 /**
  * @author sali
  * 
  */
 @Component
 public class VerseEventListener extends DocumentEventListener<Verse> {
+
+    @Autowired
+    private CorpusNavigationIndex navigationIndex;
+
+    @Autowired
+    private CorpusStatisticsService corpusStatisticsService;
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Verse> event) {
+        super.onAfterSave(event);
+        Verse source = event.getSource();
+        Integer tokenCount = source.getTokenCount();
+        if (tokenCount != null) {
+            // keep navigation index in sync, i.e., after "mergeTokens"
+            navigationIndex.updateTokenCount(source.getChapterNumber(), source.getVerseNumber(), tokenCount);
+            // total tokens of the chapter
+            corpusStatisticsService.markDirty(GRAPH_COVERAGE, source.getChapterNumber());
+        }
+    }
 }
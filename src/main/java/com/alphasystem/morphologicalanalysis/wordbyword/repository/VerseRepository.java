@@ -7,6 +7,7 @@ import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
 import com.alphasystem.persistence.mongo.repository.BaseRepository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author sali
@@ -20,6 +21,16 @@ public interface VerseRepository extends BaseRepository<Verse> {
 	 */
 	List<Verse> findByChapterNumber(Integer chapterNumber);
 
+	/**
+	 * Streaming variant of {@link #findByChapterNumber(Integer)}, returned stream must be closed after use. See
+	 * {@link com.alphasystem.morphologicalanalysis.util.MorphologicalAnalysisRepositoryUtil#streamVerses(Integer)}
+	 * for variant with configurable cursor batch size.
+	 *
+	 * @param chapterNumber
+	 * @return
+	 */
+	Stream<Verse> streamByChapterNumber(Integer chapterNumber);
+
 	/**
 	 * @param chapterNumber
 	 * @param verseNumber
@@ -0,0 +1,147 @@
+package com.alphasystem.morphologicalanalysis.morphology.repository;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations.LOCATIONS;
+import static com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations.LOCATION_COUNT;
+import static com.alphasystem.morphologicalanalysis.util.MorphologicalEntryLocations.OVERFLOW_COUNT;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class MorphologicalEntryRepositoryImplTest {
+
+    private RecordingRepository repository;
+    private List<Class<?>> events;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        repository = new RecordingRepository();
+        events = new ArrayList<>();
+        inject("mongoTemplate", new DummyTemplate());
+        inject("eventPublisher", new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                publishEvent((Object) event);
+            }
+
+            @Override
+            public void publishEvent(Object event) {
+                events.add(event.getClass());
+            }
+        });
+    }
+
+    private void inject(String fieldName, Object value) throws Exception {
+        final Field field = MorphologicalEntryRepositoryImpl.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(repository, value);
+    }
+
+    @Test
+    public void existingEntryIsSavedWithoutLocations() {
+        final String id = new ObjectId().toString();
+        final MorphologicalEntry morphologicalEntry = new MorphologicalEntry();
+        morphologicalEntry.setId(id);
+        morphologicalEntry.setDisplayName("entry");
+        morphologicalEntry.setGroupTag("tag");
+        repository.save(morphologicalEntry);
+
+        assertEquals(repository.queries.size(), 1);
+        assertEquals(repository.queries.get(0).get("_id"), new ObjectId(id));
+        final DBObject update = repository.updates.get(0);
+        final DBObject set = (DBObject) update.get("$set");
+        assertEquals(set.get("groupTag"), "tag");
+        assertFalse(set.containsField(LOCATIONS));
+        assertFalse(set.containsField(LOCATION_COUNT));
+        assertFalse(set.containsField(OVERFLOW_COUNT));
+        assertFalse(update.containsField("$unset"));
+        // references and counts are only written when the entry is inserted
+        final DBObject setOnInsert = (DBObject) update.get("$setOnInsert");
+        assertEquals(setOnInsert.get(LOCATION_COUNT), 0);
+        assertEquals(setOnInsert.get(OVERFLOW_COUNT), 0);
+        assertEquals(events, asList(BeforeConvertEvent.class, BeforeSaveEvent.class, AfterSaveEvent.class));
+    }
+
+    @Test
+    public void nullFieldsAreUnset() {
+        final MorphologicalEntry morphologicalEntry = new MorphologicalEntry();
+        morphologicalEntry.setId(new ObjectId().toString());
+        repository.save(morphologicalEntry);
+
+        final DBObject unset = (DBObject) repository.updates.get(0).get("$unset");
+        assertNotNull(unset);
+        assertTrue(unset.containsField("groupTag"));
+        assertFalse(unset.containsField(LOCATIONS));
+    }
+
+    @Test
+    public void newEntryGetsId() {
+        final MorphologicalEntry morphologicalEntry = new MorphologicalEntry();
+        morphologicalEntry.setGroupTag("tag");
+        repository.save(asList(morphologicalEntry));
+
+        assertNotNull(morphologicalEntry.getId());
+        assertEquals(repository.queries.get(0).get("_id"), new ObjectId(morphologicalEntry.getId()));
+    }
+
+    /**
+     * Records every upsert instead of writing it.
+     */
+    private static final class RecordingRepository extends MorphologicalEntryRepositoryImpl {
+
+        private final List<DBObject> queries = new ArrayList<>();
+        private final List<DBObject> updates = new ArrayList<>();
+
+        @Override
+        void upsert(String collectionName, DBObject query, DBObject update) {
+            queries.add(query);
+            updates.add(update);
+        }
+    }
+
+    private static final class DummyTemplate extends MongoTemplate {
+
+        private DummyTemplate() {
+            super(new MongoDbFactory() {
+                @Override
+                public DB getDb() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public DB getDb(String dbName) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PersistenceExceptionTranslator getExceptionTranslator() {
+                    return new MongoExceptionTranslator();
+                }
+            });
+        }
+    }
+}
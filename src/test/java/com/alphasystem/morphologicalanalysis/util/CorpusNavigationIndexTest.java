@@ -0,0 +1,157 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Chapter;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Verse;
+import com.mongodb.DB;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author sali
+ */
+public class CorpusNavigationIndexTest {
+
+    /**
+     * Two chapters, first one with verses of 3 and 2 tokens, second one with verses of 1, 4 and 2 tokens.
+     */
+    private static final int[][] TOKEN_COUNTS = {{3, 2}, {1, 4, 2}};
+
+    private CorpusNavigationIndex index;
+    private AtomicInteger builds;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        builds = new AtomicInteger();
+        index = new CorpusNavigationIndex();
+        final Field mongoTemplate = CorpusNavigationIndex.class.getDeclaredField("mongoTemplate");
+        mongoTemplate.setAccessible(true);
+        mongoTemplate.set(index, new CountsTemplate(builds));
+    }
+
+    @Test
+    public void counts() {
+        assertEquals(index.getChapterCount(), 2);
+        assertEquals(index.getVerseCount(1), 2);
+        assertEquals(index.getVerseCount(2), 3);
+        assertEquals(index.getVerseCount(3), 0);
+        assertEquals(index.getTokenCount(2, 2), 4);
+        assertEquals(index.getTokenCount(2, 4), 0);
+        assertEquals(index.getTotalTokenCount(), 12);
+        assertEquals(builds.get(), 1);
+    }
+
+    @Test
+    public void ordinals() {
+        assertEquals(index.getOrdinal(1, 1, 1), 0);
+        assertEquals(index.getOrdinal(1, 2, 2), 4);
+        assertEquals(index.getOrdinal(2, 1, 1), 5);
+        assertEquals(index.getOrdinal(2, 3, 2), 11);
+        assertEquals(index.getOrdinal(2, 3, 3), -1);
+        assertEquals(index.getOrdinal(3, 1, 1), -1);
+    }
+
+    @Test
+    public void tokenAddresses() {
+        for (int ordinal = 0; ordinal < index.getTotalTokenCount(); ordinal++) {
+            final int[] address = index.getTokenAddress(ordinal);
+            assertEquals(index.getOrdinal(address[0], address[1], address[2]), ordinal);
+        }
+        assertEquals(index.getTokenAddress(6), new int[]{2, 2, 1});
+        assertNull(index.getTokenAddress(-1));
+        assertNull(index.getTokenAddress(12));
+    }
+
+    @Test
+    public void updateTokenCount() {
+        index.getTotalTokenCount();
+        index.updateTokenCount(1, 2, 5);
+        assertEquals(index.getTokenCount(1, 2), 5);
+        assertEquals(index.getTotalTokenCount(), 15);
+        assertEquals(index.getOrdinal(2, 1, 1), 8);
+        assertEquals(builds.get(), 1);
+    }
+
+    @Test
+    public void updateOfUnknownVerseRebuildsIndex() {
+        index.getTotalTokenCount();
+        index.updateTokenCount(1, 3, 5);
+        index.getTotalTokenCount();
+        assertEquals(builds.get(), 2);
+    }
+
+    @Test
+    public void invalidate() {
+        index.getTotalTokenCount();
+        index.invalidate();
+        index.getTotalTokenCount();
+        assertEquals(builds.get(), 2);
+    }
+
+    /**
+     * Serves chapters and verses of {@link #TOKEN_COUNTS}.
+     */
+    private static final class CountsTemplate extends MongoTemplate {
+
+        private final AtomicInteger builds;
+
+        private CountsTemplate(AtomicInteger builds) {
+            super(new MongoDbFactory() {
+                @Override
+                public DB getDb() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public DB getDb(String dbName) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PersistenceExceptionTranslator getExceptionTranslator() {
+                    return new MongoExceptionTranslator();
+                }
+            });
+            this.builds = builds;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> find(Query query, Class<T> entityClass, String collectionName) {
+            builds.incrementAndGet();
+            final List<Chapter> chapters = new ArrayList<>();
+            for (int i = 0; i < TOKEN_COUNTS.length; i++) {
+                final Chapter chapter = new Chapter(i + 1, null);
+                chapter.setVerseCount(TOKEN_COUNTS[i].length);
+                chapters.add(chapter);
+            }
+            return (List<T>) chapters;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> find(Query query, Class<T> entityClass) {
+            final List<Verse> verses = new ArrayList<>();
+            for (int i = 0; i < TOKEN_COUNTS.length; i++) {
+                for (int j = 0; j < TOKEN_COUNTS[i].length; j++) {
+                    final Verse verse = new Verse(i + 1, j + 1);
+                    verse.setTokenCount(TOKEN_COUNTS[i][j]);
+                    verses.add(verse);
+                }
+            }
+            return (List<T>) verses;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class LocationKeyTest {
+
+    @Test
+    public void encodeAndDecode() {
+        final long key = LocationKey.encode(114, 6, 12, 3);
+        assertEquals(LocationKey.getChapterNumber(key), 114);
+        assertEquals(LocationKey.getVerseNumber(key), 6);
+        assertEquals(LocationKey.getTokenNumber(key), 12);
+        assertEquals(LocationKey.getLocationNumber(key), 3);
+    }
+
+    @Test
+    public void ordering() {
+        assertTrue(LocationKey.encode(1, 7, 1, 1) < LocationKey.encode(2, 1, 1, 1));
+        assertTrue(LocationKey.encode(2, 1, 30, 1) < LocationKey.encode(2, 2, 1, 1));
+        assertTrue(LocationKey.encode(2, 2, 1, 9) < LocationKey.encode(2, 2, 2, 0));
+        assertTrue(LocationKey.encode(2, 2, 2, 0) < LocationKey.encode(2, 2, 2, 1));
+    }
+
+    @Test
+    public void bounds() {
+        final long lowerBound = LocationKey.lowerBound(2, 255, 3);
+        final long upperBound = LocationKey.upperBound(2, 255, 5);
+        assertTrue(lowerBound <= LocationKey.encode(2, 255, 3, 0));
+        assertTrue(upperBound >= LocationKey.encode(2, 255, 5, 65535));
+        assertTrue(lowerBound > LocationKey.encode(2, 255, 2, 65535));
+        assertTrue(upperBound < LocationKey.encode(2, 255, 6, 0));
+    }
+
+    @Test
+    public void populate() {
+        final DBObject location = new BasicDBObject("chapterNumber", 2).append("verseNumber", 255)
+                .append("tokenNumber", 4).append("locationNumber", 2);
+        assertTrue(LocationKey.populate(location));
+        assertEquals(location.get(LocationKey.FIELD_NAME), LocationKey.encode(2, 255, 4, 2));
+
+        final DBObject token = new BasicDBObject("chapterNumber", 2).append("verseNumber", 255)
+                .append("tokenNumber", 4);
+        assertTrue(LocationKey.populate(token));
+        assertEquals(token.get(LocationKey.FIELD_NAME), LocationKey.encode(2, 255, 4, 0));
+    }
+
+    @Test
+    public void populateWithoutNumbers() {
+        final DBObject verse = new BasicDBObject("chapterNumber", 2).append("verseNumber", 255);
+        assertFalse(LocationKey.populate(verse));
+        assertNull(verse.get(LocationKey.FIELD_NAME));
+        assertFalse(LocationKey.populate(null));
+    }
+}
@@ -0,0 +1,139 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.mongodb.DB;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author sali
+ */
+public class LocationTextHydratorTest {
+
+    private LocationTextHydrator hydrator;
+    private TokensTemplate mongoTemplate;
+
+    private static Location createLocation(int tokenNumber, int startIndex, int endIndex) {
+        final Location location = new Location(1, 1, tokenNumber, 1, null);
+        location.setId(location.getDisplayName());
+        location.setStartIndex(startIndex);
+        location.setEndIndex(endIndex);
+        return location;
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        hydrator = new LocationTextHydrator();
+        mongoTemplate = new TokensTemplate();
+        mongoTemplate.tokens.add(new Token(1, 1, 1, "abcd"));
+        mongoTemplate.tokens.add(new Token(1, 1, 2, "efgh"));
+        final Field field = LocationTextHydrator.class.getDeclaredField("mongoTemplate");
+        field.setAccessible(true);
+        field.set(hydrator, mongoTemplate);
+    }
+
+    @Test
+    public void hydrateCollectionWithOneQuery() {
+        final Location first = createLocation(1, 0, 2);
+        final Location second = createLocation(2, 2, 4);
+        hydrator.hydrate(asList(first, second));
+        assertEquals(first.getText(), "ab");
+        assertEquals(first.getDerivedText(), "ab");
+        assertEquals(second.getText(), "gh");
+        assertEquals(mongoTemplate.finds.get(), 1);
+    }
+
+    @Test
+    public void deferredLocationsAreHydratedAtEndOfBatch() {
+        final Location location = createLocation(2, 0, 1);
+        hydrator.beginBatch();
+        hydrator.beginBatch();
+        assertEquals(hydrator.defer(location), true);
+        hydrator.endBatch();
+        assertEquals(location.getText(), null);
+        hydrator.endBatch();
+        assertEquals(location.getText(), "e");
+        assertEquals(hydrator.defer(location), false);
+    }
+
+    @Test
+    public void verseWordsAreKeptWithinBatch() {
+        hydrator.beginBatch();
+        hydrator.hydrate(createLocation(1, 0, 1));
+        hydrator.hydrate(createLocation(2, 0, 1));
+        hydrator.endBatch();
+        assertEquals(mongoTemplate.finds.get(), 1);
+    }
+
+    @Test
+    public void verseWordsAreNotKeptAcrossCalls() {
+        hydrator.hydrate(createLocation(1, 0, 1));
+        mongoTemplate.tokens.set(1, new Token(1, 1, 2, "ijkl"));
+        final Location location = createLocation(2, 0, 1);
+        hydrator.hydrate(location);
+        assertEquals(location.getText(), "i");
+        assertEquals(mongoTemplate.finds.get(), 2);
+    }
+
+    @Test
+    public void tokensModifiedDropsVerseWordsOfBatch() {
+        hydrator.beginBatch();
+        hydrator.hydrate(createLocation(1, 0, 1));
+        mongoTemplate.tokens.remove(1);
+        hydrator.tokensModified();
+        final Location location = createLocation(2, 0, 1);
+        hydrator.hydrate(location);
+        hydrator.endBatch();
+        assertEquals(location.getText(), null);
+        assertEquals(mongoTemplate.finds.get(), 2);
+    }
+
+    /**
+     * Serves {@link #tokens} for every query and counts the queries.
+     */
+    private static final class TokensTemplate extends MongoTemplate {
+
+        private final List<Token> tokens = new ArrayList<>();
+        private final AtomicInteger finds = new AtomicInteger();
+
+        private TokensTemplate() {
+            super(new MongoDbFactory() {
+                @Override
+                public DB getDb() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public DB getDb(String dbName) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PersistenceExceptionTranslator getExceptionTranslator() {
+                    return new MongoExceptionTranslator();
+                }
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> find(Query query, Class<T> entityClass) {
+            finds.incrementAndGet();
+            return (List<T>) new ArrayList<>(tokens);
+        }
+    }
+}
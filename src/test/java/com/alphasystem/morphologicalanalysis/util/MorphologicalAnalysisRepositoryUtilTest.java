@@ -0,0 +1,210 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.morphology.model.MorphologicalEntry;
+import com.alphasystem.morphologicalanalysis.util.stats.CorpusStatisticsService;
+import com.alphasystem.morphologicalanalysis.util.stats.StatisticType;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Location;
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.alphasystem.morphologicalanalysis.wordbyword.repository.TokenRepository;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.mongodb.WriteResult;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.alphasystem.morphologicalanalysis.util.stats.StatisticType.GRAPH_COVERAGE;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author sali
+ */
+public class MorphologicalAnalysisRepositoryUtilTest {
+
+    private MorphologicalAnalysisRepositoryUtil repositoryUtil;
+    private RecordingTemplate mongoTemplate;
+    private RecordingEntryLocations morphologicalEntryLocations;
+    private List<String> dirtyStatistics;
+
+    private static Token createToken(int tokenNumber, String text, MorphologicalEntry morphologicalEntry) {
+        final Token token = new Token(1, 1, tokenNumber, text);
+        token.setId("token_" + tokenNumber);
+        final Location location = new Location(1, 1, tokenNumber, 1, null);
+        location.setId("location_" + tokenNumber);
+        location.setMorphologicalEntry(morphologicalEntry);
+        token.addLocation(location);
+        return token;
+    }
+
+    private static MorphologicalEntry createEntry(String id) {
+        final MorphologicalEntry morphologicalEntry = new MorphologicalEntry();
+        morphologicalEntry.setId(id);
+        return morphologicalEntry;
+    }
+
+    private static void inject(Class<?> type, Object target, String fieldName, Object value) throws Exception {
+        final Field field = type.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        final MorphologicalEntry first = createEntry("entry_1");
+        final MorphologicalEntry second = createEntry("entry_2");
+        final List<Token> tokens = asList(createToken(1, "a", null), createToken(2, "b", first),
+                createToken(3, "c", first), createToken(4, "d", second));
+        final TokenRepository tokenRepository = (TokenRepository) Proxy.newProxyInstance(
+                TokenRepository.class.getClassLoader(), new Class<?>[]{TokenRepository.class},
+                (proxy, method, args) -> {
+                    if ("findByChapterNumberAndVerseNumber".equals(method.getName())) {
+                        return new ArrayList<>(tokens);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        mongoTemplate = new RecordingTemplate();
+        morphologicalEntryLocations = new RecordingEntryLocations();
+        inject(MorphologicalEntryLocations.class, morphologicalEntryLocations, "mongoTemplate", mongoTemplate);
+        dirtyStatistics = new ArrayList<>();
+        final CorpusStatisticsService corpusStatisticsService = new CorpusStatisticsService() {
+            @Override
+            public void markDirty(StatisticType type, Object key) {
+                dirtyStatistics.add(type + ":" + key);
+            }
+        };
+
+        repositoryUtil = new MorphologicalAnalysisRepositoryUtil();
+        final Class<?> type = MorphologicalAnalysisRepositoryUtil.class;
+        inject(type, repositoryUtil, "mongoTemplate", mongoTemplate);
+        inject(type, repositoryUtil, "tokenRepository", tokenRepository);
+        inject(type, repositoryUtil, "morphologicalEntryLocations", morphologicalEntryLocations);
+        inject(type, repositoryUtil, "corpusStatisticsService", corpusStatisticsService);
+        inject(type, repositoryUtil, "navigationIndex", new CorpusNavigationIndex());
+        inject(type, repositoryUtil, "locationTextHydrator", new LocationTextHydrator());
+        inject(type, repositoryUtil, "verseLockManager", new VerseLockManager());
+        inject(type, repositoryUtil, "writeBehindBuffer", new WriteBehindBuffer(Paths.get("write-behind.journal")));
+    }
+
+    @Test
+    public void bulkMergeWritesEachCollectionOnce() {
+        repositoryUtil.bulkMergeTokens(1, 1, 2, 3);
+
+        // back references of all entries are removed with one call, grouped by entry
+        assertEquals(morphologicalEntryLocations.removed.size(), 1);
+        final Map<?, ? extends Collection<DBRef>> references = morphologicalEntryLocations.removed.get(0);
+        assertEquals(new ArrayList<>(references.keySet()), asList("entry_1", "entry_2"));
+        assertEquals(references.get("entry_1").size(), 2);
+        assertEquals(references.get("entry_2").size(), 1);
+
+        assertEquals(mongoTemplate.operations, asList("remove Location", "remove Token", "insert Location",
+                "insert Token", "updateFirst Verse"));
+        assertEquals(ids(mongoTemplate.queries.get(0)), asList("location_1", "location_2", "location_3",
+                "location_4"));
+        assertEquals(ids(mongoTemplate.queries.get(1)), asList("token_1", "token_2", "token_3", "token_4"));
+
+        @SuppressWarnings("unchecked") final List<Token> newTokens = (List<Token>) mongoTemplate.inserts.get(1);
+        assertEquals(newTokens.size(), 3);
+        assertEquals(newTokens.get(0).getToken(), "a");
+        assertEquals(newTokens.get(1).getToken(), "b c");
+        assertEquals(newTokens.get(2).getToken(), "d");
+        assertEquals(newTokens.get(2).getTokenNumber(), Integer.valueOf(3));
+        assertEquals(mongoTemplate.inserts.get(0).size(), 3);
+
+        final DBObject set = (DBObject) mongoTemplate.updates.get(0).getUpdateObject().get("$set");
+        assertEquals(set.get("tokenCount"), 3);
+        assertEquals(dirtyStatistics, asList(GRAPH_COVERAGE + ":1"));
+    }
+
+    @Test
+    public void bulkMergeOfSingleTokenDoesNothing() {
+        repositoryUtil.bulkMergeTokens(1, 1, 2);
+        assertEquals(mongoTemplate.operations.size(), 0);
+        assertEquals(morphologicalEntryLocations.removed.size(), 0);
+    }
+
+    private static List<?> ids(Query query) {
+        final DBObject id = (DBObject) query.getQueryObject().get("id");
+        return (List<?>) id.get("$in");
+    }
+
+    /**
+     * Records removes, inserts and updates instead of writing them.
+     */
+    private static final class RecordingTemplate extends MongoTemplate {
+
+        private final List<String> operations = new ArrayList<>();
+        private final List<Query> queries = new ArrayList<>();
+        private final List<Collection<?>> inserts = new ArrayList<>();
+        private final List<Update> updates = new ArrayList<>();
+
+        private RecordingTemplate() {
+            super(new MongoDbFactory() {
+                @Override
+                public DB getDb() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public DB getDb(String dbName) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PersistenceExceptionTranslator getExceptionTranslator() {
+                    return new MongoExceptionTranslator();
+                }
+            });
+        }
+
+        @Override
+        public WriteResult remove(Query query, Class<?> entityClass) {
+            operations.add("remove " + entityClass.getSimpleName());
+            queries.add(query);
+            return null;
+        }
+
+        @Override
+        public void insert(Collection<?> batchToSave, Class<?> entityClass) {
+            operations.add("insert " + entityClass.getSimpleName());
+            inserts.add(batchToSave);
+        }
+
+        @Override
+        public WriteResult updateFirst(Query query, Update update, Class<?> entityClass) {
+            operations.add("updateFirst " + entityClass.getSimpleName());
+            updates.add(update);
+            return null;
+        }
+    }
+
+    /**
+     * Records removed references instead of removing them.
+     */
+    private static final class RecordingEntryLocations extends MorphologicalEntryLocations {
+
+        private final List<Map<?, ? extends Collection<DBRef>>> removed = new ArrayList<>();
+
+        @Override
+        public int removeReferences(Map<?, ? extends Collection<DBRef>> references) {
+            removed.add(new LinkedHashMap<>(references));
+            return references.size();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.mongodb.DBRef;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class MorphologicalEntryLocationsTest {
+
+    private static List<DBRef> references(int from, int to) {
+        final List<DBRef> references = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            references.add(new DBRef("location", "location_" + i));
+        }
+        return references;
+    }
+
+    private static int[] slice(int index, int skip, int size) {
+        return new int[]{index, skip, size};
+    }
+
+    @Test
+    public void referencesAreSplitIntoBucketsOfBucketSize() {
+        final List<DBRef> references = references(0, 7);
+        final List<List<DBRef>> buckets = MorphologicalEntryLocations.partition(references, Collections.emptySet(),
+                3);
+        assertEquals(buckets.size(), 3);
+        assertEquals(buckets.get(0), references.subList(0, 3));
+        assertEquals(buckets.get(1), references.subList(3, 6));
+        assertEquals(buckets.get(2), references.subList(6, 7));
+        assertTrue(MorphologicalEntryLocations.partition(Collections.emptyList(), Collections.emptySet(), 3)
+                .isEmpty());
+    }
+
+    @Test
+    public void repeatedMigrationOnlyBucketsRemainingReferences() {
+        // tail of the summary of an entry, part of which an interrupted migration has already bucketed
+        final Set<DBRef> tail = new LinkedHashSet<>(references(100, 110));
+        final Set<DBRef> bucketed = new HashSet<>(references(100, 104));
+        final List<List<DBRef>> buckets = MorphologicalEntryLocations.partition(tail, bucketed, 4);
+        assertEquals(buckets, asList(references(104, 108), references(108, 110)));
+
+        // migration which has completed does not bucket anything again
+        bucketed.addAll(references(104, 110));
+        assertTrue(MorphologicalEntryLocations.partition(tail, bucketed, 4).isEmpty());
+    }
+
+    @Test
+    public void pageStartingInSecondBucket() {
+        final List<int[]> slices = MorphologicalEntryLocations.getSlices(asList(5, 5, 5), 7, 3);
+        assertEquals(slices.size(), 1);
+        assertEquals(slices.get(0), slice(1, 2, 3));
+    }
+
+    @Test
+    public void pageSpanningBuckets() {
+        final List<int[]> slices = MorphologicalEntryLocations.getSlices(asList(5, 2, 5), 3, 8);
+        assertEquals(slices.size(), 3);
+        assertEquals(slices.get(0), slice(0, 3, 2));
+        assertEquals(slices.get(1), slice(1, 0, 2));
+        assertEquals(slices.get(2), slice(2, 0, 4));
+    }
+
+    @Test
+    public void pageBeyondLastBucket() {
+        assertTrue(MorphologicalEntryLocations.getSlices(asList(5, 5), 10, 4).isEmpty());
+        assertTrue(MorphologicalEntryLocations.getSlices(Collections.emptyList(), 0, 4).isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author sali
+ */
+public class ReadThroughCacheTest {
+
+    @Test
+    public void loadsOnMissOnly() {
+        final AtomicInteger loads = new AtomicInteger();
+        final ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(key -> {
+            loads.incrementAndGet();
+            return "value" + key;
+        }, 10, 1, TimeUnit.HOURS);
+        assertEquals(cache.get(1), "value1");
+        assertEquals(cache.get(1), "value1");
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitRate(), 0.5, 0.0);
+    }
+
+    @Test
+    public void cachesNullValues() {
+        final AtomicInteger loads = new AtomicInteger();
+        final ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(key -> {
+            loads.incrementAndGet();
+            return null;
+        }, 10, 1, TimeUnit.HOURS);
+        assertNull(cache.get(1));
+        assertNull(cache.get(1));
+        assertEquals(loads.get(), 1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final AtomicInteger loads = new AtomicInteger();
+        final ReadThroughCache<Integer, Integer> cache = new ReadThroughCache<>(key -> {
+            loads.incrementAndGet();
+            return key;
+        }, 2, 1, TimeUnit.HOURS);
+        cache.get(1);
+        cache.get(2);
+        // 1 becomes most recently used, 2 is evicted
+        cache.get(1);
+        cache.get(3);
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getEvictionCount(), 1);
+        cache.get(1);
+        assertEquals(loads.get(), 3);
+        cache.get(2);
+        assertEquals(loads.get(), 4);
+    }
+
+    @Test
+    public void expiresAfterTimeToLive() throws InterruptedException {
+        final AtomicInteger loads = new AtomicInteger();
+        final ReadThroughCache<Integer, Integer> cache = new ReadThroughCache<>(key -> loads.incrementAndGet(), 10,
+                1, TimeUnit.MILLISECONDS);
+        cache.get(1);
+        Thread.sleep(5);
+        cache.get(1);
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void invalidation() {
+        final AtomicInteger loads = new AtomicInteger();
+        final ReadThroughCache<Integer, Integer> cache = new ReadThroughCache<>(key -> {
+            loads.incrementAndGet();
+            return key;
+        }, 10, 1, TimeUnit.HOURS);
+        cache.get(1);
+        cache.get(2);
+        cache.get(3);
+        cache.invalidate(1);
+        assertEquals(cache.size(), 2);
+        cache.invalidateIf(value -> value % 2 == 0);
+        assertEquals(cache.size(), 1);
+        cache.invalidateAll();
+        assertEquals(cache.size(), 0);
+        cache.get(3);
+        assertEquals(loads.get(), 4);
+    }
+
+    @Test
+    public void valueLoadedDuringInvalidationIsNotCached() {
+        final ReadThroughCache<Integer, Integer>[] holder = new ReadThroughCache[1];
+        final AtomicInteger loads = new AtomicInteger();
+        holder[0] = new ReadThroughCache<>(key -> {
+            if (loads.incrementAndGet() == 1) {
+                // underlying data changes while the value is being loaded
+                holder[0].invalidate(key);
+            }
+            return key;
+        }, 10, 1, TimeUnit.HOURS);
+        holder[0].get(1);
+        assertEquals(holder[0].size(), 0);
+        holder[0].get(1);
+        assertEquals(holder[0].size(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidMaximumSize() {
+        new ReadThroughCache<Integer, Integer>(key -> key, 0, 1, TimeUnit.HOURS);
+    }
+}
@@ -0,0 +1,127 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class VerseLockManagerTest {
+
+    @Test
+    public void stripesRoundedUpToPowerOfTwo() {
+        assertEquals(new VerseLockManager(1000).getStripes(), 1024);
+        assertEquals(new VerseLockManager(1024).getStripes(), 1024);
+        assertEquals(new VerseLockManager().getStripes(), VerseLockManager.DEFAULT_STRIPES);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidStripes() {
+        new VerseLockManager(0);
+    }
+
+    @Test
+    public void lockIsHeldDuringAction() {
+        final VerseLockManager lockManager = new VerseLockManager(16);
+        assertFalse(lockManager.isHeldByCurrentThread(2, 255));
+        final boolean held = lockManager.withLock(2, 255, () -> lockManager.isHeldByCurrentThread(2, 255));
+        assertTrue(held);
+        assertFalse(lockManager.isHeldByCurrentThread(2, 255));
+    }
+
+    @Test
+    public void locksAreReentrant() {
+        final VerseLockManager lockManager = new VerseLockManager(16);
+        final int result = lockManager.withLocks(2, Arrays.asList(1, 2, 3), () ->
+                lockManager.withLock(2, 2, () -> 42));
+        assertEquals(result, 42);
+        for (int verseNumber = 1; verseNumber <= 3; verseNumber++) {
+            assertFalse(lockManager.isHeldByCurrentThread(2, verseNumber));
+        }
+    }
+
+    @Test
+    public void locksAreReleasedOnFailure() {
+        final VerseLockManager lockManager = new VerseLockManager(16);
+        try {
+            lockManager.withLocks(2, Arrays.asList(1, 2), (Runnable) () -> {
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertFalse(lockManager.isHeldByCurrentThread(2, 1));
+        assertFalse(lockManager.isHeldByCurrentThread(2, 2));
+    }
+
+    @Test
+    public void editsOfSameVerseAreSerialized() throws Exception {
+        final VerseLockManager lockManager = new VerseLockManager(16);
+        final int[] counter = new int[1];
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        lockManager.withLock(2, 255, () -> counter[0]++);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(counter[0], 40000);
+    }
+
+    @Test
+    public void overlappingMultiVerseLocksDoNotDeadlock() throws Exception {
+        final VerseLockManager lockManager = new VerseLockManager(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < 10000; i++) {
+                    lockManager.withLocks(2, Arrays.asList(1, 2, 3), () -> {
+                    });
+                }
+            });
+            final Future<?> second = executor.submit(() -> {
+                await(start);
+                for (int i = 0; i < 10000; i++) {
+                    lockManager.withLocks(2, Arrays.asList(3, 2, 1), () -> {
+                    });
+                }
+            });
+            start.countDown();
+            first.get(30, TimeUnit.SECONDS);
+            second.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.alphasystem.morphologicalanalysis.util;
+
+import com.alphasystem.morphologicalanalysis.wordbyword.model.Token;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcernError;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeDeleteEvent;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+/**
+ * @author sali
+ */
+public class WriteBehindBufferTest {
+
+    private Path directory;
+    private RecordingBuffer buffer;
+    private List<String> savedIds;
+
+    private static Token createToken(String id, String text) {
+        final Token token = new Token(1, 1, 1, text);
+        token.setId(id);
+        return token;
+    }
+
+    private static BulkWriteException bulkWriteException(int... failedIndexes) throws Exception {
+        final List<BulkWriteError> errors = new ArrayList<>();
+        for (int index : failedIndexes) {
+            errors.add(new BulkWriteError(11000, "duplicate key", new BasicDBObject(), index));
+        }
+        final Constructor<BulkWriteException> constructor = BulkWriteException.class.getDeclaredConstructor(
+                BulkWriteResult.class, List.class, WriteConcernError.class, ServerAddress.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(null, errors, null, new ServerAddress());
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("write-behind");
+        savedIds = new ArrayList<>();
+        buffer = new RecordingBuffer(directory.resolve("write-behind.journal"));
+        inject("mongoTemplate", new DummyTemplate());
+        inject("eventPublisher", new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                publishEvent((Object) event);
+            }
+
+            @Override
+            public void publishEvent(Object event) {
+                if (event instanceof AfterSaveEvent) {
+                    savedIds.add(((Token) ((AfterSaveEvent<?>) event).getSource()).getId());
+                }
+            }
+        });
+        buffer.afterPropertiesSet();
+        buffer.setEnabled(true);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        buffer.failures.clear();
+        buffer.destroy();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private void inject(String fieldName, Object value) throws Exception {
+        final Field field = WriteBehindBuffer.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(buffer, value);
+    }
+
+    @Test
+    public void savesAreCoalescedUntilFlush() {
+        buffer.save(createToken("1", "a"));
+        buffer.save(createToken("2", "b"));
+        buffer.save(createToken("1", "c"));
+        assertEquals(buffer.getPendingCount(), 2);
+        assertEquals(buffer.writes.size(), 0);
+
+        buffer.flush();
+        assertEquals(buffer.getPendingCount(), 0);
+        assertEquals(buffer.writes.size(), 1);
+        assertEquals(buffer.writes.get(0), asList("2", "1"));
+        assertEquals(savedIds, asList("2", "1"));
+    }
+
+    @Test
+    public void failedWritesAreRetriedAndSavedEventsArePublishedOnce() throws Exception {
+        buffer.save(createToken("1", "a"));
+        buffer.save(createToken("2", "b"));
+        buffer.save(createToken("3", "c"));
+        buffer.failures.add(bulkWriteException(1));
+        try {
+            buffer.flush();
+            fail("Flush must fail");
+        } catch (BulkWriteException e) {
+            // expected
+        }
+        // only the document which was not written is pending
+        assertEquals(buffer.getPendingCount(), 1);
+        assertEquals(savedIds, asList("1", "3"));
+
+        buffer.flush();
+        assertEquals(buffer.getPendingCount(), 0);
+        assertEquals(buffer.writes.get(1), singletonList("2"));
+        assertEquals(savedIds, asList("1", "3", "2"));
+        assertEquals(new HashSet<>(savedIds).size(), savedIds.size());
+    }
+
+    @Test
+    public void newerSaveWinsOverFailedWrite() throws Exception {
+        buffer.save(createToken("1", "a"));
+        buffer.failures.add(bulkWriteException(0));
+        try {
+            buffer.flush();
+            fail("Flush must fail");
+        } catch (BulkWriteException e) {
+            // expected
+        }
+        buffer.save(createToken("1", "b"));
+        buffer.flush();
+        assertEquals(buffer.writes.get(1), singletonList("1"));
+        assertEquals(buffer.lastTexts.get(0), "b");
+        assertEquals(savedIds, singletonList("1"));
+    }
+
+    @Test
+    public void pendingDocumentsAreFlushedBeforeDelete() {
+        buffer.save(createToken("1", "a"));
+        buffer.onApplicationEvent(new BeforeDeleteEvent<>(new BasicDBObject("_id", "1"), Token.class, "token"));
+        assertEquals(buffer.getPendingCount(), 0);
+        assertEquals(buffer.writes.size(), 1);
+        // nothing left to bring the deleted document back
+        buffer.flush();
+        assertEquals(buffer.writes.size(), 1);
+    }
+
+    /**
+     * Records the ids of every bulk write instead of writing them, throws queued failures.
+     */
+    private static final class RecordingBuffer extends WriteBehindBuffer {
+
+        private final List<List<String>> writes = new ArrayList<>();
+        private final List<String> lastTexts = new ArrayList<>();
+        private final List<BulkWriteException> failures = new ArrayList<>();
+
+        private RecordingBuffer(Path journalFile) {
+            super(journalFile);
+        }
+
+        @Override
+        void replace(String collectionName, List<DBObject> dbObjects) {
+            final List<String> ids = new ArrayList<>();
+            lastTexts.clear();
+            dbObjects.forEach(dbObject -> {
+                ids.add(String.valueOf(dbObject.get("_id")));
+                lastTexts.add(String.valueOf(dbObject.get("token")));
+            });
+            writes.add(ids);
+            if (!failures.isEmpty()) {
+                throw failures.remove(0);
+            }
+        }
+    }
+
+    private static final class DummyTemplate extends MongoTemplate {
+
+        private DummyTemplate() {
+            super(new MongoDbFactory() {
+                @Override
+                public DB getDb() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public DB getDb(String dbName) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PersistenceExceptionTranslator getExceptionTranslator() {
+                    return new MongoExceptionTranslator();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.alphasystem.morphologicalanalysis.util.graph;
+
+import com.alphasystem.morphologicalanalysis.util.LocationKey;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.IMPLIED;
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.PART_OF_SPEECH;
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.RELATIONSHIP;
+import static com.alphasystem.morphologicalanalysis.graph.model.support.GraphNodeType.TERMINAL;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class CorpusGraphTest {
+
+    private CorpusGraph graph;
+
+    /**
+     * Terminal nodes "t1" and "t2" and implied node "i1" with parts of speech "p1", "p2" and "p3", "r1" is subject
+     * relationship between "p1" and "p2", "r2" is object relationship between "p3" and "p2".
+     */
+    @BeforeMethod
+    public void setUp() {
+        final CorpusGraph.Builder builder = new CorpusGraph.Builder();
+        final int t1 = builder.addNode("t1", TERMINAL, null, LocationKey.encode(1, 1, 1, 0));
+        final int t2 = builder.addNode("t2", TERMINAL, null, LocationKey.encode(1, 1, 2, 0));
+        final int i1 = builder.addNode("i1", IMPLIED, null, LocationKey.encode(1, 1, 3, 0));
+        builder.addEdge(t1, "p1", "partOfSpeechNodes");
+        builder.addEdge(t2, "p2", "partOfSpeechNodes");
+        builder.addEdge(i1, "p3", "partOfSpeechNodes");
+        builder.addNode("p1", PART_OF_SPEECH, null, LocationKey.encode(1, 1, 1, 1));
+        builder.addNode("p2", PART_OF_SPEECH, null, LocationKey.encode(1, 1, 2, 1));
+        builder.addNode("p3", PART_OF_SPEECH, null, LocationKey.encode(1, 1, 3, 1));
+        final int r1 = builder.addNode("r1", RELATIONSHIP, "SUBJ", 0);
+        builder.addEdge(r1, "p1", "dependent");
+        builder.addEdge(r1, "p2", "owner");
+        final int r2 = builder.addNode("r2", RELATIONSHIP, "OBJ", 0);
+        builder.addEdge(r2, "p3", "dependent");
+        builder.addEdge(r2, "p2", "owner");
+        // reference to a node which is not part of the corpus
+        builder.addEdge(r2, "missing", "owner");
+        builder.addGraph("g1", "1:1", Arrays.asList("t1", "t2", "i1", "p1", "p2", "p3", "r1", "r2"));
+        graph = builder.build();
+    }
+
+    @Test
+    public void nodesAndEdges() {
+        assertEquals(graph.getNodeCount(), 8);
+        assertEquals(graph.getEdgeCount(), 7);
+        assertEquals(graph.getGraphCount(), 1);
+        final int r1 = graph.indexOf("r1");
+        assertEquals(graph.getNodeId(r1), "r1");
+        assertEquals(graph.getNodeType(r1), RELATIONSHIP);
+        assertEquals(graph.getLabel(r1), "SUBJ");
+        assertNull(graph.getLabel(graph.indexOf("t1")));
+        assertEquals(graph.getLocationKey(graph.indexOf("p2")), LocationKey.encode(1, 1, 2, 1));
+        assertEquals(graph.indexOf("missing"), -1);
+        assertEquals(graph.getGraphId(graph.getGraph(r1)), "g1");
+        assertEquals(graph.getGraphDisplayName(0), "1:1");
+    }
+
+    @Test
+    public void addingNodeTwiceReturnsSameIndex() {
+        final CorpusGraph.Builder builder = new CorpusGraph.Builder();
+        final int node = builder.addNode("t1", TERMINAL, null, 0);
+        assertEquals(builder.addNode("t1", TERMINAL, null, 0), node);
+        assertEquals(builder.build().getNodeCount(), 1);
+    }
+
+    @Test
+    public void neighbours() {
+        final int p2 = graph.indexOf("p2");
+        assertEquals(ids(graph.getNeighbours(p2, EdgeDirection.INCOMING, "owner")), Arrays.asList("r1", "r2"));
+        assertEquals(ids(graph.getNeighbours(p2, EdgeDirection.INCOMING, null)), Arrays.asList("t2", "r1", "r2"));
+        assertEquals(graph.getNeighbours(p2, EdgeDirection.OUTGOING, null).length, 0);
+        assertEquals(graph.getNeighbours(p2, EdgeDirection.INCOMING, "unknown").length, 0);
+        final int r1 = graph.indexOf("r1");
+        assertEquals(ids(graph.getNeighbours(r1, EdgeDirection.OUTGOING, "dependent")), Arrays.asList("p1"));
+    }
+
+    @Test
+    public void match() {
+        final GraphPattern pattern = GraphPattern.start(NodeFilter.type(RELATIONSHIP))
+                .out("dependent", NodeFilter.type(PART_OF_SPEECH))
+                .in("partOfSpeechNodes", NodeFilter.type(IMPLIED));
+        final List<int[]> matches = graph.match(pattern);
+        assertEquals(matches.size(), 1);
+        assertEquals(graph.getNodeIds(matches.get(0)), new String[]{"r2", "p3", "i1"});
+
+        final GraphPattern subjects = GraphPattern.start(NodeFilter.type(RELATIONSHIP).label("SUBJ"))
+                .out("dependent", NodeFilter.any());
+        final List<int[]> subjectMatches = graph.match(subjects);
+        assertEquals(subjectMatches.size(), 1);
+        assertEquals(graph.getNodeIds(subjectMatches.get(0)), new String[]{"r1", "p1"});
+
+        assertTrue(graph.match(GraphPattern.start(NodeFilter.type(RELATIONSHIP).label("PRED"))).isEmpty());
+    }
+
+    @Test
+    public void matchDoesNotVisitNodeTwice() {
+        // r1 -> p2 <- r1 would visit r1 twice
+        final GraphPattern pattern = GraphPattern.start(NodeFilter.type(RELATIONSHIP).label("SUBJ"))
+                .out("owner", NodeFilter.any())
+                .in("owner", NodeFilter.any());
+        final List<int[]> matches = graph.match(pattern);
+        assertEquals(matches.size(), 1);
+        assertEquals(graph.getNodeIds(matches.get(0)), new String[]{"r1", "p2", "r2"});
+    }
+
+    @Test
+    public void findPaths() {
+        final List<int[]> paths = graph.findPaths(NodeFilter.type(TERMINAL), NodeFilter.type(IMPLIED), 6,
+                EdgeDirection.BOTH);
+        assertEquals(paths.size(), 2);
+        assertEquals(graph.getNodeIds(paths.get(0)), new String[]{"t1", "p1", "r1", "p2", "r2", "p3", "i1"});
+        assertEquals(graph.getNodeIds(paths.get(1)), new String[]{"t2", "p2", "r2", "p3", "i1"});
+
+        final List<int[]> shortPaths = graph.findPaths(NodeFilter.type(TERMINAL), NodeFilter.type(IMPLIED), 4,
+                EdgeDirection.BOTH);
+        assertEquals(shortPaths.size(), 1);
+        assertEquals(graph.getNodeIds(shortPaths.get(0)), new String[]{"t2", "p2", "r2", "p3", "i1"});
+
+        assertTrue(graph.findPaths(NodeFilter.type(TERMINAL), NodeFilter.type(IMPLIED), 6,
+                EdgeDirection.BOTH, "dependent", "partOfSpeechNodes").isEmpty());
+        assertTrue(graph.findPaths(NodeFilter.type(TERMINAL), NodeFilter.type(IMPLIED), 6,
+                EdgeDirection.OUTGOING).isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidMaxDepth() {
+        graph.findPaths(NodeFilter.any(), NodeFilter.any(), 0, EdgeDirection.BOTH);
+    }
+
+    private List<String> ids(int[] nodes) {
+        return Arrays.asList(graph.getNodeIds(nodes));
+    }
+}
@@ -0,0 +1,135 @@
+package com.alphasystem.morphologicalanalysis.util.index;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class RoaringBitmapTest {
+
+    private static final int PARTITION = 1 << 16;
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void assertContent(RoaringBitmap bitmap, TreeSet<Integer> expected) {
+        assertEquals(bitmap.getCardinality(), expected.size());
+        assertEquals(bitmap.isEmpty(), expected.isEmpty());
+        assertEquals(bitmap.toArray(), toArray(expected));
+    }
+
+    private static RoaringBitmap randomBitmap(Random random, TreeSet<Integer> values, int sparseCount) {
+        final RoaringBitmap bitmap = new RoaringBitmap();
+        // one dense (bitmap container) and two sparse (array container) partitions
+        for (int i = 0; i < RoaringBitmap.MAX_ARRAY_SIZE * 2; i++) {
+            values.add(PARTITION + random.nextInt(PARTITION));
+        }
+        for (int i = 0; i < sparseCount; i++) {
+            values.add(random.nextInt(PARTITION));
+            values.add(3 * PARTITION + random.nextInt(PARTITION));
+        }
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    @Test
+    public void addAndRemoveAcrossContainerTransition() {
+        final RoaringBitmap bitmap = new RoaringBitmap();
+        final TreeSet<Integer> expected = new TreeSet<>();
+        // array container up to MAX_ARRAY_SIZE values, bitmap container beyond
+        for (int i = 0; i <= RoaringBitmap.MAX_ARRAY_SIZE; i++) {
+            final int value = PARTITION + 2 * i;
+            assertTrue(bitmap.add(value));
+            assertFalse(bitmap.add(value));
+            expected.add(value);
+        }
+        assertContent(bitmap, expected);
+        assertTrue(bitmap.contains(PARTITION + 2 * RoaringBitmap.MAX_ARRAY_SIZE));
+        assertFalse(bitmap.contains(PARTITION + 1));
+
+        // back to array container and finally empty
+        for (int i = RoaringBitmap.MAX_ARRAY_SIZE; i >= 0; i--) {
+            final int value = PARTITION + 2 * i;
+            assertTrue(bitmap.remove(value));
+            assertFalse(bitmap.remove(value));
+            expected.remove(value);
+            if (i == RoaringBitmap.MAX_ARRAY_SIZE || i == 1) {
+                assertContent(bitmap, expected);
+            }
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(bitmap.getCardinality(), 0);
+    }
+
+    @Test
+    public void forEachIsUnsignedAscending() {
+        final RoaringBitmap bitmap = RoaringBitmap.of(-1, 5, Integer.MIN_VALUE, 0, Integer.MAX_VALUE);
+        assertEquals(bitmap.toArray(), new int[]{0, 5, Integer.MAX_VALUE, Integer.MIN_VALUE, -1});
+    }
+
+    @Test
+    public void setOperationsMatchTreeSet() {
+        final Random random = new Random(11);
+        for (int round = 0; round < 5; round++) {
+            final TreeSet<Integer> firstValues = new TreeSet<>();
+            final TreeSet<Integer> secondValues = new TreeSet<>();
+            final RoaringBitmap first = randomBitmap(random, firstValues, 100);
+            final RoaringBitmap second = randomBitmap(random, secondValues, 3000);
+
+            final TreeSet<Integer> intersection = new TreeSet<>(firstValues);
+            intersection.retainAll(secondValues);
+            assertContent(RoaringBitmap.and(first, second), intersection);
+            assertContent(RoaringBitmap.and(second, first), intersection);
+            assertEquals(RoaringBitmap.andCardinality(first, second), intersection.size());
+
+            final TreeSet<Integer> union = new TreeSet<>(firstValues);
+            union.addAll(secondValues);
+            assertContent(RoaringBitmap.or(first, second), union);
+
+            final TreeSet<Integer> difference = new TreeSet<>(firstValues);
+            difference.removeAll(secondValues);
+            assertContent(RoaringBitmap.andNot(first, second), difference);
+
+            // operands are left untouched
+            assertContent(first, firstValues);
+            assertContent(second, secondValues);
+        }
+    }
+
+    @Test
+    public void intersectionOfBitmapContainersIsCompacted() {
+        final RoaringBitmap first = new RoaringBitmap();
+        final RoaringBitmap second = new RoaringBitmap();
+        for (int i = 0; i < 6000; i++) {
+            first.add(i);
+            second.add(i + 5990);
+        }
+        final RoaringBitmap intersection = RoaringBitmap.and(first, second);
+        assertEquals(intersection.toArray(), new int[]{5990, 5991, 5992, 5993, 5994, 5995, 5996, 5997, 5998, 5999});
+        // ten values in an array container rather than 8 KB of bitmap words
+        assertTrue(intersection.getSizeInBytes() < 64, String.valueOf(intersection.getSizeInBytes()));
+        assertTrue(RoaringBitmap.andNot(first, RoaringBitmap.and(first, first)).isEmpty());
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        final RoaringBitmap bitmap = RoaringBitmap.of(1, PARTITION, 2 * PARTITION);
+        final RoaringBitmap copy = bitmap.copy();
+        assertEquals(copy, bitmap);
+        assertEquals(copy.hashCode(), bitmap.hashCode());
+        copy.add(3);
+        assertNotEquals(copy, bitmap);
+        assertFalse(bitmap.contains(3));
+        assertTrue(RoaringBitmap.of().isEmpty());
+        assertTrue(RoaringBitmap.or(new RoaringBitmap(), new RoaringBitmap()).isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class LongHashSetTest {
+
+    @Test
+    public void addAndContains() {
+        final LongHashSet set = new LongHashSet(4);
+        assertTrue(set.add(42L));
+        assertFalse(set.add(42L));
+        assertTrue(set.contains(42L));
+        assertFalse(set.contains(43L));
+        assertEquals(set.size(), 1);
+    }
+
+    @Test
+    public void zeroIsAValue() {
+        final LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0L));
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.contains(0L));
+        assertEquals(set.size(), 1);
+    }
+
+    @Test
+    public void growsBeyondExpectedSize() {
+        final LongHashSet set = new LongHashSet(16);
+        final Set<Long> expected = new HashSet<>();
+        final Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            final long key = random.nextLong();
+            assertEquals(set.add(key), expected.add(key));
+        }
+        assertEquals(set.size(), expected.size());
+        expected.forEach(key -> assertTrue(set.contains(key)));
+        for (int i = 0; i < 1000; i++) {
+            final long key = random.nextLong();
+            assertEquals(set.contains(key), expected.contains(key));
+        }
+    }
+}
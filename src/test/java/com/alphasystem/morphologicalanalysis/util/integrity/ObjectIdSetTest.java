@@ -0,0 +1,54 @@
+package com.alphasystem.morphologicalanalysis.util.integrity;
+
+import org.bson.types.ObjectId;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class ObjectIdSetTest {
+
+    @Test
+    public void objectIdAndHexStringAreSameId() {
+        final ObjectIdSet set = new ObjectIdSet();
+        final ObjectId id = new ObjectId();
+        assertTrue(set.add(id));
+        assertFalse(set.add(id.toHexString()));
+        assertTrue(set.contains(id.toHexString()));
+        assertTrue(set.contains(new ObjectId(id.toHexString())));
+        assertEquals(set.size(), 1);
+    }
+
+    @Test
+    public void otherIds() {
+        final ObjectIdSet set = new ObjectIdSet();
+        assertTrue(set.add("1:1:1"));
+        assertFalse(set.add("1:1:1"));
+        assertTrue(set.add(42));
+        assertTrue(set.contains("1:1:1"));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains("1:1:2"));
+        assertEquals(set.size(), 2);
+    }
+
+    @Test
+    public void growsBeyondExpectedSize() {
+        final ObjectIdSet set = new ObjectIdSet(16);
+        final List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            final ObjectId id = new ObjectId();
+            ids.add(id);
+            assertTrue(set.add(id));
+        }
+        assertEquals(set.size(), ids.size());
+        ids.forEach(id -> assertTrue(set.contains(id)));
+        assertFalse(set.contains(new ObjectId()));
+    }
+}
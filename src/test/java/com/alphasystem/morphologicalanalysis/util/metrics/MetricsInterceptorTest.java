@@ -0,0 +1,103 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import com.mongodb.BasicDBObject;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.MongoMappingEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author sali
+ */
+public class MetricsInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private MetricsInterceptor interceptor;
+
+    @BeforeMethod
+    public void setUp() {
+        final RepositoryMetrics repositoryMetrics = new RepositoryMetrics();
+        registry = new SimpleMeterRegistry();
+        repositoryMetrics.setRegistry(registry);
+        interceptor = new MetricsInterceptor(repositoryMetrics, "StringListener", String.class);
+    }
+
+    @Test
+    public void eventsOfDomainTypeAreRecorded() throws Throwable {
+        final Invocation invocation = new Invocation(new AfterSaveEvent<>("text", new BasicDBObject(), "string"));
+        interceptor.invoke(invocation);
+        interceptor.invoke(new Invocation(new AfterDeleteEvent<>(new BasicDBObject(), String.class, "string")));
+        assertEquals(invocation.proceeded.get(), 1);
+        assertEquals(registry.findTimer(RepositoryMetrics.LISTENER_CALLBACK, "listener", "StringListener", "event",
+                "AfterSaveEvent").count(), 1);
+        assertEquals(registry.findTimer(RepositoryMetrics.LISTENER_CALLBACK, "listener", "StringListener", "event",
+                "AfterDeleteEvent").count(), 1);
+    }
+
+    @Test
+    public void eventsOfOtherTypesAreNotRecorded() throws Throwable {
+        final Invocation invocation = new Invocation(new AfterSaveEvent<>(1, new BasicDBObject(), "integer"));
+        interceptor.invoke(invocation);
+        interceptor.invoke(new Invocation(new AfterDeleteEvent<>(new BasicDBObject(), Integer.class, "integer")));
+        interceptor.invoke(new Invocation(new ApplicationEvent("text") {
+        }));
+        assertEquals(invocation.proceeded.get(), 1);
+        assertNull(registry.findTimer(RepositoryMetrics.LISTENER_CALLBACK, "listener", "StringListener", "event",
+                "AfterSaveEvent"));
+        assertEquals(registry.getMeters().size(), 0);
+    }
+
+    /**
+     * Invocation of <code>onApplicationEvent</code> of a listener with the given event.
+     */
+    private static final class Invocation implements MethodInvocation {
+
+        private final AtomicInteger proceeded = new AtomicInteger();
+        private final Object event;
+
+        private Invocation(Object event) {
+            this.event = event;
+        }
+
+        @Override
+        public Method getMethod() {
+            try {
+                return AbstractMongoEventListener.class.getMethod("onApplicationEvent", MongoMappingEvent.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return new Object[]{event};
+        }
+
+        @Override
+        public Object proceed() {
+            proceeded.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public Object getThis() {
+            return null;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return getMethod();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.alphasystem.morphologicalanalysis.util.metrics;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author sali
+ */
+public class SimpleMeterRegistryTest {
+
+    @Test
+    public void countersAreKeyedByNameAndTags() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.counter("repository.calls", "method", "findOne").increment();
+        registry.counter("repository.calls", "method", "findOne").increment(2);
+        registry.counter("repository.calls", "method", "save").increment();
+        assertEquals(registry.findCounter("repository.calls", "method", "findOne").count(), 3);
+        assertEquals(registry.findCounter("repository.calls", "method", "save").count(), 1);
+        assertNull(registry.findCounter("repository.calls", "method", "delete"));
+        assertSame(registry.counter("repository.calls", "method", "save"),
+                registry.findCounter("repository.calls", "method", "save"));
+        assertEquals(registry.getMeters().size(), 2);
+        registry.clear();
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void meterTypeCanNotChange() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.counter("repository.calls");
+        registry.timer("repository.calls");
+    }
+
+    @Test
+    public void findOfOtherTypeReturnsNull() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.counter("repository.calls");
+        assertNull(registry.findTimer("repository.calls"));
+        assertNull(registry.findHistogram("repository.calls"));
+    }
+
+    @Test
+    public void histogram() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final Histogram histogram = registry.histogram("batch.size");
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        // negative values are ignored
+        histogram.record(-1);
+        assertEquals(histogram.count(), 100);
+        assertEquals(histogram.total(), 5050);
+        assertEquals(histogram.max(), 100);
+        assertEquals(histogram.mean(), 50.5, 0.0);
+        // 50th value falls into bucket [32, 63]
+        assertEquals(histogram.percentile(0.5), 63);
+        // upper bound of the last bucket is capped by maximum
+        assertEquals(histogram.percentile(1.0), 100);
+        assertEquals(histogram.percentile(0.0), 0);
+    }
+
+    @Test
+    public void emptyHistogram() {
+        final Histogram histogram = new SimpleMeterRegistry().histogram("batch.size");
+        assertEquals(histogram.count(), 0);
+        assertEquals(histogram.mean(), 0.0, 0.0);
+        assertEquals(histogram.percentile(0.99), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        new SimpleMeterRegistry().histogram("batch.size").percentile(1.5);
+    }
+
+    @Test
+    public void timer() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final Timer timer = registry.timer("repository.latency");
+        timer.record(2, TimeUnit.MILLISECONDS);
+        timer.record(4, TimeUnit.MILLISECONDS);
+        assertEquals(timer.record(() -> "result"), "result");
+        assertEquals(timer.count(), 3);
+        assertTrue(timer.totalTime(TimeUnit.MICROSECONDS) >= 6000);
+        // timed supplier may take a few milliseconds on a loaded machine
+        assertTrue(timer.max(TimeUnit.MILLISECONDS) >= 4);
+        assertTrue(timer.percentile(0.5, TimeUnit.NANOSECONDS) <= TimeUnit.MILLISECONDS.toNanos(4));
+    }
+}